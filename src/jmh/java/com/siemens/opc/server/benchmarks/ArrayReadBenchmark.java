@@ -0,0 +1,96 @@
+package com.siemens.opc.server.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import com.siemens.opc.server.NamespaceConfig;
+import com.siemens.opc.server.milo.NodeTemplate;
+import com.siemens.opc.server.milo.store.ArrayVariableNode;
+import org.eclipse.milo.opcua.sdk.core.AccessLevel;
+import org.eclipse.milo.opcua.sdk.server.nodes.AttributeContext;
+import org.eclipse.milo.opcua.sdk.server.nodes.UaVariableNode;
+import org.eclipse.milo.opcua.stack.core.AttributeId;
+import org.eclipse.milo.opcua.stack.core.Identifiers;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.eclipse.milo.opcua.stack.core.types.builtin.Variant;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.TimestampsToReturn;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.Unsigned.ubyte;
+
+/**
+ * Reads of a slice ({@code 0:15}, {@code 0:1023}) and of the whole value ({@code full}) of a
+ * {@value #LENGTH}-element Double array. {@code array} is an {@link ArrayVariableNode}, {@code object} a plain
+ * variable holding a {@code Double[]}, from which the SDK copies the slice after reading the whole value.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArrayReadBenchmark {
+
+    private static final int LENGTH = 100000;
+
+    @Param({"array", "object"})
+    public String node;
+
+    @Param({"0:15", "0:1023", "full"})
+    public String indexRange;
+
+    private UaVariableNode variable;
+    private AttributeContext context;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        BenchmarkServer server = BenchmarkServer.create(0, NamespaceConfig.DEFAULT);
+        NodeId nodeId = new NodeId(server.getNamespace().getNamespaceIndex(), "Benchmark/Waveform");
+        DataValue initial = new DataValue(new Variant(0.0));
+
+        if ("array".equals(node)) {
+            variable = NodeTemplate.of(
+                "Waveform",
+                Identifiers.Double,
+                ubyte(AccessLevel.getMask(AccessLevel.READ_WRITE)),
+                ubyte(AccessLevel.getMask(AccessLevel.READ_WRITE)),
+                new int[] {LENGTH}).newNode(server.getServer().getNodeMap(), nodeId, null, initial);
+        } else {
+            variable = NodeTemplate.of(
+                "Waveform",
+                Identifiers.Double,
+                ubyte(AccessLevel.getMask(AccessLevel.READ_WRITE)),
+                ubyte(AccessLevel.getMask(AccessLevel.READ_WRITE))).newNode(server.getServer().getNodeMap(), nodeId, null, initial);
+
+            Double[] values = new Double[LENGTH];
+            for (int i = 0; i < LENGTH; i++) {
+                values[i] = (double) i;
+            }
+            variable.setValue(new DataValue(new Variant(values)));
+        }
+
+        context = new AttributeContext(server.getServer());
+    }
+
+    @Benchmark
+    public DataValue read() {
+        return variable.readAttribute(
+            context,
+            AttributeId.Value.uid(),
+            TimestampsToReturn.Both,
+            "full".equals(indexRange) ? null : indexRange,
+            null);
+    }
+
+}
@@ -0,0 +1,121 @@
+package com.siemens.opc.server.benchmarks;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.siemens.opc.server.NamespaceConfig;
+import com.siemens.opc.server.TagDefinition;
+import com.siemens.opc.server.milo.KeyStoreLoader;
+import com.siemens.opc.server.milo.Namespace;
+import org.eclipse.milo.opcua.sdk.core.AccessLevel;
+import org.eclipse.milo.opcua.sdk.server.OpcUaServer;
+import org.eclipse.milo.opcua.sdk.server.api.config.OpcUaServerConfig;
+import org.eclipse.milo.opcua.stack.core.Identifiers;
+import org.eclipse.milo.opcua.stack.core.application.DefaultCertificateManager;
+import org.eclipse.milo.opcua.stack.core.application.DirectoryCertificateValidator;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.eclipse.milo.opcua.stack.core.types.builtin.Variant;
+
+/**
+ * Creates an {@link OpcUaServer} with one or more populated {@link Namespace}s that is never started, so
+ * benchmarks call the namespace services directly without any network in between.
+ */
+public final class BenchmarkServer {
+
+    public static final String NAMESPACE_URI = "urn:siemens:opc:server:benchmark";
+    public static final String NAMESPACE_NAME = "Benchmark";
+    public static final String TAG_FOLDER = "Line";
+
+    private final OpcUaServer server;
+    private final List<Namespace> namespaces;
+
+    private BenchmarkServer(OpcUaServer server, List<Namespace> namespaces) {
+        this.server = server;
+        this.namespaces = namespaces;
+    }
+
+    public static BenchmarkServer create(int tagCount, NamespaceConfig config) throws Exception {
+        return create(tagCount, config, 1);
+    }
+
+    /**
+     * @param namespaceCount namespaces with the same {@code tagCount} tags each; the first one is named
+     *                       {@value #NAMESPACE_NAME}, the others {@value #NAMESPACE_NAME}2, 3 and so on.
+     */
+    public static BenchmarkServer create(int tagCount, NamespaceConfig config, int namespaceCount) throws Exception {
+        File securityDir = Files.createTempDirectory("opc-benchmark").toFile();
+        KeyStoreLoader loader = new KeyStoreLoader().load(securityDir);
+
+        OpcUaServerConfig serverConfig = OpcUaServerConfig.builder()
+            .setApplicationUri("urn:siemens:opc:server:benchmark:application")
+            .setBindAddresses(Collections.singletonList("localhost"))
+            .setBindPort(0)
+            .setCertificateManager(new DefaultCertificateManager(
+                loader.getServerKeyPair(),
+                loader.getServerCertificateChain()))
+            .setCertificateValidator(new DirectoryCertificateValidator(new File(securityDir, "pki")))
+            .build();
+
+        OpcUaServer server = new OpcUaServer(serverConfig);
+
+        List<TagDefinition> tags = tags(tagCount);
+        List<Namespace> namespaces = new ArrayList<>(namespaceCount);
+
+        for (int i = 0; i < namespaceCount; i++) {
+            String suffix = i == 0 ? "" : String.valueOf(i + 1);
+            AtomicReference<Namespace> namespace = new AtomicReference<>();
+
+            server.getNamespaceManager().registerAndAdd(
+                NAMESPACE_URI + suffix,
+                idx -> {
+                    namespace.set(new Namespace(
+                        server, NAMESPACE_URI + suffix, idx, NAMESPACE_NAME + suffix, "ScalarNodes",
+                        Collections.emptyList(), tags, null, null, config));
+                    return namespace.get();
+                });
+
+            namespaces.add(namespace.get());
+        }
+
+        return new BenchmarkServer(server, namespaces);
+    }
+
+    public static List<TagDefinition> tags(int count) {
+        List<TagDefinition> tags = new ArrayList<>(count);
+        int readWrite = AccessLevel.getMask(AccessLevel.READ_WRITE);
+
+        for (int i = 0; i < count; i++) {
+            tags.add(new TagDefinition(TAG_FOLDER, "Tag" + i, Identifiers.Double, new Variant((double) i), readWrite));
+        }
+
+        return tags;
+    }
+
+    public OpcUaServer getServer() {
+        return server;
+    }
+
+    public Namespace getNamespace() {
+        return namespaces.get(0);
+    }
+
+    public List<Namespace> getNamespaces() {
+        return namespaces;
+    }
+
+    public NodeId tagNodeId(int i) {
+        return tagNodeId(0, i);
+    }
+
+    public NodeId tagNodeId(int namespace, int i) {
+        String name = namespace == 0 ? NAMESPACE_NAME : NAMESPACE_NAME + (namespace + 1);
+
+        return new NodeId(
+            namespaces.get(namespace).getNamespaceIndex(), name + "/Tags/" + TAG_FOLDER + "/Tag" + i);
+    }
+
+}
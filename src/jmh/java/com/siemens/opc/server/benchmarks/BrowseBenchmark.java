@@ -0,0 +1,117 @@
+package com.siemens.opc.server.benchmarks;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import com.siemens.opc.server.NamespaceConfig;
+import org.eclipse.milo.opcua.sdk.server.DiagnosticsContext;
+import org.eclipse.milo.opcua.sdk.server.api.ViewManager.BrowseContext;
+import org.eclipse.milo.opcua.sdk.server.services.helpers.BrowseHelper;
+import org.eclipse.milo.opcua.stack.core.Identifiers;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UInteger;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.BrowseDirection;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.BrowseResultMask;
+import org.eclipse.milo.opcua.stack.core.types.structured.BrowseDescription;
+import org.eclipse.milo.opcua.stack.core.types.structured.BrowseResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.Unsigned.uint;
+
+/**
+ * A forward hierarchical browse of the namespace folder, which has a handful of children, and of a tag
+ * folder with {@code tagCount} children. {@code index} is the namespace's precomputed browse, {@code helper}
+ * the SDK's generic browse that filters and describes every reference on each call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BrowseBenchmark {
+
+    @Param({"100", "10000", "50000"})
+    public int tagCount;
+
+    @Param({"index", "helper"})
+    public String path;
+
+    private BenchmarkServer server;
+    private BrowseDescription namespaceFolder;
+    private BrowseDescription tagFolder;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        server = BenchmarkServer.create(tagCount, NamespaceConfig.DEFAULT);
+
+        namespaceFolder = description(new NodeId(
+            server.getNamespace().getNamespaceIndex(),
+            BenchmarkServer.NAMESPACE_NAME));
+        tagFolder = description(new NodeId(
+            server.getNamespace().getNamespaceIndex(),
+            BenchmarkServer.NAMESPACE_NAME + "/Tags/" + BenchmarkServer.TAG_FOLDER));
+    }
+
+    @TearDown(Level.Iteration)
+    public void releaseContinuationPoints() {
+        server.getServer().getBrowseContinuationPoints().clear();
+    }
+
+    @Benchmark
+    public BrowseResult browseNamespaceFolder() throws Exception {
+        return browse(namespaceFolder);
+    }
+
+    @Benchmark
+    public BrowseResult browseTagFolder() throws Exception {
+        BrowseResult result = browse(tagFolder);
+
+        // a client would release or follow it; keep the map from filling up
+        if (result.getContinuationPoint() != null && result.getContinuationPoint().isNotNull()) {
+            server.getServer().getBrowseContinuationPoints().remove(result.getContinuationPoint());
+        }
+
+        return result;
+    }
+
+    private BrowseResult browse(BrowseDescription description) throws Exception {
+        CompletableFuture<List<BrowseResult>> future = new CompletableFuture<>();
+        BrowseContext context = new BrowseContext(server.getServer(), null, future, new DiagnosticsContext<>());
+        UInteger maxReferences = uint(0);
+
+        if ("index".equals(path)) {
+            server.getNamespace().browse(context, null, maxReferences, Collections.singletonList(description));
+
+            return future.get().get(0);
+        } else {
+            return BrowseHelper.browse(context, server.getServer(), null, maxReferences, description).get();
+        }
+    }
+
+    private static BrowseDescription description(NodeId nodeId) {
+        return new BrowseDescription(
+            nodeId,
+            BrowseDirection.Forward,
+            Identifiers.HierarchicalReferences,
+            true,
+            uint(0),
+            uint(BrowseResultMask.All.getValue())
+        );
+    }
+
+}
@@ -0,0 +1,78 @@
+package com.siemens.opc.server.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import com.siemens.opc.server.NamespaceConfig;
+import com.siemens.opc.server.TagDefinition;
+import org.eclipse.milo.opcua.sdk.core.AccessLevel;
+import org.eclipse.milo.opcua.stack.core.Identifiers;
+import org.eclipse.milo.opcua.stack.core.types.builtin.StatusCode;
+import org.eclipse.milo.opcua.stack.core.types.builtin.Variant;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Adds a batch of {@value #BATCH_SIZE} tags in a folder of their own with {@code Namespace.addTags} and deletes
+ * them again with {@code Namespace.deleteTags}, next to {@code tagCount} tags that stay; the time is per tag
+ * added and deleted. It should not grow with {@code tagCount}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BulkTagBenchmark {
+
+    private static final int BATCH_SIZE = 10000;
+
+    @Param({"0", "100000"})
+    public int tagCount;
+
+    private BenchmarkServer server;
+    private List<TagDefinition> batch;
+    private List<String> paths;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        server = BenchmarkServer.create(tagCount, NamespaceConfig.DEFAULT);
+
+        int readWrite = AccessLevel.getMask(AccessLevel.READ_WRITE);
+        batch = new ArrayList<>(BATCH_SIZE);
+        paths = new ArrayList<>(BATCH_SIZE);
+
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            batch.add(new TagDefinition("Bulk", "Tag" + i, Identifiers.Double, new Variant((double) i), readWrite));
+            paths.add("Bulk/Tag" + i);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        server.getNamespace().shutdown();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public StatusCode[] addAndDelete() {
+        server.getNamespace().addTags(Optional.empty(), batch);
+
+        return server.getNamespace().deleteTags(Optional.empty(), paths);
+    }
+
+}
@@ -0,0 +1,114 @@
+package com.siemens.opc.server.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import com.siemens.opc.server.milo.types.CustomDataType;
+import com.siemens.opc.server.milo.types.CustomDataTypeCodec;
+import com.siemens.opc.server.milo.types.StructureField;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.eclipse.milo.opcua.stack.core.serialization.OpcUaBinaryStreamDecoder;
+import org.eclipse.milo.opcua.stack.core.serialization.OpcUaBinaryStreamEncoder;
+import org.eclipse.milo.opcua.stack.core.serialization.codecs.SerializationContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.Unsigned.uint;
+
+/**
+ * Binary encoding and decoding of a {@link CustomDataType} with its hand-written {@link CustomDataType.Codec}
+ * and with its generated {@link CustomDataTypeCodec}, using one reused buffer. {@code decodeCounter} decodes a
+ * structure of primitive fields, with a UInt32 held in a {@code long}, with its generated codec.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodecBenchmark {
+
+    private final CustomDataType.Codec codec = new CustomDataType.Codec();
+    private final CustomDataTypeCodec generatedCodec = new CustomDataTypeCodec();
+    private final CustomDataType value = new CustomDataType("foo", uint(42), true);
+
+    private final CounterCodec counterCodec = new CounterCodec();
+    private final Counter counter = new Counter(3_000_000_000L, 42.5, true);
+
+    private ByteBuf buffer;
+    private OpcUaBinaryStreamEncoder encoder;
+    private OpcUaBinaryStreamDecoder decoder;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        buffer = Unpooled.buffer(256);
+        encoder = new OpcUaBinaryStreamEncoder(buffer);
+        decoder = new OpcUaBinaryStreamDecoder(buffer);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        buffer.release();
+    }
+
+    @Benchmark
+    public ByteBuf encode() {
+        buffer.clear();
+        codec.encode(SerializationContext.INTERNAL, value, encoder);
+        return buffer;
+    }
+
+    @Benchmark
+    public CustomDataType decode() {
+        buffer.clear();
+        codec.encode(SerializationContext.INTERNAL, value, encoder);
+        return codec.decode(SerializationContext.INTERNAL, decoder);
+    }
+
+    @Benchmark
+    public ByteBuf encodeGenerated() {
+        buffer.clear();
+        generatedCodec.encode(SerializationContext.INTERNAL, value, encoder);
+        return buffer;
+    }
+
+    @Benchmark
+    public CustomDataType decodeGenerated() {
+        buffer.clear();
+        generatedCodec.encode(SerializationContext.INTERNAL, value, encoder);
+        return generatedCodec.decode(SerializationContext.INTERNAL, decoder);
+    }
+
+    @Benchmark
+    public Counter decodeCounter() {
+        buffer.clear();
+        counterCodec.encode(SerializationContext.INTERNAL, counter, encoder);
+        return counterCodec.decode(SerializationContext.INTERNAL, decoder);
+    }
+
+    public static class Counter {
+        @StructureField(order = 0, encoding = StructureField.Encoding.UINT32)
+        final long count;
+        @StructureField(order = 1)
+        final double rate;
+        @StructureField(order = 2)
+        final boolean running;
+
+        Counter(long count, double rate, boolean running) {
+            this.count = count;
+            this.rate = rate;
+            this.running = running;
+        }
+    }
+
+}
@@ -0,0 +1,125 @@
+package com.siemens.opc.server.benchmarks;
+
+import java.io.Writer;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import com.siemens.opc.server.NamespaceConfig;
+import com.siemens.opc.server.milo.RestrictedAccessDelegate;
+import com.siemens.opc.server.milo.ValueLoggingDelegate;
+import com.siemens.opc.server.milo.audit.AccessLog;
+import org.eclipse.milo.opcua.sdk.core.AccessLevel;
+import org.eclipse.milo.opcua.sdk.server.Session;
+import org.eclipse.milo.opcua.sdk.server.nodes.AttributeContext;
+import org.eclipse.milo.opcua.sdk.server.nodes.UaVariableNode;
+import org.eclipse.milo.opcua.sdk.server.nodes.delegates.AttributeDelegate;
+import org.eclipse.milo.opcua.sdk.server.nodes.delegates.AttributeDelegateChain;
+import org.eclipse.milo.opcua.stack.core.AttributeId;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Reads the Value and UserAccessLevel attributes of a tag node through the {@link ValueLoggingDelegate}
+ * and {@link RestrictedAccessDelegate} chains, for internal reads and for reads of a client session.
+ * Access records go to an {@link AccessLog} that discards its output.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DelegateBenchmark {
+
+    @Param({"none", "valueLogging", "restricted", "restrictedValueLogging"})
+    public String chain;
+
+    @Param({"internal", "session"})
+    public String caller;
+
+    private AccessLog accessLog;
+    private UaVariableNode node;
+    private AttributeContext context;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        BenchmarkServer server = BenchmarkServer.create(1, NamespaceConfig.DEFAULT);
+
+        accessLog = new AccessLog(65536, 1, nodeId -> true, new NullWriter());
+
+        node = (UaVariableNode) server.getServer().getNodeMap().get(server.tagNodeId(0));
+        node.setAttributeDelegate(delegate());
+
+        if ("session".equals(caller)) {
+            Session session = new Session(
+                server.getServer(), new NodeId(0, "benchmark-session"), "benchmark", Duration.ofMinutes(1), 0L);
+            session.setIdentityObject("user");
+
+            context = new AttributeContext(server.getServer(), session);
+        } else {
+            context = new AttributeContext(server.getServer());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        accessLog.close();
+    }
+
+    private AttributeDelegate delegate() {
+        switch (chain) {
+            case "valueLogging":
+                return new ValueLoggingDelegate(null, accessLog);
+            case "restricted":
+                return new RestrictedAccessDelegate(identity ->
+                    "admin".equals(identity) ? AccessLevel.READ_WRITE : AccessLevel.READ_ONLY);
+            case "restrictedValueLogging":
+                return AttributeDelegateChain.create(
+                    new RestrictedAccessDelegate(identity ->
+                        "admin".equals(identity) ? AccessLevel.READ_WRITE : AccessLevel.READ_ONLY),
+                    parent -> new ValueLoggingDelegate(parent, accessLog));
+            default:
+                // the attribute values of the node itself
+                return new AttributeDelegate() {
+                };
+        }
+    }
+
+    @Benchmark
+    public DataValue readValue() {
+        return node.readAttribute(context, AttributeId.Value.uid());
+    }
+
+    @Benchmark
+    public DataValue readUserAccessLevel() {
+        return node.readAttribute(context, AttributeId.UserAccessLevel.uid());
+    }
+
+    private static class NullWriter extends Writer {
+        @Override
+        public void write(char[] buffer, int offset, int length) {
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+}
@@ -0,0 +1,133 @@
+package com.siemens.opc.server.benchmarks;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import com.siemens.opc.server.NamespaceConfig;
+import com.siemens.opc.server.milo.methods.DirectInvocationHandler;
+import com.siemens.opc.server.milo.methods.SqrtMethod;
+import org.eclipse.milo.opcua.sdk.server.DiagnosticsContext;
+import org.eclipse.milo.opcua.sdk.server.api.MethodServices.CallContext;
+import org.eclipse.milo.opcua.sdk.server.util.AnnotationBasedInvocationHandler;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.eclipse.milo.opcua.stack.core.types.builtin.Variant;
+import org.eclipse.milo.opcua.stack.core.types.structured.CallMethodRequest;
+import org.eclipse.milo.opcua.stack.core.types.structured.CallMethodResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * A call of {@link SqrtMethod}, including the argument conversion of the handler: through Milo's
+ * {@link AnnotationBasedInvocationHandler} ({@code invoke}), through the {@link DirectInvocationHandler} of the
+ * sqrt(x) method node ({@code invokeDirect}), and through {@code Namespace.call} and its method executor
+ * ({@code call}). {@code callArray} computes a batch of {@value #BATCH_SIZE} roots with one call of sqrt(x[]);
+ * its time is per root.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MethodBenchmark {
+
+    private static final int BATCH_SIZE = 100;
+
+    private BenchmarkServer server;
+    private AnnotationBasedInvocationHandler handler;
+    private DirectInvocationHandler directHandler;
+    private CallMethodRequest request;
+    private List<CallMethodRequest> callRequests;
+    private List<CallMethodRequest> arrayRequests;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        server = BenchmarkServer.create(0, NamespaceConfig.DEFAULT);
+        handler = AnnotationBasedInvocationHandler.fromAnnotatedObject(
+            server.getServer().getNodeMap(), new SqrtMethod());
+        directHandler = DirectInvocationHandler.fromAnnotatedObject(
+            server.getServer().getNodeMap(), new SqrtMethod());
+
+        int namespaceIndex = server.getNamespace().getNamespaceIndex().intValue();
+
+        request = new CallMethodRequest(
+            new NodeId(namespaceIndex, BenchmarkServer.NAMESPACE_NAME),
+            new NodeId(namespaceIndex, BenchmarkServer.NAMESPACE_NAME + "/sqrt(x)"),
+            new Variant[]{new Variant(2.0)});
+
+        Double[] values = new Double[BATCH_SIZE];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (double) i;
+        }
+
+        callRequests = Collections.singletonList(request);
+        arrayRequests = Collections.singletonList(new CallMethodRequest(
+            request.getObjectId(),
+            new NodeId(namespaceIndex, BenchmarkServer.NAMESPACE_NAME + "/sqrt(x[])"),
+            new Variant[]{new Variant(values)}));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        server.getNamespace().shutdown();
+    }
+
+    @Benchmark
+    public CallMethodResult invoke() throws Exception {
+        CompletableFuture<CallMethodResult> future = new CompletableFuture<>();
+
+        CallContext context = new CallContext(
+            server.getServer(), null, new CompletableFuture<>(), new DiagnosticsContext<>());
+
+        handler.invoke(context, request, future);
+
+        return future.get();
+    }
+
+    @Benchmark
+    public CallMethodResult invokeDirect() throws Exception {
+        CompletableFuture<CallMethodResult> future = new CompletableFuture<>();
+
+        CallContext context = new CallContext(
+            server.getServer(), null, new CompletableFuture<>(), new DiagnosticsContext<>());
+
+        directHandler.invoke(context, request, future);
+
+        return future.get();
+    }
+
+    @Benchmark
+    public List<CallMethodResult> call() throws Exception {
+        return call(callRequests);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public List<CallMethodResult> callArray() throws Exception {
+        return call(arrayRequests);
+    }
+
+    private List<CallMethodResult> call(List<CallMethodRequest> requests) throws Exception {
+        CompletableFuture<List<CallMethodResult>> future = new CompletableFuture<>();
+
+        CallContext context = new CallContext(server.getServer(), null, future, new DiagnosticsContext<>());
+
+        server.getNamespace().call(context, requests);
+
+        return future.get();
+    }
+
+}
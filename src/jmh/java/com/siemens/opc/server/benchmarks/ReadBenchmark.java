@@ -0,0 +1,86 @@
+package com.siemens.opc.server.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import com.siemens.opc.server.NamespaceConfig;
+import org.eclipse.milo.opcua.sdk.server.DiagnosticsContext;
+import org.eclipse.milo.opcua.sdk.server.api.AttributeManager.ReadContext;
+import org.eclipse.milo.opcua.stack.core.AttributeId;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
+import org.eclipse.milo.opcua.stack.core.types.builtin.QualifiedName;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.TimestampsToReturn;
+import org.eclipse.milo.opcua.stack.core.types.structured.ReadValueId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Sequential versus chunked parallel {@code Namespace.read} at several batch sizes. The batch size where
+ * {@code parallel} overtakes {@code sequential} is a good value for {@code parallelReadThreshold}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReadBenchmark {
+
+    private static final int TAG_COUNT = 20000;
+
+    @Param({"100", "500", "1000", "2000", "5000", "20000"})
+    public int batchSize;
+
+    @Param({"sequential", "parallel"})
+    public String mode;
+
+    @Param({"1024"})
+    public int chunkSize;
+
+    private BenchmarkServer server;
+    private List<ReadValueId> readValueIds;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty("parallelReadThreshold", "sequential".equals(mode) ? String.valueOf(Integer.MAX_VALUE) : "0");
+        properties.setProperty("readChunkSize", String.valueOf(chunkSize));
+
+        server = BenchmarkServer.create(TAG_COUNT, new NamespaceConfig(properties));
+
+        readValueIds = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            readValueIds.add(new ReadValueId(
+                server.tagNodeId(i % TAG_COUNT),
+                AttributeId.Value.uid(),
+                null,
+                QualifiedName.NULL_VALUE));
+        }
+    }
+
+    @Benchmark
+    public List<DataValue> read() throws Exception {
+        CompletableFuture<List<DataValue>> future = new CompletableFuture<>();
+
+        ReadContext context = new ReadContext(
+            server.getServer(), null, future, new DiagnosticsContext<>());
+
+        server.getNamespace().read(context, 0.0, TimestampsToReturn.Both, readValueIds);
+
+        return future.get();
+    }
+
+}
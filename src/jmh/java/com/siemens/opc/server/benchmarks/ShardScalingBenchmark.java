@@ -0,0 +1,98 @@
+package com.siemens.opc.server.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import com.siemens.opc.server.NamespaceConfig;
+import com.siemens.opc.server.milo.Namespace;
+import org.eclipse.milo.opcua.sdk.server.DiagnosticsContext;
+import org.eclipse.milo.opcua.sdk.server.api.AttributeManager.ReadContext;
+import org.eclipse.milo.opcua.stack.core.AttributeId;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
+import org.eclipse.milo.opcua.stack.core.types.builtin.QualifiedName;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.TimestampsToReturn;
+import org.eclipse.milo.opcua.stack.core.types.structured.ReadValueId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Reads {@value #TOTAL_ITEMS} values split evenly across {@code shards} namespaces, each with a single-threaded
+ * service executor ({@code serviceThreads=1}), and waits for all of them. With linear scaling the time halves
+ * whenever the number of shards doubles, up to the number of cores.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShardScalingBenchmark {
+
+    private static final int TOTAL_ITEMS = 160000;
+
+    @Param({"1", "2", "4", "8", "16"})
+    public int shards;
+
+    private BenchmarkServer server;
+    private List<List<ReadValueId>> readValueIds;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty("serviceThreads", "1");
+        properties.setProperty("parallelReadThreshold", String.valueOf(Integer.MAX_VALUE));
+
+        int itemsPerShard = TOTAL_ITEMS / shards;
+        server = BenchmarkServer.create(itemsPerShard, new NamespaceConfig(properties), shards);
+
+        readValueIds = new ArrayList<>(shards);
+        for (int shard = 0; shard < shards; shard++) {
+            List<ReadValueId> ids = new ArrayList<>(itemsPerShard);
+            for (int i = 0; i < itemsPerShard; i++) {
+                ids.add(new ReadValueId(
+                    server.tagNodeId(shard, i),
+                    AttributeId.Value.uid(),
+                    null,
+                    QualifiedName.NULL_VALUE));
+            }
+            readValueIds.add(ids);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        server.getNamespaces().forEach(Namespace::shutdown);
+    }
+
+    @Benchmark
+    public Object read() throws Exception {
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[shards];
+
+        for (int shard = 0; shard < shards; shard++) {
+            CompletableFuture<List<DataValue>> future = new CompletableFuture<>();
+
+            ReadContext context = new ReadContext(
+                server.getServer(), null, future, new DiagnosticsContext<>());
+
+            server.getNamespaces().get(shard).read(context, 0.0, TimestampsToReturn.Both, readValueIds.get(shard));
+            futures[shard] = future;
+        }
+
+        return CompletableFuture.allOf(futures).get();
+    }
+
+}
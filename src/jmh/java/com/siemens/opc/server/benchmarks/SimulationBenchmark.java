@@ -0,0 +1,89 @@
+package com.siemens.opc.server.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import com.siemens.opc.server.NamespaceConfig;
+import com.siemens.opc.server.milo.simulation.SignalBank;
+import com.siemens.opc.server.milo.simulation.SignalType;
+import com.siemens.opc.server.milo.simulation.SignalValueDelegate;
+import org.eclipse.milo.opcua.sdk.core.AccessLevel;
+import org.eclipse.milo.opcua.sdk.server.OpcUaServer;
+import org.eclipse.milo.opcua.sdk.server.nodes.AttributeContext;
+import org.eclipse.milo.opcua.sdk.server.nodes.UaVariableNode;
+import org.eclipse.milo.opcua.stack.core.AttributeId;
+import org.eclipse.milo.opcua.stack.core.Identifiers;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
+import org.eclipse.milo.opcua.stack.core.types.builtin.LocalizedText;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.eclipse.milo.opcua.stack.core.types.builtin.QualifiedName;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.Unsigned.ubyte;
+
+/**
+ * The Dynamic node delegates: one tick of a {@link SignalBank} with {@code signals} signals of one type,
+ * and a read of a single signal through its {@link SignalValueDelegate}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SimulationBenchmark {
+
+    @Param({"1000", "10000"})
+    public int signals;
+
+    @Param({"SINE", "RAMP", "SQUARE", "RANDOM_WALK", "COUNTER"})
+    public SignalType type;
+
+    private SignalBank bank;
+    private UaVariableNode node;
+    private AttributeContext context;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        bank = new SignalBank("Benchmark", 100, 10, 100, signals);
+        for (int i = 0; i < signals; i++) {
+            bank.add(type);
+        }
+
+        OpcUaServer server = BenchmarkServer.create(0, NamespaceConfig.DEFAULT).getServer();
+
+        node = new UaVariableNode.UaVariableNodeBuilder(server.getNodeMap())
+            .setNodeId(new NodeId(0, "Benchmark/Signal"))
+            .setAccessLevel(ubyte(AccessLevel.getMask(AccessLevel.READ_ONLY)))
+            .setBrowseName(new QualifiedName(0, "Signal"))
+            .setDisplayName(LocalizedText.english("Signal"))
+            .setDataType(Identifiers.Double)
+            .setTypeDefinition(Identifiers.BaseDataVariableType)
+            .build();
+        node.setAttributeDelegate(new SignalValueDelegate(bank, 0, Identifiers.Double));
+
+        context = new AttributeContext(server);
+    }
+
+    @Benchmark
+    public SignalBank tick() {
+        bank.run();
+        return bank;
+    }
+
+    @Benchmark
+    public DataValue read() {
+        return node.readAttribute(context, AttributeId.Value.uid());
+    }
+
+}
@@ -0,0 +1,434 @@
+package com.siemens.opc.server.benchmarks;
+
+import java.io.InputStream;
+import java.io.Writer;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.siemens.opc.server.OpcServerApp;
+import com.siemens.opc.server.milo.diagnostics.LatencyHistogram;
+import com.siemens.opc.server.milo.diagnostics.OperationStats;
+import org.eclipse.milo.opcua.sdk.client.OpcUaClient;
+import org.eclipse.milo.opcua.sdk.client.api.config.OpcUaClientConfig;
+import org.eclipse.milo.opcua.sdk.client.api.identity.AnonymousProvider;
+import org.eclipse.milo.opcua.sdk.client.api.subscriptions.UaSubscription;
+import org.eclipse.milo.opcua.stack.client.UaTcpStackClient;
+import org.eclipse.milo.opcua.stack.core.AttributeId;
+import org.eclipse.milo.opcua.stack.core.Identifiers;
+import org.eclipse.milo.opcua.stack.core.security.SecurityPolicy;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DateTime;
+import org.eclipse.milo.opcua.stack.core.types.builtin.LocalizedText;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.eclipse.milo.opcua.stack.core.types.builtin.QualifiedName;
+import org.eclipse.milo.opcua.stack.core.types.builtin.StatusCode;
+import org.eclipse.milo.opcua.stack.core.types.builtin.Variant;
+import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UShort;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.MonitoringMode;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.TimestampsToReturn;
+import org.eclipse.milo.opcua.stack.core.types.structured.CallMethodRequest;
+import org.eclipse.milo.opcua.stack.core.types.structured.EndpointDescription;
+import org.eclipse.milo.opcua.stack.core.types.structured.MonitoredItemCreateRequest;
+import org.eclipse.milo.opcua.stack.core.types.structured.MonitoringParameters;
+import org.eclipse.milo.opcua.stack.core.types.structured.ReadValueId;
+
+import static org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.Unsigned.uint;
+import static org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.Unsigned.ushort;
+
+/**
+ * Starts {@link OpcServerApp} on a free local port with the bundled opcserver.properties and a generated tag file,
+ * and drives it with embedded Milo clients: {@code sessions} sessions with {@code items} monitored items each, and
+ * read batches, write batches and sqrt(x) calls at fixed rates spread over the sessions. Every report interval
+ * it prints the throughput and latency percentiles of each kind of request, the notifications received and their
+ * lag behind the source time of the written values, and the heap and GC activity of the process, which holds
+ * both the server and the clients. Everything runs on localhost, no network access is needed.
+ * <p>
+ * Requests beyond {@value #MAX_OUTSTANDING} outstanding ones of a kind are skipped and counted, so an overloaded
+ * server shows up as a rate below the offered one instead of an ever growing backlog.
+ * <p>
+ * Arguments: [sessions] [items per session] [read batches/s] [write batches/s] [calls/s] [batch size] [seconds]
+ * [report seconds], e.g.
+ * {@code gradle benchmarkMain -PmainClass=com.siemens.opc.server.benchmarks.SoakTest -PmainArgs="10 1000 50 20 10 100 3600 10"}
+ */
+public class SoakTest {
+
+    private static final int MAX_OUTSTANDING = 1000;
+    private static final double PUBLISHING_INTERVAL = 100.0;
+    private static final String TAG_FOLDER = "Load";
+
+    public static void main(String[] args) throws Exception {
+        int sessions = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        int items = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int readRate = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+        int writeRate = args.length > 3 ? Integer.parseInt(args[3]) : 20;
+        int callRate = args.length > 4 ? Integer.parseInt(args[4]) : 10;
+        int batchSize = args.length > 5 ? Integer.parseInt(args[5]) : 100;
+        int seconds = args.length > 6 ? Integer.parseInt(args[6]) : 600;
+        int reportSeconds = args.length > 7 ? Integer.parseInt(args[7]) : 10;
+
+        int tags = Math.max(1000, Math.max(items, batchSize));
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+
+        Properties properties = new Properties();
+        try (InputStream in = OpcServerApp.class.getResourceAsStream("/opcserver.properties")) {
+            properties.load(in);
+        }
+        properties.setProperty("applicationPort", String.valueOf(port));
+        properties.setProperty("tagFile", writeTagFile(tags).toString());
+        properties.setProperty("accessLogFile", "");
+        properties.setProperty("snapshotDir", "");
+
+        OpcServerApp app = new OpcServerApp(properties);
+        app.startup().get();
+
+        String url = "opc.tcp://localhost:" + port + "/" + properties.getProperty("serverName");
+        List<OpcUaClient> clients = new ArrayList<>(sessions);
+        for (int i = 0; i < sessions; i++) {
+            clients.add(connect(url));
+        }
+
+        SoakTest test = new SoakTest(clients, namespaceIndex(clients.get(0)), tags, batchSize);
+        test.subscribe(items);
+
+        // let the initial values of the monitored items arrive before measuring
+        Thread.sleep(2000);
+        test.reset();
+
+        test.start(readRate, writeRate, callRate);
+        test.report(seconds, reportSeconds);
+        test.stop();
+
+        for (OpcUaClient client : clients) {
+            client.disconnect().get();
+        }
+        app.shutdown().get();
+
+        System.exit(0);
+    }
+
+    private static Path writeTagFile(int tags) throws Exception {
+        Path file = Files.createTempFile("soak-tags", ".txt");
+        file.toFile().deleteOnExit();
+
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < tags; i++) {
+                out.write(TAG_FOLDER + ";Tag" + i + ";Double;RW;0\n");
+            }
+        }
+
+        return file;
+    }
+
+    private static OpcUaClient connect(String url) throws Exception {
+        EndpointDescription endpoint = Arrays.stream(UaTcpStackClient.getEndpoints(url).get())
+            .filter(e -> SecurityPolicy.None.getSecurityPolicyUri().equals(e.getSecurityPolicyUri()))
+            .findFirst()
+            .orElseThrow(() -> new Exception("no endpoint without security at " + url));
+
+        // the server announces its host names, the test stays on localhost
+        URI announced = URI.create(endpoint.getEndpointUrl());
+        EndpointDescription local = new EndpointDescription(
+            "opc.tcp://localhost:" + announced.getPort() + announced.getPath(),
+            endpoint.getServer(),
+            endpoint.getServerCertificate(),
+            endpoint.getSecurityMode(),
+            endpoint.getSecurityPolicyUri(),
+            endpoint.getUserIdentityTokens(),
+            endpoint.getTransportProfileUri(),
+            endpoint.getSecurityLevel());
+
+        OpcUaClientConfig config = OpcUaClientConfig.builder()
+            .setApplicationName(LocalizedText.english("soak test client"))
+            .setApplicationUri("urn:siemens:opc:server:soak-test")
+            .setEndpoint(local)
+            .setIdentityProvider(new AnonymousProvider())
+            .setRequestTimeout(uint(10000))
+            .build();
+
+        OpcUaClient client = new OpcUaClient(config);
+        client.connect().get();
+
+        return client;
+    }
+
+    private static UShort namespaceIndex(OpcUaClient client) throws Exception {
+        DataValue value = client.readValue(0.0, TimestampsToReturn.Neither, Identifiers.Server_NamespaceArray).get();
+        int index = Arrays.asList((String[]) value.getValue().getValue()).indexOf(OpcServerApp.SIMULATION_URI);
+
+        if (index < 0) {
+            throw new Exception("namespace " + OpcServerApp.SIMULATION_URI + " is missing");
+        }
+
+        return ushort(index);
+    }
+
+    private final List<OpcUaClient> clients;
+    private final NodeId[] tagIds;
+    private final NodeId folderId;
+    private final NodeId sqrtId;
+    private final int batchSize;
+
+    private final Traffic reads = new Traffic("read");
+    private final Traffic writes = new Traffic("write");
+    private final Traffic calls = new Traffic("call");
+
+    private final LatencyHistogram notificationLag = new LatencyHistogram();
+    private final LongAdder notifications = new LongAdder();
+
+    private final AtomicInteger nextSession = new AtomicInteger();
+    private final AtomicInteger nextTag = new AtomicInteger();
+
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(
+        3, new ThreadFactoryBuilder().setNameFormat("soak-%d").setDaemon(true).build());
+
+    private SoakTest(List<OpcUaClient> clients, UShort namespaceIndex, int tags, int batchSize) {
+        this.clients = clients;
+        this.batchSize = batchSize;
+        this.folderId = new NodeId(namespaceIndex, "Simulation");
+        this.sqrtId = new NodeId(namespaceIndex, "Simulation/sqrt(x)");
+
+        tagIds = new NodeId[tags];
+        for (int i = 0; i < tags; i++) {
+            tagIds[i] = new NodeId(namespaceIndex, "Simulation/Tags/" + TAG_FOLDER + "/Tag" + i);
+        }
+    }
+
+    private void subscribe(int items) throws Exception {
+        for (int session = 0; session < clients.size(); session++) {
+            UaSubscription subscription =
+                clients.get(session).getSubscriptionManager().createSubscription(PUBLISHING_INTERVAL).get();
+
+            List<MonitoredItemCreateRequest> requests = new ArrayList<>(items);
+            for (int i = 0; i < items; i++) {
+                NodeId tagId = tagIds[(session * items + i) % tagIds.length];
+
+                requests.add(new MonitoredItemCreateRequest(
+                    new ReadValueId(tagId, AttributeId.Value.uid(), null, QualifiedName.NULL_VALUE),
+                    MonitoringMode.Reporting,
+                    new MonitoringParameters(uint(i), PUBLISHING_INTERVAL, null, uint(10), true)));
+            }
+
+            subscription.createMonitoredItems(
+                TimestampsToReturn.Both,
+                requests,
+                (item, i) -> item.setValueConsumer(this::onNotification)
+            ).get();
+        }
+    }
+
+    private void onNotification(DataValue value) {
+        notifications.increment();
+
+        DateTime sourceTime = value.getSourceTime();
+        if (sourceTime != null) {
+            long lagMillis = System.currentTimeMillis() - sourceTime.getJavaTime();
+            notificationLag.record(TimeUnit.MILLISECONDS.toNanos(lagMillis));
+        }
+    }
+
+    private void reset() {
+        notifications.reset();
+        notificationLag.snapshotAndReset();
+    }
+
+    private void start(int readRate, int writeRate, int callRate) {
+        schedule(reads, readRate, () -> {
+            List<NodeId> nodeIds = nextBatch();
+            return session().readValues(0.0, TimestampsToReturn.Both, nodeIds)
+                .thenApply(values -> countBad(values.stream().map(DataValue::getStatusCode).toArray(StatusCode[]::new)));
+        });
+
+        schedule(writes, writeRate, () -> {
+            List<NodeId> nodeIds = nextBatch();
+            List<DataValue> values = new ArrayList<>(nodeIds.size());
+            DateTime now = DateTime.now();
+            for (int i = 0; i < nodeIds.size(); i++) {
+                values.add(new DataValue(new Variant((double) System.nanoTime()), StatusCode.GOOD, now));
+            }
+            return session().writeValues(nodeIds, values)
+                .thenApply(statusCodes -> countBad(statusCodes.toArray(new StatusCode[0])));
+        });
+
+        schedule(calls, callRate, () -> session()
+            .call(new CallMethodRequest(folderId, sqrtId, new Variant[]{new Variant(Math.random() * 1000)}))
+            .thenApply(result -> result.getStatusCode().isBad() ? 1 : 0));
+    }
+
+    private void schedule(Traffic traffic, int rate, Supplier<CompletableFuture<Integer>> request) {
+        if (rate <= 0) {
+            return;
+        }
+
+        int items = traffic == calls ? 1 : batchSize;
+
+        scheduler.scheduleAtFixedRate(() -> {
+            if (!traffic.outstanding.tryAcquire()) {
+                traffic.skipped.increment();
+                return;
+            }
+
+            long start = System.nanoTime();
+
+            request.get().whenComplete((errors, ex) -> {
+                traffic.outstanding.release();
+                traffic.stats.record(start, items, ex != null ? items : errors);
+            });
+        }, 0, TimeUnit.SECONDS.toNanos(1) / rate, TimeUnit.NANOSECONDS);
+    }
+
+    private OpcUaClient session() {
+        return clients.get(Math.floorMod(nextSession.getAndIncrement(), clients.size()));
+    }
+
+    private List<NodeId> nextBatch() {
+        int first = Math.floorMod(nextTag.getAndAdd(batchSize), tagIds.length);
+        List<NodeId> nodeIds = new ArrayList<>(batchSize);
+
+        for (int i = 0; i < batchSize; i++) {
+            nodeIds.add(tagIds[(first + i) % tagIds.length]);
+        }
+
+        return nodeIds;
+    }
+
+    private static int countBad(StatusCode[] statusCodes) {
+        int bad = 0;
+        for (StatusCode statusCode : statusCodes) {
+            if (statusCode != null && statusCode.isBad()) {
+                bad++;
+            }
+        }
+        return bad;
+    }
+
+    private void report(int seconds, int reportSeconds) throws InterruptedException {
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(seconds);
+        long[] gc = gcActivity();
+        long lastNotifications = 0;
+
+        while (System.nanoTime() < end) {
+            Thread.sleep(TimeUnit.SECONDS.toMillis(Math.max(1, reportSeconds)));
+
+            long elapsed = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start);
+            System.out.printf("--- %ds%n", elapsed);
+
+            for (Traffic traffic : new Traffic[]{reads, writes, calls}) {
+                traffic.print(reportSeconds);
+            }
+
+            long received = notifications.sum();
+            LatencyHistogram.Snapshot lag = notificationLag.snapshotAndReset();
+            System.out.printf(
+                "notifications %8.0f/s total=%d lagP50=%.1fms lagP99=%.1fms lagMax=%.1fms%n",
+                (received - lastNotifications) / (double) reportSeconds, received,
+                millis(lag.getValueAt(0.5)), millis(lag.getValueAt(0.99)), millis(lag.getMax()));
+            lastNotifications = received;
+
+            long[] now = gcActivity();
+            MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+            System.out.printf(
+                "heap used=%.1fMB afterGc=%.1fMB max=%.1fMB gcs=%d gcTime=%dms%n",
+                heap.getUsed() / 1e6, heapAfterGc() / 1e6, heap.getMax() / 1e6, now[0] - gc[0], now[1] - gc[1]);
+            gc = now;
+        }
+
+        System.out.println("--- totals");
+        for (Traffic traffic : new Traffic[]{reads, writes, calls}) {
+            System.out.printf(
+                "%-5s requests=%d items=%d errors=%d skipped=%d%n",
+                traffic.name, traffic.stats.getOperations(), traffic.stats.getItems(), traffic.stats.getErrors(),
+                traffic.skipped.sum());
+        }
+        System.out.printf("notifications=%d%n", notifications.sum());
+    }
+
+    private void stop() throws InterruptedException {
+        scheduler.shutdownNow();
+        scheduler.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @return the heap in use right after the last collection of each pool, which only grows if something leaks.
+     */
+    private static long heapAfterGc() {
+        long used = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.getCollectionUsage() != null) {
+                used += pool.getCollectionUsage().getUsed();
+            }
+        }
+        return used;
+    }
+
+    private static long[] gcActivity() {
+        long count = 0;
+        long millis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+            millis += Math.max(0, gc.getCollectionTime());
+        }
+        return new long[]{count, millis};
+    }
+
+    private static double millis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    private static class Traffic {
+        final String name;
+        final OperationStats stats = new OperationStats();
+        final Semaphore outstanding = new Semaphore(MAX_OUTSTANDING);
+        final LongAdder skipped = new LongAdder();
+
+        private long lastOperations;
+        private long lastItems;
+
+        Traffic(String name) {
+            this.name = name;
+        }
+
+        void print(int reportSeconds) {
+            long operations = stats.getOperations();
+            long items = stats.getItems();
+            LatencyHistogram.Snapshot latency = stats.getLatency().snapshotAndReset();
+
+            System.out.printf(
+                "%-5s %8.0f req/s %10.0f items/s p50=%.2fms p99=%.2fms p999=%.2fms max=%.2fms errors=%d skipped=%d%n",
+                name,
+                (operations - lastOperations) / (double) reportSeconds,
+                (items - lastItems) / (double) reportSeconds,
+                millis(latency.getValueAt(0.5)), millis(latency.getValueAt(0.99)),
+                millis(latency.getValueAt(0.999)), millis(latency.getMax()),
+                stats.getErrors(), skipped.sum());
+
+            lastOperations = operations;
+            lastItems = items;
+        }
+    }
+
+}
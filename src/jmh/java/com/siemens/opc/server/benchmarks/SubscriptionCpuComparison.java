@@ -0,0 +1,180 @@
+package com.siemens.opc.server.benchmarks;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.siemens.opc.server.NamespaceConfig;
+import org.eclipse.milo.opcua.sdk.server.api.DataItem;
+import org.eclipse.milo.opcua.sdk.server.nodes.UaVariableNode;
+import org.eclipse.milo.opcua.stack.core.AttributeId;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
+import org.eclipse.milo.opcua.stack.core.types.builtin.QualifiedName;
+import org.eclipse.milo.opcua.stack.core.types.builtin.StatusCode;
+import org.eclipse.milo.opcua.stack.core.types.builtin.Variant;
+import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UInteger;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.TimestampsToReturn;
+import org.eclipse.milo.opcua.stack.core.types.structured.ReadValueId;
+
+import static org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.Unsigned.uint;
+
+/**
+ * Compares the process CPU time spent by the sampling and the push subscription modes while a number of
+ * monitored items are active and a small fraction of the values change.
+ * <p>
+ * Arguments: [items] [sampling interval ms] [changes per second] [seconds per mode]
+ */
+public class SubscriptionCpuComparison {
+
+    public static void main(String[] args) throws Exception {
+        int items = args.length > 0 ? Integer.parseInt(args[0]) : 50000;
+        double samplingInterval = args.length > 1 ? Double.parseDouble(args[1]) : 100.0;
+        int changesPerSecond = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        int seconds = args.length > 3 ? Integer.parseInt(args[3]) : 20;
+
+        for (String mode : new String[]{"sampling", "push"}) {
+            Properties properties = new Properties();
+            properties.setProperty("subscriptionMode", mode);
+
+            BenchmarkServer server = BenchmarkServer.create(items, new NamespaceConfig(properties));
+            Result result = run(server, items, samplingInterval, changesPerSecond, seconds);
+
+            System.out.printf(
+                "mode=%-8s items=%d interval=%.0fms changes/s=%d cpu=%.2fs (%.1f%% of one core) notifications=%d%n",
+                mode, items, samplingInterval, changesPerSecond,
+                result.cpuNanos / 1e9, 100.0 * result.cpuNanos / TimeUnit.SECONDS.toNanos(seconds),
+                result.notifications);
+        }
+
+        System.exit(0);
+    }
+
+    private static Result run(
+        BenchmarkServer server,
+        int itemCount,
+        double samplingInterval,
+        int changesPerSecond,
+        int seconds) throws Exception {
+
+        LongAdder notifications = new LongAdder();
+        List<DataItem> items = new ArrayList<>(itemCount);
+
+        for (int i = 0; i < itemCount; i++) {
+            items.add(new CountingDataItem(uint(i), server, i, samplingInterval, notifications));
+        }
+
+        server.getNamespace().onDataItemsCreated(items);
+
+        // let the initial values and the first samples settle
+        Thread.sleep(2000);
+        notifications.reset();
+
+        com.sun.management.OperatingSystemMXBean os =
+            (com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+
+        long cpuStart = os.getProcessCpuTime();
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        int tag = 0;
+
+        while (System.nanoTime() < end) {
+            // spread the changes over ten slices per second
+            for (int i = 0; i < changesPerSecond / 10; i++) {
+                UaVariableNode node = (UaVariableNode) server.getServer().getNodeMap().get(server.tagNodeId(tag));
+                node.setValue(new DataValue(new Variant((double) System.nanoTime())));
+                tag = (tag + 1) % itemCount;
+            }
+            Thread.sleep(100);
+        }
+
+        long cpuNanos = os.getProcessCpuTime() - cpuStart;
+
+        server.getNamespace().onDataItemsDeleted(items);
+
+        return new Result(cpuNanos, notifications.sum());
+    }
+
+    private static class Result {
+        final long cpuNanos;
+        final long notifications;
+
+        Result(long cpuNanos, long notifications) {
+            this.cpuNanos = cpuNanos;
+            this.notifications = notifications;
+        }
+    }
+
+    private static class CountingDataItem implements DataItem {
+        private static final AtomicInteger SUBSCRIPTION_IDS = new AtomicInteger();
+
+        private final UInteger id;
+        private final UInteger subscriptionId = uint(SUBSCRIPTION_IDS.incrementAndGet());
+        private final ReadValueId readValueId;
+        private final double samplingInterval;
+        private final LongAdder notifications;
+
+        private volatile DataValue lastValue;
+
+        CountingDataItem(
+            UInteger id,
+            BenchmarkServer server,
+            int tag,
+            double samplingInterval,
+            LongAdder notifications) {
+
+            this.id = id;
+            this.readValueId = new ReadValueId(
+                server.tagNodeId(tag), AttributeId.Value.uid(), null, QualifiedName.NULL_VALUE);
+            this.samplingInterval = samplingInterval;
+            this.notifications = notifications;
+        }
+
+        @Override
+        public void setValue(DataValue value) {
+            // like MonitoredDataItem, only queue a notification when the value actually changed
+            DataValue last = lastValue;
+            if (last == null || !last.getValue().equals(value.getValue())) {
+                lastValue = value;
+                notifications.increment();
+            }
+        }
+
+        @Override
+        public void setQuality(StatusCode quality) {
+        }
+
+        @Override
+        public double getSamplingInterval() {
+            return samplingInterval;
+        }
+
+        @Override
+        public UInteger getId() {
+            return id;
+        }
+
+        @Override
+        public UInteger getSubscriptionId() {
+            return subscriptionId;
+        }
+
+        @Override
+        public ReadValueId getReadValueId() {
+            return readValueId;
+        }
+
+        @Override
+        public TimestampsToReturn getTimestampsToReturn() {
+            return TimestampsToReturn.Both;
+        }
+
+        @Override
+        public boolean isSamplingEnabled() {
+            return true;
+        }
+    }
+
+}
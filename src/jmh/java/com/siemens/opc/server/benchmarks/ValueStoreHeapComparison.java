@@ -0,0 +1,145 @@
+package com.siemens.opc.server.benchmarks;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import com.siemens.opc.server.NamespaceConfig;
+import com.siemens.opc.server.milo.store.StoredVariableNode;
+import org.eclipse.milo.opcua.sdk.server.nodes.UaVariableNode;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
+import org.eclipse.milo.opcua.stack.core.types.builtin.Variant;
+
+/**
+ * Compares the retained heap of a namespace with {@code tags} Double tags with and without the primitive
+ * value store, and the allocation and GC activity while the tags are updated and read internally.
+ * <p>
+ * Arguments: [tags] [seconds per mode] [updates per second] [reads per second]
+ */
+public class ValueStoreHeapComparison {
+
+    public static void main(String[] args) throws Exception {
+        int tags = args.length > 0 ? Integer.parseInt(args[0]) : 500000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int updatesPerSecond = args.length > 2 ? Integer.parseInt(args[2]) : 500000;
+        int readsPerSecond = args.length > 3 ? Integer.parseInt(args[3]) : 0;
+
+        for (String mode : new String[]{"object", "primitive"}) {
+            long baseline = usedHeapAfterGc();
+
+            Properties properties = new Properties();
+            properties.setProperty("valueStore", mode);
+            properties.setProperty("diagnosticsInterval", "0");
+
+            BenchmarkServer server = BenchmarkServer.create(tags, new NamespaceConfig(properties));
+            UaVariableNode[] nodes = new UaVariableNode[tags];
+            for (int i = 0; i < tags; i++) {
+                nodes[i] = (UaVariableNode) server.getServer().getNodeMap().get(server.tagNodeId(i));
+            }
+
+            long retained = usedHeapAfterGc() - baseline;
+
+            Activity activity = run(nodes, seconds, updatesPerSecond, readsPerSecond);
+
+            System.out.printf(
+                "mode=%-9s tags=%d retained=%.1fMB (%d bytes/tag) allocated=%.1fMB gcs=%d gcTime=%dms%n",
+                mode, tags, retained / 1e6, retained / tags, activity.allocatedBytes / 1e6,
+                activity.collections, activity.collectionMillis);
+
+            server.getServer().getNodeMap().clear();
+        }
+
+        System.exit(0);
+    }
+
+    private static Activity run(UaVariableNode[] nodes, int seconds, int updatesPerSecond, int readsPerSecond)
+        throws InterruptedException {
+
+        com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        long allocatedStart = threads.getThreadAllocatedBytes(threadId);
+        long[] gcStart = gcActivity();
+
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        int next = 0;
+        double sink = 0;
+
+        while (System.nanoTime() < end) {
+            // spread the updates and reads over ten slices per second
+            long sliceEnd = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+
+            for (int i = 0; i < updatesPerSecond / 10; i++) {
+                UaVariableNode node = nodes[next];
+                double value = next + i;
+
+                if (node instanceof StoredVariableNode) {
+                    ((StoredVariableNode) node).setDouble(value);
+                } else {
+                    node.setValue(new DataValue(new Variant(value)));
+                }
+
+                next = (next + 1) % nodes.length;
+            }
+
+            for (int i = 0; i < readsPerSecond / 10; i++) {
+                sink += (Double) nodes[(next + i) % nodes.length].getValue().getValue().getValue();
+            }
+
+            long remaining = sliceEnd - System.nanoTime();
+            if (remaining > 0) {
+                TimeUnit.NANOSECONDS.sleep(remaining);
+            }
+        }
+
+        long[] gcEnd = gcActivity();
+
+        if (sink == Double.MIN_VALUE) {
+            System.out.println(sink);
+        }
+
+        return new Activity(
+            threads.getThreadAllocatedBytes(threadId) - allocatedStart,
+            gcEnd[0] - gcStart[0],
+            gcEnd[1] - gcStart[1]);
+    }
+
+    private static long usedHeapAfterGc() throws InterruptedException {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(200);
+        }
+
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    private static long[] gcActivity() {
+        long count = 0;
+        long millis = 0;
+
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+            millis += Math.max(0, gc.getCollectionTime());
+        }
+
+        return new long[]{count, millis};
+    }
+
+    private static class Activity {
+        final long allocatedBytes;
+        final long collections;
+        final long collectionMillis;
+
+        Activity(long allocatedBytes, long collections, long collectionMillis) {
+            this.allocatedBytes = allocatedBytes;
+            this.collections = collections;
+            this.collectionMillis = collectionMillis;
+        }
+    }
+
+}
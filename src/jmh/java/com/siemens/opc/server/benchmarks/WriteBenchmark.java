@@ -0,0 +1,80 @@
+package com.siemens.opc.server.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import com.siemens.opc.server.NamespaceConfig;
+import org.eclipse.milo.opcua.sdk.server.DiagnosticsContext;
+import org.eclipse.milo.opcua.sdk.server.api.AttributeManager.WriteContext;
+import org.eclipse.milo.opcua.stack.core.AttributeId;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
+import org.eclipse.milo.opcua.stack.core.types.builtin.StatusCode;
+import org.eclipse.milo.opcua.stack.core.types.builtin.Variant;
+import org.eclipse.milo.opcua.stack.core.types.structured.WriteValue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@code Namespace.write} at several batch sizes, either to distinct tags or with every tag written
+ * several times in the same batch so that most writes are coalesced.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WriteBenchmark {
+
+    private static final int TAG_COUNT = 20000;
+
+    @Param({"100", "1000", "10000"})
+    public int batchSize;
+
+    @Param({"1", "10"})
+    public int writesPerTag;
+
+    private BenchmarkServer server;
+    private List<WriteValue> writeValues;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        server = BenchmarkServer.create(TAG_COUNT, NamespaceConfig.DEFAULT);
+
+        int distinctTags = Math.max(1, batchSize / writesPerTag);
+
+        writeValues = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            writeValues.add(new WriteValue(
+                server.tagNodeId(i % distinctTags % TAG_COUNT),
+                AttributeId.Value.uid(),
+                null,
+                new DataValue(new Variant((double) i))));
+        }
+    }
+
+    @Benchmark
+    public List<StatusCode> write() throws Exception {
+        CompletableFuture<List<StatusCode>> future = new CompletableFuture<>();
+
+        WriteContext context = new WriteContext(
+            server.getServer(), null, future, new DiagnosticsContext<>());
+
+        server.getNamespace().write(context, writeValues);
+
+        return future.get();
+    }
+
+}
@@ -0,0 +1,141 @@
+package com.siemens.opc.server;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import org.eclipse.milo.opcua.sdk.core.AccessLevel;
+
+/**
+ * One role of the access policy, configured with
+ * <pre>
+ * accessRoles=operator,guest
+ * accessRole.operator.users=user,service
+ * accessRole.operator.access=OnlyAdminCanRead:none,OnlyAdminCanWrite:read
+ * accessRole.operator.manageNodes=true
+ * accessRole.guest.users=*
+ * accessRole.guest.access=:read
+ * </pre>
+ * The access of a role to a node is the level of the longest subtree path that contains it, relative to the
+ * namespace folder, or {@code readWrite} if none does; an empty path is the whole namespace. An identity gets
+ * the access of all its roles combined. The {@code *} user stands for identities that have no other role;
+ * identities without any role are not restricted.
+ * <p>
+ * Adding and deleting nodes, e.g. with the AddTags method, takes a role with {@code manageNodes} that names the
+ * identity, besides write access to the nodes: neither {@code *} nor the absence of roles permits it.
+ */
+public class AccessRoleConfig {
+
+    public static final String ANY_USER = "*";
+
+    public enum Level {
+        NONE("none", 0),
+        READ("read", AccessLevel.getMask(AccessLevel.CurrentRead, AccessLevel.HistoryRead)),
+        READ_WRITE("readWrite", 0xFF);
+
+        private final String configName;
+        private final int mask;
+
+        Level(String configName, int mask) {
+            this.configName = configName;
+            this.mask = mask;
+        }
+
+        /**
+         * @return the bits of an AccessLevel this level allows.
+         */
+        public int getMask() {
+            return mask;
+        }
+
+        public static Level fromConfigName(String configName) {
+            for (Level level : values()) {
+                if (level.configName.equals(configName)) {
+                    return level;
+                }
+            }
+
+            throw new IllegalArgumentException("unknown access level: " + configName);
+        }
+    }
+
+    private final String name;
+    private final Set<String> users;
+    private final Map<String, Level> access;
+    private final boolean manageNodes;
+
+    public AccessRoleConfig(String name, Set<String> users, Map<String, Level> access, boolean manageNodes) {
+        this.name = name;
+        this.users = Collections.unmodifiableSet(users);
+        this.access = Collections.unmodifiableMap(new LinkedHashMap<>(access));
+        this.manageNodes = manageNodes;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Set<String> getUsers() {
+        return users;
+    }
+
+    /**
+     * @return the level of each subtree path.
+     */
+    public Map<String, Level> getAccess() {
+        return access;
+    }
+
+    /**
+     * @return whether the users the role names may add and delete nodes.
+     */
+    public boolean canManageNodes() {
+        return manageNodes;
+    }
+
+    public static List<AccessRoleConfig> fromProperties(Properties properties) {
+        List<AccessRoleConfig> roles = new ArrayList<>();
+
+        for (String name : NamespaceConfig.listProperty(properties, "accessRoles")) {
+            String prefix = "accessRole." + name + ".";
+
+            Map<String, Level> access = new LinkedHashMap<>();
+            for (String rule : NamespaceConfig.listProperty(properties, prefix + "access")) {
+                int colon = rule.lastIndexOf(':');
+                if (colon < 0) {
+                    throw new IllegalArgumentException("expected path:level in " + prefix + "access: " + rule);
+                }
+
+                access.put(trimSlashes(rule.substring(0, colon).trim()),
+                    Level.fromConfigName(rule.substring(colon + 1).trim()));
+            }
+
+            roles.add(new AccessRoleConfig(
+                name,
+                new LinkedHashSet<>(NamespaceConfig.listProperty(properties, prefix + "users")),
+                access,
+                "true".equals(properties.getProperty(prefix + "manageNodes", "false").trim())));
+        }
+
+        return roles;
+    }
+
+    private static String trimSlashes(String path) {
+        int from = 0;
+        int to = path.length();
+
+        while (from < to && path.charAt(from) == '/') {
+            from++;
+        }
+        while (to > from && path.charAt(to - 1) == '/') {
+            to--;
+        }
+
+        return path.substring(from, to);
+    }
+}
@@ -0,0 +1,137 @@
+package com.siemens.opc.server;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * Watches files and runs an action once they have not changed for a delay, so a file written in several steps
+ * is only applied after the last one. The directories of the files are watched, which also sees a file that an
+ * editor replaced by renaming a new one over it.
+ */
+public class ConfigWatcher implements Closeable {
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final WatchService watchService;
+    private final long delayMillis;
+    private final Runnable action;
+    private final Thread thread;
+
+    // guarded by this
+    private final Map<Path, WatchKey> directories = new HashMap<>();
+    private volatile Set<Path> files = Collections.emptySet();
+
+    public ConfigWatcher(long delayMillis, Runnable action) throws IOException {
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.delayMillis = delayMillis;
+        this.action = action;
+        this.thread = new ThreadFactoryBuilder()
+            .setNameFormat("config-watcher")
+            .setDaemon(true)
+            .build()
+            .newThread(this::run);
+    }
+
+    /**
+     * Watches these files from now on, in place of those watched before.
+     */
+    public synchronized void watch(Collection<Path> paths) throws IOException {
+        Set<Path> watched = new HashSet<>();
+        Set<Path> parents = new HashSet<>();
+
+        for (Path path : paths) {
+            Path file = path.toAbsolutePath().normalize();
+            watched.add(file);
+            parents.add(file.getParent());
+        }
+
+        for (Path parent : parents) {
+            if (!directories.containsKey(parent)) {
+                directories.put(parent, parent.register(watchService, ENTRY_CREATE, ENTRY_MODIFY));
+            }
+        }
+
+        for (Iterator<Map.Entry<Path, WatchKey>> it = directories.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Path, WatchKey> entry = it.next();
+
+            if (!parents.contains(entry.getKey())) {
+                entry.getValue().cancel();
+                it.remove();
+            }
+        }
+
+        files = watched;
+    }
+
+    public void start() {
+        thread.start();
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                boolean changed = changed(watchService.take());
+
+                // until the files are quiet
+                WatchKey next;
+                while ((next = watchService.poll(delayMillis, TimeUnit.MILLISECONDS)) != null) {
+                    changed |= changed(next);
+                }
+
+                if (changed) {
+                    try {
+                        action.run();
+                    } catch (RuntimeException e) {
+                        logger.error("Error applying changed files {}", files, e);
+                    }
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            logger.debug("Stopped watching {}", files);
+        }
+    }
+
+    private boolean changed(WatchKey key) {
+        Path directory = (Path) key.watchable();
+        Set<Path> watched = files;
+        boolean changed = false;
+
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW || watched.contains(directory.resolve((Path) event.context()))) {
+                changed = true;
+            }
+        }
+
+        key.reset();
+
+        return changed;
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+
+}
@@ -0,0 +1,285 @@
+package com.siemens.opc.server;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+public class NamespaceConfig {
+    public static final NamespaceConfig DEFAULT = new NamespaceConfig(new Properties());
+
+    private final int parallelReadThreshold;
+    private final int readChunkSize;
+    private final boolean pushSubscriptions;
+    private final int maxReferencesPerNode;
+    private final int diagnosticsInterval;
+    private final String snapshotDir;
+    private final int snapshotInterval;
+    private final List<String> historyNodes;
+    private final int historyRetention;
+    private final int historyMemory;
+    private final double deadbandAbsolute;
+    private final double deadbandPercent;
+    private final int methodThreads;
+    private final int methodQueueSize;
+    private final int serviceThreads;
+    private final int serviceQueueSize;
+    private final int maxBatchSize;
+    private final int sessionItemsPerSecond;
+    private final int sessionConcurrentRequests;
+    private final int identityItemsPerSecond;
+    private final int identityConcurrentRequests;
+    private final boolean queueAdmissions;
+    private final int admissionQueueSize;
+    private final boolean primitiveValueStore;
+    private final int maxArrayElements;
+    private final List<SimulationFolderConfig> simulationFolders;
+    private final List<AccessRoleConfig> accessRoles;
+
+    public NamespaceConfig(Properties properties) {
+        this.parallelReadThreshold = intProperty(properties, "parallelReadThreshold", 4096);
+        this.readChunkSize = Math.max(1, intProperty(properties, "readChunkSize", 1024));
+        this.pushSubscriptions = "push".equals(properties.getProperty("subscriptionMode", "sampling").trim());
+        this.maxReferencesPerNode = intProperty(properties, "maxReferencesPerNode", 1000);
+        this.primitiveValueStore = "primitive".equals(properties.getProperty("valueStore", "object").trim());
+        this.maxArrayElements = Math.max(1, intProperty(properties, "maxArrayElements", 1 << 20));
+        this.diagnosticsInterval = intProperty(properties, "diagnosticsInterval", 1000);
+        this.snapshotDir = properties.getProperty("snapshotDir", "").trim();
+        this.snapshotInterval = Math.max(1, intProperty(properties, "snapshotInterval", 1000));
+        this.historyNodes = listProperty(properties, "historyNodes");
+        this.historyRetention = Math.max(1, intProperty(properties, "historyRetention", 3600));
+        this.historyMemory = Math.max(1, intProperty(properties, "historyMemory", 64));
+        this.deadbandAbsolute = Math.max(0, doubleProperty(properties, "deadbandAbsolute", 0));
+        this.deadbandPercent = Math.max(0, doubleProperty(properties, "deadbandPercent", 0));
+        this.methodThreads = Math.max(1,
+            intProperty(properties, "methodThreads", Runtime.getRuntime().availableProcessors()));
+        this.methodQueueSize = Math.max(1, intProperty(properties, "methodQueueSize", 1000));
+        this.serviceThreads = Math.max(0, intProperty(properties, "serviceThreads", 0));
+        this.serviceQueueSize = Math.max(1, intProperty(properties, "serviceQueueSize", 10000));
+        this.maxBatchSize = Math.max(0, intProperty(properties, "maxBatchSize", 0));
+        this.sessionItemsPerSecond = Math.max(0, intProperty(properties, "sessionItemsPerSecond", 0));
+        this.sessionConcurrentRequests = Math.max(0, intProperty(properties, "sessionConcurrentRequests", 0));
+        this.identityItemsPerSecond = Math.max(0, intProperty(properties, "identityItemsPerSecond", 0));
+        this.identityConcurrentRequests = Math.max(0, intProperty(properties, "identityConcurrentRequests", 0));
+        this.queueAdmissions = "queue".equals(properties.getProperty("admissionPolicy", "reject").trim());
+        this.admissionQueueSize = Math.max(1, intProperty(properties, "admissionQueueSize", 100));
+        this.simulationFolders = SimulationFolderConfig.fromProperties(properties);
+        this.accessRoles = AccessRoleConfig.fromProperties(properties);
+    }
+
+    /**
+     * Read requests with at least this many items are split into chunks and read in parallel.
+     */
+    public int getParallelReadThreshold() {
+        return parallelReadThreshold;
+    }
+
+    public int getReadChunkSize() {
+        return readChunkSize;
+    }
+
+    /**
+     * In push mode variable nodes notify their monitored items when their value is set; only nodes whose
+     * value is computed on read are sampled.
+     */
+    public boolean isPushSubscriptions() {
+        return pushSubscriptions;
+    }
+
+    /**
+     * Browse returns at most this many references per node and a continuation point for the rest; 0 leaves the
+     * limit to the client.
+     */
+    public int getMaxReferencesPerNode() {
+        return maxReferencesPerNode;
+    }
+
+    /**
+     * Keep the values of numeric and boolean scalar variables in a primitive value store instead of a
+     * {@code DataValue} per node.
+     */
+    public boolean isPrimitiveValueStore() {
+        return primitiveValueStore;
+    }
+
+    /**
+     * Array tags may have at most this many elements, 8 bytes each; larger definitions in the tag file are
+     * skipped and AddTags rejects them.
+     */
+    public int getMaxArrayElements() {
+        return maxArrayElements;
+    }
+
+    /**
+     * Milliseconds between updates of the Diagnostics variables; 0 disables the Diagnostics folder.
+     */
+    public int getDiagnosticsInterval() {
+        return diagnosticsInterval;
+    }
+
+    /**
+     * Directory of the value snapshot files that survive a restart; empty disables snapshots. Only values in
+     * the primitive value store are snapshotted.
+     */
+    public String getSnapshotDir() {
+        return snapshotDir;
+    }
+
+    /**
+     * Milliseconds between two snapshots of the values that changed.
+     */
+    public int getSnapshotInterval() {
+        return snapshotInterval;
+    }
+
+    /**
+     * Node id prefixes of the variables whose values are recorded for history reads; empty disables history.
+     */
+    public List<String> getHistoryNodes() {
+        return historyNodes;
+    }
+
+    /**
+     * Seconds that recorded values are kept.
+     */
+    public int getHistoryRetention() {
+        return historyRetention;
+    }
+
+    /**
+     * Megabytes the recorded values of one namespace may take; the oldest values are dropped beyond that.
+     */
+    public int getHistoryMemory() {
+        return historyMemory;
+    }
+
+    /**
+     * Monitored items on a numeric Value only get a new value if it differs from the last one by more than this;
+     * 0 passes on every change.
+     */
+    public double getDeadbandAbsolute() {
+        return deadbandAbsolute;
+    }
+
+    /**
+     * Deadband in percent of the EURange of AnalogItem variables; it takes precedence over the absolute deadband
+     * for nodes with an EURange, 0 disables it.
+     */
+    public double getDeadbandPercent() {
+        return deadbandPercent;
+    }
+
+    /**
+     * Threads that execute method calls, apart from the threads of the other services.
+     */
+    public int getMethodThreads() {
+        return methodThreads;
+    }
+
+    /**
+     * Method calls that may wait for a thread; calls beyond that fail with {@code Bad_TooManyOperations}.
+     */
+    public int getMethodQueueSize() {
+        return methodQueueSize;
+    }
+
+    /**
+     * Threads of the namespace's own service executor, which runs its read, write, browse, history read and
+     * call services; 1 makes it a single-threaded event loop. 0 runs the services on the server's shared service
+     * threads.
+     */
+    public int getServiceThreads() {
+        return serviceThreads;
+    }
+
+    /**
+     * Service calls that may wait for a thread of the service executor; calls beyond that fail with
+     * {@code Bad_TooManyOperations}.
+     */
+    public int getServiceQueueSize() {
+        return serviceQueueSize;
+    }
+
+    /**
+     * Read, write, browse, history read and call requests with more items fail with {@code Bad_TooManyOperations};
+     * 0 allows any size.
+     */
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    /**
+     * Items a session may have served per second, averaged over a second; 0 is unlimited.
+     */
+    public int getSessionItemsPerSecond() {
+        return sessionItemsPerSecond;
+    }
+
+    /**
+     * Requests of a session that may be served at the same time; 0 is unlimited.
+     */
+    public int getSessionConcurrentRequests() {
+        return sessionConcurrentRequests;
+    }
+
+    /**
+     * Items all sessions of an identity may have served per second; 0 is unlimited.
+     */
+    public int getIdentityItemsPerSecond() {
+        return identityItemsPerSecond;
+    }
+
+    /**
+     * Requests of all sessions of an identity that may be served at the same time; 0 is unlimited.
+     */
+    public int getIdentityConcurrentRequests() {
+        return identityConcurrentRequests;
+    }
+
+    /**
+     * Whether requests beyond the rate and concurrency limits wait, up to {@link #getAdmissionQueueSize()} per
+     * session, or fail right away with {@code Bad_TooManyOperations}.
+     */
+    public boolean isQueueAdmissions() {
+        return queueAdmissions;
+    }
+
+    public int getAdmissionQueueSize() {
+        return admissionQueueSize;
+    }
+
+    public List<SimulationFolderConfig> getSimulationFolders() {
+        return simulationFolders;
+    }
+
+    /**
+     * The roles of the access policy; empty leaves access to the nodes themselves.
+     */
+    public List<AccessRoleConfig> getAccessRoles() {
+        return accessRoles;
+    }
+
+    static int intProperty(Properties properties, String key, int defaultValue) {
+        String value = properties.getProperty(key, "").trim();
+
+        return value.isEmpty() ? defaultValue : Integer.parseInt(value);
+    }
+
+    static double doubleProperty(Properties properties, String key, double defaultValue) {
+        String value = properties.getProperty(key, "").trim();
+
+        return value.isEmpty() ? defaultValue : Double.parseDouble(value);
+    }
+
+    static List<String> listProperty(Properties properties, String key) {
+        List<String> values = new ArrayList<>();
+
+        for (String value : properties.getProperty(key, "").split(",")) {
+            if (!value.trim().isEmpty()) {
+                values.add(value.trim());
+            }
+        }
+
+        return Collections.unmodifiableList(values);
+    }
+}
@@ -1,29 +1,45 @@
 package com.siemens.opc.server;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.siemens.opc.server.milo.Hostnames;
 import com.siemens.opc.server.milo.KeyStoreLoader;
 import com.siemens.opc.server.milo.Namespace;
+import com.siemens.opc.server.milo.audit.AccessLog;
+import com.siemens.opc.server.milo.simulation.SimulationEngine;
 import org.bouncycastle.jce.provider.BouncyCastleProvider;
 import org.eclipse.milo.opcua.sdk.server.OpcUaServer;
 import org.eclipse.milo.opcua.sdk.server.api.config.OpcUaServerConfig;
 import org.eclipse.milo.opcua.sdk.server.identity.CompositeValidator;
 import org.eclipse.milo.opcua.sdk.server.identity.UsernameIdentityValidator;
 import org.eclipse.milo.opcua.sdk.server.identity.X509IdentityValidator;
-import org.eclipse.milo.opcua.sdk.server.util.HostnameUtil;
 import org.eclipse.milo.opcua.stack.core.Identifiers;
 import org.eclipse.milo.opcua.stack.core.application.DefaultCertificateManager;
 import org.eclipse.milo.opcua.stack.core.application.DirectoryCertificateValidator;
 import org.eclipse.milo.opcua.stack.core.security.SecurityPolicy;
 import org.eclipse.milo.opcua.stack.core.types.builtin.*;
+import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UShort;
 import org.eclipse.milo.opcua.stack.core.types.structured.BuildInfo;
 import org.eclipse.milo.opcua.stack.core.util.CertificateUtil;
 import org.eclipse.milo.opcua.stack.core.util.CryptoRestrictions;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.security.Security;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
 
 import static com.google.common.collect.Lists.newArrayList;
 import static org.eclipse.milo.opcua.sdk.server.api.config.OpcUaServerConfig.*;
@@ -50,25 +66,148 @@ public class OpcServerApp {
         future.get();
     }
 
+    public static final String SIMULATION_URI = "urn:siemens:opc:server:simulation";
+    public static final String SIMULATION2_URI = "urn:siemens:opc:server:simulation2";
+
+    // the properties file is the value of this system property, or the default file
+    public static final String CONFIG_FILE_PROPERTY = "opcserver.config";
+    private static final String DEFAULT_CONFIG_FILE = "C:\\SiemensProjects\\OpcServer\\src\\main\\resources\\opcserver.properties";
+
+    private final StartupTimer startupTimer = new StartupTimer();
+
+    private final List<Namespace> namespaces = new ArrayList<>();
+
     private OpcUaServer server;
+    private AccessLog accessLog;
+    private SimulationEngine simulationEngine;
+
+    // guarded by this
+    private Properties properties;
+    private String configFile;
+    private long tagFileModified;
+    private ConfigWatcher configWatcher;
 
     public OpcServerApp() throws Exception {
-        Properties opcServerProperties = PropertyUtil.readPropertiesFromFile("C:\\SiemensProjects\\OpcServer\\src\\main\\resources\\opcserver.properties");
+        this(System.getProperty(CONFIG_FILE_PROPERTY, DEFAULT_CONFIG_FILE));
+    }
+
+    /**
+     * Creates the server with the properties of a file. Unless configReloadDelay is 0, changes to the file and to
+     * its tag file are applied while the server runs, see {@link #reload()}.
+     */
+    public OpcServerApp(String configFile) throws Exception {
+        Properties opcServerProperties = startupTimer.time(
+                "properties",
+                () -> PropertyUtil.readPropertiesFromFile(configFile));
+
+        create(opcServerProperties);
+
+        this.configFile = configFile;
+        this.tagFileModified = lastModified(opcServerProperties.getProperty("tagFile", ""));
+
+        long reloadDelay = Long.parseLong(opcServerProperties.getProperty("configReloadDelay", "1000"));
+        if (reloadDelay > 0) {
+            configWatcher = new ConfigWatcher(reloadDelay, this::reload);
+            configWatcher.watch(watchedFiles(opcServerProperties));
+            configWatcher.start();
+        }
+    }
+
+    /**
+     * Creates the server with the given properties instead of those of the properties file, e.g. for a load test.
+     */
+    public OpcServerApp(Properties opcServerProperties) throws Exception {
+        create(opcServerProperties);
+    }
+
+    private void create(Properties opcServerProperties) throws Exception {
+        properties = opcServerProperties;
+
+        ExecutorService startupExecutor = Executors.newCachedThreadPool(
+                new ThreadFactoryBuilder().setNameFormat("startup-%d").setDaemon(true).build());
+
+        try {
+            // independent phases run concurrently, each later step waits only for the results it needs
+            CompletableFuture<List<String>> endpointAddresses =
+                    startupTimer.timeAsync("hostnames", OpcServerApp::endpointAddresses, startupExecutor);
+
+            CompletableFuture<KeyStoreLoader> keyStore =
+                    startupTimer.timeAsync("key material", OpcServerApp::loadKeyStore, startupExecutor);
+
+            CompletableFuture<List<TagDefinition>> tagDefinitions = startupTimer.timeAsync(
+                    "tag file",
+                    () -> readTagDefinitions(opcServerProperties.getProperty("tagFile", "")),
+                    startupExecutor);
+
+            accessLog = startupTimer.time("access log", () -> createAccessLog(opcServerProperties));
+
+            KeyStoreLoader loader = await(keyStore);
+            List<String> addresses = await(endpointAddresses);
+
+            server = startupTimer.time("server", () -> createServer(opcServerProperties, loader, addresses));
+
+            List<ScalarNode> scalarNodes = scalarNodes();
+            NamespaceConfig namespaceConfig = new NamespaceConfig(opcServerProperties);
+
+            simulationEngine = new SimulationEngine();
 
-        File securityTempDir = new File(System.getProperty("java.io.tmpdir"), "security");
+            // register the URIs up front so the namespace indexes do not depend on which namespace is built first
+            UShort simulationIndex = server.getNamespaceManager().registerUri(SIMULATION_URI);
+            UShort simulation2Index = server.getNamespaceManager().registerUri(SIMULATION2_URI);
+
+            List<TagDefinition> tags = await(tagDefinitions);
+
+            CompletableFuture<Namespace> simulation = startupTimer.timeAsync(
+                    "namespace Simulation",
+                    () -> new Namespace(server, SIMULATION_URI, simulationIndex, "Simulation", "ScalarNodes", scalarNodes, tags, accessLog, simulationEngine, namespaceConfig),
+                    startupExecutor);
+
+            CompletableFuture<Namespace> simulation2 = startupTimer.timeAsync(
+                    "namespace Simulation2",
+                    () -> new Namespace(server, SIMULATION2_URI, simulation2Index, "Simulation2", "ScalarNodes", scalarNodes, tags, accessLog, simulationEngine, namespaceConfig),
+                    startupExecutor);
+
+            namespaces.add(await(simulation));
+            namespaces.add(await(simulation2));
+            namespaces.forEach(server.getNamespaceManager()::addNamespace);
+        } finally {
+            startupExecutor.shutdown();
+        }
+    }
+
+    private static KeyStoreLoader loadKeyStore() throws Exception {
+        File securityTempDir = securityTempDir();
         if (!securityTempDir.exists() && !securityTempDir.mkdirs()) {
             throw new Exception("unable to create security temp dir: " + securityTempDir);
         }
-        LoggerFactory.getLogger(getClass()).info("security temp dir: {}", securityTempDir.getAbsolutePath());
+        LoggerFactory.getLogger(OpcServerApp.class).info("security temp dir: {}", securityTempDir.getAbsolutePath());
 
-        KeyStoreLoader loader = new KeyStoreLoader().load(securityTempDir);
+        return new KeyStoreLoader().load(securityTempDir);
+    }
+
+    private static File securityTempDir() {
+        return new File(System.getProperty("java.io.tmpdir"), "security");
+    }
+
+    private static List<String> endpointAddresses() {
+        List<String> endpointAddresses = newArrayList();
+        endpointAddresses.add(Hostnames.getHostname());
+        endpointAddresses.addAll(Hostnames.getHostnames("0.0.0.0"));
+
+        return endpointAddresses;
+    }
+
+    private OpcUaServer createServer(
+            Properties opcServerProperties,
+            KeyStoreLoader loader,
+            List<String> endpointAddresses) throws IOException {
 
         DefaultCertificateManager certificateManager = new DefaultCertificateManager(
                 loader.getServerKeyPair(),
                 loader.getServerCertificateChain()
         );
 
-        File pkiDir = securityTempDir.toPath().resolve("pki").toFile();
+        File pkiDir = securityTempDir().toPath().resolve("pki").toFile();
         DirectoryCertificateValidator certificateValidator = new DirectoryCertificateValidator(pkiDir);
         LoggerFactory.getLogger(getClass()).info("pki dir: {}", pkiDir.getAbsolutePath());
 
@@ -90,10 +229,6 @@ public class OpcServerApp {
         List<String> bindAddresses = newArrayList();
         bindAddresses.add("0.0.0.0");
 
-        List<String> endpointAddresses = newArrayList();
-        endpointAddresses.add(HostnameUtil.getHostname());
-        endpointAddresses.addAll(HostnameUtil.getHostnames("0.0.0.0"));
-
         // The configured application URI must match the one in the certificate(s)
         String applicationUri = certificateManager.getCertificates().stream()
                 .findFirst()
@@ -136,13 +271,15 @@ public class OpcServerApp {
                                 USER_TOKEN_POLICY_X509))
                 .build();
 
-        server = new OpcUaServer(serverConfig);
+        return new OpcUaServer(serverConfig);
+    }
 
+    private static List<ScalarNode> scalarNodes() {
         List<ScalarNode> scalarNodes = new ArrayList<>();
         scalarNodes.add(new ScalarNode("Boolean", Identifiers.Boolean, new Variant(false)));
-        scalarNodes.add(new ScalarNode("Byte", Identifiers.Byte, new Variant(0xCC)));
-        scalarNodes.add(new ScalarNode("SByte", Identifiers.SByte, new Variant(0xFF)));
-        scalarNodes.add(new ScalarNode("Int16", Identifiers.Int16, new Variant(16)));
+        scalarNodes.add(new ScalarNode("Byte", Identifiers.Byte, new Variant(ubyte(0xCC))));
+        scalarNodes.add(new ScalarNode("SByte", Identifiers.SByte, new Variant((byte) 0xFF)));
+        scalarNodes.add(new ScalarNode("Int16", Identifiers.Int16, new Variant((short) 16)));
         scalarNodes.add(new ScalarNode("Int32", Identifiers.Int32, new Variant(32)));
         scalarNodes.add(new ScalarNode("Int64", Identifiers.Int64, new Variant(64L)));
         scalarNodes.add(new ScalarNode("UInt16", Identifiers.UInt16, new Variant(ushort(16))));
@@ -161,13 +298,132 @@ public class OpcServerApp {
         scalarNodes.add(new ScalarNode("Duration", Identifiers.Duration, new Variant(1.0)));
         scalarNodes.add(new ScalarNode("UtcTime", Identifiers.UtcTime, new Variant(DateTime.now())));
 
-        server.getNamespaceManager().registerAndAdd(
-                "urn:siemens:opc:server:simulation",
-                idx -> new Namespace(server, "urn:siemens:opc:server:simulation", idx,"Simulation", "ScalarNodes", scalarNodes));
+        return scalarNodes;
+    }
+
+    private AccessLog createAccessLog(Properties properties) throws IOException {
+        if (!"async".equals(properties.getProperty("accessLogMode", "async"))) {
+            return null;
+        }
 
-        server.getNamespaceManager().registerAndAdd(
-                "urn:siemens:opc:server:simulation2",
-                idx -> new Namespace(server, "urn:siemens:opc:server:simulation2", idx, "Simulation2", "ScalarNodes", scalarNodes));
+        String file = properties.getProperty("accessLogFile", "");
+        Writer out = file.isEmpty() ? null : Files.newBufferedWriter(
+                Paths.get(file), StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+
+        List<String> prefixes = new ArrayList<>();
+        for (String prefix : properties.getProperty("accessLogNodes", "").split(",")) {
+            if (!prefix.trim().isEmpty()) {
+                prefixes.add(prefix.trim());
+            }
+        }
+
+        Predicate<NodeId> nodeFilter = prefixes.isEmpty() ? nodeId -> true : nodeId -> {
+            String identifier = String.valueOf(nodeId.getIdentifier());
+            for (String prefix : prefixes) {
+                if (identifier.startsWith(prefix)) {
+                    return true;
+                }
+            }
+            return false;
+        };
+
+        return new AccessLog(
+                Integer.parseInt(properties.getProperty("accessLogCapacity", "65536")),
+                Integer.parseInt(properties.getProperty("accessLogSampleRate", "1")),
+                nodeFilter,
+                out);
+    }
+
+    private List<TagDefinition> readTagDefinitions(String tagFile) throws IOException {
+        if (tagFile.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        long start = System.nanoTime();
+        List<TagDefinition> tagDefinitions = TagFileReader.readTagsFromFile(tagFile);
+
+        LoggerFactory.getLogger(getClass()).info(
+                "read {} tag definitions from {} in {}ms",
+                tagDefinitions.size(), tagFile, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+        return tagDefinitions;
+    }
+
+    /**
+     * Applies the current properties file to the running server. The tags of a changed tag file, or of another
+     * tagFile, replace those of every namespace, which only touches the nodes whose definitions changed, and
+     * changed access roles are compiled anew. Other properties take effect after a restart.
+     */
+    public synchronized void reload() {
+        Properties reloaded = PropertyUtil.readPropertiesFromFile(configFile);
+
+        // an editor may have truncated the file before writing it, a later change brings the rest
+        if (reloaded.isEmpty()) {
+            LoggerFactory.getLogger(getClass()).warn("{} is empty, keeping the current configuration", configFile);
+            return;
+        }
+
+        Set<String> changed = new TreeSet<>();
+        for (String key : union(properties.stringPropertyNames(), reloaded.stringPropertyNames())) {
+            if (!Objects.equals(properties.getProperty(key), reloaded.getProperty(key))) {
+                changed.add(key);
+            }
+        }
+
+        String tagFile = reloaded.getProperty("tagFile", "");
+        long modified = lastModified(tagFile);
+
+        if (changed.remove("tagFile") || modified != tagFileModified) {
+            try {
+                List<TagDefinition> tags = readTagDefinitions(tagFile);
+                namespaces.forEach(namespace -> namespace.reloadTags(tags));
+                tagFileModified = modified;
+            } catch (IOException e) {
+                LoggerFactory.getLogger(getClass()).error("Unable to read {}, keeping the current tags", tagFile, e);
+
+                // so the next change tries again
+                reloaded.setProperty("tagFile", properties.getProperty("tagFile", ""));
+            }
+        }
+
+        if (changed.removeIf(key -> key.equals("accessRoles") || key.startsWith("accessRole."))) {
+            List<AccessRoleConfig> roles = AccessRoleConfig.fromProperties(reloaded);
+            namespaces.forEach(namespace -> namespace.compileAccessPolicy(roles));
+        }
+
+        if (!changed.isEmpty()) {
+            LoggerFactory.getLogger(getClass()).warn("Changed properties {} take effect after a restart", changed);
+        }
+
+        properties = reloaded;
+
+        try {
+            configWatcher.watch(watchedFiles(reloaded));
+        } catch (IOException e) {
+            LoggerFactory.getLogger(getClass()).error("Unable to watch {}", tagFile, e);
+        }
+    }
+
+    private List<Path> watchedFiles(Properties properties) {
+        List<Path> files = new ArrayList<>();
+        files.add(Paths.get(configFile));
+
+        String tagFile = properties.getProperty("tagFile", "");
+        if (!tagFile.isEmpty()) {
+            files.add(Paths.get(tagFile));
+        }
+
+        return files;
+    }
+
+    private static Set<String> union(Set<String> a, Set<String> b) {
+        Set<String> union = new HashSet<>(a);
+        union.addAll(b);
+        return union;
+    }
+
+    private static long lastModified(String file) {
+        return file.isEmpty() ? 0 : new File(file).lastModified();
     }
 
     public OpcUaServer getServer() {
@@ -175,11 +431,40 @@ public class OpcServerApp {
     }
 
     public CompletableFuture<OpcUaServer> startup() {
-        return server.startup();
+        return startupTimer.timeFuture("bind endpoints", server::startup).thenApply(s -> {
+            startupTimer.ready();
+            return s;
+        });
+    }
+
+    private static <T> T await(CompletableFuture<T> future) throws Exception {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw e;
+        }
     }
 
     public CompletableFuture<OpcUaServer> shutdown() {
-        return server.shutdown();
+        if (configWatcher != null) {
+            try {
+                configWatcher.close();
+            } catch (IOException e) {
+                LoggerFactory.getLogger(getClass()).warn("Unable to stop watching {}", configFile, e);
+            }
+        }
+
+        return server.shutdown().whenComplete((s, ex) -> {
+            namespaces.forEach(Namespace::shutdown);
+            simulationEngine.close();
+
+            if (accessLog != null) {
+                accessLog.close();
+            }
+        });
     }
 
 }
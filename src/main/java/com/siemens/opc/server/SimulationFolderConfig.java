@@ -0,0 +1,105 @@
+package com.siemens.opc.server;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import com.siemens.opc.server.milo.simulation.SignalType;
+
+/**
+ * One folder of simulated signals, configured with
+ * <pre>
+ * simulationFolders=Fast,Slow
+ * simulation.Fast.interval=100
+ * simulation.Fast.signals=sine:1000,ramp:500,square:100,randomWalk:100,counter:10
+ * simulation.Fast.period=10
+ * simulation.Fast.amplitude=100
+ * </pre>
+ * The interval is in milliseconds and the period of the periodic signals in seconds.
+ */
+public class SimulationFolderConfig {
+
+    private final String name;
+    private final int intervalMillis;
+    private final double periodSeconds;
+    private final double amplitude;
+    private final Map<SignalType, Integer> signalCounts;
+
+    public SimulationFolderConfig(
+        String name,
+        int intervalMillis,
+        double periodSeconds,
+        double amplitude,
+        Map<SignalType, Integer> signalCounts) {
+
+        this.name = name;
+        this.intervalMillis = intervalMillis;
+        this.periodSeconds = periodSeconds;
+        this.amplitude = amplitude;
+        this.signalCounts = Collections.unmodifiableMap(new EnumMap<>(signalCounts));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getIntervalMillis() {
+        return intervalMillis;
+    }
+
+    public double getPeriodSeconds() {
+        return periodSeconds;
+    }
+
+    public double getAmplitude() {
+        return amplitude;
+    }
+
+    public Map<SignalType, Integer> getSignalCounts() {
+        return signalCounts;
+    }
+
+    public int getSignalCount() {
+        return signalCounts.values().stream().mapToInt(Integer::intValue).sum();
+    }
+
+    public static List<SimulationFolderConfig> fromProperties(Properties properties) {
+        List<SimulationFolderConfig> folders = new ArrayList<>();
+
+        for (String name : properties.getProperty("simulationFolders", "").split(",")) {
+            name = name.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+
+            String prefix = "simulation." + name + ".";
+
+            Map<SignalType, Integer> signalCounts = new EnumMap<>(SignalType.class);
+            for (String signal : properties.getProperty(prefix + "signals", "").split(",")) {
+                if (signal.trim().isEmpty()) {
+                    continue;
+                }
+
+                String[] parts = signal.split(":");
+                if (parts.length != 2) {
+                    throw new IllegalArgumentException("expected type:count in " + prefix + "signals: " + signal);
+                }
+
+                signalCounts.merge(
+                    SignalType.fromConfigName(parts[0].trim()), Integer.parseInt(parts[1].trim()), Integer::sum);
+            }
+
+            folders.add(new SimulationFolderConfig(
+                name,
+                Math.max(1, NamespaceConfig.intProperty(properties, prefix + "interval", 1000)),
+                Double.parseDouble(properties.getProperty(prefix + "period", "10").trim()),
+                Double.parseDouble(properties.getProperty(prefix + "amplitude", "100").trim()),
+                signalCounts));
+        }
+
+        return folders;
+    }
+}
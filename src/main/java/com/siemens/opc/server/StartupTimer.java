@@ -0,0 +1,111 @@
+package com.siemens.opc.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Times the phases of the server startup, some of which run concurrently, and logs them as one report when
+ * the server is ready.
+ */
+public class StartupTimer {
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final long start = System.nanoTime();
+    private final List<Phase> phases = new ArrayList<>();
+
+    public <T> T time(String name, Callable<T> work) throws Exception {
+        Phase phase = begin(name);
+
+        try {
+            return work.call();
+        } finally {
+            phase.end();
+        }
+    }
+
+    public <T> CompletableFuture<T> timeAsync(String name, Callable<T> work, Executor executor) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return time(name, work);
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    /**
+     * Times a phase that ends when the future returned by {@code work} completes.
+     */
+    public <T> CompletableFuture<T> timeFuture(String name, Supplier<CompletableFuture<T>> work) {
+        Phase phase = begin(name);
+
+        return work.get().whenComplete((v, ex) -> phase.end());
+    }
+
+    /**
+     * Logs every phase with its offset from the start of the startup and its duration.
+     */
+    public void ready() {
+        long readyNanos = System.nanoTime() - start;
+        StringBuilder report = new StringBuilder();
+        long sum = 0;
+
+        synchronized (phases) {
+            for (Phase phase : phases) {
+                report.append(String.format(
+                    "%n  %-24s +%6dms %6dms  [%s]",
+                    phase.name, millis(phase.startNanos - start), millis(phase.durationNanos()), phase.thread));
+                sum += phase.durationNanos();
+            }
+        }
+
+        logger.info(
+            "ready in {}ms, phases took {}ms in total:{}",
+            millis(readyNanos), millis(sum), report);
+    }
+
+    private Phase begin(String name) {
+        Phase phase = new Phase(name, Thread.currentThread().getName());
+
+        synchronized (phases) {
+            phases.add(phase);
+        }
+
+        return phase;
+    }
+
+    private static long millis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    private static final class Phase {
+        final String name;
+        final String thread;
+        final long startNanos = System.nanoTime();
+        volatile long endNanos;
+
+        Phase(String name, String thread) {
+            this.name = name;
+            this.thread = thread;
+        }
+
+        void end() {
+            endNanos = System.nanoTime();
+        }
+
+        long durationNanos() {
+            return endNanos - startNanos;
+        }
+    }
+
+}
@@ -0,0 +1,57 @@
+package com.siemens.opc.server;
+
+import javax.annotation.Nullable;
+
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.eclipse.milo.opcua.stack.core.types.builtin.Variant;
+
+public class TagDefinition {
+    private final String folderPath;
+    private final String nodeName;
+    private final NodeId dataType;
+    private final Variant variant;
+    private final int accessLevel;
+    private final int[] arrayDimensions;
+
+    public TagDefinition(String folderPath, String nodeName, NodeId dataType, Variant variant, int accessLevel) {
+        this(folderPath, nodeName, dataType, variant, accessLevel, null);
+    }
+
+    /**
+     * @param arrayDimensions the dimensions of an array tag, whose elements all start with {@code variant}; null for
+     *                        a scalar tag.
+     */
+    public TagDefinition(String folderPath, String nodeName, NodeId dataType, Variant variant, int accessLevel, @Nullable int[] arrayDimensions) {
+        this.folderPath = folderPath;
+        this.nodeName = nodeName;
+        this.dataType = dataType;
+        this.variant = variant;
+        this.accessLevel = accessLevel;
+        this.arrayDimensions = arrayDimensions;
+    }
+
+    public String getFolderPath() {
+        return folderPath;
+    }
+
+    public String getNodeName() {
+        return nodeName;
+    }
+
+    public NodeId getDataType() {
+        return dataType;
+    }
+
+    public Variant getVariant() {
+        return variant;
+    }
+
+    public int getAccessLevel() {
+        return accessLevel;
+    }
+
+    @Nullable
+    public int[] getArrayDimensions() {
+        return arrayDimensions;
+    }
+}
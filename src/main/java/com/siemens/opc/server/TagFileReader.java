@@ -0,0 +1,174 @@
+package com.siemens.opc.server;
+
+import com.siemens.opc.server.milo.store.ValueKind;
+import org.eclipse.milo.opcua.sdk.core.AccessLevel;
+import org.eclipse.milo.opcua.stack.core.Identifiers;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DateTime;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.eclipse.milo.opcua.stack.core.types.builtin.Variant;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.Unsigned.*;
+
+/**
+ * Reads tag definitions from a line oriented file, one tag per line:
+ * <pre>
+ * # folder path;name;type;access;initial value
+ * Line1/Tank1;Level;Double;RW;42.5
+ * </pre>
+ * Access is one of R, W or RW. A numeric or Boolean type followed by dimensions, e.g. {@code Double[100000]} or
+ * {@code Double[64,1024]}, is a one or two dimensional array whose elements all start with the initial value. The
+ * file is streamed, so only the parsed definitions are kept in memory.
+ */
+public final class TagFileReader {
+
+    private static final char SEPARATOR = ';';
+
+    public static List<TagDefinition> readTagsFromFile(String filePath) throws IOException {
+        List<TagDefinition> tags = new ArrayList<>();
+
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(filePath), StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+
+                if (line.isEmpty() || line.charAt(0) == '#') {
+                    continue;
+                }
+
+                try {
+                    tags.add(parseLine(line));
+                } catch (RuntimeException e) {
+                    throw new IOException(filePath + ":" + lineNumber + ": " + e.getMessage(), e);
+                }
+            }
+        }
+
+        return tags;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the line is not a tag definition.
+     */
+    public static TagDefinition parseLine(String line) {
+        String[] fields = new String[5];
+        int start = 0;
+
+        // the initial value is the last field and may itself contain separators
+        for (int i = 0; i < 4; i++) {
+            int end = line.indexOf(SEPARATOR, start);
+            if (end < 0) {
+                throw new IllegalArgumentException("expected 5 fields: " + line);
+            }
+            fields[i] = line.substring(start, end).trim();
+            start = end + 1;
+        }
+        fields[4] = line.substring(start).trim();
+
+        String folderPath = fields[0];
+        String name = fields[1];
+        if (name.isEmpty()) {
+            throw new IllegalArgumentException("missing tag name: " + line);
+        }
+
+        String type = fields[2];
+        int[] arrayDimensions = null;
+
+        int bracket = type.indexOf('[');
+        if (bracket >= 0) {
+            arrayDimensions = arrayDimensions(type.substring(bracket));
+            type = type.substring(0, bracket).trim();
+
+            if (ValueKind.forDataType(dataTypeId(type)) == null) {
+                throw new IllegalArgumentException("unsupported array type: " + type);
+            }
+        }
+
+        return new TagDefinition(
+            folderPath,
+            name,
+            dataTypeId(type),
+            parseValue(type, arrayDimensions != null && fields[4].isEmpty() ? "0" : fields[4]),
+            accessMask(fields[3]),
+            arrayDimensions);
+    }
+
+    private static int[] arrayDimensions(String dimensions) {
+        if (!dimensions.endsWith("]")) {
+            throw new IllegalArgumentException("unterminated array dimensions: " + dimensions);
+        }
+
+        String[] lengths = dimensions.substring(1, dimensions.length() - 1).split(",");
+        if (lengths.length > 2) {
+            throw new IllegalArgumentException("only one and two dimensional arrays are supported: " + dimensions);
+        }
+
+        int[] arrayDimensions = new int[lengths.length];
+        for (int i = 0; i < lengths.length; i++) {
+            arrayDimensions[i] = Integer.parseInt(lengths[i].trim());
+            if (arrayDimensions[i] <= 0) {
+                throw new IllegalArgumentException("array dimensions must be positive: " + dimensions);
+            }
+        }
+
+        return arrayDimensions;
+    }
+
+    private static NodeId dataTypeId(String type) {
+        switch (type) {
+            case "Boolean": return Identifiers.Boolean;
+            case "SByte": return Identifiers.SByte;
+            case "Byte": return Identifiers.Byte;
+            case "Int16": return Identifiers.Int16;
+            case "UInt16": return Identifiers.UInt16;
+            case "Int32": return Identifiers.Int32;
+            case "UInt32": return Identifiers.UInt32;
+            case "Int64": return Identifiers.Int64;
+            case "UInt64": return Identifiers.UInt64;
+            case "Float": return Identifiers.Float;
+            case "Double": return Identifiers.Double;
+            case "String": return Identifiers.String;
+            case "DateTime": return Identifiers.DateTime;
+            default: throw new IllegalArgumentException("unsupported type: " + type);
+        }
+    }
+
+    private static Variant parseValue(String type, String value) {
+        switch (type) {
+            case "Boolean": return new Variant(Boolean.parseBoolean(value));
+            case "SByte": return new Variant(Byte.parseByte(value));
+            case "Byte": return new Variant(ubyte(value));
+            case "Int16": return new Variant(Short.parseShort(value));
+            case "UInt16": return new Variant(ushort(value));
+            case "Int32": return new Variant(Integer.parseInt(value));
+            case "UInt32": return new Variant(uint(value));
+            case "Int64": return new Variant(Long.parseLong(value));
+            case "UInt64": return new Variant(ulong(value));
+            case "Float": return new Variant(Float.parseFloat(value));
+            case "Double": return new Variant(Double.parseDouble(value));
+            case "String": return new Variant(value);
+            case "DateTime": return new Variant(value.isEmpty() ? DateTime.now() : new DateTime(Date.from(Instant.parse(value))));
+            default: throw new IllegalArgumentException("unsupported type: " + type);
+        }
+    }
+
+    private static int accessMask(String access) {
+        switch (access) {
+            case "R": return AccessLevel.getMask(AccessLevel.READ_ONLY);
+            case "W": return AccessLevel.getMask(AccessLevel.CurrentWrite);
+            case "RW": return AccessLevel.getMask(AccessLevel.READ_WRITE);
+            default: throw new IllegalArgumentException("unsupported access level: " + access);
+        }
+    }
+}
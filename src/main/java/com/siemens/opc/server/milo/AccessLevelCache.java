@@ -0,0 +1,101 @@
+package com.siemens.opc.server.milo;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import com.siemens.opc.server.milo.diagnostics.CacheStats;
+import org.eclipse.milo.opcua.sdk.core.AccessLevel;
+import org.eclipse.milo.opcua.sdk.server.Session;
+import org.eclipse.milo.opcua.sdk.server.SessionManager;
+import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UByte;
+
+import static org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.Unsigned.ubyte;
+
+/**
+ * The user access levels of the sessions of one namespace, per session and access policy, so a policy is only
+ * evaluated on the first access of a session to a node it covers. Nodes that share a policy share an entry.
+ * <p>
+ * The levels of a session are dropped when its identity changes and by {@link #retainSessions(SessionManager)}
+ * once it is closed; {@link #invalidate()} drops all of them after a policy change.
+ */
+public class AccessLevelCache {
+
+    // one shared instance per mask, so a cached level is never allocated
+    private static final UByte[] MASKS = new UByte[256];
+
+    static {
+        for (int i = 0; i < MASKS.length; i++) {
+            MASKS[i] = ubyte(i);
+        }
+    }
+
+    private final Map<Session, SessionLevels> sessions = new ConcurrentHashMap<>();
+    private final CacheStats stats;
+
+    private volatile long generation;
+
+    public AccessLevelCache(CacheStats stats) {
+        this.stats = stats;
+    }
+
+    /**
+     * @return the cached access level of {@code session} under {@code policy}, computed by applying
+     * {@code accessLevelsFn} to its identity on a miss.
+     */
+    UByte getUserAccessLevel(Session session, Object policy, Function<Object, Set<AccessLevel>> accessLevelsFn) {
+        long currentGeneration = generation;
+        Object identity = session.getIdentityObject();
+
+        SessionLevels levels = sessions.get(session);
+        if (levels == null || levels.generation != currentGeneration || !Objects.equals(levels.identity, identity)) {
+            levels = new SessionLevels(identity, currentGeneration);
+            sessions.put(session, levels);
+        }
+
+        UByte level = levels.levels.get(policy);
+        if (level != null) {
+            stats.recordHit();
+            return level;
+        }
+
+        stats.recordMiss();
+        level = MASKS[AccessLevel.getMask(accessLevelsFn.apply(identity)) & 0xFF];
+        levels.levels.put(policy, level);
+
+        return level;
+    }
+
+    /**
+     * Drops the access levels of all sessions, to be called when an access policy changed.
+     */
+    public synchronized void invalidate() {
+        generation++;
+        sessions.clear();
+    }
+
+    /**
+     * Drops the access levels of the sessions that are closed.
+     */
+    public void retainSessions(SessionManager sessionManager) {
+        Set<Session> open = new HashSet<>(sessionManager.getActiveSessions());
+        open.addAll(sessionManager.getInactiveSessions());
+
+        sessions.keySet().retainAll(open);
+    }
+
+    private static final class SessionLevels {
+        final Object identity;
+        final long generation;
+        final Map<Object, UByte> levels = new ConcurrentHashMap<>();
+
+        SessionLevels(Object identity, long generation) {
+            this.identity = identity;
+            this.generation = generation;
+        }
+    }
+
+}
@@ -0,0 +1,280 @@
+package com.siemens.opc.server.milo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.Nullable;
+
+import com.siemens.opc.server.AccessRoleConfig;
+import com.siemens.opc.server.AccessRoleConfig.Level;
+import org.eclipse.milo.opcua.sdk.server.Session;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+
+/**
+ * The {@link AccessRoleConfig roles} of the access policy compiled for the nodes of one namespace. Every node
+ * gets a handle, its slot in an open addressing table of node ids, and every role a readable and a writable
+ * bitset indexed by handle, so a check is a probe of the table and a bit test.
+ * <p>
+ * The policy takes about 8 bytes per slot, with at most half of the slots used, plus 2 bits per slot for each
+ * role and combination of roles an identity has. Nodes added after compiling are checked against the rules
+ * of the roles instead.
+ */
+public final class AccessPolicy {
+
+    private final List<AccessRoleConfig> roles;
+    private final List<List<Rule>> rules = new ArrayList<>();
+
+    private final NodeId[] slots;
+    private final int[] hashes;
+    private final int shift;
+    private final int nodeCount;
+    private final long[][] readable;
+    private final long[][] writable;
+
+    // the grants of identities that roles name, and of those that only have the roles of the * user
+    private final Map<BitSet, Grant> grants = new ConcurrentHashMap<>();
+    private final Map<BitSet, Grant> anyUserGrants = new ConcurrentHashMap<>();
+
+    private AccessPolicy(String basePath, List<AccessRoleConfig> roles, Collection<NodeId> nodeIds) {
+        this.roles = roles;
+
+        int capacity = Integer.highestOneBit(Math.max(2, nodeIds.size()) * 2 - 1) << 1;
+        slots = new NodeId[capacity];
+        hashes = new int[capacity];
+        shift = Integer.numberOfLeadingZeros(capacity - 1);
+        int count = 0;
+        for (NodeId nodeId : nodeIds) {
+            int slot = probe(nodeId);
+            if (slot < 0) {
+                slots[-slot - 1] = nodeId;
+                hashes[-slot - 1] = nodeId.hashCode();
+                count++;
+            }
+        }
+        nodeCount = count;
+
+        readable = new long[roles.size()][];
+        writable = new long[roles.size()][];
+
+        for (int r = 0; r < roles.size(); r++) {
+            List<Rule> roleRules = new ArrayList<>();
+            for (Map.Entry<String, Level> entry : roles.get(r).getAccess().entrySet()) {
+                String path = entry.getKey().isEmpty() ? basePath : basePath + "/" + entry.getKey();
+                roleRules.add(new Rule(path, entry.getValue()));
+            }
+
+            // the longest path that contains a node decides its level
+            roleRules.sort(Comparator.comparingInt((Rule rule) -> rule.path.length()).reversed());
+            rules.add(roleRules);
+
+            readable[r] = new long[(capacity + 63) >>> 6];
+            writable[r] = new long[(capacity + 63) >>> 6];
+        }
+
+        for (int slot = 0; slot < capacity; slot++) {
+            if (slots[slot] == null) {
+                continue;
+            }
+
+            String id = slots[slot].getIdentifier().toString();
+            for (int r = 0; r < roles.size(); r++) {
+                set(slot, level(rules.get(r), id), readable[r], writable[r]);
+            }
+        }
+    }
+
+    /**
+     * @param basePath the node id of the namespace folder, the subtree paths of the roles are relative to it.
+     * @param nodeIds  the nodes of the namespace.
+     */
+    public static AccessPolicy compile(String basePath, List<AccessRoleConfig> roles, Collection<NodeId> nodeIds) {
+        return new AccessPolicy(basePath, roles, nodeIds);
+    }
+
+    /**
+     * @return the access of a session, or null if it is not restricted: internal operations and identities
+     * without a role.
+     */
+    @Nullable
+    public Grant grant(Optional<Session> session) {
+        Object identity = session.map(Session::getIdentityObject).orElse(null);
+        if (identity == null) {
+            return null;
+        }
+
+        BitSet identityRoles = new BitSet();
+        for (int r = 0; r < roles.size(); r++) {
+            if (roles.get(r).getUsers().contains(identity.toString())) {
+                identityRoles.set(r);
+            }
+        }
+
+        if (!identityRoles.isEmpty()) {
+            return grants.computeIfAbsent(identityRoles, r -> new Grant(r, true));
+        }
+
+        for (int r = 0; r < roles.size(); r++) {
+            if (roles.get(r).getUsers().contains(AccessRoleConfig.ANY_USER)) {
+                identityRoles.set(r);
+            }
+        }
+
+        if (identityRoles.isEmpty()) {
+            return null;
+        }
+
+        return anyUserGrants.computeIfAbsent(identityRoles, r -> new Grant(r, false));
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * @return the bytes of the node table and of the bitsets of the roles and the combinations of roles so far.
+     */
+    public long getBytes() {
+        long bitsetBytes = ((slots.length + 63) >>> 6) * 8L;
+        long bitsets = roles.size() * 2 * bitsetBytes;
+        for (Map<BitSet, Grant> map : Arrays.asList(grants, anyUserGrants)) {
+            for (Grant grant : map.values()) {
+                if (grant.roles.cardinality() > 1) {
+                    bitsets += 2 * bitsetBytes;
+                }
+            }
+        }
+
+        return slots.length * 8L + bitsets;
+    }
+
+    /**
+     * @return the slot of a node, or {@code -(free slot) - 1} if it has none.
+     */
+    private int probe(NodeId nodeId) {
+        int mask = slots.length - 1;
+        int hash = nodeId.hashCode();
+        // Fibonacci hashing spreads the similar hashes of node ids with a common path
+        int slot = (hash * 0x9E3779B9) >>> shift;
+
+        while (slots[slot] != null) {
+            if (hashes[slot] == hash && slots[slot].equals(nodeId)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        return -slot - 1;
+    }
+
+    private static Level level(List<Rule> roleRules, String id) {
+        for (Rule rule : roleRules) {
+            if (id.startsWith(rule.path) && (id.length() == rule.path.length() || id.charAt(rule.path.length()) == '/')) {
+                return rule.level;
+            }
+        }
+
+        return Level.READ_WRITE;
+    }
+
+    private static void set(int slot, Level level, long[] readable, long[] writable) {
+        if (level != Level.NONE) {
+            readable[slot >>> 6] |= 1L << slot;
+        }
+        if (level == Level.READ_WRITE) {
+            writable[slot >>> 6] |= 1L << slot;
+        }
+    }
+
+    private static final class Rule {
+        final String path;
+        final Level level;
+
+        Rule(String path, Level level) {
+            this.path = path;
+            this.level = level;
+        }
+    }
+
+    /**
+     * The access of an identity: the combined access of its roles.
+     */
+    public final class Grant {
+        private final BitSet roles;
+        private final boolean manageNodes;
+        private final long[] readable;
+        private final long[] writable;
+
+        /**
+         * @param named whether the roles name the identity, rather than the * user.
+         */
+        private Grant(BitSet roles, boolean named) {
+            this.roles = roles;
+
+            boolean manage = false;
+            for (int r = roles.nextSetBit(0); r >= 0 && named; r = roles.nextSetBit(r + 1)) {
+                manage |= AccessPolicy.this.roles.get(r).canManageNodes();
+            }
+            manageNodes = manage;
+
+            if (roles.cardinality() == 1) {
+                readable = AccessPolicy.this.readable[roles.nextSetBit(0)];
+                writable = AccessPolicy.this.writable[roles.nextSetBit(0)];
+            } else {
+                readable = new long[AccessPolicy.this.readable[0].length];
+                writable = new long[readable.length];
+
+                for (int r = roles.nextSetBit(0); r >= 0; r = roles.nextSetBit(r + 1)) {
+                    for (int i = 0; i < readable.length; i++) {
+                        readable[i] |= AccessPolicy.this.readable[r][i];
+                        writable[i] |= AccessPolicy.this.writable[r][i];
+                    }
+                }
+            }
+        }
+
+        public Level getLevel(NodeId nodeId) {
+            int slot = probe(nodeId);
+
+            if (slot >= 0) {
+                if ((writable[slot >>> 6] & (1L << slot)) != 0) {
+                    return Level.READ_WRITE;
+                } else {
+                    return (readable[slot >>> 6] & (1L << slot)) != 0 ? Level.READ : Level.NONE;
+                }
+            }
+
+            Level level = Level.NONE;
+            for (int r = roles.nextSetBit(0); r >= 0; r = roles.nextSetBit(r + 1)) {
+                Level roleLevel = level(rules.get(r), nodeId.getIdentifier().toString());
+                if (roleLevel.ordinal() > level.ordinal()) {
+                    level = roleLevel;
+                }
+            }
+
+            return level;
+        }
+
+        public boolean canRead(NodeId nodeId) {
+            return getLevel(nodeId) != Level.NONE;
+        }
+
+        public boolean canWrite(NodeId nodeId) {
+            return getLevel(nodeId) == Level.READ_WRITE;
+        }
+
+        /**
+         * @return whether a role that names the identity permits adding and deleting nodes.
+         */
+        public boolean canManageNodes() {
+            return manageNodes;
+        }
+    }
+
+}
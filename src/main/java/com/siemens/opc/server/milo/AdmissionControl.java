@@ -0,0 +1,352 @@
+package com.siemens.opc.server.milo;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+import com.siemens.opc.server.NamespaceConfig;
+import com.siemens.opc.server.milo.diagnostics.AdmissionStats;
+import org.eclipse.milo.opcua.sdk.server.Session;
+import org.eclipse.milo.opcua.sdk.server.SessionManager;
+import org.eclipse.milo.opcua.stack.core.StatusCodes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Limits the requests that the sessions of one namespace have served: the items of a request, the items per
+ * second and the requests at the same time of each session and of all sessions of an identity. The item rates
+ * are token buckets holding a second's worth of items; a request may take more items than are left, and the
+ * requests after it wait until the bucket is refilled.
+ * <p>
+ * A request that is too large is always rejected. A request beyond a rate or concurrency limit is rejected too,
+ * or, with queueing, waits behind the earlier requests of its session, at most {@code admissionQueueSize} of
+ * them. Requests of a session are admitted in the order they arrived: while some wait, a new one waits behind
+ * them even if its limits would let it through. Every rejection fails the request with {@code Bad_TooManyOperations}. Requests without a session, made
+ * by the server itself, are only checked for their size.
+ */
+public class AdmissionControl {
+
+    private static final Runnable NO_RELEASE = () -> {};
+
+    private enum Limit { NONE, RATE, CONCURRENCY }
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final NamespaceConfig config;
+    private final ScheduledExecutorService scheduler;
+    private final AdmissionStats stats;
+    private final boolean limited;
+
+    // guarded by this
+    private final Map<Session, Quota> sessionQuotas = new HashMap<>();
+    private final Map<String, Quota> identityQuotas = new HashMap<>();
+    private final Set<Quota> waiting = new LinkedHashSet<>();
+    private long drainAt = Long.MAX_VALUE;
+
+    public AdmissionControl(NamespaceConfig config, ScheduledExecutorService scheduler, AdmissionStats stats) {
+        this.config = config;
+        this.scheduler = scheduler;
+        this.stats = stats;
+        this.limited = config.getSessionItemsPerSecond() > 0 || config.getSessionConcurrentRequests() > 0
+            || config.getIdentityItemsPerSecond() > 0 || config.getIdentityConcurrentRequests() > 0;
+    }
+
+    /**
+     * Admits a request now, later or not at all.
+     *
+     * @param admitted runs the request, on the calling thread or, if it was queued, on a scheduler thread. It is
+     *                 handed a release that must be run once the request completed.
+     * @param rejected completes the request with a bad status code if it is not admitted.
+     */
+    public void admit(Optional<Session> session, int items, Consumer<Runnable> admitted, LongConsumer rejected) {
+        if (config.getMaxBatchSize() > 0 && items > config.getMaxBatchSize()) {
+            stats.recordRejectedBatchSize();
+            rejected.accept(StatusCodes.Bad_TooManyOperations);
+            return;
+        }
+
+        if (!limited || !session.isPresent()) {
+            stats.recordAdmitted();
+            admitted.accept(NO_RELEASE);
+            return;
+        }
+
+        Request request;
+        Limit limit;
+
+        synchronized (this) {
+            Quota sessionQuota = sessionQuotas.computeIfAbsent(session.get(), s -> new Quota(
+                config.getSessionItemsPerSecond(), config.getSessionConcurrentRequests()));
+            Quota identityQuota = identityQuotas.computeIfAbsent(
+                String.valueOf(session.get().getIdentityObject()),
+                i -> new Quota(config.getIdentityItemsPerSecond(), config.getIdentityConcurrentRequests()));
+
+            request = new Request(sessionQuota, identityQuota, items, admitted, rejected);
+
+            long now = System.nanoTime();
+            limit = sessionQuota.pending.isEmpty()
+                ? blocked(request, now)
+                : queuedBehind(sessionQuota.pending.peek(), now);
+
+            if (limit == Limit.NONE) {
+                take(request);
+            } else if (config.isQueueAdmissions() && sessionQuota.pending.size() < config.getAdmissionQueueSize()) {
+                sessionQuota.pending.add(request);
+                waiting.add(sessionQuota);
+                stats.recordQueued();
+
+                if (limit == Limit.RATE) {
+                    scheduleDrain(now + nanosUntilTokens(sessionQuota.pending.peek()), now);
+                }
+                return;
+            }
+        }
+
+        if (limit == Limit.NONE) {
+            stats.recordAdmitted();
+            admitted.accept(request::release);
+        } else {
+            reject(request, limit);
+        }
+    }
+
+    private void reject(Request request, Limit limit) {
+        if (limit == Limit.RATE) {
+            stats.recordRejectedRate();
+        } else {
+            stats.recordRejectedConcurrency();
+        }
+
+        request.rejected.accept(StatusCodes.Bad_TooManyOperations);
+    }
+
+    private static Limit blocked(Request request, long now) {
+        Limit limit = request.session.blocked(now);
+
+        return limit != Limit.NONE ? limit : request.identity.blocked(now);
+    }
+
+    /**
+     * @return the limit that holds up a request behind the queued ones of its session: it does not overtake them,
+     * so if the head is no longer blocked it still waits for the drain that admits the head.
+     */
+    private static Limit queuedBehind(Request head, long now) {
+        Limit limit = blocked(head, now);
+
+        return limit != Limit.NONE ? limit : Limit.RATE;
+    }
+
+    private static void take(Request request) {
+        request.session.take(request.items);
+        request.identity.take(request.items);
+    }
+
+    private static long nanosUntilTokens(Request request) {
+        return Math.max(request.session.nanosUntilTokens(), request.identity.nanosUntilTokens());
+    }
+
+    private void release(Request request) {
+        synchronized (this) {
+            request.session.active--;
+            request.identity.active--;
+        }
+
+        drain();
+    }
+
+    /**
+     * Admits the queued requests that are within their limits, and schedules the next drain if some of them wait
+     * for their item rate.
+     */
+    private void drain() {
+        List<Request> ready = new ArrayList<>();
+
+        synchronized (this) {
+            long now = System.nanoTime();
+            long wait = Long.MAX_VALUE;
+
+            for (Iterator<Quota> it = waiting.iterator(); it.hasNext(); ) {
+                Quota quota = it.next();
+                Request head;
+
+                while ((head = quota.pending.peek()) != null) {
+                    Limit limit = blocked(head, now);
+
+                    if (limit != Limit.NONE) {
+                        if (limit == Limit.RATE) {
+                            wait = Math.min(wait, nanosUntilTokens(head));
+                        }
+                        break;
+                    }
+
+                    quota.pending.poll();
+                    take(head);
+                    ready.add(head);
+                }
+
+                if (quota.pending.isEmpty()) {
+                    it.remove();
+                }
+            }
+
+            if (wait != Long.MAX_VALUE) {
+                scheduleDrain(now + wait, now);
+            }
+        }
+
+        for (Request request : ready) {
+            stats.recordDequeued(System.nanoTime() - request.queued);
+            stats.recordAdmitted();
+
+            try {
+                request.admitted.accept(request::release);
+            } catch (Throwable t) {
+                logger.error("Error running an admitted request", t);
+                request.release();
+                request.rejected.accept(StatusCodes.Bad_InternalError);
+            }
+        }
+    }
+
+    // called with the lock held
+    private void scheduleDrain(long at, long now) {
+        if (at >= drainAt) {
+            return;
+        }
+
+        drainAt = at;
+        scheduler.schedule(() -> {
+            synchronized (this) {
+                drainAt = Long.MAX_VALUE;
+            }
+            drain();
+        }, at - now, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Drops the quotas of closed sessions and fails their queued requests, and drops the quotas of identities
+     * that are idle and have their full rate left.
+     */
+    public void retainSessions(SessionManager sessionManager) {
+        Set<Session> open = new HashSet<>(sessionManager.getActiveSessions());
+        open.addAll(sessionManager.getInactiveSessions());
+
+        List<Request> closed = new ArrayList<>();
+
+        synchronized (this) {
+            for (Iterator<Map.Entry<Session, Quota>> it = sessionQuotas.entrySet().iterator(); it.hasNext(); ) {
+                Map.Entry<Session, Quota> entry = it.next();
+                Quota quota = entry.getValue();
+
+                if (!open.contains(entry.getKey())) {
+                    closed.addAll(quota.pending);
+                    quota.pending.clear();
+                    waiting.remove(quota);
+                    it.remove();
+                }
+            }
+
+            long now = System.nanoTime();
+            identityQuotas.values().removeIf(quota -> quota.isIdle(now));
+        }
+
+        for (Request request : closed) {
+            stats.recordDequeued(System.nanoTime() - request.queued);
+            request.rejected.accept(StatusCodes.Bad_SessionClosed);
+        }
+    }
+
+    private static final class Quota {
+        private final double itemsPerSecond;
+        private final int concurrentRequests;
+
+        // only the quota of a session queues requests
+        private final ArrayDeque<Request> pending = new ArrayDeque<>();
+
+        private double tokens;
+        private long refilled = System.nanoTime();
+        private int active;
+
+        Quota(int itemsPerSecond, int concurrentRequests) {
+            this.itemsPerSecond = itemsPerSecond;
+            this.concurrentRequests = concurrentRequests;
+            this.tokens = itemsPerSecond;
+        }
+
+        Limit blocked(long now) {
+            if (concurrentRequests > 0 && active >= concurrentRequests) {
+                return Limit.CONCURRENCY;
+            }
+
+            refill(now);
+
+            return itemsPerSecond > 0 && tokens <= 0 ? Limit.RATE : Limit.NONE;
+        }
+
+        void take(int items) {
+            active++;
+
+            if (itemsPerSecond > 0) {
+                tokens -= items;
+            }
+        }
+
+        long nanosUntilTokens() {
+            if (itemsPerSecond <= 0 || tokens > 0) {
+                return 0;
+            }
+
+            return (long) Math.ceil(-tokens / itemsPerSecond * TimeUnit.SECONDS.toNanos(1)) + 1;
+        }
+
+        boolean isIdle(long now) {
+            refill(now);
+
+            return active == 0 && pending.isEmpty() && tokens >= itemsPerSecond;
+        }
+
+        private void refill(long now) {
+            if (itemsPerSecond > 0) {
+                tokens = Math.min(itemsPerSecond, tokens + (now - refilled) * itemsPerSecond / TimeUnit.SECONDS.toNanos(1));
+            }
+            refilled = now;
+        }
+    }
+
+    private final class Request {
+        private final Quota session;
+        private final Quota identity;
+        private final int items;
+        private final Consumer<Runnable> admitted;
+        private final LongConsumer rejected;
+        private final long queued = System.nanoTime();
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        Request(Quota session, Quota identity, int items, Consumer<Runnable> admitted, LongConsumer rejected) {
+            this.session = session;
+            this.identity = identity;
+            this.items = items;
+            this.admitted = admitted;
+            this.rejected = rejected;
+        }
+
+        void release() {
+            if (released.compareAndSet(false, true)) {
+                AdmissionControl.this.release(this);
+            }
+        }
+    }
+
+}
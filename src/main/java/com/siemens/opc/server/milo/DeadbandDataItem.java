@@ -0,0 +1,126 @@
+package com.siemens.opc.server.milo;
+
+import java.util.Objects;
+
+import com.siemens.opc.server.milo.diagnostics.NotificationStats;
+import org.eclipse.milo.opcua.sdk.server.api.DataItem;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
+import org.eclipse.milo.opcua.stack.core.types.builtin.StatusCode;
+import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UInteger;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.TimestampsToReturn;
+import org.eclipse.milo.opcua.stack.core.types.structured.ReadValueId;
+
+/**
+ * A {@link DataItem} that drops numeric values within a deadband of the last value it passed on, before they
+ * reach the item and its queue. Values of other types, the first value and any change of the status are
+ * always passed on.
+ * <p>
+ * Counts of passed on and suppressed values are kept per item and added to the {@link NotificationStats} of
+ * the namespace. A passed on value may still be dropped by the data change filter of the item itself.
+ */
+public class DeadbandDataItem implements DataItem {
+
+    private final DataItem item;
+    private final double deadband;
+    private final NotificationStats stats;
+
+    private DataValue lastValue;
+    private long sent;
+    private long suppressed;
+
+    /**
+     * @param deadband the absolute deadband; a value is passed on if it differs by more than this.
+     */
+    public DeadbandDataItem(DataItem item, double deadband, NotificationStats stats) {
+        this.item = item;
+        this.deadband = deadband;
+        this.stats = stats;
+    }
+
+    @Override
+    public void setValue(DataValue value) {
+        synchronized (this) {
+            if (withinDeadband(value)) {
+                suppressed++;
+                stats.recordSuppressed();
+                return;
+            }
+
+            lastValue = value;
+            sent++;
+        }
+
+        stats.recordSent();
+        item.setValue(value);
+    }
+
+    private boolean withinDeadband(DataValue value) {
+        if (lastValue == null || !Objects.equals(lastValue.getStatusCode(), value.getStatusCode())) {
+            return false;
+        }
+
+        Object last = lastValue.getValue().getValue();
+        Object current = value.getValue().getValue();
+
+        if (last instanceof Number && current instanceof Number) {
+            double delta = Math.abs(((Number) current).doubleValue() - ((Number) last).doubleValue());
+
+            // NaN never falls within the deadband
+            return delta <= deadband;
+        }
+
+        return false;
+    }
+
+    public DataItem getItem() {
+        return item;
+    }
+
+    public double getDeadband() {
+        return deadband;
+    }
+
+    public synchronized long getSent() {
+        return sent;
+    }
+
+    public synchronized long getSuppressed() {
+        return suppressed;
+    }
+
+    @Override
+    public void setQuality(StatusCode quality) {
+        item.setQuality(quality);
+    }
+
+    @Override
+    public double getSamplingInterval() {
+        return item.getSamplingInterval();
+    }
+
+    @Override
+    public UInteger getId() {
+        return item.getId();
+    }
+
+    @Override
+    public UInteger getSubscriptionId() {
+        return item.getSubscriptionId();
+    }
+
+    @Override
+    public ReadValueId getReadValueId() {
+        return item.getReadValueId();
+    }
+
+    @Override
+    public TimestampsToReturn getTimestampsToReturn() {
+        return item.getTimestampsToReturn();
+    }
+
+    @Override
+    public boolean isSamplingEnabled() {
+        return item.isSamplingEnabled();
+    }
+
+}
@@ -0,0 +1,36 @@
+package com.siemens.opc.server.milo;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableSet;
+import org.eclipse.milo.opcua.sdk.server.util.HostnameUtil;
+
+/**
+ * Caches the results of {@link HostnameUtil}, whose lookups go through DNS and can take seconds, so the
+ * certificate and the endpoints are built from one lookup per address.
+ */
+public final class Hostnames {
+
+    private static final Supplier<String> HOSTNAME = Suppliers.memoize(HostnameUtil::getHostname);
+
+    private static final Map<String, Set<String>> HOSTNAMES = new ConcurrentHashMap<>();
+
+    private Hostnames() {
+    }
+
+    public static String getHostname() {
+        return HOSTNAME.get();
+    }
+
+    /**
+     * @see HostnameUtil#getHostnames(String)
+     */
+    public static Set<String> getHostnames(String address) {
+        return HOSTNAMES.computeIfAbsent(address, a -> ImmutableSet.copyOf(HostnameUtil.getHostnames(a)));
+    }
+
+}
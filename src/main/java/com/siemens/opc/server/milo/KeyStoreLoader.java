@@ -13,7 +13,6 @@ import java.util.Arrays;
 import java.util.UUID;
 import java.util.regex.Pattern;
 
-import org.eclipse.milo.opcua.sdk.server.util.HostnameUtil;
 import org.eclipse.milo.opcua.stack.core.util.SelfSignedCertificateBuilder;
 import org.eclipse.milo.opcua.stack.core.util.SelfSignedCertificateGenerator;
 import org.slf4j.Logger;
@@ -59,7 +58,7 @@ public class KeyStoreLoader {
                 .addIpAddress("127.0.0.1");
 
             // Get as many hostnames and IP addresses as we can listed in the certificate.
-            for (String hostname : HostnameUtil.getHostnames("0.0.0.0")) {
+            for (String hostname : Hostnames.getHostnames("0.0.0.0")) {
                 if (IP_ADDR_PATTERN.matcher(hostname).matches()) {
                     builder.addIpAddress(hostname);
                 } else {
@@ -1,57 +1,126 @@
 package com.siemens.opc.server.milo;
 
-import com.google.common.collect.Lists;
+import com.google.common.base.Objects;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.siemens.opc.server.AccessRoleConfig;
+import com.siemens.opc.server.NamespaceConfig;
 import com.siemens.opc.server.ScalarNode;
+import com.siemens.opc.server.SimulationFolderConfig;
+import com.siemens.opc.server.TagDefinition;
+import com.siemens.opc.server.milo.audit.AccessLog;
+import com.siemens.opc.server.milo.diagnostics.DiagnosticsPublisher;
+import com.siemens.opc.server.milo.diagnostics.NamespaceDiagnostics;
+import com.siemens.opc.server.milo.diagnostics.ServiceOperation;
+import com.siemens.opc.server.milo.history.HistoryStore;
+import com.siemens.opc.server.milo.methods.AddTagsMethod;
+import com.siemens.opc.server.milo.methods.DeleteTagsMethod;
+import com.siemens.opc.server.milo.methods.DirectInvocationHandler;
+import com.siemens.opc.server.milo.methods.SqrtArrayMethod;
 import com.siemens.opc.server.milo.methods.SqrtMethod;
+import com.siemens.opc.server.milo.store.PrimitiveValueStore;
+import com.siemens.opc.server.milo.store.StoredVariableNode;
+import com.siemens.opc.server.milo.store.ValueSnapshot;
+import com.siemens.opc.server.milo.simulation.SignalBank;
+import com.siemens.opc.server.milo.simulation.SignalType;
+import com.siemens.opc.server.milo.simulation.SignalValueDelegate;
+import com.siemens.opc.server.milo.simulation.SimulationEngine;
 import com.siemens.opc.server.milo.types.CustomDataType;
+import com.siemens.opc.server.milo.types.CustomDataTypeCodec;
 import org.eclipse.milo.opcua.sdk.core.AccessLevel;
 import org.eclipse.milo.opcua.sdk.core.Reference;
 import org.eclipse.milo.opcua.sdk.core.ValueRank;
 import org.eclipse.milo.opcua.sdk.server.OpcUaServer;
+import org.eclipse.milo.opcua.sdk.server.Session;
 import org.eclipse.milo.opcua.sdk.server.api.AccessContext;
 import org.eclipse.milo.opcua.sdk.server.api.DataItem;
 import org.eclipse.milo.opcua.sdk.server.api.MethodInvocationHandler;
 import org.eclipse.milo.opcua.sdk.server.api.MonitoredItem;
 import org.eclipse.milo.opcua.sdk.server.api.nodes.VariableNode;
 import org.eclipse.milo.opcua.sdk.server.model.nodes.variables.AnalogItemNode;
+import org.eclipse.milo.opcua.sdk.server.model.types.variables.AnalogItemType;
 import org.eclipse.milo.opcua.sdk.server.nodes.*;
 import org.eclipse.milo.opcua.sdk.server.nodes.delegates.AttributeDelegate;
 import org.eclipse.milo.opcua.sdk.server.nodes.delegates.AttributeDelegateChain;
-import org.eclipse.milo.opcua.sdk.server.util.AnnotationBasedInvocationHandler;
-import org.eclipse.milo.opcua.sdk.server.util.SubscriptionModel;
 import org.eclipse.milo.opcua.stack.core.AttributeId;
 import org.eclipse.milo.opcua.stack.core.Identifiers;
 import org.eclipse.milo.opcua.stack.core.StatusCodes;
 import org.eclipse.milo.opcua.stack.core.UaException;
+import org.eclipse.milo.opcua.stack.core.serialization.codecs.GenericDataTypeCodec;
 import org.eclipse.milo.opcua.stack.core.types.OpcUaBinaryDataTypeDictionary;
 import org.eclipse.milo.opcua.stack.core.types.OpcUaDataTypeManager;
 import org.eclipse.milo.opcua.stack.core.types.builtin.*;
+import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UByte;
 import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UInteger;
 import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UShort;
 import org.eclipse.milo.opcua.stack.core.types.enumerated.NodeClass;
 import org.eclipse.milo.opcua.stack.core.types.enumerated.TimestampsToReturn;
+import org.eclipse.milo.opcua.stack.core.types.structured.BrowseDescription;
+import org.eclipse.milo.opcua.stack.core.types.structured.BrowseResult;
+import org.eclipse.milo.opcua.stack.core.types.structured.CallMethodRequest;
+import org.eclipse.milo.opcua.stack.core.types.structured.CallMethodResult;
+import org.eclipse.milo.opcua.stack.core.types.structured.HistoryReadDetails;
+import org.eclipse.milo.opcua.stack.core.types.structured.HistoryReadResult;
+import org.eclipse.milo.opcua.stack.core.types.structured.HistoryReadValueId;
 import org.eclipse.milo.opcua.stack.core.types.structured.Range;
 import org.eclipse.milo.opcua.stack.core.types.structured.ReadValueId;
+import org.eclipse.milo.opcua.stack.core.types.structured.ReferenceDescription;
+import org.eclipse.milo.opcua.stack.core.types.structured.ViewDescription;
 import org.eclipse.milo.opcua.stack.core.types.structured.WriteValue;
 import org.eclipse.milo.opcua.stack.core.util.FutureUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.lang.reflect.Array;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.Random;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import javax.annotation.Nullable;
 
 import static org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.Unsigned.*;
 
 public class Namespace implements org.eclipse.milo.opcua.sdk.server.api.Namespace {
+    private static final long HISTORY_REPORT_MINUTES = 1;
+    private static final long SESSION_SWEEP_SECONDS = 10;
+
     private final Logger logger = LoggerFactory.getLogger(getClass());
 
-    private final Random random = new Random();
+    private final PushSubscriptionModel subscriptionModel;
+
+    private final NamespaceDiagnostics diagnostics = new NamespaceDiagnostics();
+    private final AccessLevelCache accessLevelCache = new AccessLevelCache(diagnostics.getAccessLevelCache());
+    private volatile AccessPolicy accessPolicy;
+    private final ThreadPoolExecutor methodExecutor;
+    private final ThreadPoolExecutor serviceExecutor;
+    private final AdmissionControl admission;
+
+    // nodes whose value is not set through setValue and therefore has to be sampled
+    private final Set<NodeId> sampledNodeIds = ConcurrentHashMap.newKeySet();
+
+    private final OpcUaBinaryDataTypeDictionary dataTypeDictionary =
+        new OpcUaBinaryDataTypeDictionary("urn:siemens:opc:server:custom-data-type");
 
-    private final SubscriptionModel subscriptionModel;
+    private final ReferenceIndex referenceIndex;
 
     private final NodeFactory nodeFactory;
 
@@ -61,16 +130,80 @@ public class Namespace implements org.eclipse.milo.opcua.sdk.server.api.Namespac
     private final UShort namespaceIndex;
     private final String nodePath;
     private List<ScalarNode> scalarNodes;
+    private List<TagDefinition> tagDefinitions;
+    private final AccessLog accessLog;
+    private final SimulationEngine simulation;
+    private final NamespaceConfig config;
+    private final PrimitiveValueStore valueStore;
+    private final HistoryStore history;
+
+    // shared by every scalar and tag node; the templates are kept so other namespaces reuse them
+    private final ValueLoggingDelegate valueDelegate;
+    private final Set<NodeTemplate> nodeTemplates = new HashSet<>();
+
+    // guarded by this, null until the namespace has tags; a client subscribes to the version to learn of changes
+    private TagNodeLoader tagLoader;
+    private UaVariableNode modelVersionNode;
+    private long modelVersion;
+
+    private ValueSnapshot snapshot;
+    private ScheduledFuture<?> snapshotTask;
+
+    // periodic tasks on the shared scheduler of the server, cancelled on shutdown; null if not enabled
+    private ScheduledFuture<?> diagnosticsTask;
+    private ScheduledFuture<?> sessionSweepTask;
+    private ScheduledFuture<?> historyReportTask;
 
     public Namespace(OpcUaServer server, String namespaceUri, UShort namespaceIndex, String namespaceName, String nodePath, List<ScalarNode> scalarNodes) {
+        this(server, namespaceUri, namespaceIndex, namespaceName, nodePath, scalarNodes, Collections.emptyList(), null, null, NamespaceConfig.DEFAULT);
+    }
+
+    public Namespace(OpcUaServer server, String namespaceUri, UShort namespaceIndex, String namespaceName, String nodePath, List<ScalarNode> scalarNodes, List<TagDefinition> tagDefinitions, @Nullable AccessLog accessLog, @Nullable SimulationEngine simulation, NamespaceConfig config) {
         this.server = server;
         this.namespaceUri = namespaceUri;
         this.namespaceIndex = namespaceIndex;
         this.namespaceName = namespaceName;
         this.scalarNodes = scalarNodes;
+        this.tagDefinitions = tagDefinitions;
+        this.accessLog = accessLog;
+        this.simulation = simulation;
+        this.config = config;
         this.nodePath = nodePath;
-
-        subscriptionModel = new SubscriptionModel(server, this);
+        this.valueStore = config.isPrimitiveValueStore() ? createValueStore() : null;
+        this.valueDelegate = new ValueLoggingDelegate(null, accessLog);
+        this.referenceIndex = new ReferenceIndex(server);
+        this.history = config.getHistoryNodes().isEmpty() ? null : new HistoryStore(
+            namespaceName,
+            TimeUnit.SECONDS.toMillis(config.getHistoryRetention()),
+            config.getHistoryMemory() * 1024L * 1024L);
+
+        // method handlers may be slow, they must not hold up the threads of the other services
+        methodExecutor = new ThreadPoolExecutor(
+            config.getMethodThreads(),
+            config.getMethodThreads(),
+            0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(config.getMethodQueueSize()),
+            new ThreadFactoryBuilder().setNameFormat("method-" + namespaceName + "-%d").setDaemon(true).build());
+        diagnostics.getMethodExecutor().setExecutor(methodExecutor);
+
+        // with threads of its own a busy namespace only delays its own service calls
+        serviceExecutor = config.getServiceThreads() == 0 ? null : new ThreadPoolExecutor(
+            config.getServiceThreads(),
+            config.getServiceThreads(),
+            0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(config.getServiceQueueSize()),
+            new ThreadFactoryBuilder().setNameFormat("service-" + namespaceName + "-%d").setDaemon(true).build());
+        diagnostics.getServiceExecutor().setExecutor(serviceExecutor);
+
+        admission = new AdmissionControl(config, server.getScheduledExecutorService(), diagnostics.getAdmission());
+
+        subscriptionModel = new PushSubscriptionModel(
+            server,
+            this,
+            node -> config.isPushSubscriptions() && !sampledNodeIds.contains(node.getNodeId()),
+            this::deadband,
+            diagnostics.getNotifications()
+        );
 
         nodeFactory = new NodeFactory(
             server.getNodeMap(),
@@ -102,16 +235,107 @@ public class Namespace implements org.eclipse.milo.opcua.sdk.server.api.Namespac
             // Add the rest of the nodes
             addVariableNodes(nodePath, folderNode);
 
-            addMethodNode(folderNode);
+            if (simulation != null) {
+                addSimulationNodes(folderNode);
+            }
+
+            addDataAccessNodes(folderNode);
+
+            addAdminReadableNodes(folderNode);
+
+            addAdminWritableNodes(folderNode);
+
+            addMethodNode(
+                folderNode, "sqrt(x)",
+                "Returns the correctly rounded positive square root of a double value.",
+                new SqrtMethod());
+
+            addMethodNode(
+                folderNode, "sqrt(x[])",
+                "Returns the correctly rounded positive square roots of an array of double values.",
+                new SqrtArrayMethod());
+
+            addMethodNode(
+                folderNode, "AddTags",
+                "Adds tag nodes to the Tags folder, one per definition in the format of the tag file.",
+                new AddTagsMethod(this));
+
+            addMethodNode(
+                folderNode, "DeleteTags",
+                "Deletes tag nodes from the Tags folder by their paths relative to it.",
+                new DeleteTagsMethod(this));
+
+            addModelVersionNode(folderNode);
 
             addCustomDataTypeVariable(folderNode);
 
             addCustomObjectTypeAndInstance(folderNode);
+
+            if (config.getDiagnosticsInterval() > 0) {
+                addDiagnosticsNodes();
+            }
+
+            if (!config.getSnapshotDir().isEmpty()) {
+                startSnapshots();
+            }
+
+            // closed sessions are not reported, they are swept from the cache and the admission quotas
+            sessionSweepTask = server.getScheduledExecutorService().scheduleAtFixedRate(
+                () -> {
+                    accessLevelCache.retainSessions(server.getSessionManager());
+                    admission.retainSessions(server.getSessionManager());
+                },
+                SESSION_SWEEP_SECONDS, SESSION_SWEEP_SECONDS, TimeUnit.SECONDS);
+
+            if (!config.getAccessRoles().isEmpty()) {
+                compileAccessPolicy(config.getAccessRoles());
+            }
+
+            if (history != null) {
+                historyReportTask = server.getScheduledExecutorService().scheduleAtFixedRate(
+                    history::report, HISTORY_REPORT_MINUTES, HISTORY_REPORT_MINUTES, TimeUnit.MINUTES);
+            }
         } catch (UaException e) {
             logger.error("Error adding nodes: {}", e.getMessage(), e);
         }
     }
 
+    /**
+     * Compiles the access policy for the nodes of the namespace, in place of the current one.
+     */
+    public void compileAccessPolicy(List<AccessRoleConfig> roles) {
+        long start = System.nanoTime();
+
+        List<NodeId> nodeIds = new ArrayList<>();
+        for (NodeId nodeId : server.getNodeMap().keySet()) {
+            if (namespaceIndex.equals(nodeId.getNamespaceIndex()) && isInNamespaceFolder(nodeId)) {
+                nodeIds.add(nodeId);
+            }
+        }
+
+        AccessPolicy policy = AccessPolicy.compile(namespaceName, roles, nodeIds);
+        accessPolicy = policy;
+        accessLevelCache.invalidate();
+
+        logger.info("Compiled access policy of {} for {} roles and {} nodes in {} ms, {} KiB",
+            namespaceName, roles.size(), policy.getNodeCount(),
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), policy.getBytes() / 1024);
+    }
+
+    private boolean isInNamespaceFolder(NodeId nodeId) {
+        String id = nodeId.getIdentifier().toString();
+
+        return id.startsWith(namespaceName)
+            && (id.length() == namespaceName.length() || id.charAt(namespaceName.length()) == '/');
+    }
+
+    @Nullable
+    private AccessPolicy.Grant accessGrant(Optional<Session> session) {
+        AccessPolicy policy = accessPolicy;
+
+        return policy != null ? policy.grant(session) : null;
+    }
+
     @Override
     public UShort getNamespaceIndex() {
         return namespaceIndex;
@@ -122,8 +346,351 @@ public class Namespace implements org.eclipse.milo.opcua.sdk.server.api.Namespac
         return namespaceUri;
     }
 
+    private void addDiagnosticsNodes() throws UaException {
+        String path = "Diagnostics/" + namespaceName;
+
+        UaFolderNode folder = new UaFolderNode(
+            server.getNodeMap(),
+            new NodeId(namespaceIndex, path),
+            new QualifiedName(namespaceIndex, namespaceName),
+            LocalizedText.english(namespaceName)
+        );
+
+        server.getNodeMap().addNode(folder);
+
+        // namespaces may be built concurrently; only one of them may create the shared folder
+        ServerNode objectsFolder = server.getNodeMap().get(Identifiers.ObjectsFolder);
+        synchronized (objectsFolder) {
+            diagnosticsFolder().addOrganizes(folder);
+        }
+
+        DiagnosticsPublisher publisher = new DiagnosticsPublisher(server, namespaceIndex, path, diagnostics);
+        publisher.addNodes(folder);
+
+        diagnosticsTask = server.getScheduledExecutorService().scheduleAtFixedRate(
+            publisher,
+            config.getDiagnosticsInterval(),
+            config.getDiagnosticsInterval(),
+            TimeUnit.MILLISECONDS
+        );
+    }
+
+    private UaFolderNode diagnosticsFolder() throws UaException {
+        // the first namespace adds the Diagnostics folder next to its own folder, later ones reuse it
+        Optional<UaFolderNode> existing = server.getNodeMap().getNode(Identifiers.ObjectsFolder)
+            .map(ServerNode::getReferences)
+            .flatMap(references -> references.stream()
+                .filter(r -> r.isForward() && Identifiers.Organizes.equals(r.getReferenceTypeId()))
+                .map(r -> r.getTargetNodeId().local().map(server.getNodeMap()::get).orElse(null))
+                .filter(n -> n instanceof UaFolderNode && "Diagnostics".equals(n.getBrowseName().getName()))
+                .map(UaFolderNode.class::cast)
+                .findFirst());
+
+        if (existing.isPresent()) {
+            return existing.get();
+        }
+
+        NodeId folderNodeId = new NodeId(namespaceIndex, "Diagnostics");
+
+        UaFolderNode folder = new UaFolderNode(
+            server.getNodeMap(),
+            folderNodeId,
+            new QualifiedName(namespaceIndex, "Diagnostics"),
+            LocalizedText.english("Diagnostics")
+        );
+
+        server.getNodeMap().addNode(folder);
+
+        server.getUaNamespace().addReference(
+            Identifiers.ObjectsFolder,
+            Identifiers.Organizes,
+            true,
+            folderNodeId.expanded(),
+            NodeClass.Object
+        );
+
+        return folder;
+    }
+
+    private void startSnapshots() {
+        if (valueStore == null) {
+            logger.warn("Value snapshots need valueStore=primitive, {} is not snapshotted", namespaceName);
+            return;
+        }
+
+        snapshot = new ValueSnapshot(valueStore, Paths.get(config.getSnapshotDir(), namespaceName + ".snapshot"));
+
+        try {
+            snapshot.restore();
+        } catch (IOException e) {
+            logger.error("Unable to restore the values of {}", namespaceName, e);
+        }
+
+        snapshotTask = server.getScheduledExecutorService().scheduleWithFixedDelay(
+            this::writeSnapshot,
+            config.getSnapshotInterval(),
+            config.getSnapshotInterval(),
+            TimeUnit.MILLISECONDS
+        );
+    }
+
+    private void writeSnapshot() {
+        try {
+            long start = System.nanoTime();
+            int written = snapshot.write();
+
+            if (written > 0) {
+                logger.debug(
+                    "Wrote {} changed values of {} to the snapshot in {}ms",
+                    written, namespaceName, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            }
+        } catch (IOException e) {
+            logger.error("Unable to write the value snapshot of {}", namespaceName, e);
+        }
+    }
+
+    /**
+     * Writes a last value snapshot, if snapshots are enabled, and stops taking them. Stops executing methods and,
+     * if the namespace has a service executor, services, and stops publishing diagnostics, sweeping sessions and
+     * reporting history.
+     */
+    public void shutdown() {
+        for (ScheduledFuture<?> task : Arrays.asList(diagnosticsTask, sessionSweepTask, historyReportTask)) {
+            if (task != null) {
+                task.cancel(false);
+            }
+        }
+
+        methodExecutor.shutdown();
+
+        if (serviceExecutor != null) {
+            serviceExecutor.shutdown();
+        }
+
+        if (snapshot != null) {
+            snapshotTask.cancel(false);
+            writeSnapshot();
+
+            try {
+                snapshot.close();
+            } catch (IOException e) {
+                logger.warn("Unable to close the value snapshot of {}", namespaceName, e);
+            }
+        }
+    }
+
+    private PrimitiveValueStore createValueStore() {
+        int capacity = 0;
+
+        for (ScalarNode scalarNode : scalarNodes) {
+            if (StoredVariableNode.isStorable(scalarNode.getNodeId())) {
+                capacity++;
+            }
+        }
+        for (TagDefinition tag : tagDefinitions) {
+            if (tag.getArrayDimensions() == null && StoredVariableNode.isStorable(tag.getDataType())) {
+                capacity++;
+            }
+        }
+
+        return new PrimitiveValueStore(capacity);
+    }
+
     private void addVariableNodes(String nodePath, UaFolderNode rootNode) {
         addScalarNodes(nodePath, rootNode);
+
+        if (!tagDefinitions.isEmpty()) {
+            addTagNodes(rootNode, tagDefinitions);
+        }
+    }
+
+    /**
+     * Applies new tag definitions to the Tags folder while the namespace is serving: only the nodes whose
+     * definitions were added, removed or changed are touched, see {@link TagNodeLoader#reload}. Items monitoring
+     * a removed node get {@code Bad_NodeIdUnknown}, those on a replaced node the value of the new node. Tags
+     * added with {@link #addTags} are not in the definitions and stay.
+     */
+    public synchronized void reloadTags(List<TagDefinition> tags) {
+        if (tagLoader == null && tags.isEmpty()) {
+            return;
+        }
+
+        TagNodeLoader.Changes changes = tagLoader().reload(tags);
+        tagDefinitions = tags;
+
+        if (changes.isEmpty()) {
+            logger.info("Tag definitions of {} are unchanged", namespaceName);
+        }
+
+        applyChanges(changes);
+    }
+
+    /**
+     * Adds tag nodes to the Tags folder in bulk while the namespace is serving, see {@link TagNodeLoader#add}. A
+     * session needs a role that may manage nodes and write access to the node ids of the new tags.
+     *
+     * @return the status of each definition.
+     */
+    public synchronized StatusCode[] addTags(Optional<Session> session, List<TagDefinition> tags) {
+        StatusCode[] results = new StatusCode[tags.size()];
+        AccessPolicy.Grant grant = accessGrant(session);
+
+        applyChanges(tagLoader().add(tags, nodeId -> canManage(session, grant, nodeId), results));
+
+        return results;
+    }
+
+    /**
+     * Removes tag nodes from the Tags folder in bulk while the namespace is serving, see
+     * {@link TagNodeLoader#remove}. A session needs a role that may manage nodes and write access to the tags.
+     *
+     * @param paths the paths of the tags relative to the Tags folder, e.g. {@code Line1/Tank1/Level}.
+     * @return the status of each path.
+     */
+    public synchronized StatusCode[] deleteTags(Optional<Session> session, List<String> paths) {
+        StatusCode[] results = new StatusCode[paths.size()];
+
+        if (tagLoader == null) {
+            Arrays.fill(results, new StatusCode(StatusCodes.Bad_NodeIdUnknown));
+            return results;
+        }
+
+        List<NodeId> nodeIds = new ArrayList<>(paths.size());
+        for (String path : paths) {
+            nodeIds.add(tagLoader.getNodeId(path));
+        }
+
+        AccessPolicy.Grant grant = accessGrant(session);
+
+        applyChanges(tagLoader.remove(nodeIds, nodeId -> canManage(session, grant, nodeId), results));
+
+        return results;
+    }
+
+    /**
+     * @return whether a session may add or delete the node: unlike reads and writes, this is never permitted
+     * without a role, or by the roles of the {@code *} user; only internal operations need none.
+     */
+    private static boolean canManage(Optional<Session> session, @Nullable AccessPolicy.Grant grant, NodeId nodeId) {
+        if (!session.isPresent()) {
+            return true;
+        }
+
+        return grant != null && grant.canManageNodes() && grant.canWrite(nodeId);
+    }
+
+    /**
+     * Brings history, monitored items, browse results and cached access levels up to date with changed tag
+     * nodes, and counts the batch as one change of the ModelVersion.
+     */
+    private void applyChanges(TagNodeLoader.Changes changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+
+        if (history != null) {
+            Set<NodeId> added = new HashSet<>(changes.getAdded().size() * 4 / 3 + 1);
+            changes.getAdded().forEach(node -> added.add(node.getNodeId()));
+
+            // a replacing node continues the history of the node it replaces
+            for (UaVariableNode node : changes.getRemoved()) {
+                node.removeAttributeObserver(history);
+
+                if (!added.contains(node.getNodeId())) {
+                    history.remove(node.getNodeId());
+                }
+            }
+        }
+
+        for (UaVariableNode node : changes.getAdded()) {
+            if (isHistorized(node.getNodeId())) {
+                history.historize(node);
+            }
+        }
+
+        subscriptionModel.nodesReplaced(changes.getRemoved(), changes.getAdded());
+
+        changes.getChangedFolders().forEach(referenceIndex::invalidate);
+        changes.getRemoved().forEach(node -> referenceIndex.invalidate(node.getNodeId()));
+        changes.getAdded().forEach(node -> referenceIndex.invalidate(node.getNodeId()));
+
+        // replaced nodes may have other access levels
+        accessLevelCache.invalidate();
+
+        modelVersionNode.setValue(new DataValue(new Variant(++modelVersion)));
+    }
+
+    /**
+     * @return the loader of the Tags folder, which is added if the namespace started without tags.
+     */
+    private TagNodeLoader tagLoader() {
+        if (tagLoader == null) {
+            UaFolderNode rootNode = (UaFolderNode) server.getNodeMap().get(new NodeId(namespaceIndex, namespaceName));
+
+            addTagNodes(rootNode, Collections.emptyList());
+            referenceIndex.invalidate(rootNode.getNodeId());
+        }
+
+        return tagLoader;
+    }
+
+    private void addModelVersionNode(UaFolderNode rootNode) {
+        String name = "ModelVersion";
+
+        modelVersionNode = new UaVariableNode.UaVariableNodeBuilder(server.getNodeMap())
+            .setNodeId(new NodeId(namespaceIndex, namespaceName + "/" + name))
+            .setAccessLevel(ubyte(AccessLevel.getMask(AccessLevel.READ_ONLY)))
+            .setUserAccessLevel(ubyte(AccessLevel.getMask(AccessLevel.READ_ONLY)))
+            .setBrowseName(new QualifiedName(namespaceIndex, name))
+            .setDisplayName(LocalizedText.english(name))
+            .setDescription(LocalizedText.english(
+                "Counts the batches of tag nodes added, removed or replaced since startup"))
+            .setDataType(Identifiers.Int64)
+            .setTypeDefinition(Identifiers.BaseDataVariableType)
+            .build();
+
+        modelVersionNode.setValue(new DataValue(new Variant(modelVersion)));
+
+        server.getNodeMap().addNode(modelVersionNode);
+        rootNode.addOrganizes(modelVersionNode);
+    }
+
+    private void addTagNodes(UaFolderNode rootNode, List<TagDefinition> tags) {
+        UaFolderNode tagsFolder = new TagFolderNode(
+            server.getNodeMap(),
+            new NodeId(namespaceIndex, namespaceName + "/Tags"),
+            new QualifiedName(namespaceIndex, "Tags"),
+            LocalizedText.english("Tags")
+        );
+
+        server.getNodeMap().addNode(tagsFolder);
+        rootNode.addOrganizes(tagsFolder);
+
+        tagLoader = new TagNodeLoader(
+            server, namespaceIndex, namespaceName + "/Tags", valueDelegate, valueStore, config.getMaxArrayElements());
+        List<UaVariableNode> nodes = tagLoader.load(tagsFolder, tags);
+        nodeTemplates.addAll(tagLoader.getTemplates());
+
+        for (UaVariableNode node : nodes) {
+            if (isHistorized(node.getNodeId())) {
+                history.historize(node);
+            }
+        }
+    }
+
+    private boolean isHistorized(NodeId nodeId) {
+        if (history == null) {
+            return false;
+        }
+
+        String identifier = String.valueOf(nodeId.getIdentifier());
+        for (String prefix : config.getHistoryNodes()) {
+            if (identifier.startsWith(prefix)) {
+                return true;
+            }
+        }
+
+        return false;
     }
 
     private void addScalarNodes(String nodeName, UaFolderNode rootNode) {
@@ -141,20 +708,24 @@ public class Namespace implements org.eclipse.milo.opcua.sdk.server.api.Namespac
             String name = scalarNode.getNodeName();
             NodeId typeId = scalarNode.getNodeId();
             Variant variant = scalarNode.getVariant();
+            NodeTemplate template = NodeTemplate.of(
+                name,
+                typeId,
+                ubyte(AccessLevel.getMask(AccessLevel.READ_WRITE)),
+                ubyte(AccessLevel.getMask(AccessLevel.READ_WRITE)));
+            nodeTemplates.add(template);
+
+            UaVariableNode node = template.newNode(
+                server.getNodeMap(),
+                new NodeId(namespaceIndex, namespaceName + "/" + nodeName + "/" + name),
+                valueStore,
+                new DataValue(variant));
 
-            UaVariableNode node = new UaVariableNode.UaVariableNodeBuilder(server.getNodeMap())
-                .setNodeId(new NodeId(namespaceIndex, namespaceName+ "/" + nodeName + "/" + name))
-                .setAccessLevel(ubyte(AccessLevel.getMask(AccessLevel.READ_WRITE)))
-                .setUserAccessLevel(ubyte(AccessLevel.getMask(AccessLevel.READ_WRITE)))
-                .setBrowseName(new QualifiedName(namespaceIndex, name))
-                .setDisplayName(LocalizedText.english(name))
-                .setDataType(typeId)
-                .setTypeDefinition(Identifiers.BaseDataVariableType)
-                .build();
-
-            node.setValue(new DataValue(variant));
+            node.setAttributeDelegate(valueDelegate);
 
-            node.setAttributeDelegate(new ValueLoggingDelegate());
+            if (isHistorized(node.getNodeId())) {
+                history.historize(node);
+            }
 
             server.getNodeMap().addNode(node);
             scalarTypesFolder.addOrganizes(node);
@@ -204,6 +775,7 @@ public class Namespace implements org.eclipse.milo.opcua.sdk.server.api.Namespac
         UaVariableNode node = new UaVariableNode.UaVariableNodeBuilder(server.getNodeMap())
             .setNodeId(new NodeId(namespaceIndex, namespaceName + "/OnlyAdminCanRead/" + name))
             .setAccessLevel(ubyte(AccessLevel.getMask(AccessLevel.READ_WRITE)))
+            .setUserAccessLevel(ubyte(AccessLevel.getMask(AccessLevel.READ_WRITE)))
             .setBrowseName(new QualifiedName(namespaceIndex, name))
             .setDisplayName(LocalizedText.english(name))
             .setDataType(Identifiers.String)
@@ -212,13 +784,16 @@ public class Namespace implements org.eclipse.milo.opcua.sdk.server.api.Namespac
 
         node.setValue(new DataValue(new Variant("shh... don't tell the lusers")));
 
-        node.setAttributeDelegate(new RestrictedAccessDelegate(identity -> {
-            if ("admin".equals(identity)) {
-                return AccessLevel.READ_WRITE;
-            } else {
-                return AccessLevel.NONE;
-            }
-        }));
+        // without configured roles the node restricts access itself
+        if (config.getAccessRoles().isEmpty()) {
+            node.setAttributeDelegate(new RestrictedAccessDelegate(identity -> {
+                if ("admin".equals(identity)) {
+                    return AccessLevel.READ_WRITE;
+                } else {
+                    return AccessLevel.NONE;
+                }
+            }, accessLevelCache));
+        }
 
         server.getNodeMap().addNode(node);
         adminFolder.addOrganizes(node);
@@ -239,6 +814,7 @@ public class Namespace implements org.eclipse.milo.opcua.sdk.server.api.Namespac
         UaVariableNode node = new UaVariableNode.UaVariableNodeBuilder(server.getNodeMap())
             .setNodeId(new NodeId(namespaceIndex, namespaceName + "/OnlyAdminCanWrite/" + name))
             .setAccessLevel(ubyte(AccessLevel.getMask(AccessLevel.READ_WRITE)))
+            .setUserAccessLevel(ubyte(AccessLevel.getMask(AccessLevel.READ_WRITE)))
             .setBrowseName(new QualifiedName(namespaceIndex, name))
             .setDisplayName(LocalizedText.english(name))
             .setDataType(Identifiers.String)
@@ -247,127 +823,152 @@ public class Namespace implements org.eclipse.milo.opcua.sdk.server.api.Namespac
 
         node.setValue(new DataValue(new Variant("admin was here")));
 
-        node.setAttributeDelegate(new RestrictedAccessDelegate(identity -> {
-            if ("admin".equals(identity)) {
-                return AccessLevel.READ_WRITE;
-            } else {
-                return AccessLevel.READ_ONLY;
-            }
-        }));
+        if (config.getAccessRoles().isEmpty()) {
+            node.setAttributeDelegate(new RestrictedAccessDelegate(identity -> {
+                if ("admin".equals(identity)) {
+                    return AccessLevel.READ_WRITE;
+                } else {
+                    return AccessLevel.READ_ONLY;
+                }
+            }, accessLevelCache));
+        }
 
         server.getNodeMap().addNode(node);
         adminFolder.addOrganizes(node);
     }
 
+    private void addSimulationNodes(UaFolderNode rootNode) {
+        addDynamicNodes(rootNode);
+
+        for (SimulationFolderConfig folderConfig : config.getSimulationFolders()) {
+            SignalBank bank = new SignalBank(
+                namespaceName + "/" + folderConfig.getName(),
+                folderConfig.getIntervalMillis(),
+                folderConfig.getPeriodSeconds(),
+                folderConfig.getAmplitude(),
+                folderConfig.getSignalCount()
+            );
+
+            UaFolderNode folder = addSimulationFolder(rootNode, folderConfig.getName(), bank);
+            List<UaVariableNode> nodes = new ArrayList<>(bank.getSize());
+
+            for (Map.Entry<SignalType, Integer> entry : folderConfig.getSignalCounts().entrySet()) {
+                SignalType type = entry.getKey();
+                NodeId typeId = type == SignalType.COUNTER ? Identifiers.Int64 : Identifiers.Double;
+                String prefix = Character.toUpperCase(type.getConfigName().charAt(0)) + type.getConfigName().substring(1);
+
+                for (int i = 0; i < entry.getValue(); i++) {
+                    nodes.add(buildSignalNode(folder, prefix + i, typeId, bank, bank.add(type)));
+                }
+            }
+
+            linkSignalNodes(folder, nodes);
+
+            simulation.start(bank);
+        }
+    }
+
     private void addDynamicNodes(UaFolderNode rootNode) {
-        UaFolderNode dynamicFolder = new UaFolderNode(
+        SignalBank bank = new SignalBank(namespaceName + "/Dynamic", 100, 10, 100, 3);
+
+        UaFolderNode dynamicFolder = addSimulationFolder(rootNode, "Dynamic", bank);
+
+        linkSignalNodes(dynamicFolder, Arrays.asList(
+            buildSignalNode(dynamicFolder, "Boolean", Identifiers.Boolean, bank, bank.add(SignalType.SQUARE)),
+            buildSignalNode(dynamicFolder, "Int32", Identifiers.Int32, bank, bank.add(SignalType.COUNTER)),
+            buildSignalNode(dynamicFolder, "Double", Identifiers.Double, bank, bank.add(SignalType.RANDOM_WALK))
+        ));
+
+        simulation.start(bank);
+    }
+
+    private UaFolderNode addSimulationFolder(UaFolderNode rootNode, String name, SignalBank bank) {
+        UaFolderNode folder = new TagFolderNode(
             server.getNodeMap(),
-            new NodeId(namespaceIndex, namespaceName + "/Dynamic"),
-            new QualifiedName(namespaceIndex, "Dynamic"),
-            LocalizedText.english("Dynamic")
+            new NodeId(namespaceIndex, namespaceName + "/" + name),
+            new QualifiedName(namespaceIndex, name),
+            LocalizedText.english(name)
         );
 
-        server.getNodeMap().addNode(dynamicFolder);
-        rootNode.addOrganizes(dynamicFolder);
-
-        // Dynamic Boolean
-        {
-            String name = "Boolean";
-            NodeId typeId = Identifiers.Boolean;
-            Variant variant = new Variant(false);
-
-            UaVariableNode node = new UaVariableNode.UaVariableNodeBuilder(server.getNodeMap())
-                .setNodeId(new NodeId(namespaceIndex, namespaceName + "/Dynamic/" + name))
-                .setAccessLevel(ubyte(AccessLevel.getMask(AccessLevel.READ_WRITE)))
-                .setBrowseName(new QualifiedName(namespaceIndex, name))
-                .setDisplayName(LocalizedText.english(name))
-                .setDataType(typeId)
-                .setTypeDefinition(Identifiers.BaseDataVariableType)
-                .build();
-
-            node.setValue(new DataValue(variant));
-
-            AttributeDelegate delegate = AttributeDelegateChain.create(
-                new AttributeDelegate() {
-                    @Override
-                    public DataValue getValue(AttributeContext context, VariableNode node) throws UaException {
-                        return new DataValue(new Variant(random.nextBoolean()));
-                    }
-                },
-                ValueLoggingDelegate::new
-            );
+        server.getNodeMap().addNode(folder);
+        rootNode.addOrganizes(folder);
+
+        // the update rate the engine actually achieves for this folder
+        UaVariableNode rateNode = new UaVariableNode.UaVariableNodeBuilder(server.getNodeMap())
+            .setNodeId(new NodeId(namespaceIndex, namespaceName + "/" + name + "/UpdatesPerSecond"))
+            .setAccessLevel(ubyte(AccessLevel.getMask(AccessLevel.READ_ONLY)))
+            .setUserAccessLevel(ubyte(AccessLevel.getMask(AccessLevel.READ_ONLY)))
+            .setBrowseName(new QualifiedName(namespaceIndex, "UpdatesPerSecond"))
+            .setDisplayName(LocalizedText.english("UpdatesPerSecond"))
+            .setDataType(Identifiers.Double)
+            .setTypeDefinition(Identifiers.BaseDataVariableType)
+            .build();
 
-            node.setAttributeDelegate(delegate);
+        rateNode.setAttributeDelegate(new AttributeDelegate() {
+            @Override
+            public DataValue getValue(AttributeContext context, VariableNode node) {
+                return new DataValue(new Variant(bank.getAchievedUpdateRate()));
+            }
+        });
+        sampledNodeIds.add(rateNode.getNodeId());
 
-            server.getNodeMap().addNode(node);
-            dynamicFolder.addOrganizes(node);
-        }
-
-        // Dynamic Int32
-        {
-            String name = "Int32";
-            NodeId typeId = Identifiers.Int32;
-            Variant variant = new Variant(0);
-
-            UaVariableNode node = new UaVariableNode.UaVariableNodeBuilder(server.getNodeMap())
-                .setNodeId(new NodeId(namespaceIndex, namespaceName + "/Dynamic/" + name))
-                .setAccessLevel(ubyte(AccessLevel.getMask(AccessLevel.READ_WRITE)))
-                .setBrowseName(new QualifiedName(namespaceIndex, name))
-                .setDisplayName(LocalizedText.english(name))
-                .setDataType(typeId)
-                .setTypeDefinition(Identifiers.BaseDataVariableType)
-                .build();
-
-            node.setValue(new DataValue(variant));
-
-            AttributeDelegate delegate = AttributeDelegateChain.create(
-                new AttributeDelegate() {
-                    @Override
-                    public DataValue getValue(AttributeContext context, VariableNode node) throws UaException {
-                        return new DataValue(new Variant(random.nextInt()));
-                    }
-                },
-                ValueLoggingDelegate::new
-            );
+        server.getNodeMap().addNode(rateNode);
+        folder.addOrganizes(rateNode);
 
-            node.setAttributeDelegate(delegate);
+        return folder;
+    }
 
-            server.getNodeMap().addNode(node);
-            dynamicFolder.addOrganizes(node);
-        }
-
-        // Dynamic Double
-        {
-            String name = "Double";
-            NodeId typeId = Identifiers.Double;
-            Variant variant = new Variant(0.0);
-
-            UaVariableNode node = new UaVariableNode.UaVariableNodeBuilder(server.getNodeMap())
-                .setNodeId(new NodeId(namespaceIndex, namespaceName + "/Dynamic/" + name))
-                .setAccessLevel(ubyte(AccessLevel.getMask(AccessLevel.READ_WRITE)))
-                .setBrowseName(new QualifiedName(namespaceIndex, name))
-                .setDisplayName(LocalizedText.english(name))
-                .setDataType(typeId)
-                .setTypeDefinition(Identifiers.BaseDataVariableType)
-                .build();
-
-            node.setValue(new DataValue(variant));
-
-            AttributeDelegate delegate = AttributeDelegateChain.create(
-                new AttributeDelegate() {
-                    @Override
-                    public DataValue getValue(AttributeContext context, VariableNode node) throws UaException {
-                        return new DataValue(new Variant(random.nextDouble()));
-                    }
-                },
-                ValueLoggingDelegate::new
-            );
+    private UaVariableNode buildSignalNode(UaFolderNode folder, String name, NodeId typeId, SignalBank bank, int index) {
+        UaVariableNode node = new UaVariableNode.UaVariableNodeBuilder(server.getNodeMap())
+            .setNodeId(new NodeId(namespaceIndex, folder.getNodeId().getIdentifier() + "/" + name))
+            .setAccessLevel(ubyte(AccessLevel.getMask(AccessLevel.READ_ONLY)))
+            .setUserAccessLevel(ubyte(AccessLevel.getMask(AccessLevel.READ_ONLY)))
+            .setBrowseName(new QualifiedName(namespaceIndex, name))
+            .setDisplayName(LocalizedText.english(name))
+            .setDataType(typeId)
+            .setTypeDefinition(Identifiers.BaseDataVariableType)
+            .build();
+
+        AttributeDelegate delegate = AttributeDelegateChain.create(
+            new SignalValueDelegate(bank, index, typeId),
+            parent -> new ValueLoggingDelegate(parent, accessLog)
+        );
 
-            node.setAttributeDelegate(delegate);
+        node.setAttributeDelegate(delegate);
+        // the value changes on every tick without a setValue, so monitored items sample it
+        sampledNodeIds.add(node.getNodeId());
 
+        if (isHistorized(node.getNodeId())) {
+            history.historize(node, bank, index);
+        }
+
+        return node;
+    }
+
+    private void linkSignalNodes(UaFolderNode folder, List<UaVariableNode> nodes) {
+        List<Reference> references = new ArrayList<>(nodes.size());
+
+        for (UaVariableNode node : nodes) {
             server.getNodeMap().addNode(node);
-            dynamicFolder.addOrganizes(node);
+
+            references.add(new Reference(
+                folder.getNodeId(),
+                Identifiers.Organizes,
+                node.getNodeId().expanded(),
+                NodeClass.Variable,
+                true
+            ));
+
+            node.addReference(new Reference(
+                node.getNodeId(),
+                Identifiers.Organizes,
+                folder.getNodeId().expanded(),
+                NodeClass.Object,
+                false
+            ));
         }
+
+        folder.addReferences(references);
     }
 
     private void addDataAccessNodes(UaFolderNode rootNode) {
@@ -400,20 +1001,36 @@ public class Namespace implements org.eclipse.milo.opcua.sdk.server.api.Namespac
         dataAccessFolder.addOrganizes(node);
     }
 
-    private void addMethodNode(UaFolderNode folderNode) {
+    /**
+     * @return the deadband of the monitored items on the Value of a node: a percentage of its EURange, if it
+     * has one and a percent deadband is configured, otherwise the absolute deadband.
+     */
+    private double deadband(UaVariableNode node) {
+        if (config.getDeadbandPercent() > 0) {
+            Optional<Range> euRange = node.getProperty(AnalogItemType.E_U_RANGE);
+
+            if (euRange.isPresent()) {
+                Range range = euRange.get();
+
+                return config.getDeadbandPercent() / 100.0 * Math.abs(range.getHigh() - range.getLow());
+            }
+        }
+
+        return config.getDeadbandAbsolute();
+    }
+
+    private void addMethodNode(UaFolderNode folderNode, String name, String description, Object method) {
         UaMethodNode methodNode = UaMethodNode.builder(server.getNodeMap())
-            .setNodeId(new NodeId(namespaceIndex, namespaceName + "/sqrt(x)"))
-            .setBrowseName(new QualifiedName(namespaceIndex, "sqrt(x)"))
-            .setDisplayName(new LocalizedText(null, "sqrt(x)"))
-            .setDescription(
-                LocalizedText.english("Returns the correctly rounded positive square root of a double value."))
+            .setNodeId(new NodeId(namespaceIndex, namespaceName + "/" + name))
+            .setBrowseName(new QualifiedName(namespaceIndex, name))
+            .setDisplayName(new LocalizedText(null, name))
+            .setDescription(LocalizedText.english(description))
             .build();
 
 
         try {
-            AnnotationBasedInvocationHandler invocationHandler =
-                AnnotationBasedInvocationHandler.fromAnnotatedObject(
-                    server.getNodeMap(), new SqrtMethod());
+            DirectInvocationHandler invocationHandler =
+                DirectInvocationHandler.fromAnnotatedObject(server.getNodeMap(), method);
 
             methodNode.setProperty(UaMethodNode.InputArguments, invocationHandler.getInputArguments());
             methodNode.setProperty(UaMethodNode.OutputArguments, invocationHandler.getOutputArguments());
@@ -437,7 +1054,7 @@ public class Namespace implements org.eclipse.milo.opcua.sdk.server.api.Namespac
                 false
             ));
         } catch (Exception e) {
-            logger.error("Error creating sqrt() method.", e);
+            logger.error("Error creating {} method.", name, e);
         }
     }
 
@@ -527,15 +1144,58 @@ public class Namespace implements org.eclipse.milo.opcua.sdk.server.api.Namespac
     }
 
     private void addCustomDataTypeVariable(UaFolderNode rootFolder) {
-        // add a custom DataTypeNode as a subtype of the built-in Structure DataTypeNode
         NodeId dataTypeId = new NodeId(namespaceIndex, "DataType.CustomDataType");
 
+        NodeId binaryEncodingId = addStructureDataType(
+            "CustomDataType", new CustomDataTypeCodec());
+
+        UaVariableNode customDataTypeVariable = UaVariableNode.builder(server.getNodeMap())
+            .setNodeId(new NodeId(namespaceIndex, namespaceName + "/CustomDataTypeVariable"))
+            .setAccessLevel(ubyte(AccessLevel.getMask(AccessLevel.READ_WRITE)))
+            .setUserAccessLevel(ubyte(AccessLevel.getMask(AccessLevel.READ_WRITE)))
+            .setBrowseName(new QualifiedName(namespaceIndex, "CustomDataTypeVariable"))
+            .setDisplayName(LocalizedText.english("CustomDataTypeVariable"))
+            .setDataType(dataTypeId)
+            .setTypeDefinition(Identifiers.BaseDataVariableType)
+            .build();
+
+        CustomDataType value = new CustomDataType(
+            "foo",
+            uint(42),
+            true
+        );
+
+        ExtensionObject xo = ExtensionObject.encode(value, binaryEncodingId);
+
+        customDataTypeVariable.setValue(new DataValue(new Variant(xo)));
+
+        rootFolder.addOrganizes(customDataTypeVariable);
+
+        customDataTypeVariable.addReference(new Reference(
+            customDataTypeVariable.getNodeId(),
+            Identifiers.Organizes,
+            rootFolder.getNodeId().expanded(),
+            rootFolder.getNodeClass(),
+            false
+        ));
+    }
+
+    /**
+     * Adds the DataType node of a structure, DataType.{@code name}, as a subtype of Structure and registers its
+     * codec with the data type dictionary of the namespace.
+     *
+     * @return the binary encoding id of the structure.
+     */
+    private NodeId addStructureDataType(String name, GenericDataTypeCodec<?> codec) {
+        // add a custom DataTypeNode as a subtype of the built-in Structure DataTypeNode
+        NodeId dataTypeId = new NodeId(namespaceIndex, "DataType." + name);
+
         UaDataTypeNode dataTypeNode = new UaDataTypeNode(
             server.getNodeMap(),
             dataTypeId,
-            new QualifiedName(namespaceIndex, "CustomDataType"),
-            LocalizedText.english("CustomDataType"),
-            LocalizedText.english("CustomDataType"),
+            new QualifiedName(namespaceIndex, name),
+            LocalizedText.english(name),
+            LocalizedText.english(name),
             uint(0),
             uint(0),
             false
@@ -565,62 +1225,160 @@ public class Namespace implements org.eclipse.milo.opcua.sdk.server.api.Namespac
             ))
         );
 
-        // Create a dictionary, binaryEncodingId, and register the codec under that id
-        OpcUaBinaryDataTypeDictionary dictionary = new OpcUaBinaryDataTypeDictionary(
-            "urn:siemens:opc:server:custom-data-type"
-        );
+        NodeId binaryEncodingId = new NodeId(namespaceIndex, "DataType." + name + ".BinaryEncoding");
 
-        NodeId binaryEncodingId = new NodeId(namespaceIndex, "DataType.CustomDataType.BinaryEncoding");
+        dataTypeDictionary.registerStructCodec(codec.asBinaryCodec(), name, binaryEncodingId);
 
-        dictionary.registerStructCodec(
-            new CustomDataType.Codec().asBinaryCodec(),
-            "CustomDataType",
-            binaryEncodingId
-        );
+        // the DataTypeManager copies the codecs when the dictionary is registered
+        OpcUaDataTypeManager.getInstance().registerTypeDictionary(dataTypeDictionary);
 
-        // Register dictionary with the shared DataTypeManager instance
-        OpcUaDataTypeManager.getInstance().registerTypeDictionary(dictionary);
+        return binaryEncodingId;
+    }
 
+    /**
+     * Runs a service call on the service executor of the namespace, or on the calling thread if it has none.
+     *
+     * @param failed completes the call with a status code if it was rejected because the queue of the executor
+     *               is full, {@code Bad_TooManyOperations}, or if it threw on the executor, {@code Bad_InternalError}.
+     */
+    private void runService(Runnable call, LongConsumer failed) {
+        if (serviceExecutor == null) {
+            call.run();
+            return;
+        }
 
-        UaVariableNode customDataTypeVariable = UaVariableNode.builder(server.getNodeMap())
-            .setNodeId(new NodeId(namespaceIndex, namespaceName + "/CustomDataTypeVariable"))
-            .setAccessLevel(ubyte(AccessLevel.getMask(AccessLevel.READ_WRITE)))
-            .setUserAccessLevel(ubyte(AccessLevel.getMask(AccessLevel.READ_WRITE)))
-            .setBrowseName(new QualifiedName(namespaceIndex, "CustomDataTypeVariable"))
-            .setDisplayName(LocalizedText.english("CustomDataTypeVariable"))
-            .setDataType(dataTypeId)
-            .setTypeDefinition(Identifiers.BaseDataVariableType)
-            .build();
+        long queued = System.nanoTime();
 
-        CustomDataType value = new CustomDataType(
-            "foo",
-            uint(42),
-            true
-        );
+        try {
+            serviceExecutor.execute(() -> {
+                diagnostics.getServiceExecutor().recordQueueWait(System.nanoTime() - queued);
 
-        ExtensionObject xo = ExtensionObject.encode(value, binaryEncodingId);
+                try {
+                    call.run();
+                } catch (Throwable t) {
+                    logger.error("Error running a service call of {}", namespaceName, t);
+                    failed.accept(StatusCodes.Bad_InternalError);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            diagnostics.getServiceExecutor().recordRejected();
+            failed.accept(StatusCodes.Bad_TooManyOperations);
+        }
+    }
 
-        customDataTypeVariable.setValue(new DataValue(new Variant(xo)));
+    /**
+     * Runs a service call of {@code items} items with {@link #runService(Runnable, LongConsumer)} once the
+     * admission control admitted it. The call is handed the release of its admission and must run it before it
+     * completes.
+     *
+     * @param failed completes the call with a status code if it was not admitted or failed to run.
+     */
+    private void serve(Optional<Session> session, int items, Consumer<Runnable> call, LongConsumer failed) {
+        admission.admit(
+            session,
+            items,
+            release -> runService(
+                () -> {
+                    try {
+                        call.accept(release);
+                    } catch (RuntimeException e) {
+                        release.run();
+                        throw e;
+                    }
+                },
+                statusCode -> {
+                    release.run();
+                    failed.accept(statusCode);
+                }),
+            failed);
+    }
 
-        rootFolder.addOrganizes(customDataTypeVariable);
+    @Override
+    public void browse(
+        BrowseContext context,
+        ViewDescription view,
+        UInteger maxReferencesPerNode,
+        List<BrowseDescription> browseDescriptions) {
+
+        long start = System.nanoTime();
+
+        serve(
+            context.getSession(),
+            browseDescriptions.size(),
+            done -> browse(context, maxReferencesPerNode, browseDescriptions, start, done),
+            statusCode -> {
+                diagnostics.record(ServiceOperation.BROWSE, start, browseDescriptions.size(), browseDescriptions.size());
+                context.complete(Collections.nCopies(
+                    browseDescriptions.size(),
+                    new BrowseResult(new StatusCode(statusCode), null, new ReferenceDescription[0])));
+            });
+    }
 
-        customDataTypeVariable.addReference(new Reference(
-            customDataTypeVariable.getNodeId(),
-            Identifiers.Organizes,
-            rootFolder.getNodeId().expanded(),
-            rootFolder.getNodeClass(),
-            false
-        ));
+    private void browse(
+        BrowseContext context,
+        UInteger maxReferencesPerNode,
+        List<BrowseDescription> browseDescriptions,
+        long start,
+        Runnable done) {
+
+        int maxReferences = maxReferences(maxReferencesPerNode);
+
+        BrowseResult[] results = new BrowseResult[browseDescriptions.size()];
+        int errors = 0;
+
+        for (int i = 0; i < results.length; i++) {
+            results[i] = referenceIndex.browse(browseDescriptions.get(i), maxReferences);
+
+            if (results[i].getStatusCode().isBad()) {
+                errors++;
+            }
+        }
+
+        done.run();
+        diagnostics.record(ServiceOperation.BROWSE, start, results.length, errors);
+        context.complete(Arrays.asList(results));
     }
 
     @Override
     public CompletableFuture<List<Reference>> browse(AccessContext context, NodeId nodeId) {
-        ServerNode node = server.getNodeMap().get(nodeId);
+        long start = System.nanoTime();
+        CompletableFuture<List<Reference>> future = new CompletableFuture<>();
+
+        runService(
+            () -> {
+                List<Reference> references = referenceIndex.getReferences(nodeId);
+
+                if (references != null) {
+                    diagnostics.record(ServiceOperation.BROWSE, start, 1, 0);
+                    future.complete(references);
+                } else {
+                    diagnostics.record(ServiceOperation.BROWSE, start, 1, 1);
+                    future.completeExceptionally(new UaException(StatusCodes.Bad_NodeIdUnknown));
+                }
+            },
+            statusCode -> {
+                diagnostics.record(ServiceOperation.BROWSE, start, 1, 1);
+                future.completeExceptionally(new UaException(statusCode));
+            });
+
+        return future;
+    }
+
+    /**
+     * Drops the precomputed browse results of a node after its references were changed.
+     */
+    public void invalidateReferences(NodeId nodeId) {
+        referenceIndex.invalidate(nodeId);
+    }
+
+    private int maxReferences(UInteger requested) {
+        int client = requested != null ? (int) Math.min(requested.longValue(), Integer.MAX_VALUE) : 0;
+        int limit = config.getMaxReferencesPerNode();
 
-        if (node != null) {
-            return CompletableFuture.completedFuture(node.getReferences());
+        if (client <= 0) {
+            return limit;
         } else {
-            return FutureUtils.failedFuture(new UaException(StatusCodes.Bad_NodeIdUnknown));
+            return limit <= 0 ? client : Math.min(client, limit);
         }
     }
 
@@ -631,61 +1389,292 @@ public class Namespace implements org.eclipse.milo.opcua.sdk.server.api.Namespac
         TimestampsToReturn timestamps,
         List<ReadValueId> readValueIds) {
 
-        List<DataValue> results = Lists.newArrayListWithCapacity(readValueIds.size());
+        long start = System.nanoTime();
 
-        for (ReadValueId readValueId : readValueIds) {
+        serve(
+            context.getSession(),
+            readValueIds.size(),
+            done -> read(context, timestamps, readValueIds, start, done),
+            statusCode -> {
+                diagnostics.record(ServiceOperation.READ, start, readValueIds.size(), readValueIds.size());
+                context.complete(Collections.nCopies(readValueIds.size(), new DataValue(statusCode)));
+            });
+    }
+
+    private void read(
+        ReadContext context,
+        TimestampsToReturn timestamps,
+        List<ReadValueId> readValueIds,
+        long start,
+        Runnable done) {
+
+        // every item in a request is read with the same session, so one context serves them all
+        AttributeContext attributeContext = new AttributeContext(context);
+        AccessPolicy.Grant grant = accessGrant(context.getSession());
+
+        int size = readValueIds.size();
+        DataValue[] results = new DataValue[size];
+
+        if (size < config.getParallelReadThreshold()) {
+            readRange(attributeContext, grant, timestamps, readValueIds, results, 0, size);
+
+            done.run();
+            diagnostics.record(ServiceOperation.READ, start, size, countBad(results));
+            context.complete(Arrays.asList(results));
+            return;
+        }
+
+        int chunkSize = config.getReadChunkSize();
+        CompletableFuture<?>[] chunks = new CompletableFuture<?>[(size + chunkSize - 1) / chunkSize];
+
+        // a namespace with a service executor reads its chunks on it too, and on this thread if its queue is full
+        Executor chunkExecutor = serviceExecutor != null ? serviceExecutor : ForkJoinPool.commonPool();
+
+        for (int i = 0; i < chunks.length; i++) {
+            int from = i * chunkSize;
+            int to = Math.min(size, from + chunkSize);
+
+            try {
+                chunks[i] = CompletableFuture.runAsync(
+                    () -> readRange(attributeContext, grant, timestamps, readValueIds, results, from, to),
+                    chunkExecutor);
+            } catch (RejectedExecutionException e) {
+                readRange(attributeContext, grant, timestamps, readValueIds, results, from, to);
+                chunks[i] = CompletableFuture.completedFuture(null);
+            }
+        }
+
+        CompletableFuture.allOf(chunks).whenComplete((v, ex) -> {
+            if (ex != null) {
+                logger.error("Error reading {} items in parallel", size, ex);
+
+                for (int i = 0; i < size; i++) {
+                    if (results[i] == null) {
+                        results[i] = new DataValue(StatusCodes.Bad_InternalError);
+                    }
+                }
+            }
+
+            done.run();
+            diagnostics.record(ServiceOperation.READ, start, size, countBad(results));
+            context.complete(Arrays.asList(results));
+        });
+    }
+
+    private void readRange(
+        AttributeContext attributeContext,
+        @Nullable AccessPolicy.Grant grant,
+        TimestampsToReturn timestamps,
+        List<ReadValueId> readValueIds,
+        DataValue[] results,
+        int from,
+        int to) {
+
+        for (int i = from; i < to; i++) {
+            ReadValueId readValueId = readValueIds.get(i);
             ServerNode node = server.getNodeMap().get(readValueId.getNodeId());
 
-            if (node != null) {
-                DataValue value = node.readAttribute(
-                    new AttributeContext(context),
-                    readValueId.getAttributeId(),
-                    timestamps,
-                    readValueId.getIndexRange(),
-                    readValueId.getDataEncoding()
-                );
+            if (node == null) {
+                results[i] = new DataValue(StatusCodes.Bad_NodeIdUnknown);
+                continue;
+            }
 
-                results.add(value);
-            } else {
-                results.add(new DataValue(StatusCodes.Bad_NodeIdUnknown));
+            AccessRoleConfig.Level level = grant != null ? grant.getLevel(node.getNodeId()) : null;
+
+            if (level == AccessRoleConfig.Level.NONE && AttributeId.Value.uid().equals(readValueId.getAttributeId())) {
+                results[i] = new DataValue(StatusCodes.Bad_UserAccessDenied);
+                continue;
+            }
+
+            results[i] = node.readAttribute(
+                attributeContext,
+                readValueId.getAttributeId(),
+                timestamps,
+                readValueId.getIndexRange(),
+                readValueId.getDataEncoding()
+            );
+
+            if (level != null && AttributeId.UserAccessLevel.uid().equals(readValueId.getAttributeId())) {
+                results[i] = restrict(results[i], level);
             }
         }
+    }
 
-        context.complete(results);
+    /**
+     * @return a UserAccessLevel value without the bits the access policy does not allow.
+     */
+    private static DataValue restrict(DataValue userAccessLevel, AccessRoleConfig.Level level) {
+        Object value = userAccessLevel.getValue().getValue();
+
+        if (!(value instanceof UByte)) {
+            return userAccessLevel;
+        }
+
+        return new DataValue(
+            new Variant(ubyte(((UByte) value).intValue() & level.getMask())),
+            userAccessLevel.getStatusCode(),
+            userAccessLevel.getSourceTime(),
+            userAccessLevel.getServerTime());
     }
 
     @Override
     public void write(WriteContext context, List<WriteValue> writeValues) {
-        List<StatusCode> results = Lists.newArrayListWithCapacity(writeValues.size());
+        long start = System.nanoTime();
+
+        serve(
+            context.getSession(),
+            writeValues.size(),
+            done -> write(context, writeValues, start, done),
+            statusCode -> {
+                diagnostics.record(ServiceOperation.WRITE, start, writeValues.size(), writeValues.size());
+                context.complete(Collections.nCopies(writeValues.size(), new StatusCode(statusCode)));
+            });
+    }
+
+    private void write(WriteContext context, List<WriteValue> writeValues, long start, Runnable done) {
+        int size = writeValues.size();
+        StatusCode[] results = new StatusCode[size];
+        WriteKey[] keys = new WriteKey[size];
+
+        // validate the whole batch first and keep only the last write to each node attribute
+        Map<WriteKey, ServerNode> nodes = new HashMap<>();
+        Map<WriteKey, Integer> lastWrites = new LinkedHashMap<>();
+        AccessPolicy.Grant grant = accessGrant(context.getSession());
 
-        for (WriteValue writeValue : writeValues) {
+        for (int i = 0; i < size; i++) {
+            WriteValue writeValue = writeValues.get(i);
             ServerNode node = server.getNodeMap().get(writeValue.getNodeId());
 
-            if (node != null) {
-                try {
-                    node.writeAttribute(
-                        new AttributeContext(context),
-                        writeValue.getAttributeId(),
-                        writeValue.getValue(),
-                        writeValue.getIndexRange()
-                    );
-
-                    results.add(StatusCode.GOOD);
-
-                    logger.info(
-                        "Wrote value {} to {} attribute of {}",
-                        writeValue.getValue().getValue(),
-                        AttributeId.from(writeValue.getAttributeId()).map(Object::toString).orElse("unknown"),
-                        node.getNodeId());
-                } catch (UaException e) {
-                    logger.error("Unable to write value={}", writeValue.getValue(), e);
-                    results.add(e.getStatusCode());
-                }
+            if (node == null) {
+                results[i] = new StatusCode(StatusCodes.Bad_NodeIdUnknown);
+            } else if (!AttributeId.from(writeValue.getAttributeId()).isPresent()) {
+                results[i] = new StatusCode(StatusCodes.Bad_AttributeIdInvalid);
+            } else if (writeValue.getValue() == null) {
+                results[i] = new StatusCode(StatusCodes.Bad_TypeMismatch);
+            } else if (grant != null && !grant.canWrite(node.getNodeId())) {
+                results[i] = new StatusCode(StatusCodes.Bad_UserAccessDenied);
             } else {
-                results.add(new StatusCode(StatusCodes.Bad_NodeIdUnknown));
+                keys[i] = new WriteKey(writeValue);
+                nodes.put(keys[i], node);
+                lastWrites.put(keys[i], i);
+            }
+        }
+
+        AttributeContext attributeContext = new AttributeContext(context);
+        int failed = 0;
+
+        for (Map.Entry<WriteKey, Integer> entry : lastWrites.entrySet()) {
+            int i = entry.getValue();
+            WriteValue writeValue = writeValues.get(i);
+
+            try {
+                nodes.get(entry.getKey()).writeAttribute(
+                    attributeContext,
+                    writeValue.getAttributeId(),
+                    writeValue.getValue(),
+                    writeValue.getIndexRange()
+                );
+
+                results[i] = StatusCode.GOOD;
+            } catch (UaException e) {
+                logger.debug("Unable to write value={} to {}", writeValue.getValue(), writeValue.getNodeId(), e);
+                results[i] = e.getStatusCode();
+                failed++;
+            }
+        }
+
+        // superseded writes report the status of the write that replaced them
+        int coalesced = 0;
+        for (int i = 0; i < size; i++) {
+            if (results[i] == null) {
+                results[i] = results[lastWrites.get(keys[i])];
+                coalesced++;
+            }
+        }
+
+        int rejected = size - lastWrites.size() - coalesced;
+        if (failed > 0 || rejected > 0) {
+            logger.warn(
+                "Write batch of {} items: written={}, coalesced={}, rejected={}, failed={}",
+                size, lastWrites.size() - failed, coalesced, rejected, failed);
+        } else {
+            logger.info(
+                "Write batch of {} items: written={}, coalesced={}",
+                size, lastWrites.size(), coalesced);
+        }
+
+        int errors = 0;
+        for (StatusCode result : results) {
+            if (result.isBad()) {
+                errors++;
+            }
+        }
+
+        done.run();
+        diagnostics.record(ServiceOperation.WRITE, start, size, errors);
+        context.complete(Arrays.asList(results));
+    }
+
+    @Override
+    public void historyRead(
+        HistoryReadContext context,
+        HistoryReadDetails readDetails,
+        TimestampsToReturn timestamps,
+        List<HistoryReadValueId> readValueIds) {
+
+        long start = System.nanoTime();
+
+        serve(
+            context.getSession(),
+            readValueIds.size(),
+            done -> historyRead(context, readDetails, timestamps, readValueIds, start, done),
+            statusCode -> {
+                diagnostics.record(ServiceOperation.HISTORY_READ, start, readValueIds.size(), readValueIds.size());
+                context.complete(Collections.nCopies(
+                    readValueIds.size(),
+                    new HistoryReadResult(new StatusCode(statusCode), ByteString.NULL_VALUE, null)));
+            });
+    }
+
+    private void historyRead(
+        HistoryReadContext context,
+        HistoryReadDetails readDetails,
+        TimestampsToReturn timestamps,
+        List<HistoryReadValueId> readValueIds,
+        long start,
+        Runnable done) {
+
+        List<HistoryReadResult> results;
+
+        if (history != null) {
+            results = history.read(readDetails, timestamps, readValueIds);
+        } else {
+            results = new ArrayList<>(readValueIds.size());
+            for (int i = 0; i < readValueIds.size(); i++) {
+                results.add(new HistoryReadResult(
+                    new StatusCode(StatusCodes.Bad_HistoryOperationUnsupported), ByteString.NULL_VALUE, null));
             }
         }
 
+        AccessPolicy.Grant grant = accessGrant(context.getSession());
+        if (grant != null) {
+            for (int i = 0; i < results.size(); i++) {
+                if (!grant.canRead(readValueIds.get(i).getNodeId())) {
+                    results.set(i, new HistoryReadResult(
+                        new StatusCode(StatusCodes.Bad_UserAccessDenied), ByteString.NULL_VALUE, null));
+                }
+            }
+        }
+
+        int errors = 0;
+        for (HistoryReadResult result : results) {
+            if (result.getStatusCode().isBad()) {
+                errors++;
+            }
+        }
+
+        done.run();
+        diagnostics.record(ServiceOperation.HISTORY_READ, start, results.size(), errors);
         context.complete(results);
     }
 
@@ -709,6 +1698,84 @@ public class Namespace implements org.eclipse.milo.opcua.sdk.server.api.Namespac
         subscriptionModel.onMonitoringModeChanged(monitoredItems);
     }
 
+    @Override
+    public void call(CallContext context, List<CallMethodRequest> requests) {
+        long start = System.nanoTime();
+
+        serve(
+            context.getSession(),
+            requests.size(),
+            done -> call(context, requests, start, done),
+            statusCode -> {
+                diagnostics.record(ServiceOperation.CALL, start, requests.size(), requests.size());
+                context.complete(Collections.nCopies(requests.size(), callResult(statusCode)));
+            });
+    }
+
+    private void call(CallContext context, List<CallMethodRequest> requests, long start, Runnable done) {
+        List<CompletableFuture<CallMethodResult>> results = new ArrayList<>(requests.size());
+
+        for (CallMethodRequest request : requests) {
+            CompletableFuture<CallMethodResult> result = new CompletableFuture<>();
+            Optional<MethodInvocationHandler> handler = getInvocationHandler(request.getMethodId());
+
+            if (handler.isPresent()) {
+                long queued = System.nanoTime();
+
+                try {
+                    methodExecutor.execute(() -> {
+                        diagnostics.getMethodExecutor().recordQueueWait(System.nanoTime() - queued);
+
+                        try {
+                            handler.get().invoke(context, request, result);
+                        } catch (Throwable t) {
+                            logger.error("Error invoking method {}", request.getMethodId(), t);
+                            result.complete(callResult(StatusCodes.Bad_InternalError));
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    diagnostics.getMethodExecutor().recordRejected();
+                    result.complete(callResult(StatusCodes.Bad_TooManyOperations));
+                }
+            } else {
+                result.complete(callResult(StatusCodes.Bad_MethodInvalid));
+            }
+
+            results.add(result);
+        }
+
+        FutureUtils.sequence(results).thenAccept(callResults -> {
+            int errors = 0;
+            for (CallMethodResult callResult : callResults) {
+                if (callResult.getStatusCode().isBad()) {
+                    errors++;
+                }
+            }
+
+            done.run();
+            diagnostics.record(ServiceOperation.CALL, start, callResults.size(), errors);
+            context.complete(callResults);
+        });
+    }
+
+    private static CallMethodResult callResult(long statusCode) {
+        return new CallMethodResult(new StatusCode(statusCode), new StatusCode[0], new DiagnosticInfo[0], new Variant[0]);
+    }
+
+    private static int countBad(DataValue[] values) {
+        int bad = 0;
+        for (DataValue value : values) {
+            if (value.getStatusCode() != null && value.getStatusCode().isBad()) {
+                bad++;
+            }
+        }
+        return bad;
+    }
+
+    public NamespaceDiagnostics getDiagnostics() {
+        return diagnostics;
+    }
+
     @Override
     public Optional<MethodInvocationHandler> getInvocationHandler(NodeId methodId) {
         Optional<ServerNode> node = server.getNodeMap().getNode(methodId);
@@ -722,4 +1789,31 @@ public class Namespace implements org.eclipse.milo.opcua.sdk.server.api.Namespac
         });
     }
 
-}
\ No newline at end of file
+    private static final class WriteKey {
+        private final NodeId nodeId;
+        private final UInteger attributeId;
+        private final String indexRange;
+
+        WriteKey(WriteValue writeValue) {
+            this.nodeId = writeValue.getNodeId();
+            this.attributeId = writeValue.getAttributeId();
+            this.indexRange = writeValue.getIndexRange();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            WriteKey that = (WriteKey) o;
+            return Objects.equal(nodeId, that.nodeId) &&
+                Objects.equal(attributeId, that.attributeId) &&
+                Objects.equal(indexRange, that.indexRange);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(nodeId, attributeId, indexRange);
+        }
+    }
+
+}
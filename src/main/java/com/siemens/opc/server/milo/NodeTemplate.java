@@ -0,0 +1,214 @@
+package com.siemens.opc.server.milo;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+import javax.annotation.Nullable;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import com.siemens.opc.server.milo.store.ArrayVariableNode;
+import com.siemens.opc.server.milo.store.PrimitiveValueStore;
+import com.siemens.opc.server.milo.store.StoredVariableNode;
+import com.siemens.opc.server.milo.store.ValueKind;
+import org.eclipse.milo.opcua.sdk.core.Reference;
+import org.eclipse.milo.opcua.sdk.core.ValueRank;
+import org.eclipse.milo.opcua.sdk.server.api.ServerNodeMap;
+import org.eclipse.milo.opcua.sdk.server.nodes.UaVariableNode;
+import org.eclipse.milo.opcua.stack.core.Identifiers;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
+import org.eclipse.milo.opcua.stack.core.types.builtin.ExpandedNodeId;
+import org.eclipse.milo.opcua.stack.core.types.builtin.LocalizedText;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.eclipse.milo.opcua.stack.core.types.builtin.QualifiedName;
+import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UByte;
+import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UShort;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.NodeClass;
+
+import static org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.Unsigned.uint;
+
+/**
+ * The attributes of a variable node that don't depend on its namespace: name, data type, access levels and, for
+ * array variables, dimensions.
+ * Templates are interned, so all namespaces with the same tag layout build their nodes from one template per
+ * distinct tag and share the attribute objects it holds. A node only has its own node id, references and
+ * value; its browse name is shared by the nodes of a namespace.
+ */
+public final class NodeTemplate {
+
+    private static final Interner<NodeTemplate> TEMPLATES = Interners.newWeakInterner();
+
+    public static final ExpandedNodeId TYPE_DEFINITION = Identifiers.BaseDataVariableType.expanded();
+    public static final Double MINIMUM_SAMPLING_INTERVAL = 0.0;
+
+    private final String name;
+    private final LocalizedText displayName;
+    private final NodeId dataType;
+    private final UByte accessLevel;
+    private final UByte userAccessLevel;
+    private final int[] arrayDimensions;
+
+    // indexed by namespace index
+    private volatile QualifiedName[] browseNames = new QualifiedName[0];
+
+    private NodeTemplate(
+        String name,
+        NodeId dataType,
+        UByte accessLevel,
+        UByte userAccessLevel,
+        @Nullable int[] arrayDimensions) {
+
+        this.name = name;
+        this.displayName = LocalizedText.english(name);
+        this.dataType = dataType;
+        this.accessLevel = accessLevel;
+        this.userAccessLevel = userAccessLevel;
+        this.arrayDimensions = arrayDimensions != null ? arrayDimensions.clone() : null;
+    }
+
+    /**
+     * @return the template shared by every node with these attributes. It must be kept reachable, e.g. by its
+     * namespace, for later nodes to share it.
+     */
+    public static NodeTemplate of(String name, NodeId dataType, UByte accessLevel, UByte userAccessLevel) {
+        return of(name, dataType, accessLevel, userAccessLevel, null);
+    }
+
+    /**
+     * @param arrayDimensions the dimensions of an {@link ArrayVariableNode}, null for a scalar variable.
+     * @throws IllegalArgumentException if there are array dimensions but the data type can't be held in an array
+     *                                  variable.
+     */
+    public static NodeTemplate of(
+        String name,
+        NodeId dataType,
+        UByte accessLevel,
+        UByte userAccessLevel,
+        @Nullable int[] arrayDimensions) {
+
+        if (arrayDimensions != null && ValueKind.forDataType(dataType) == null) {
+            throw new IllegalArgumentException("unsupported array data type: " + dataType);
+        }
+
+        return TEMPLATES.intern(new NodeTemplate(name, dataType, accessLevel, userAccessLevel, arrayDimensions));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public NodeId getDataType() {
+        return dataType;
+    }
+
+    public QualifiedName getBrowseName(UShort namespaceIndex) {
+        int index = namespaceIndex.intValue();
+        QualifiedName[] names = browseNames;
+
+        if (index < names.length && names[index] != null) {
+            return names[index];
+        }
+
+        synchronized (this) {
+            names = browseNames;
+            if (index >= names.length) {
+                names = Arrays.copyOf(names, index + 1);
+            }
+            if (names[index] == null) {
+                names[index] = new QualifiedName(namespaceIndex, name);
+                browseNames = names;
+            }
+
+            return names[index];
+        }
+    }
+
+    /**
+     * @param store        if not null and it can hold the data type, the value of a scalar node is kept in it.
+     * @param initialValue the value of a scalar node, or of every element of an array node.
+     * @return a node of this template, not yet added to the node map.
+     */
+    public UaVariableNode newNode(
+        ServerNodeMap nodeMap,
+        NodeId nodeId,
+        @Nullable PrimitiveValueStore store,
+        DataValue initialValue) {
+
+        UaVariableNode node;
+
+        if (arrayDimensions != null) {
+            ValueKind kind = ValueKind.forDataType(dataType);
+            Object initial = initialValue.getValue() != null ? initialValue.getValue().getValue() : null;
+
+            node = new ArrayVariableNode(
+                nodeMap,
+                nodeId,
+                getBrowseName(nodeId.getNamespaceIndex()),
+                displayName,
+                kind,
+                arrayDimensions,
+                accessLevel,
+                userAccessLevel,
+                initial != null ? kind.toDouble(initial) : 0
+            );
+        } else if (store != null && StoredVariableNode.isStorable(dataType)) {
+            node = new StoredVariableNode(
+                nodeMap,
+                nodeId,
+                getBrowseName(nodeId.getNamespaceIndex()),
+                displayName,
+                dataType,
+                accessLevel,
+                userAccessLevel,
+                store,
+                initialValue
+            );
+        } else {
+            node = new UaVariableNode(
+                nodeMap,
+                nodeId,
+                getBrowseName(nodeId.getNamespaceIndex()),
+                displayName,
+                LocalizedText.NULL_VALUE,
+                uint(0),
+                uint(0),
+                initialValue,
+                dataType,
+                ValueRank.Scalar.getValue(),
+                null,
+                accessLevel,
+                userAccessLevel,
+                MINIMUM_SAMPLING_INTERVAL,
+                false
+            );
+
+            node.addReference(new Reference(
+                nodeId,
+                Identifiers.HasTypeDefinition,
+                TYPE_DEFINITION,
+                NodeClass.VariableType,
+                true
+            ));
+        }
+
+        return node;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        NodeTemplate that = (NodeTemplate) o;
+        return name.equals(that.name) &&
+            dataType.equals(that.dataType) &&
+            accessLevel.equals(that.accessLevel) &&
+            userAccessLevel.equals(that.userAccessLevel) &&
+            Arrays.equals(arrayDimensions, that.arrayDimensions);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, dataType, accessLevel, userAccessLevel) * 31 + Arrays.hashCode(arrayDimensions);
+    }
+
+}
@@ -0,0 +1,343 @@
+package com.siemens.opc.server.milo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+
+import com.siemens.opc.server.milo.diagnostics.NotificationStats;
+import com.siemens.opc.server.milo.store.ArrayVariableNode;
+
+import org.eclipse.milo.opcua.sdk.server.OpcUaServer;
+import org.eclipse.milo.opcua.sdk.server.api.AttributeManager;
+import org.eclipse.milo.opcua.sdk.server.api.DataItem;
+import org.eclipse.milo.opcua.sdk.server.api.MonitoredItem;
+import org.eclipse.milo.opcua.sdk.server.nodes.AttributeContext;
+import org.eclipse.milo.opcua.sdk.server.nodes.AttributeObserver;
+import org.eclipse.milo.opcua.sdk.server.nodes.ServerNode;
+import org.eclipse.milo.opcua.sdk.server.nodes.UaNode;
+import org.eclipse.milo.opcua.sdk.server.nodes.UaVariableNode;
+import org.eclipse.milo.opcua.sdk.server.util.SubscriptionModel;
+import org.eclipse.milo.opcua.stack.core.AttributeId;
+import org.eclipse.milo.opcua.stack.core.StatusCodes;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.eclipse.milo.opcua.stack.core.types.structured.ReadValueId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Delivers Value changes of variable nodes straight to their monitored items when the value is set,
+ * instead of re-reading every item at its sampling interval. Items on nodes whose value is computed on
+ * read, and items on any other attribute, are still sampled by a {@link SubscriptionModel}.
+ * <p>
+ * Items on the Value of a node with a deadband are wrapped in a {@link DeadbandDataItem}, pushed or sampled,
+ * so values within the deadband never reach their queue.
+ */
+public class PushSubscriptionModel implements AttributeObserver {
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final Map<NodeId, List<DataItem>> pushedItems = new ConcurrentHashMap<>();
+    private final Map<DataItem, DeadbandDataItem> deadbandItems = new ConcurrentHashMap<>();
+
+    private final OpcUaServer server;
+    private final SubscriptionModel samplingModel;
+    private final Predicate<UaVariableNode> pushable;
+    private final ToDoubleFunction<UaVariableNode> deadband;
+    private final NotificationStats stats;
+
+    /**
+     * @param pushable decides which variable nodes report their value changes; values of all other
+     *                 nodes are sampled.
+     */
+    public PushSubscriptionModel(
+        OpcUaServer server,
+        AttributeManager attributeManager,
+        Predicate<UaVariableNode> pushable) {
+
+        this(server, attributeManager, pushable, node -> 0, new NotificationStats());
+    }
+
+    /**
+     * @param deadband the absolute deadband of the Value of a variable node; 0 passes on every change.
+     * @param stats    counts the values passed on and suppressed by a deadband.
+     */
+    public PushSubscriptionModel(
+        OpcUaServer server,
+        AttributeManager attributeManager,
+        Predicate<UaVariableNode> pushable,
+        ToDoubleFunction<UaVariableNode> deadband,
+        NotificationStats stats) {
+
+        this.server = server;
+        this.samplingModel = new SubscriptionModel(server, attributeManager);
+        this.pushable = pushable;
+        this.deadband = deadband;
+        this.stats = stats;
+    }
+
+    public void onDataItemsCreated(List<DataItem> dataItems) {
+        List<DataItem> sampled = new ArrayList<>();
+
+        for (DataItem dataItem : dataItems) {
+            DataItem item = withDeadband(dataItem);
+            UaVariableNode node = pushableNode(item);
+
+            if (node != null) {
+                List<DataItem> items = pushedItems.computeIfAbsent(node.getNodeId(), id -> {
+                    node.addAttributeObserver(this);
+                    return new CopyOnWriteArrayList<>();
+                });
+                items.add(item);
+
+                // the initial value, like the first sample of a sampled item
+                if (item.isSamplingEnabled()) {
+                    item.setValue(readValue(node, item.getReadValueId(), item));
+                }
+            } else {
+                sampled.add(item);
+            }
+        }
+
+        if (!sampled.isEmpty()) {
+            samplingModel.onDataItemsCreated(sampled);
+        }
+    }
+
+    public void onDataItemsModified(List<DataItem> dataItems) {
+        // a new sampling interval has no meaning for pushed items
+        List<DataItem> sampled = new ArrayList<>();
+
+        for (DataItem dataItem : dataItems) {
+            DataItem item = effective(dataItem);
+
+            if (!isPushed(item)) {
+                sampled.add(item);
+            }
+        }
+
+        if (!sampled.isEmpty()) {
+            samplingModel.onDataItemsModified(sampled);
+        }
+    }
+
+    public void onDataItemsDeleted(List<DataItem> dataItems) {
+        List<DataItem> sampled = new ArrayList<>();
+
+        for (DataItem dataItem : dataItems) {
+            DataItem item = effective(dataItem);
+            DeadbandDataItem deadbandItem = deadbandItems.remove(dataItem);
+
+            if (deadbandItem != null) {
+                logger.debug("Monitored item {} on {}: {} values sent, {} suppressed by a deadband of {}",
+                    dataItem.getId(), dataItem.getReadValueId().getNodeId(),
+                    deadbandItem.getSent(), deadbandItem.getSuppressed(), deadbandItem.getDeadband());
+            }
+
+            NodeId nodeId = item.getReadValueId().getNodeId();
+            List<DataItem> items = pushedItems.get(nodeId);
+
+            if (items != null && items.remove(item)) {
+                pushedItems.computeIfPresent(nodeId, (id, remaining) -> {
+                    if (remaining.isEmpty()) {
+                        server.getNodeMap().getNode(id)
+                            .filter(UaNode.class::isInstance)
+                            .ifPresent(n -> ((UaNode) n).removeAttributeObserver(this));
+                        return null;
+                    }
+                    return remaining;
+                });
+            } else {
+                sampled.add(item);
+            }
+        }
+
+        if (!sampled.isEmpty()) {
+            samplingModel.onDataItemsDeleted(sampled);
+        }
+    }
+
+    public void onMonitoringModeChanged(List<MonitoredItem> monitoredItems) {
+        List<MonitoredItem> sampled = new ArrayList<>();
+
+        for (MonitoredItem monitoredItem : monitoredItems) {
+            MonitoredItem item = monitoredItem instanceof DataItem
+                ? effective((DataItem) monitoredItem)
+                : monitoredItem;
+
+            if (item instanceof DataItem && isPushed((DataItem) item)) {
+                DataItem dataItem = (DataItem) item;
+                UaVariableNode node = pushableNode(dataItem);
+
+                if (node != null && dataItem.isSamplingEnabled()) {
+                    dataItem.setValue(readValue(node, dataItem.getReadValueId(), dataItem));
+                }
+            } else {
+                sampled.add(item);
+            }
+        }
+
+        if (!sampled.isEmpty()) {
+            samplingModel.onMonitoringModeChanged(sampled);
+        }
+    }
+
+    /**
+     * Moves the pushed items of removed nodes to the added nodes with the same node ids. Items on a node that was
+     * removed get {@code Bad_NodeIdUnknown}, items on a node that was added get its current value.
+     */
+    public void nodesReplaced(List<? extends UaNode> removed, List<? extends UaNode> added) {
+        DataValue unknown = new DataValue(StatusCodes.Bad_NodeIdUnknown);
+
+        for (UaNode node : removed) {
+            List<DataItem> items = pushedItems.get(node.getNodeId());
+
+            if (items != null) {
+                node.removeAttributeObserver(this);
+
+                for (DataItem item : items) {
+                    if (item.isSamplingEnabled()) {
+                        item.setValue(unknown);
+                    }
+                }
+            }
+        }
+
+        for (UaNode node : added) {
+            List<DataItem> items = pushedItems.get(node.getNodeId());
+
+            if (items != null && node instanceof UaVariableNode) {
+                node.addAttributeObserver(this);
+
+                for (DataItem item : items) {
+                    if (item.isSamplingEnabled()) {
+                        item.setValue(readValue((UaVariableNode) node, item.getReadValueId(), item));
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public void attributeChanged(UaNode node, AttributeId attributeId, Object value) {
+        if (attributeId != AttributeId.Value) {
+            return;
+        }
+
+        List<DataItem> items = pushedItems.get(node.getNodeId());
+        if (items == null) {
+            return;
+        }
+
+        if (value instanceof ArrayVariableNode.Change) {
+            arrayChanged((ArrayVariableNode) node, (ArrayVariableNode.Change) value, items);
+            return;
+        }
+
+        for (DataItem item : items) {
+            if (!item.isSamplingEnabled()) {
+                continue;
+            }
+
+            ReadValueId readValueId = item.getReadValueId();
+
+            if (readValueId.getIndexRange() == null && value instanceof DataValue) {
+                item.setValue(DataValue.derivedValue((DataValue) value, item.getTimestampsToReturn()));
+            } else {
+                item.setValue(readValue((UaVariableNode) node, readValueId, item));
+            }
+        }
+    }
+
+    /**
+     * Items on a slice the change missed are skipped; the whole array is built at most once for all items on it.
+     */
+    private void arrayChanged(ArrayVariableNode node, ArrayVariableNode.Change change, List<DataItem> items) {
+        DataValue whole = null;
+
+        for (DataItem item : items) {
+            if (!item.isSamplingEnabled()) {
+                continue;
+            }
+
+            ReadValueId readValueId = item.getReadValueId();
+
+            if (readValueId.getIndexRange() == null || readValueId.getIndexRange().isEmpty()) {
+                if (whole == null) {
+                    whole = node.getValue();
+                }
+                item.setValue(DataValue.derivedValue(whole, item.getTimestampsToReturn()));
+            } else if (change.overlaps(readValueId.getIndexRange())) {
+                item.setValue(readValue(node, readValueId, item));
+            }
+        }
+    }
+
+    /**
+     * Wraps an item on the Value of a node with a deadband.
+     */
+    private DataItem withDeadband(DataItem item) {
+        ReadValueId readValueId = item.getReadValueId();
+
+        if (!AttributeId.Value.uid().equals(readValueId.getAttributeId())) {
+            return item;
+        }
+
+        ServerNode node = server.getNodeMap().get(readValueId.getNodeId());
+        double itemDeadband = node instanceof UaVariableNode ? deadband.applyAsDouble((UaVariableNode) node) : 0;
+
+        if (itemDeadband > 0) {
+            DeadbandDataItem deadbandItem = new DeadbandDataItem(item, itemDeadband, stats);
+            deadbandItems.put(item, deadbandItem);
+            return deadbandItem;
+        } else {
+            return item;
+        }
+    }
+
+    /**
+     * @return the item the models know for an item of the subscription.
+     */
+    private DataItem effective(DataItem item) {
+        DeadbandDataItem deadbandItem = deadbandItems.get(item);
+
+        return deadbandItem != null ? deadbandItem : item;
+    }
+
+    private boolean isPushed(DataItem item) {
+        List<DataItem> items = pushedItems.get(item.getReadValueId().getNodeId());
+
+        return items != null && items.contains(item);
+    }
+
+    private UaVariableNode pushableNode(DataItem item) {
+        ReadValueId readValueId = item.getReadValueId();
+
+        if (!AttributeId.Value.uid().equals(readValueId.getAttributeId())) {
+            return null;
+        }
+
+        ServerNode node = server.getNodeMap().get(readValueId.getNodeId());
+
+        if (node instanceof UaVariableNode && pushable.test((UaVariableNode) node)) {
+            return (UaVariableNode) node;
+        } else {
+            return null;
+        }
+    }
+
+    private DataValue readValue(UaVariableNode node, ReadValueId readValueId, DataItem item) {
+        return node.readAttribute(
+            new AttributeContext(server),
+            readValueId.getAttributeId(),
+            item.getTimestampsToReturn(),
+            readValueId.getIndexRange(),
+            readValueId.getDataEncoding()
+        );
+    }
+
+}
@@ -0,0 +1,335 @@
+package com.siemens.opc.server.milo;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.google.common.collect.ImmutableList;
+import org.eclipse.milo.opcua.sdk.core.Reference;
+import org.eclipse.milo.opcua.sdk.server.OpcUaServer;
+import org.eclipse.milo.opcua.sdk.server.nodes.ServerNode;
+import org.eclipse.milo.opcua.sdk.server.services.helpers.BrowseHelper.BrowseContinuationPoint;
+import org.eclipse.milo.opcua.stack.core.StatusCodes;
+import org.eclipse.milo.opcua.stack.core.types.builtin.ByteString;
+import org.eclipse.milo.opcua.stack.core.types.builtin.ExpandedNodeId;
+import org.eclipse.milo.opcua.stack.core.types.builtin.LocalizedText;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.eclipse.milo.opcua.stack.core.types.builtin.QualifiedName;
+import org.eclipse.milo.opcua.stack.core.types.builtin.StatusCode;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.BrowseDirection;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.BrowseResultMask;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.NodeClass;
+import org.eclipse.milo.opcua.stack.core.types.structured.BrowseDescription;
+import org.eclipse.milo.opcua.stack.core.types.structured.BrowseResult;
+import org.eclipse.milo.opcua.stack.core.types.structured.ReferenceDescription;
+
+/**
+ * Precomputed browse results of the nodes of a namespace. The references of a node are kept as immutable
+ * arrays of {@link ReferenceDescription}s, one per direction and reference type, so a browse selects whole
+ * arrays instead of testing every reference and pages through them without copying.
+ * <p>
+ * A node's table is built on its first browse. Code that changes the references of a node afterwards has to
+ * {@link #invalidate(NodeId) invalidate} it.
+ */
+public class ReferenceIndex {
+
+    private static final int ALL_NODE_CLASSES = 0xFF;
+    private static final int ALL_RESULTS = BrowseResultMask.All.getValue();
+
+    private static final ReferenceDescription[] NO_REFERENCES = new ReferenceDescription[0];
+
+    private final Map<NodeId, ReferenceTable> tables = new ConcurrentHashMap<>();
+
+    private final OpcUaServer server;
+
+    public ReferenceIndex(OpcUaServer server) {
+        this.server = server;
+    }
+
+    /**
+     * @return the references of the node, or {@code null} if the node does not exist.
+     */
+    public List<Reference> getReferences(NodeId nodeId) {
+        ReferenceTable table = table(nodeId);
+
+        return table != null ? table.references : null;
+    }
+
+    /**
+     * Browses one node, returning at most {@code maxReferences} references (0 for no limit) and registering a
+     * continuation point for the rest.
+     */
+    public BrowseResult browse(BrowseDescription description, int maxReferences) {
+        ReferenceTable table = table(description.getNodeId());
+
+        if (table == null) {
+            return new BrowseResult(new StatusCode(StatusCodes.Bad_NodeIdUnknown), null, NO_REFERENCES);
+        }
+
+        ReferencePage page = table.select(server, description);
+
+        if (maxReferences <= 0 || page.size() <= maxReferences) {
+            return new BrowseResult(StatusCode.GOOD, null, page.toArray(NO_REFERENCES));
+        }
+
+        Map<ByteString, BrowseContinuationPoint> continuationPoints = server.getBrowseContinuationPoints();
+        if (continuationPoints.size() >= server.getConfig().getLimits().getMaxBrowseContinuationPoints().intValue()) {
+            return new BrowseResult(new StatusCode(StatusCodes.Bad_NoContinuationPoints), null, NO_REFERENCES);
+        }
+
+        ReferenceDescription[] first = page.subList(0, maxReferences).toArray(NO_REFERENCES);
+
+        // BrowseNext takes its pages off the front of the remaining list
+        page.removeRange(0, maxReferences);
+        BrowseContinuationPoint continuationPoint = new BrowseContinuationPoint(page, maxReferences);
+        continuationPoints.put(continuationPoint.getIdentifier(), continuationPoint);
+
+        return new BrowseResult(StatusCode.GOOD, continuationPoint.getIdentifier(), first);
+    }
+
+    /**
+     * Drops the precomputed references of a node; the next browse rebuilds them.
+     */
+    public void invalidate(NodeId nodeId) {
+        tables.remove(nodeId);
+    }
+
+    private ReferenceTable table(NodeId nodeId) {
+        ServerNode node = server.getNodeMap().get(nodeId);
+
+        if (node == null) {
+            tables.remove(nodeId);
+            return null;
+        }
+
+        ReferenceTable table = tables.get(nodeId);
+
+        // a node that was replaced in the node map gets a new table
+        if (table == null || table.node != node) {
+            table = new ReferenceTable(server, node);
+            tables.put(nodeId, table);
+        }
+
+        return table;
+    }
+
+    private static final class ReferenceTable {
+        private final ServerNode node;
+        private final ImmutableList<Reference> references;
+        private final ReferenceGroup[] forward;
+        private final ReferenceGroup[] inverse;
+
+        ReferenceTable(OpcUaServer server, ServerNode node) {
+            this.node = node;
+            this.references = node.getReferences();
+
+            Map<NodeId, List<Reference>> forwardByType = new LinkedHashMap<>();
+            Map<NodeId, List<Reference>> inverseByType = new LinkedHashMap<>();
+
+            for (Reference reference : references) {
+                Map<NodeId, List<Reference>> byType = reference.isForward() ? forwardByType : inverseByType;
+                byType.computeIfAbsent(reference.getReferenceTypeId(), t -> new ArrayList<>()).add(reference);
+            }
+
+            this.forward = groups(server, forwardByType);
+            this.inverse = groups(server, inverseByType);
+        }
+
+        ReferencePage select(OpcUaServer server, BrowseDescription description) {
+            BrowseDirection direction = description.getBrowseDirection();
+            NodeId referenceTypeId = description.getReferenceTypeId();
+            boolean includeSubtypes = Boolean.TRUE.equals(description.getIncludeSubtypes());
+
+            int nodeClassMask = description.getNodeClassMask() != null ?
+                description.getNodeClassMask().intValue() : 0;
+            if (nodeClassMask == 0) {
+                nodeClassMask = ALL_NODE_CLASSES;
+            }
+
+            int resultMask = description.getResultMask() != null ?
+                description.getResultMask().intValue() : ALL_RESULTS;
+
+            List<ReferenceGroup> matches = new ArrayList<>();
+
+            if (direction != BrowseDirection.Inverse) {
+                match(server, forward, referenceTypeId, includeSubtypes, matches);
+            }
+            if (direction != BrowseDirection.Forward) {
+                match(server, inverse, referenceTypeId, includeSubtypes, matches);
+            }
+
+            // the common case of one matching group needs no copy at all
+            if (matches.size() == 1 && (matches.get(0).nodeClasses & ~nodeClassMask) == 0) {
+                ReferenceDescription[] descriptions = matches.get(0).descriptions;
+                return new ReferencePage(descriptions, 0, descriptions.length, resultMask);
+            }
+
+            List<ReferenceDescription> selected = new ArrayList<>();
+            for (ReferenceGroup group : matches) {
+                if ((group.nodeClasses & nodeClassMask) == 0) {
+                    continue;
+                }
+                for (ReferenceDescription d : group.descriptions) {
+                    if ((d.getNodeClass().getValue() & nodeClassMask) != 0) {
+                        selected.add(d);
+                    }
+                }
+            }
+
+            ReferenceDescription[] descriptions = selected.toArray(NO_REFERENCES);
+            return new ReferencePage(descriptions, 0, descriptions.length, resultMask);
+        }
+
+        private static void match(
+            OpcUaServer server,
+            ReferenceGroup[] groups,
+            NodeId referenceTypeId,
+            boolean includeSubtypes,
+            List<ReferenceGroup> matches) {
+
+            for (ReferenceGroup group : groups) {
+                if (referenceTypeId == null || referenceTypeId.isNull() ||
+                    referenceTypeId.equals(group.referenceTypeId) ||
+                    includeSubtypes && group.sample.subtypeOf(referenceTypeId, server.getReferenceTypes())) {
+
+                    matches.add(group);
+                }
+            }
+        }
+
+        private static ReferenceGroup[] groups(OpcUaServer server, Map<NodeId, List<Reference>> byType) {
+            ReferenceGroup[] groups = new ReferenceGroup[byType.size()];
+            int i = 0;
+
+            for (Map.Entry<NodeId, List<Reference>> entry : byType.entrySet()) {
+                groups[i++] = new ReferenceGroup(server, entry.getKey(), entry.getValue());
+            }
+
+            return groups;
+        }
+    }
+
+    private static final class ReferenceGroup {
+        private final NodeId referenceTypeId;
+        private final Reference sample;
+        private final ReferenceDescription[] descriptions;
+        private final int nodeClasses;
+
+        ReferenceGroup(OpcUaServer server, NodeId referenceTypeId, List<Reference> references) {
+            this.referenceTypeId = referenceTypeId;
+            this.sample = references.get(0);
+            this.descriptions = new ReferenceDescription[references.size()];
+
+            int nodeClasses = 0;
+            for (int i = 0; i < descriptions.length; i++) {
+                descriptions[i] = describe(server, references.get(i));
+                nodeClasses |= descriptions[i].getNodeClass().getValue();
+            }
+            this.nodeClasses = nodeClasses;
+        }
+
+        private static ReferenceDescription describe(OpcUaServer server, Reference reference) {
+            ExpandedNodeId targetNodeId = reference.getTargetNodeId();
+            Optional<ServerNode> target = server.getNodeMap().getNode(targetNodeId);
+
+            if (!target.isPresent()) {
+                return new ReferenceDescription(
+                    reference.getReferenceTypeId(),
+                    reference.isForward(),
+                    targetNodeId,
+                    QualifiedName.NULL_VALUE,
+                    LocalizedText.NULL_VALUE,
+                    reference.getTargetNodeClass(),
+                    ExpandedNodeId.NULL_VALUE
+                );
+            }
+
+            ServerNode node = target.get();
+            ExpandedNodeId typeDefinition = ExpandedNodeId.NULL_VALUE;
+
+            if (node.getNodeClass() == NodeClass.Object || node.getNodeClass() == NodeClass.Variable) {
+                for (Reference r : node.getReferences()) {
+                    if (r.isForward() && Reference.HAS_TYPE_DEFINITION_PREDICATE.test(r)) {
+                        typeDefinition = r.getTargetNodeId();
+                        break;
+                    }
+                }
+            }
+
+            return new ReferenceDescription(
+                reference.getReferenceTypeId(),
+                reference.isForward(),
+                targetNodeId,
+                node.getBrowseName(),
+                node.getDisplayName(),
+                node.getNodeClass(),
+                typeDefinition
+            );
+        }
+    }
+
+    /**
+     * A window onto a precomputed array. Fields left out of the result mask are cleared on access, and
+     * removing from the front, which is how BrowseNext consumes a continuation point, only moves the window.
+     */
+    private static final class ReferencePage extends AbstractList<ReferenceDescription> {
+        private final ReferenceDescription[] descriptions;
+        private final int resultMask;
+        private final int to;
+        private int from;
+
+        ReferencePage(ReferenceDescription[] descriptions, int from, int to, int resultMask) {
+            this.descriptions = descriptions;
+            this.from = from;
+            this.to = to;
+            this.resultMask = resultMask;
+        }
+
+        @Override
+        public ReferenceDescription get(int index) {
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException(String.valueOf(index));
+            }
+
+            ReferenceDescription d = descriptions[from + index];
+
+            return (resultMask & ALL_RESULTS) == ALL_RESULTS ? d : masked(d);
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+
+        @Override
+        protected void removeRange(int fromIndex, int toIndex) {
+            if (fromIndex != 0) {
+                throw new UnsupportedOperationException("only the front of a page can be removed");
+            }
+
+            from += toIndex;
+            modCount++;
+        }
+
+        private ReferenceDescription masked(ReferenceDescription d) {
+            return new ReferenceDescription(
+                has(BrowseResultMask.ReferenceTypeId) ? d.getReferenceTypeId() : NodeId.NULL_VALUE,
+                d.getIsForward(),
+                d.getNodeId(),
+                has(BrowseResultMask.BrowseName) ? d.getBrowseName() : QualifiedName.NULL_VALUE,
+                has(BrowseResultMask.DisplayName) ? d.getDisplayName() : LocalizedText.NULL_VALUE,
+                has(BrowseResultMask.NodeClass) ? d.getNodeClass() : NodeClass.Unspecified,
+                has(BrowseResultMask.TypeDefinition) ? d.getTypeDefinition() : ExpandedNodeId.NULL_VALUE
+            );
+        }
+
+        private boolean has(BrowseResultMask mask) {
+            return (resultMask & mask.getValue()) != 0;
+        }
+    }
+
+}
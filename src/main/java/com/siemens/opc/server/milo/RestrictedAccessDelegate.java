@@ -4,6 +4,8 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.function.Function;
 
+import javax.annotation.Nullable;
+
 import org.eclipse.milo.opcua.sdk.core.AccessLevel;
 import org.eclipse.milo.opcua.sdk.server.Session;
 import org.eclipse.milo.opcua.sdk.server.api.nodes.VariableNode;
@@ -17,6 +19,10 @@ import org.slf4j.LoggerFactory;
 
 import static org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.Unsigned.ubyte;
 
+/**
+ * Gives the users of a session the access levels {@code accessLevelsFn} returns for their identity. With an
+ * {@link AccessLevelCache} the function is evaluated once per session; nodes sharing a delegate share the result.
+ */
 public class RestrictedAccessDelegate extends DelegatingAttributeDelegate {
 
     private static final Set<AccessLevel> INTERNAL_ACCESS = AccessLevel.READ_WRITE;
@@ -24,19 +30,41 @@ public class RestrictedAccessDelegate extends DelegatingAttributeDelegate {
     private final Logger logger = LoggerFactory.getLogger(getClass());
 
     private final Function<Object, Set<AccessLevel>> accessLevelsFn;
+    private final AccessLevelCache cache;
 
     public RestrictedAccessDelegate(Function<Object, Set<AccessLevel>> accessLevelsFn) {
         this(null, accessLevelsFn);
     }
 
+    public RestrictedAccessDelegate(Function<Object, Set<AccessLevel>> accessLevelsFn, AccessLevelCache cache) {
+        this(null, accessLevelsFn, cache);
+    }
+
     public RestrictedAccessDelegate(AttributeDelegate parent, Function<Object, Set<AccessLevel>> accessLevelsFn) {
+        this(parent, accessLevelsFn, null);
+    }
+
+    public RestrictedAccessDelegate(
+        AttributeDelegate parent,
+        Function<Object, Set<AccessLevel>> accessLevelsFn,
+        @Nullable AccessLevelCache cache) {
+
         super(parent);
 
         this.accessLevelsFn = accessLevelsFn;
+        this.cache = cache;
     }
 
     @Override
     public UByte getUserAccessLevel(AttributeContext context, VariableNode node) throws UaException {
+        if (cache != null) {
+            Optional<Session> session = context.getSession();
+
+            if (session.isPresent() && session.get().getIdentityObject() != null) {
+                return cache.getUserAccessLevel(session.get(), this, accessLevelsFn);
+            }
+        }
+
         Optional<Object> identity = context.getSession().map(Session::getIdentityObject);
 
         Set<AccessLevel> accessLevels = identity.map(accessLevelsFn).orElse(INTERNAL_ACCESS);
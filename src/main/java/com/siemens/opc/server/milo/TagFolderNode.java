@@ -0,0 +1,122 @@
+package com.siemens.opc.server.milo;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.google.common.collect.ImmutableList;
+import org.eclipse.milo.opcua.sdk.core.Reference;
+import org.eclipse.milo.opcua.sdk.server.api.ServerNodeMap;
+import org.eclipse.milo.opcua.sdk.server.nodes.UaFolderNode;
+import org.eclipse.milo.opcua.stack.core.Identifiers;
+import org.eclipse.milo.opcua.stack.core.types.builtin.LocalizedText;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.eclipse.milo.opcua.stack.core.types.builtin.QualifiedName;
+
+/**
+ * A folder that keeps its forward references in a separate list so that thousands of children can be
+ * added with a single copy instead of one copy-on-write per child. The list of all references is built once
+ * after each change, not on every {@link #getReferences()}.
+ */
+public class TagFolderNode extends UaFolderNode {
+
+    private final List<Reference> forwardReferences = new CopyOnWriteArrayList<>();
+
+    // all references, null after a change until they are asked for
+    private volatile ImmutableList<Reference> references;
+
+    public TagFolderNode(
+        ServerNodeMap nodeMap,
+        NodeId nodeId,
+        QualifiedName browseName,
+        LocalizedText displayName) {
+
+        super(nodeMap, nodeId, browseName, displayName);
+    }
+
+    @Override
+    public synchronized void addReference(Reference reference) {
+        // the super constructor adds HasTypeDefinition before our fields are assigned
+        if (forwardReferences == null || reference.isInverse()) {
+            super.addReference(reference);
+        } else {
+            forwardReferences.add(reference);
+        }
+        references = null;
+    }
+
+    @Override
+    public synchronized void addReferences(Collection<Reference> references) {
+        List<Reference> forward = new ArrayList<>(references.size());
+
+        for (Reference reference : references) {
+            if (reference.isInverse()) {
+                super.addReference(reference);
+            } else {
+                forward.add(reference);
+            }
+        }
+
+        forwardReferences.addAll(forward);
+        this.references = null;
+    }
+
+    @Override
+    public synchronized void removeReference(Reference reference) {
+        if (!forwardReferences.remove(reference)) {
+            super.removeReference(reference);
+        }
+        references = null;
+    }
+
+    @Override
+    public synchronized void removeReferences(Collection<Reference> references) {
+        List<Reference> inverse = new ArrayList<>();
+
+        for (Reference reference : references) {
+            if (reference.isInverse()) {
+                inverse.add(reference);
+            }
+        }
+
+        forwardReferences.removeAll(references);
+        inverse.forEach(super::removeReference);
+        this.references = null;
+    }
+
+    @Override
+    public ImmutableList<Reference> getReferences() {
+        ImmutableList<Reference> references = this.references;
+
+        if (references == null) {
+            synchronized (this) {
+                references = this.references;
+
+                if (references == null) {
+                    references = ImmutableList.<Reference>builder()
+                        .addAll(super.getReferences())
+                        .addAll(forwardReferences)
+                        .build();
+                    this.references = references;
+                }
+            }
+        }
+
+        return references;
+    }
+
+    /**
+     * @return whether the folder organizes any node, without building the list of all references.
+     */
+    public boolean hasOrganizes() {
+        for (Reference reference : forwardReferences) {
+            if (Identifiers.Organizes.equals(reference.getReferenceTypeId())) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+}
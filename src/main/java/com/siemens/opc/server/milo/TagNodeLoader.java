@@ -0,0 +1,757 @@
+package com.siemens.opc.server.milo;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import javax.annotation.Nullable;
+
+import com.siemens.opc.server.TagDefinition;
+import com.siemens.opc.server.milo.store.ArrayVariableNode;
+import com.siemens.opc.server.milo.store.PrimitiveValueStore;
+import org.eclipse.milo.opcua.sdk.core.Reference;
+import org.eclipse.milo.opcua.sdk.server.OpcUaServer;
+import org.eclipse.milo.opcua.sdk.server.nodes.ServerNode;
+import org.eclipse.milo.opcua.sdk.server.nodes.UaFolderNode;
+import org.eclipse.milo.opcua.sdk.server.nodes.UaVariableNode;
+import org.eclipse.milo.opcua.sdk.server.nodes.delegates.AttributeDelegate;
+import org.eclipse.milo.opcua.stack.core.Identifiers;
+import org.eclipse.milo.opcua.stack.core.StatusCodes;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
+import org.eclipse.milo.opcua.stack.core.types.builtin.LocalizedText;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.eclipse.milo.opcua.stack.core.types.builtin.QualifiedName;
+import org.eclipse.milo.opcua.stack.core.types.builtin.StatusCode;
+import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UByte;
+import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UShort;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.NodeClass;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.Unsigned.ubyte;
+
+/**
+ * Builds the folders and variable nodes for a list of {@link TagDefinition}s. Variable nodes are
+ * constructed in parallel and then linked into their folders with one bulk reference update per folder.
+ * <p>
+ * A {@link #reload} compares a new list with the nodes it built before and only adds, removes or rebuilds the
+ * nodes whose definitions changed, and {@link #add} and {@link #remove} change nodes in bulk, again with one
+ * reference update per affected folder. Tags added with {@link #add} are not part of the definitions a reload
+ * compares, they stay until they are removed.
+ */
+public class TagNodeLoader {
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final OpcUaServer server;
+    private final UShort namespaceIndex;
+    private final String basePath;
+    private final AttributeDelegate valueDelegate;
+    private final PrimitiveValueStore valueStore;
+    private final int maxArrayElements;
+
+    private NodeTemplate[] templates = new NodeTemplate[0];
+
+    // the live tag nodes with their templates, and the folders by path relative to the root
+    private final Map<NodeId, NodeTemplate> live = new HashMap<>();
+    private final Map<String, UaFolderNode> folders = new TreeMap<>();
+
+    // the live tag nodes that were added with add() rather than loaded from definitions
+    private final Set<NodeId> runtimeTags = new HashSet<>();
+
+    /**
+     * @param valueDelegate delegate shared by every tag node; it must not keep per-node state.
+     */
+    public TagNodeLoader(OpcUaServer server, UShort namespaceIndex, String basePath, AttributeDelegate valueDelegate) {
+        this(server, namespaceIndex, basePath, valueDelegate, null, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param valueStore       if not null, holds the values of all tags with a numeric or boolean data type.
+     * @param maxArrayElements the most elements an array tag may have, definitions of larger ones are invalid.
+     */
+    public TagNodeLoader(
+        OpcUaServer server,
+        UShort namespaceIndex,
+        String basePath,
+        AttributeDelegate valueDelegate,
+        @Nullable PrimitiveValueStore valueStore,
+        int maxArrayElements) {
+
+        this.server = server;
+        this.namespaceIndex = namespaceIndex;
+        this.basePath = basePath;
+        this.valueDelegate = valueDelegate;
+        this.valueStore = valueStore;
+        this.maxArrayElements = maxArrayElements;
+    }
+
+    /**
+     * Builds the nodes of the definitions. As in a {@link #reload}, an invalid definition, e.g. of an array with
+     * too many elements, and a definition whose node id is used by an earlier one, as a tag or as a folder, or
+     * whose path runs through an earlier tag are skipped.
+     *
+     * @return the variable nodes, in the order of their definitions.
+     */
+    public synchronized List<UaVariableNode> load(UaFolderNode rootNode, List<TagDefinition> definitions) {
+        long start = System.nanoTime();
+
+        NodeTemplate[] definitionTemplates = definitions.parallelStream()
+            .map(this::validTemplate)
+            .toArray(NodeTemplate[]::new);
+
+        List<TagDefinition> tags = new ArrayList<>(definitions.size());
+        List<NodeTemplate> tagTemplates = new ArrayList<>(definitions.size());
+        Set<String> tagPaths = new HashSet<>(definitions.size() * 4 / 3 + 1);
+        Set<String> folderPaths = new HashSet<>();
+
+        for (int i = 0; i < definitions.size(); i++) {
+            TagDefinition tag = definitions.get(i);
+
+            if (definitionTemplates[i] == null) {
+                continue;
+            }
+
+            String path = path(nodeId(tag, definitionTemplates[i]));
+
+            if (conflicts(path, tag.getFolderPath(), tagPaths, folderPaths, false)) {
+                logger.warn("Skipping tag {} of {}: its node id or a folder of its path is already used", path, basePath);
+                continue;
+            }
+
+            claim(path, tag.getFolderPath(), tagPaths, folderPaths, false);
+            tags.add(tag);
+            tagTemplates.add(definitionTemplates[i]);
+        }
+
+        addFolders(rootNode, tags);
+
+        NodeTemplate[] templates = tagTemplates.toArray(new NodeTemplate[0]);
+        UaVariableNode[] nodes = new UaVariableNode[templates.length];
+        Arrays.parallelSetAll(nodes, i -> buildNode(tags.get(i), templates[i], valueStore));
+        this.templates = templates;
+
+        for (int i = 0; i < nodes.length; i++) {
+            live.put(nodes[i].getNodeId(), templates[i]);
+        }
+
+        long built = System.nanoTime();
+
+        Map<String, List<Integer>> children = new TreeMap<>();
+        for (int i = 0; i < nodes.length; i++) {
+            children.computeIfAbsent(tags.get(i).getFolderPath(), k -> new ArrayList<>()).add(i);
+        }
+
+        children.entrySet().parallelStream().forEach(entry -> {
+            UaFolderNode folder = folders.get(entry.getKey());
+            List<Reference> references = new ArrayList<>(entry.getValue().size());
+
+            for (int i : entry.getValue()) {
+                references.add(link(folder, nodes[i]));
+            }
+
+            folder.addReferences(references);
+        });
+
+        long end = System.nanoTime();
+
+        logger.info(
+            "Loaded {} tag nodes in {} folders for {}: build={}ms, link={}ms, total={}ms ({} nodes/s)",
+            nodes.length,
+            folders.size(),
+            basePath,
+            TimeUnit.NANOSECONDS.toMillis(built - start),
+            TimeUnit.NANOSECONDS.toMillis(end - built),
+            TimeUnit.NANOSECONDS.toMillis(end - start),
+            nodesPerSecond(nodes.length, end - start));
+
+        return Arrays.asList(nodes);
+    }
+
+    /**
+     * Applies a new list of definitions to the nodes of the last {@link #load} or reload: nodes without a
+     * definition are removed, nodes whose name, data type, access level or array dimensions changed are
+     * replaced, and nodes with a new definition are added. A node whose definition only has a new initial value
+     * keeps its current value. Folders are added as needed and removed once they have no tags left. An invalid
+     * definition, e.g. of an array with too many elements, and a definition whose node id is used by an earlier
+     * one, as a tag or as a folder, or whose path runs through an earlier tag are skipped.
+     * <p>
+     * Tags added with {@link #add} are kept: they count as definitions before the first one of the list, so a
+     * definition in their way is skipped as well.
+     * <p>
+     * Finding the changes takes a lookup per definition; building and linking nodes is only done for the
+     * changed ones, with one reference update per affected folder.
+     */
+    public synchronized Changes reload(List<TagDefinition> tags) {
+        long start = System.nanoTime();
+
+        List<TagDefinition> build = new ArrayList<>();
+        List<NodeTemplate> buildTemplates = new ArrayList<>();
+        Set<NodeId> wanted = new HashSet<>(tags.size() * 4 / 3 + 1);
+        Set<String> tagPaths = new HashSet<>(tags.size() * 4 / 3 + 1);
+        Set<String> folderPaths = new HashSet<>();
+        int replaced = 0;
+
+        for (NodeId nodeId : runtimeTags) {
+            String path = path(nodeId);
+            claim(path, parentPath(path), tagPaths, folderPaths, false);
+        }
+
+        for (TagDefinition tag : tags) {
+            NodeTemplate template = validTemplate(tag);
+
+            if (template == null) {
+                continue;
+            }
+
+            NodeId nodeId = nodeId(tag, template);
+            NodeTemplate current = live.get(nodeId);
+
+            // the old loaded nodes are all replaced, only added tags and the new definitions can be in the way
+            if (conflicts(path(nodeId), tag.getFolderPath(), tagPaths, folderPaths, false)) {
+                logger.warn("Skipping tag {} of {}: its node id or a folder of its path is already used", path(nodeId), basePath);
+                continue;
+            }
+
+            claim(path(nodeId), tag.getFolderPath(), tagPaths, folderPaths, false);
+            wanted.add(nodeId);
+
+            if (!template.equals(current)) {
+                build.add(tag);
+                buildTemplates.add(template);
+
+                if (current != null) {
+                    replaced++;
+                }
+            }
+        }
+
+        List<NodeId> remove = new ArrayList<>();
+        for (NodeId nodeId : live.keySet()) {
+            if (!wanted.contains(nodeId) && !runtimeTags.contains(nodeId)) {
+                remove.add(nodeId);
+            }
+        }
+
+        if (build.isEmpty() && remove.isEmpty()) {
+            return Changes.NONE;
+        }
+
+        // nodes are built before anything is unlinked, a failed build leaves the address space as it was
+        UaVariableNode[] added = buildNodes(build, buildTemplates);
+
+        List<UaVariableNode> removed = new ArrayList<>(remove.size() + replaced);
+        Set<NodeId> changedFolders = new HashSet<>();
+
+        removeNodes(remove, removed, changedFolders);
+        addNodes(build, buildTemplates, added, removed, changedFolders);
+
+        long end = System.nanoTime();
+
+        logger.info(
+            "Reloaded {} tag definitions for {}: {} nodes added, {} replaced, {} removed in {}ms",
+            tags.size(),
+            basePath,
+            added.length - replaced,
+            replaced,
+            remove.size(),
+            TimeUnit.NANOSECONDS.toMillis(end - start));
+
+        return new Changes(Arrays.asList(added), removed, changedFolders);
+    }
+
+    /**
+     * Adds the nodes of new definitions, and the folders they need, with one reference update per folder.
+     *
+     * @param permitted decides which node ids may be added.
+     * @param results   receives the status of each definition: {@code Bad_NodeIdExists} if its node id is
+     *                  already used, or a folder of its path is a tag, also by an earlier definition of the batch,
+     *                  {@code Bad_NodeAttributesInvalid} if its data type can't be held in an array or the array
+     *                  has more than the maximum of elements, and
+     *                  {@code Bad_UserAccessDenied} if it is not permitted.
+     */
+    public synchronized Changes add(List<TagDefinition> tags, Predicate<NodeId> permitted, StatusCode[] results) {
+        long start = System.nanoTime();
+
+        List<TagDefinition> build = new ArrayList<>(tags.size());
+        List<NodeTemplate> buildTemplates = new ArrayList<>(tags.size());
+        Set<String> tagPaths = new HashSet<>(tags.size() * 4 / 3 + 1);
+        Set<String> folderPaths = new HashSet<>();
+
+        for (int i = 0; i < tags.size(); i++) {
+            TagDefinition tag = tags.get(i);
+            NodeTemplate template;
+
+            try {
+                template = template(tag);
+            } catch (IllegalArgumentException e) {
+                results[i] = new StatusCode(StatusCodes.Bad_NodeAttributesInvalid);
+                continue;
+            }
+
+            NodeId nodeId = nodeId(tag, template);
+            String path = path(nodeId);
+
+            if (server.getNodeMap().containsKey(nodeId) || isTag(tag.getFolderPath())
+                || conflicts(path, tag.getFolderPath(), tagPaths, folderPaths, true)) {
+
+                results[i] = new StatusCode(StatusCodes.Bad_NodeIdExists);
+            } else if (!permitted.test(nodeId)) {
+                results[i] = new StatusCode(StatusCodes.Bad_UserAccessDenied);
+            } else {
+                results[i] = StatusCode.GOOD;
+                claim(path, tag.getFolderPath(), tagPaths, folderPaths, true);
+                build.add(tag);
+                buildTemplates.add(template);
+            }
+        }
+
+        if (build.isEmpty()) {
+            return Changes.NONE;
+        }
+
+        UaVariableNode[] added = buildNodes(build, buildTemplates);
+        Set<NodeId> changedFolders = new HashSet<>();
+
+        addNodes(build, buildTemplates, added, new ArrayList<>(), changedFolders);
+
+        for (UaVariableNode node : added) {
+            runtimeTags.add(node.getNodeId());
+        }
+
+        long end = System.nanoTime();
+
+        logger.info(
+            "Added {} tag nodes to {} in {}ms ({} nodes/s)",
+            added.length,
+            basePath,
+            TimeUnit.NANOSECONDS.toMillis(end - start),
+            nodesPerSecond(added.length, end - start));
+
+        return new Changes(Arrays.asList(added), Collections.emptyList(), changedFolders);
+    }
+
+    /**
+     * Removes tag nodes, and the folders left without tags, with one reference update per folder.
+     *
+     * @param permitted decides which node ids may be removed.
+     * @param results   receives the status of each node id: {@code Bad_NodeIdUnknown} if it is not a tag node,
+     *                  or was named before in the batch, and {@code Bad_UserAccessDenied} if it is not permitted.
+     */
+    public synchronized Changes remove(List<NodeId> nodeIds, Predicate<NodeId> permitted, StatusCode[] results) {
+        long start = System.nanoTime();
+
+        List<NodeId> remove = new ArrayList<>(nodeIds.size());
+        Set<NodeId> batch = new HashSet<>(nodeIds.size() * 4 / 3 + 1);
+
+        for (int i = 0; i < nodeIds.size(); i++) {
+            NodeId nodeId = nodeIds.get(i);
+
+            if (!live.containsKey(nodeId) || !batch.add(nodeId)) {
+                results[i] = new StatusCode(StatusCodes.Bad_NodeIdUnknown);
+            } else if (!permitted.test(nodeId)) {
+                results[i] = new StatusCode(StatusCodes.Bad_UserAccessDenied);
+            } else {
+                results[i] = StatusCode.GOOD;
+                remove.add(nodeId);
+            }
+        }
+
+        if (remove.isEmpty()) {
+            return Changes.NONE;
+        }
+
+        List<UaVariableNode> removed = new ArrayList<>(remove.size());
+        Set<NodeId> changedFolders = new HashSet<>();
+
+        removeNodes(remove, removed, changedFolders);
+
+        long end = System.nanoTime();
+
+        logger.info(
+            "Removed {} tag nodes from {} in {}ms ({} nodes/s)",
+            removed.size(),
+            basePath,
+            TimeUnit.NANOSECONDS.toMillis(end - start),
+            nodesPerSecond(removed.size(), end - start));
+
+        return new Changes(Collections.emptyList(), removed, changedFolders);
+    }
+
+    /**
+     * @return the node id of the tag with this path, relative to the root folder.
+     */
+    public NodeId getNodeId(String path) {
+        return new NodeId(namespaceIndex, basePath + "/" + path);
+    }
+
+    private UaVariableNode[] buildNodes(List<TagDefinition> tags, List<NodeTemplate> templates) {
+        // new scalar nodes only use the value store if it has room for all of them, removed nodes keep their slots
+        PrimitiveValueStore store = valueStore != null && valueStore.capacity() - valueStore.size() >= tags.size()
+            ? valueStore : null;
+
+        UaVariableNode[] nodes = new UaVariableNode[tags.size()];
+        Arrays.parallelSetAll(nodes, i -> buildNode(tags.get(i), templates.get(i), store));
+
+        return nodes;
+    }
+
+    /**
+     * Links built nodes into their folders; a node that replaces a live node with the same node id only takes its
+     * place in the node map, the live node is added to {@code removed}.
+     */
+    private void addNodes(
+        List<TagDefinition> tags,
+        List<NodeTemplate> templates,
+        UaVariableNode[] nodes,
+        List<UaVariableNode> removed,
+        Set<NodeId> changedFolders) {
+
+        Map<UaFolderNode, List<Reference>> links = new HashMap<>();
+
+        for (int i = 0; i < nodes.length; i++) {
+            UaVariableNode node = nodes[i];
+            UaVariableNode current = live.containsKey(node.getNodeId()) ? liveNode(node.getNodeId()) : null;
+            UaFolderNode folder = addFolder(folders, tags.get(i).getFolderPath());
+
+            if (current != null) {
+                // the folder already organizes the node id, only the node behind it changes
+                removed.add(current);
+                link(folder, node);
+            } else {
+                links.computeIfAbsent(folder, f -> new ArrayList<>()).add(link(folder, node));
+                changedFolders.add(folder.getNodeId());
+            }
+
+            live.put(node.getNodeId(), templates.get(i));
+        }
+
+        links.forEach(UaFolderNode::addReferences);
+    }
+
+    private void removeNodes(List<NodeId> nodeIds, List<UaVariableNode> removed, Set<NodeId> changedFolders) {
+        Map<UaFolderNode, Set<Reference>> unlinks = new HashMap<>();
+
+        for (NodeId nodeId : nodeIds) {
+            UaVariableNode node = liveNode(nodeId);
+            live.remove(nodeId);
+            runtimeTags.remove(nodeId);
+
+            if (node == null) {
+                continue;
+            }
+
+            UaFolderNode folder = folders.get(parentPath(path(nodeId)));
+            if (folder != null) {
+                unlinks.computeIfAbsent(folder, f -> new HashSet<>()).add(forwardReference(folder, node));
+                changedFolders.add(folder.getNodeId());
+            }
+
+            server.getNodeMap().removeNode(nodeId);
+            removed.add(node);
+        }
+
+        unlinks.forEach(UaFolderNode::removeReferences);
+
+        changedFolders.addAll(removeEmptyFolders(unlinks.keySet()));
+    }
+
+    /**
+     * Removes the folders, other than the root, that organize no nodes any more, and then their parents if that
+     * left them empty.
+     *
+     * @return the node ids of the removed folders and of the folders they were removed from.
+     */
+    private Set<NodeId> removeEmptyFolders(Collection<UaFolderNode> candidates) {
+        Set<NodeId> changed = new HashSet<>();
+        Deque<UaFolderNode> check = new ArrayDeque<>(candidates);
+        UaFolderNode folder;
+
+        while ((folder = check.poll()) != null) {
+            String path = path(folder.getNodeId());
+
+            if (path.isEmpty() || folders.get(path) != folder || organizesNodes(folder)) {
+                continue;
+            }
+
+            UaFolderNode parent = folders.get(parentPath(path));
+
+            folders.remove(path);
+            parent.removeReference(forwardReference(parent, folder));
+            server.getNodeMap().removeNode(folder.getNodeId());
+
+            changed.add(folder.getNodeId());
+            changed.add(parent.getNodeId());
+            check.add(parent);
+        }
+
+        return changed;
+    }
+
+    private static boolean organizesNodes(UaFolderNode folder) {
+        if (folder instanceof TagFolderNode) {
+            return ((TagFolderNode) folder).hasOrganizes();
+        }
+
+        for (Reference reference : folder.getReferences()) {
+            if (reference.isForward() && Identifiers.Organizes.equals(reference.getReferenceTypeId())) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * @return whether a tag node is in the way of a folder with this path, or of one of its ancestors.
+     */
+    private boolean isTag(String folderPath) {
+        for (String path = folderPath; !path.isEmpty() && !folders.containsKey(path); path = parentPath(path)) {
+            if (live.containsKey(getNodeId(path))) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * @param tagPaths    the tags of the definitions before this one in a batch.
+     * @param folderPaths the folders of the definitions before this one in a batch.
+     * @param existing    whether folders that exist already can be skipped, because the nodes in them stay.
+     * @return whether an earlier definition uses the path of this tag, as a tag or as a folder, or one of the
+     * folders of its path as a tag.
+     */
+    private boolean conflicts(
+        String tagPath,
+        String folderPath,
+        Set<String> tagPaths,
+        Set<String> folderPaths,
+        boolean existing) {
+
+        if (tagPaths.contains(tagPath) || folderPaths.contains(tagPath)) {
+            return true;
+        }
+
+        for (String path = folderPath; !path.isEmpty(); path = parentPath(path)) {
+            if (existing && folders.containsKey(path) || folderPaths.contains(path)) {
+                // its ancestors were checked when it was claimed or created
+                return false;
+            }
+            if (tagPaths.contains(path)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Adds the tag and the folders of its path to those of a batch.
+     */
+    private void claim(String tagPath, String folderPath, Set<String> tagPaths, Set<String> folderPaths, boolean existing) {
+        tagPaths.add(tagPath);
+
+        for (String path = folderPath; !path.isEmpty() && !(existing && folders.containsKey(path)); path = parentPath(path)) {
+            if (!folderPaths.add(path)) {
+                break;
+            }
+        }
+    }
+
+    @Nullable
+    private UaVariableNode liveNode(NodeId nodeId) {
+        ServerNode node = server.getNodeMap().get(nodeId);
+
+        return node instanceof UaVariableNode ? (UaVariableNode) node : null;
+    }
+
+    /**
+     * @return the path of a folder or tag node relative to the root folder, empty for the root folder itself.
+     */
+    private String path(NodeId nodeId) {
+        String id = String.valueOf(nodeId.getIdentifier());
+
+        return id.length() > basePath.length() ? id.substring(basePath.length() + 1) : "";
+    }
+
+    private static String parentPath(String path) {
+        int slash = path.lastIndexOf('/');
+
+        return slash < 0 ? "" : path.substring(0, slash);
+    }
+
+    /**
+     * @return the templates of the nodes of the last {@link #load}, in the order of the definitions. They are only
+     * shared with other namespaces while someone keeps them.
+     */
+    public List<NodeTemplate> getTemplates() {
+        return Arrays.asList(templates);
+    }
+
+    private void addFolders(UaFolderNode rootNode, List<TagDefinition> tags) {
+        folders.put("", rootNode);
+
+        String[] paths = tags.stream()
+            .map(TagDefinition::getFolderPath)
+            .distinct()
+            .toArray(String[]::new);
+
+        for (String path : paths) {
+            addFolder(folders, path);
+        }
+    }
+
+    private UaFolderNode addFolder(Map<String, UaFolderNode> folders, String path) {
+        UaFolderNode folder = folders.get(path);
+
+        if (folder == null) {
+            int slash = path.lastIndexOf('/');
+            UaFolderNode parent = addFolder(folders, slash < 0 ? "" : path.substring(0, slash));
+            String name = path.substring(slash + 1);
+
+            folder = new TagFolderNode(
+                server.getNodeMap(),
+                new NodeId(namespaceIndex, basePath + "/" + path),
+                new QualifiedName(namespaceIndex, name),
+                LocalizedText.english(name)
+            );
+
+            server.getNodeMap().addNode(folder);
+            parent.addOrganizes(folder);
+
+            folders.put(path, folder);
+        }
+
+        return folder;
+    }
+
+    private UaVariableNode buildNode(TagDefinition tag, NodeTemplate template, @Nullable PrimitiveValueStore store) {
+        UaVariableNode node = template.newNode(
+            server.getNodeMap(),
+            nodeId(tag, template),
+            store,
+            new DataValue(tag.getVariant())
+        );
+
+        node.setAttributeDelegate(valueDelegate);
+
+        return node;
+    }
+
+    private NodeId nodeId(TagDefinition tag, NodeTemplate template) {
+        return getNodeId(tag.getFolderPath().isEmpty() ? template.getName() : tag.getFolderPath() + "/" + template.getName());
+    }
+
+    /**
+     * Adds the inverse reference from a node to its folder, which also puts the node into the NodeMap.
+     *
+     * @return the forward reference the folder needs.
+     */
+    private static Reference link(UaFolderNode folder, UaVariableNode node) {
+        node.addReference(new Reference(
+            node.getNodeId(),
+            Identifiers.Organizes,
+            folder.getNodeId().expanded(),
+            NodeClass.Object,
+            false
+        ));
+
+        return forwardReference(folder, node);
+    }
+
+    private static Reference forwardReference(UaFolderNode folder, ServerNode node) {
+        return new Reference(
+            folder.getNodeId(),
+            Identifiers.Organizes,
+            node.getNodeId().expanded(),
+            node.getNodeClass(),
+            true
+        );
+    }
+
+    /**
+     * @return the template of a definition, or null if it is invalid, which is logged.
+     */
+    @Nullable
+    private NodeTemplate validTemplate(TagDefinition tag) {
+        try {
+            return template(tag);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Skipping tag {} of {}: {}",
+                tag.getFolderPath().isEmpty() ? tag.getNodeName() : tag.getFolderPath() + "/" + tag.getNodeName(),
+                basePath, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if the definition is invalid.
+     */
+    private NodeTemplate template(TagDefinition tag) {
+        int[] dimensions = tag.getArrayDimensions();
+
+        if (dimensions != null && ArrayVariableNode.elementCount(dimensions) > maxArrayElements) {
+            throw new IllegalArgumentException("an array of more than " + maxArrayElements + " elements");
+        }
+
+        UByte accessLevel = ubyte(tag.getAccessLevel());
+
+        return NodeTemplate.of(tag.getNodeName(), tag.getDataType(), accessLevel, accessLevel, tag.getArrayDimensions());
+    }
+
+    private static long nodesPerSecond(int count, long nanos) {
+        return nanos > 0 ? count * TimeUnit.SECONDS.toNanos(1) / nanos : count;
+    }
+
+    /**
+     * The nodes a {@link #reload}, {@link #add} or {@link #remove} added and removed and the folders whose
+     * references changed. A replaced node is both removed and added.
+     */
+    public static final class Changes {
+
+        static final Changes NONE = new Changes(
+            Collections.emptyList(), Collections.emptyList(), Collections.emptySet());
+
+        private final List<UaVariableNode> added;
+        private final List<UaVariableNode> removed;
+        private final Set<NodeId> changedFolders;
+
+        Changes(List<UaVariableNode> added, List<UaVariableNode> removed, Set<NodeId> changedFolders) {
+            this.added = added;
+            this.removed = removed;
+            this.changedFolders = changedFolders;
+        }
+
+        public boolean isEmpty() {
+            return added.isEmpty() && removed.isEmpty();
+        }
+
+        public List<UaVariableNode> getAdded() {
+            return added;
+        }
+
+        public List<UaVariableNode> getRemoved() {
+            return removed;
+        }
+
+        /**
+         * @return the folders that organize other nodes than before, including removed ones.
+         */
+        public Set<NodeId> getChangedFolders() {
+            return changedFolders;
+        }
+    }
+
+}
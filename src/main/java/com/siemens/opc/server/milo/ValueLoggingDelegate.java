@@ -1,13 +1,17 @@
 package com.siemens.opc.server.milo;
 
+import java.util.Optional;
 import javax.annotation.Nullable;
 
+import com.siemens.opc.server.milo.audit.AccessLog;
+import org.eclipse.milo.opcua.sdk.server.Session;
 import org.eclipse.milo.opcua.sdk.server.api.nodes.VariableNode;
 import org.eclipse.milo.opcua.sdk.server.nodes.AttributeContext;
 import org.eclipse.milo.opcua.sdk.server.nodes.delegates.AttributeDelegate;
 import org.eclipse.milo.opcua.sdk.server.nodes.delegates.DelegatingAttributeDelegate;
 import org.eclipse.milo.opcua.stack.core.UaException;
 import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
+import org.eclipse.milo.opcua.stack.core.types.builtin.StatusCode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -15,36 +19,85 @@ public class ValueLoggingDelegate extends DelegatingAttributeDelegate {
 
     private final Logger logger = LoggerFactory.getLogger(getClass());
 
-    public ValueLoggingDelegate() {}
+    // when set, accesses are queued to the access log instead of being logged on the calling thread
+    private final AccessLog accessLog;
+
+    public ValueLoggingDelegate() {
+        this(null, null);
+    }
 
     public ValueLoggingDelegate(@Nullable AttributeDelegate parent) {
+        this(parent, null);
+    }
+
+    public ValueLoggingDelegate(@Nullable AttributeDelegate parent, @Nullable AccessLog accessLog) {
         super(parent);
+
+        this.accessLog = accessLog;
     }
 
     @Override
     public DataValue getValue(AttributeContext context, VariableNode node) throws UaException {
         DataValue value = super.getValue(context, node);
 
-        // only log external reads
-        if (context.getSession().isPresent()) {
-            logger.info(
-                "getValue() nodeId={} value={}",
-                node.getNodeId(), value);
-        }
+        logRead(context, node, value);
 
         return value;
     }
 
     @Override
     public void setValue(AttributeContext context, VariableNode node, DataValue value) throws UaException {
-        // only log external writes
-        if (context.getSession().isPresent()) {
-            logger.info(
-                "setValue() nodeId={} value={}",
-                node.getNodeId(), value);
+        if (!context.getSession().isPresent()) {
+            super.setValue(context, node, value);
+            return;
         }
 
-        super.setValue(context, node, value);
+        long status = StatusCode.GOOD.getValue();
+        try {
+            super.setValue(context, node, value);
+        } catch (UaException e) {
+            status = e.getStatusCode().getValue();
+            throw e;
+        } finally {
+            logWrite(context, node, value, status);
+        }
+    }
+
+    /**
+     * Logs a read of the value of a node that did not go through {@link #getValue}, e.g. of a slice of it.
+     */
+    public void logRead(AttributeContext context, VariableNode node, DataValue value) {
+        // only log external reads
+        Optional<Session> session = context.getSession();
+        if (session.isPresent()) {
+            if (accessLog != null) {
+                long status = value.getStatusCode() != null ? value.getStatusCode().getValue() : StatusCode.GOOD.getValue();
+                accessLog.record(node.getNodeId(), AccessLog.READ, status, session.get().getSessionId());
+            } else {
+                logger.info(
+                    "getValue() nodeId={} value={}",
+                    node.getNodeId(), value);
+            }
+        }
+    }
+
+    /**
+     * Logs a write of the value of a node that did not go through {@link #setValue}, e.g. of a slice of it.
+     *
+     * @param status the status code the write completed with.
+     */
+    public void logWrite(AttributeContext context, VariableNode node, DataValue value, long status) {
+        // only log external writes
+        Optional<Session> session = context.getSession();
+        if (session.isPresent()) {
+            if (accessLog != null) {
+                accessLog.record(node.getNodeId(), AccessLog.WRITE, status, session.get().getSessionId());
+            } else {
+                logger.info(
+                    "setValue() nodeId={} value={} status={}",
+                    node.getNodeId(), value, new StatusCode(status));
+            }
+        }
     }
 
-}
\ No newline at end of file
+}
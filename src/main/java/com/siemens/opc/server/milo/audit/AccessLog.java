@@ -0,0 +1,233 @@
+package com.siemens.opc.server.milo.audit;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Predicate;
+import javax.annotation.Nullable;
+
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Collects value access records in a bounded, lock-free ring buffer and writes them in batches from a
+ * background thread. Producers never block: when the buffer is full the record is dropped and counted.
+ */
+public class AccessLog implements AutoCloseable {
+
+    public static final byte READ = 'R';
+    public static final byte WRITE = 'W';
+
+    private static final int BATCH_SIZE = 1024;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final int capacity;
+    private final int mask;
+
+    // one slot per record; a slot is readable once published[i] holds its sequence number
+    private final AtomicLongArray published;
+    private final NodeId[] nodeIds;
+    private final NodeId[] sessionIds;
+    private final long[] timestamps;
+    private final long[] statusCodes;
+    private final byte[] operations;
+
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head = 0L;
+
+    private final LongAdder recorded = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder written = new LongAdder();
+
+    private final int sampleRate;
+    private final Predicate<NodeId> nodeFilter;
+    private final Writer out;
+
+    private final Thread writerThread;
+    private volatile boolean running = true;
+
+    /**
+     * @param capacity   ring buffer size, rounded up to a power of two.
+     * @param sampleRate record on average one of every {@code sampleRate} accesses; 1 records everything.
+     * @param nodeFilter only accesses to nodes matching the filter are recorded.
+     * @param out        destination for the log lines, or {@code null} to write through the logger.
+     */
+    public AccessLog(int capacity, int sampleRate, Predicate<NodeId> nodeFilter, @Nullable Writer out) {
+        this.capacity = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.mask = this.capacity - 1;
+        this.sampleRate = Math.max(1, sampleRate);
+        this.nodeFilter = nodeFilter;
+        this.out = out;
+
+        published = new AtomicLongArray(this.capacity);
+        for (int i = 0; i < this.capacity; i++) {
+            published.set(i, -1L);
+        }
+        nodeIds = new NodeId[this.capacity];
+        sessionIds = new NodeId[this.capacity];
+        timestamps = new long[this.capacity];
+        statusCodes = new long[this.capacity];
+        operations = new byte[this.capacity];
+
+        writerThread = new Thread(this::drainLoop, "access-log-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    public void record(NodeId nodeId, byte operation, long statusCode, NodeId sessionId) {
+        if (sampleRate > 1 && ThreadLocalRandom.current().nextInt(sampleRate) != 0) {
+            return;
+        }
+        if (!nodeFilter.test(nodeId)) {
+            return;
+        }
+
+        long sequence;
+        do {
+            sequence = tail.get();
+            if (sequence - head >= capacity) {
+                dropped.increment();
+                return;
+            }
+        } while (!tail.compareAndSet(sequence, sequence + 1));
+
+        int i = (int) sequence & mask;
+        nodeIds[i] = nodeId;
+        sessionIds[i] = sessionId;
+        timestamps[i] = System.currentTimeMillis();
+        statusCodes[i] = statusCode;
+        operations[i] = operation;
+        published.lazySet(i, sequence);
+
+        recorded.increment();
+    }
+
+    public long getRecordedCount() {
+        return recorded.sum();
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    public long getWrittenCount() {
+        return written.sum();
+    }
+
+    public int getQueueDepth() {
+        return (int) (tail.get() - head);
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(writerThread);
+
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException e) {
+                logger.warn("Error closing access log: {}", e.getMessage(), e);
+            }
+        }
+
+        logger.info(
+            "Access log closed: recorded={} written={} dropped={}",
+            getRecordedCount(), getWrittenCount(), getDroppedCount());
+    }
+
+    private void drainLoop() {
+        StringBuilder line = new StringBuilder(128);
+
+        while (true) {
+            int count = drain(line);
+
+            if (count == 0) {
+                if (!running) {
+                    break;
+                }
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+        }
+    }
+
+    private int drain(StringBuilder line) {
+        long next = head;
+        int count = 0;
+
+        while (count < BATCH_SIZE) {
+            int i = (int) next & mask;
+            if (published.get(i) != next) {
+                break;
+            }
+
+            line.setLength(0);
+            line.append(timestamps[i]).append(' ')
+                .append((char) operations[i]).append(' ')
+                .append(nodeIds[i].toParseableString()).append(' ')
+                .append("0x");
+            appendHex(line, statusCodes[i]);
+            line.append(' ').append(sessionIds[i].toParseableString());
+
+            nodeIds[i] = null;
+            sessionIds[i] = null;
+
+            write(line);
+
+            next++;
+            count++;
+        }
+
+        if (count > 0) {
+            // release the slots to the producers only after they have been read
+            head = next;
+            written.add(count);
+            flush();
+        }
+
+        return count;
+    }
+
+    private static void appendHex(StringBuilder line, long statusCode) {
+        for (int shift = 28; shift >= 0; shift -= 4) {
+            line.append(Character.toUpperCase(Character.forDigit((int) (statusCode >>> shift) & 0xF, 16)));
+        }
+    }
+
+    private void write(StringBuilder line) {
+        if (out != null) {
+            try {
+                out.append(line).append('\n');
+            } catch (IOException e) {
+                logger.warn("Error writing access log: {}", e.getMessage(), e);
+            }
+        } else {
+            logger.info("{}", line);
+        }
+    }
+
+    private void flush() {
+        if (out != null) {
+            try {
+                out.flush();
+            } catch (IOException e) {
+                logger.warn("Error flushing access log: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+}
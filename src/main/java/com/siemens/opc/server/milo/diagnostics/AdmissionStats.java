@@ -0,0 +1,77 @@
+package com.siemens.opc.server.milo.diagnostics;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Requests of one namespace that its admission control admitted, queued and rejected, by the limit that rejected
+ * them, the requests currently waiting in its queues and how long they waited.
+ */
+public class AdmissionStats {
+
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder queued = new LongAdder();
+    private final LongAdder rejectedBatchSize = new LongAdder();
+    private final LongAdder rejectedRate = new LongAdder();
+    private final LongAdder rejectedConcurrency = new LongAdder();
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final LatencyHistogram queueWait = new LatencyHistogram();
+
+    public void recordAdmitted() {
+        admitted.increment();
+    }
+
+    public void recordQueued() {
+        queued.increment();
+        queueDepth.incrementAndGet();
+    }
+
+    /**
+     * @param nanos time from the arrival of a queued request until it was admitted or rejected.
+     */
+    public void recordDequeued(long nanos) {
+        queueDepth.decrementAndGet();
+        queueWait.record(nanos);
+    }
+
+    public void recordRejectedBatchSize() {
+        rejectedBatchSize.increment();
+    }
+
+    public void recordRejectedRate() {
+        rejectedRate.increment();
+    }
+
+    public void recordRejectedConcurrency() {
+        rejectedConcurrency.increment();
+    }
+
+    public long getAdmitted() {
+        return admitted.sum();
+    }
+
+    public long getQueued() {
+        return queued.sum();
+    }
+
+    public long getRejectedBatchSize() {
+        return rejectedBatchSize.sum();
+    }
+
+    public long getRejectedRate() {
+        return rejectedRate.sum();
+    }
+
+    public long getRejectedConcurrency() {
+        return rejectedConcurrency.sum();
+    }
+
+    public long getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    public LatencyHistogram getQueueWait() {
+        return queueWait;
+    }
+
+}
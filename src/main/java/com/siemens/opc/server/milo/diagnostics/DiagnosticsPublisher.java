@@ -0,0 +1,222 @@
+package com.siemens.opc.server.milo.diagnostics;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.milo.opcua.sdk.core.AccessLevel;
+import org.eclipse.milo.opcua.sdk.server.OpcUaServer;
+import org.eclipse.milo.opcua.sdk.server.nodes.UaFolderNode;
+import org.eclipse.milo.opcua.sdk.server.nodes.UaVariableNode;
+import org.eclipse.milo.opcua.stack.core.Identifiers;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
+import org.eclipse.milo.opcua.stack.core.types.builtin.LocalizedText;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.eclipse.milo.opcua.stack.core.types.builtin.QualifiedName;
+import org.eclipse.milo.opcua.stack.core.types.builtin.Variant;
+import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UShort;
+
+import static org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.Unsigned.ubyte;
+
+/**
+ * Publishes {@link NamespaceDiagnostics} as variables, one folder per {@link ServiceOperation}. Counts are
+ * totals since startup; the latency percentiles and maximum, in milliseconds, cover the interval since the
+ * previous {@link #publish()}. The Notifications folder holds the {@link NotificationStats}, the
+ * AccessLevelCache folder the {@link CacheStats} of the access level cache, the MethodExecutor and
+ * ServiceExecutor folders the {@link ExecutorStats} of the method and service executors and the Admission
+ * folder the {@link AdmissionStats} of the admission control.
+ */
+public class DiagnosticsPublisher implements Runnable {
+
+    private static final String[] VARIABLES = {
+        "Operations", "Items", "Errors", "LatencyP50", "LatencyP99", "LatencyP999", "LatencyMax"
+    };
+
+    private final Map<ServiceOperation, UaVariableNode[]> nodes = new EnumMap<>(ServiceOperation.class);
+    private UaVariableNode[] notificationNodes;
+    private UaVariableNode[] accessLevelCacheNodes;
+    private UaVariableNode[] methodExecutorNodes;
+    private UaVariableNode[] serviceExecutorNodes;
+    private UaVariableNode[] admissionNodes;
+
+    private final OpcUaServer server;
+    private final UShort namespaceIndex;
+    private final String basePath;
+    private final NamespaceDiagnostics diagnostics;
+
+    public DiagnosticsPublisher(
+        OpcUaServer server,
+        UShort namespaceIndex,
+        String basePath,
+        NamespaceDiagnostics diagnostics) {
+
+        this.server = server;
+        this.namespaceIndex = namespaceIndex;
+        this.basePath = basePath;
+        this.diagnostics = diagnostics;
+    }
+
+    public void addNodes(UaFolderNode parent) {
+        for (ServiceOperation operation : ServiceOperation.values()) {
+            String path = basePath + "/" + operation.getDisplayName();
+            UaFolderNode folder = addFolder(parent, path, operation.getDisplayName());
+
+            UaVariableNode[] variables = new UaVariableNode[VARIABLES.length];
+            for (int i = 0; i < VARIABLES.length; i++) {
+                variables[i] = addVariable(folder, path, VARIABLES[i], i < 3 ? Identifiers.Int64 : Identifiers.Double);
+            }
+
+            nodes.put(operation, variables);
+        }
+
+        String path = basePath + "/Notifications";
+        UaFolderNode folder = addFolder(parent, path, "Notifications");
+
+        notificationNodes = new UaVariableNode[] {
+            addVariable(folder, path, "Sent", Identifiers.Int64),
+            addVariable(folder, path, "Suppressed", Identifiers.Int64)
+        };
+
+        path = basePath + "/AccessLevelCache";
+        folder = addFolder(parent, path, "AccessLevelCache");
+
+        accessLevelCacheNodes = new UaVariableNode[] {
+            addVariable(folder, path, "Hits", Identifiers.Int64),
+            addVariable(folder, path, "Misses", Identifiers.Int64)
+        };
+
+        methodExecutorNodes = addExecutorNodes(parent, "MethodExecutor");
+        serviceExecutorNodes = addExecutorNodes(parent, "ServiceExecutor");
+
+        path = basePath + "/Admission";
+        folder = addFolder(parent, path, "Admission");
+
+        admissionNodes = new UaVariableNode[] {
+            addVariable(folder, path, "Admitted", Identifiers.Int64),
+            addVariable(folder, path, "Queued", Identifiers.Int64),
+            addVariable(folder, path, "RejectedBatchSize", Identifiers.Int64),
+            addVariable(folder, path, "RejectedRate", Identifiers.Int64),
+            addVariable(folder, path, "RejectedConcurrency", Identifiers.Int64),
+            addVariable(folder, path, "QueueDepth", Identifiers.Int64),
+            addVariable(folder, path, "QueueWaitP99", Identifiers.Double),
+            addVariable(folder, path, "QueueWaitMax", Identifiers.Double)
+        };
+
+        publish();
+    }
+
+    private UaVariableNode[] addExecutorNodes(UaFolderNode parent, String name) {
+        String path = basePath + "/" + name;
+        UaFolderNode folder = addFolder(parent, path, name);
+
+        return new UaVariableNode[] {
+            addVariable(folder, path, "QueueDepth", Identifiers.Int64),
+            addVariable(folder, path, "Active", Identifiers.Int64),
+            addVariable(folder, path, "Completed", Identifiers.Int64),
+            addVariable(folder, path, "Rejected", Identifiers.Int64),
+            addVariable(folder, path, "QueueWaitP99", Identifiers.Double),
+            addVariable(folder, path, "QueueWaitMax", Identifiers.Double)
+        };
+    }
+
+    private UaFolderNode addFolder(UaFolderNode parent, String path, String name) {
+        UaFolderNode folder = new UaFolderNode(
+            server.getNodeMap(),
+            new NodeId(namespaceIndex, path),
+            new QualifiedName(namespaceIndex, name),
+            LocalizedText.english(name)
+        );
+
+        server.getNodeMap().addNode(folder);
+        parent.addOrganizes(folder);
+
+        return folder;
+    }
+
+    private UaVariableNode addVariable(UaFolderNode folder, String path, String name, NodeId dataType) {
+        UaVariableNode node = new UaVariableNode.UaVariableNodeBuilder(server.getNodeMap())
+            .setNodeId(new NodeId(namespaceIndex, path + "/" + name))
+            .setAccessLevel(ubyte(AccessLevel.getMask(AccessLevel.READ_ONLY)))
+            .setUserAccessLevel(ubyte(AccessLevel.getMask(AccessLevel.READ_ONLY)))
+            .setBrowseName(new QualifiedName(namespaceIndex, name))
+            .setDisplayName(LocalizedText.english(name))
+            .setDescription(LocalizedText.english(description(name)))
+            .setDataType(dataType)
+            .setTypeDefinition(Identifiers.BaseDataVariableType)
+            .build();
+
+        server.getNodeMap().addNode(node);
+        folder.addOrganizes(node);
+
+        return node;
+    }
+
+    private static String description(String name) {
+        if (name.startsWith("Latency") || name.startsWith("QueueWait")) {
+            return "Milliseconds, over the last publishing interval";
+        } else if (name.equals("QueueDepth") || name.equals("Active")) {
+            return "Current value";
+        } else {
+            return "Total since startup";
+        }
+    }
+
+    @Override
+    public void run() {
+        publish();
+    }
+
+    public void publish() {
+        for (Map.Entry<ServiceOperation, UaVariableNode[]> entry : nodes.entrySet()) {
+            OperationStats stats = diagnostics.getStats(entry.getKey());
+            LatencyHistogram.Snapshot latency = stats.getLatency().snapshotAndReset();
+            UaVariableNode[] variables = entry.getValue();
+
+            variables[0].setValue(new DataValue(new Variant(stats.getOperations())));
+            variables[1].setValue(new DataValue(new Variant(stats.getItems())));
+            variables[2].setValue(new DataValue(new Variant(stats.getErrors())));
+            variables[3].setValue(new DataValue(new Variant(millis(latency.getValueAt(0.5)))));
+            variables[4].setValue(new DataValue(new Variant(millis(latency.getValueAt(0.99)))));
+            variables[5].setValue(new DataValue(new Variant(millis(latency.getValueAt(0.999)))));
+            variables[6].setValue(new DataValue(new Variant(millis(latency.getMax()))));
+        }
+
+        NotificationStats notifications = diagnostics.getNotifications();
+        notificationNodes[0].setValue(new DataValue(new Variant(notifications.getSent())));
+        notificationNodes[1].setValue(new DataValue(new Variant(notifications.getSuppressed())));
+
+        CacheStats accessLevelCache = diagnostics.getAccessLevelCache();
+        accessLevelCacheNodes[0].setValue(new DataValue(new Variant(accessLevelCache.getHits())));
+        accessLevelCacheNodes[1].setValue(new DataValue(new Variant(accessLevelCache.getMisses())));
+
+        publish(diagnostics.getMethodExecutor(), methodExecutorNodes);
+        publish(diagnostics.getServiceExecutor(), serviceExecutorNodes);
+
+        AdmissionStats admission = diagnostics.getAdmission();
+        LatencyHistogram.Snapshot admissionWait = admission.getQueueWait().snapshotAndReset();
+        admissionNodes[0].setValue(new DataValue(new Variant(admission.getAdmitted())));
+        admissionNodes[1].setValue(new DataValue(new Variant(admission.getQueued())));
+        admissionNodes[2].setValue(new DataValue(new Variant(admission.getRejectedBatchSize())));
+        admissionNodes[3].setValue(new DataValue(new Variant(admission.getRejectedRate())));
+        admissionNodes[4].setValue(new DataValue(new Variant(admission.getRejectedConcurrency())));
+        admissionNodes[5].setValue(new DataValue(new Variant(admission.getQueueDepth())));
+        admissionNodes[6].setValue(new DataValue(new Variant(millis(admissionWait.getValueAt(0.99)))));
+        admissionNodes[7].setValue(new DataValue(new Variant(millis(admissionWait.getMax()))));
+    }
+
+    private static void publish(ExecutorStats executor, UaVariableNode[] variables) {
+        LatencyHistogram.Snapshot queueWait = executor.getQueueWait().snapshotAndReset();
+
+        variables[0].setValue(new DataValue(new Variant(executor.getQueueDepth())));
+        variables[1].setValue(new DataValue(new Variant(executor.getActive())));
+        variables[2].setValue(new DataValue(new Variant(executor.getCompleted())));
+        variables[3].setValue(new DataValue(new Variant(executor.getRejected())));
+        variables[4].setValue(new DataValue(new Variant(millis(queueWait.getValueAt(0.99)))));
+        variables[5].setValue(new DataValue(new Variant(millis(queueWait.getMax()))));
+    }
+
+    private static double millis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+}
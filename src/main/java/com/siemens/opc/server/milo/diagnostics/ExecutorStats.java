@@ -0,0 +1,58 @@
+package com.siemens.opc.server.milo.diagnostics;
+
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The queue depth, active and completed tasks of a bounded executor of one namespace, the tasks it
+ * rejected because its queue was full and how long tasks waited in its queue.
+ */
+public class ExecutorStats {
+
+    private final LongAdder rejected = new LongAdder();
+    private final LatencyHistogram queueWait = new LatencyHistogram();
+
+    private volatile ThreadPoolExecutor executor;
+
+    public void setExecutor(ThreadPoolExecutor executor) {
+        this.executor = executor;
+    }
+
+    public void recordRejected() {
+        rejected.increment();
+    }
+
+    /**
+     * @param nanos time from the submission of a task until a thread started it.
+     */
+    public void recordQueueWait(long nanos) {
+        queueWait.record(nanos);
+    }
+
+    public long getQueueDepth() {
+        ThreadPoolExecutor executor = this.executor;
+
+        return executor != null ? executor.getQueue().size() : 0;
+    }
+
+    public long getActive() {
+        ThreadPoolExecutor executor = this.executor;
+
+        return executor != null ? executor.getActiveCount() : 0;
+    }
+
+    public long getCompleted() {
+        ThreadPoolExecutor executor = this.executor;
+
+        return executor != null ? executor.getCompletedTaskCount() : 0;
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    public LatencyHistogram getQueueWait() {
+        return queueWait;
+    }
+
+}
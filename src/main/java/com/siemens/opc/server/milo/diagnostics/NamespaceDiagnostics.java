@@ -0,0 +1,54 @@
+package com.siemens.opc.server.milo.diagnostics;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * The {@link OperationStats} of every {@link ServiceOperation} of one namespace, its {@link NotificationStats},
+ * the {@link CacheStats} of its access level cache, the {@link ExecutorStats} of its method and service
+ * executors and the {@link AdmissionStats} of its admission control.
+ */
+public class NamespaceDiagnostics {
+
+    private final Map<ServiceOperation, OperationStats> stats = new EnumMap<>(ServiceOperation.class);
+    private final NotificationStats notifications = new NotificationStats();
+    private final CacheStats accessLevelCache = new CacheStats();
+    private final ExecutorStats methodExecutor = new ExecutorStats();
+    private final ExecutorStats serviceExecutor = new ExecutorStats();
+    private final AdmissionStats admission = new AdmissionStats();
+
+    public NamespaceDiagnostics() {
+        for (ServiceOperation operation : ServiceOperation.values()) {
+            stats.put(operation, new OperationStats());
+        }
+    }
+
+    public void record(ServiceOperation operation, long startNanos, int items, int errors) {
+        stats.get(operation).record(startNanos, items, errors);
+    }
+
+    public OperationStats getStats(ServiceOperation operation) {
+        return stats.get(operation);
+    }
+
+    public NotificationStats getNotifications() {
+        return notifications;
+    }
+
+    public CacheStats getAccessLevelCache() {
+        return accessLevelCache;
+    }
+
+    public ExecutorStats getMethodExecutor() {
+        return methodExecutor;
+    }
+
+    public ExecutorStats getServiceExecutor() {
+        return serviceExecutor;
+    }
+
+    public AdmissionStats getAdmission() {
+        return admission;
+    }
+
+}
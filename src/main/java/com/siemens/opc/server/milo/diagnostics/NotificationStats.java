@@ -0,0 +1,30 @@
+package com.siemens.opc.server.milo.diagnostics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Values of the monitored items with a deadband in one namespace that were passed on to their items, and that
+ * the deadband suppressed.
+ */
+public class NotificationStats {
+
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder suppressed = new LongAdder();
+
+    public void recordSent() {
+        sent.increment();
+    }
+
+    public void recordSuppressed() {
+        suppressed.increment();
+    }
+
+    public long getSent() {
+        return sent.sum();
+    }
+
+    public long getSuppressed() {
+        return suppressed.sum();
+    }
+
+}
@@ -0,0 +1,44 @@
+package com.siemens.opc.server.milo.diagnostics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency, item and error counts of one service operation.
+ */
+public class OperationStats {
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder operations = new LongAdder();
+    private final LongAdder items = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+    /**
+     * @param startNanos {@link System#nanoTime()} when the operation started.
+     * @param errors     items of the operation that completed with a bad status.
+     */
+    public void record(long startNanos, int items, int errors) {
+        latency.record(System.nanoTime() - startNanos);
+        operations.increment();
+        this.items.add(items);
+        if (errors > 0) {
+            this.errors.add(errors);
+        }
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    public long getOperations() {
+        return operations.sum();
+    }
+
+    public long getItems() {
+        return items.sum();
+    }
+
+    public long getErrors() {
+        return errors.sum();
+    }
+
+}
@@ -0,0 +1,19 @@
+package com.siemens.opc.server.milo.diagnostics;
+
+public enum ServiceOperation {
+    READ("Read"),
+    WRITE("Write"),
+    BROWSE("Browse"),
+    CALL("Call"),
+    HISTORY_READ("HistoryRead");
+
+    private final String displayName;
+
+    ServiceOperation(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+}
@@ -0,0 +1,96 @@
+package com.siemens.opc.server.milo.history;
+
+import com.siemens.opc.server.milo.store.ValueKind;
+import org.eclipse.milo.opcua.stack.core.Identifiers;
+import org.eclipse.milo.opcua.stack.core.StatusCodes;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.eclipse.milo.opcua.stack.core.types.builtin.StatusCode;
+import org.eclipse.milo.opcua.stack.core.types.builtin.Variant;
+
+/**
+ * The aggregates a processed history read supports. They are computed from the raw samples with a good
+ * status in an interval; an interval without any yields {@code Bad_NoData}, except for {@link #COUNT}.
+ */
+enum Aggregate {
+    COUNT(Identifiers.AggregateFunction_Count),
+    MINIMUM(Identifiers.AggregateFunction_Minimum),
+    MAXIMUM(Identifiers.AggregateFunction_Maximum),
+    AVERAGE(Identifiers.AggregateFunction_Average),
+    RANGE(Identifiers.AggregateFunction_Range),
+    START(Identifiers.AggregateFunction_Start),
+    END(Identifiers.AggregateFunction_End);
+
+    private static final Aggregate[] VALUES = values();
+
+    private final NodeId nodeId;
+
+    Aggregate(NodeId nodeId) {
+        this.nodeId = nodeId;
+    }
+
+    /**
+     * @return the aggregate of an AggregateFunction node id, or null if it is not supported.
+     */
+    static Aggregate forNodeId(NodeId nodeId) {
+        for (Aggregate aggregate : VALUES) {
+            if (aggregate.nodeId.equals(nodeId)) {
+                return aggregate;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Aggregates the samples {@code from} (inclusive) to {@code to} (exclusive).
+     *
+     * @return the value, without timestamps.
+     */
+    DataValue compute(Samples samples, int from, int to, ValueKind kind) {
+        int count = 0;
+        double first = 0, last = 0, min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY, sum = 0;
+
+        for (int i = from; i < to; i++) {
+            if (!samples.isGood(i)) {
+                continue;
+            }
+
+            double value = samples.values[i];
+            if (count == 0) {
+                first = value;
+            }
+            last = value;
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+            sum += value;
+            count++;
+        }
+
+        if (this == COUNT) {
+            return value(new Variant(count));
+        } else if (count == 0) {
+            return new DataValue(new Variant(null), new StatusCode(StatusCodes.Bad_NoData), null, null);
+        }
+
+        switch (this) {
+            case MINIMUM:
+                return value(new Variant(kind.fromDouble(min)));
+            case MAXIMUM:
+                return value(new Variant(kind.fromDouble(max)));
+            case AVERAGE:
+                return value(new Variant(sum / count));
+            case RANGE:
+                return value(new Variant(max - min));
+            case START:
+                return value(new Variant(kind.fromDouble(first)));
+            default:
+                return value(new Variant(kind.fromDouble(last)));
+        }
+    }
+
+    private static DataValue value(Variant variant) {
+        return new DataValue(variant, StatusCode.GOOD, null, null);
+    }
+
+}
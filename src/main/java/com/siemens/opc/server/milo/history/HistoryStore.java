@@ -0,0 +1,454 @@
+package com.siemens.opc.server.milo.history;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.siemens.opc.server.milo.simulation.SignalBank;
+import com.siemens.opc.server.milo.store.ValueKind;
+import org.eclipse.milo.opcua.sdk.core.AccessLevel;
+import org.eclipse.milo.opcua.sdk.server.nodes.AttributeObserver;
+import org.eclipse.milo.opcua.sdk.server.nodes.UaNode;
+import org.eclipse.milo.opcua.sdk.server.nodes.UaVariableNode;
+import org.eclipse.milo.opcua.stack.core.AttributeId;
+import org.eclipse.milo.opcua.stack.core.StatusCodes;
+import org.eclipse.milo.opcua.stack.core.types.builtin.ByteString;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DateTime;
+import org.eclipse.milo.opcua.stack.core.types.builtin.ExtensionObject;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.eclipse.milo.opcua.stack.core.types.builtin.StatusCode;
+import org.eclipse.milo.opcua.stack.core.types.builtin.Variant;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.TimestampsToReturn;
+import org.eclipse.milo.opcua.stack.core.types.structured.HistoryData;
+import org.eclipse.milo.opcua.stack.core.types.structured.HistoryReadDetails;
+import org.eclipse.milo.opcua.stack.core.types.structured.HistoryReadResult;
+import org.eclipse.milo.opcua.stack.core.types.structured.HistoryReadValueId;
+import org.eclipse.milo.opcua.stack.core.types.structured.ReadProcessedDetails;
+import org.eclipse.milo.opcua.stack.core.types.structured.ReadRawModifiedDetails;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.Unsigned.ubyte;
+
+/**
+ * Records the values of historized variables in a compressed {@link TimeSeries} per node and answers raw and
+ * processed history reads from them.
+ * <p>
+ * Variables whose value is set are recorded as an {@link AttributeObserver}; simulated signals are recorded
+ * after every tick of their {@link SignalBank}. Samples older than the retention are dropped, and all series
+ * together stay roughly within a memory budget by dropping their oldest samples.
+ */
+public class HistoryStore implements AttributeObserver {
+
+    private static final long UNSPECIFIED = Long.MIN_VALUE;
+
+    // continuation points are the time of the last returned sample and how many samples of that time were returned
+    private static final int CONTINUATION_POINT_BYTES = 12;
+
+    private static final int MAX_INTERVALS = 100_000;
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final Map<NodeId, TimeSeries> series = new ConcurrentHashMap<>();
+    private final Map<SignalBank, SignalRecorder> recorders = new ConcurrentHashMap<>();
+    private final AtomicLong memory = new AtomicLong();
+
+    private final String name;
+    private final long retentionMillis;
+    private final long maxBytes;
+
+    public HistoryStore(String name, long retentionMillis, long maxBytes) {
+        this.name = name;
+        this.retentionMillis = retentionMillis;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Records the value of the node every time it is set.
+     *
+     * @return false if the data type of the node can't be historized.
+     */
+    public boolean historize(UaVariableNode node) {
+        TimeSeries timeSeries = addSeries(node);
+
+        if (timeSeries == null) {
+            return false;
+        }
+
+        timeSeries.append(node.getValue());
+        node.addAttributeObserver(this);
+
+        return true;
+    }
+
+    /**
+     * Records the value of a simulated signal after every tick of its bank.
+     *
+     * @return false if the data type of the node can't be historized.
+     */
+    public boolean historize(UaVariableNode node, SignalBank bank, int index) {
+        TimeSeries timeSeries = addSeries(node);
+
+        if (timeSeries == null) {
+            return false;
+        }
+
+        recorders.computeIfAbsent(bank, b -> {
+            SignalRecorder recorder = new SignalRecorder(b);
+            b.addTickListener(recorder);
+            return recorder;
+        }).add(index, timeSeries);
+
+        return true;
+    }
+
+    /**
+     * Drops the samples of a node that was removed, so they no longer count against the memory budget.
+     */
+    public void remove(NodeId nodeId) {
+        TimeSeries timeSeries = series.remove(nodeId);
+
+        if (timeSeries != null) {
+            timeSeries.clear();
+        }
+    }
+
+    /**
+     * @return the series of the node, which continues the one of a node it replaces if the kind of value is
+     * the same.
+     */
+    private TimeSeries addSeries(UaVariableNode node) {
+        ValueKind kind = ValueKind.forDataType(node.getDataType());
+
+        if (kind == null || node.getValueRank() == null || node.getValueRank() > 0) {
+            remove(node.getNodeId());
+            return null;
+        }
+
+        TimeSeries timeSeries = series.get(node.getNodeId());
+
+        if (timeSeries == null || timeSeries.getKind() != kind) {
+            remove(node.getNodeId());
+
+            timeSeries = new TimeSeries(kind, retentionMillis, maxBytes, memory);
+            series.put(node.getNodeId(), timeSeries);
+        }
+
+        int historyRead = AccessLevel.getMask(AccessLevel.HistoryRead);
+        if (node.getAccessLevel() != null) {
+            node.setAccessLevel(ubyte(node.getAccessLevel().intValue() | historyRead));
+        }
+        if (node.getUserAccessLevel() != null) {
+            node.setUserAccessLevel(ubyte(node.getUserAccessLevel().intValue() | historyRead));
+        }
+        node.setHistorizing(true);
+
+        return timeSeries;
+    }
+
+    @Override
+    public void attributeChanged(UaNode node, AttributeId attributeId, Object value) {
+        if (attributeId == AttributeId.Value && value instanceof DataValue) {
+            TimeSeries timeSeries = series.get(node.getNodeId());
+
+            if (timeSeries != null) {
+                timeSeries.append((DataValue) value);
+            }
+        }
+    }
+
+    public List<HistoryReadResult> read(
+        HistoryReadDetails details,
+        TimestampsToReturn timestamps,
+        List<HistoryReadValueId> readValueIds) {
+
+        List<HistoryReadResult> results = new ArrayList<>(readValueIds.size());
+
+        for (int i = 0; i < readValueIds.size(); i++) {
+            HistoryReadValueId readValueId = readValueIds.get(i);
+            TimeSeries timeSeries = series.get(readValueId.getNodeId());
+
+            if (timeSeries == null) {
+                results.add(result(StatusCodes.Bad_HistoryOperationUnsupported));
+            } else if (details instanceof ReadRawModifiedDetails) {
+                results.add(readRaw((ReadRawModifiedDetails) details, timestamps, readValueId, timeSeries));
+            } else if (details instanceof ReadProcessedDetails) {
+                results.add(readProcessed((ReadProcessedDetails) details, i, timestamps, timeSeries));
+            } else {
+                results.add(result(StatusCodes.Bad_HistoryOperationUnsupported));
+            }
+        }
+
+        return results;
+    }
+
+    /**
+     * Reads the samples of {@code start <= time < end}, or of {@code end < time <= start} newest first when
+     * the end is before the start. Without a start, the latest samples up to the end are read newest first.
+     * Bounding values are not returned.
+     */
+    private HistoryReadResult readRaw(
+        ReadRawModifiedDetails details,
+        TimestampsToReturn timestamps,
+        HistoryReadValueId readValueId,
+        TimeSeries timeSeries) {
+
+        if (Boolean.TRUE.equals(details.getIsReadModified())) {
+            // samples are never modified
+            return result(StatusCodes.Bad_HistoryOperationUnsupported);
+        }
+
+        long start = millis(details.getStartTime());
+        long end = millis(details.getEndTime());
+        long numValues = details.getNumValuesPerNode() != null ? details.getNumValuesPerNode().longValue() : 0;
+        int limit = (int) Math.min(numValues, Integer.MAX_VALUE - 1);
+
+        // two of start, end and the number of values must be given
+        if (start == UNSPECIFIED && end == UNSPECIFIED || (start == UNSPECIFIED || end == UNSPECIFIED) && limit == 0) {
+            return result(StatusCodes.Bad_HistoryOperationInvalid);
+        }
+
+        boolean reverse = start == UNSPECIFIED || (end != UNSPECIFIED && end < start);
+        long from, to;
+
+        if (reverse) {
+            from = start == UNSPECIFIED || end == UNSPECIFIED ? Long.MIN_VALUE : end + 1;
+            to = start == UNSPECIFIED ? end : start;
+        } else {
+            from = start;
+            to = end == UNSPECIFIED ? Long.MAX_VALUE : (end == start ? end : end - 1);
+        }
+
+        // resume after the samples that earlier requests returned
+        int skip = 0;
+        ByteString continuationPoint = readValueId.getContinuationPoint();
+
+        if (continuationPoint != null && continuationPoint.isNotNull()) {
+            if (continuationPoint.length() != CONTINUATION_POINT_BYTES) {
+                return result(StatusCodes.Bad_ContinuationPointInvalid);
+            }
+
+            ByteBuffer buffer = ByteBuffer.wrap(continuationPoint.bytes());
+            long time = buffer.getLong();
+            skip = buffer.getInt();
+
+            if (reverse) {
+                to = Math.min(to, time);
+            } else {
+                from = Math.max(from, time);
+            }
+        }
+
+        Samples samples = new Samples();
+        int max = reverse || limit == 0 ? 0 : (int) Math.min(Integer.MAX_VALUE, (long) skip + limit + 1);
+        timeSeries.read(from, to, max, samples);
+
+        List<DataValue> values = new ArrayList<>(limit > 0 ? Math.min(limit, samples.size) : samples.size);
+        long lastTime = 0;
+        int sameTime = 0;
+
+        for (int n = 0; n < samples.size; n++) {
+            int i = reverse ? samples.size - 1 - n : n;
+
+            if (n < skip) {
+                lastTime = samples.times[i];
+                sameTime = n + 1;
+                continue;
+            }
+
+            if (limit > 0 && values.size() == limit) {
+                return historyData(values, continuationPoint(lastTime, sameTime));
+            }
+
+            values.add(sample(samples, i, timeSeries.getKind(), timestamps));
+
+            sameTime = samples.times[i] == lastTime ? sameTime + 1 : 1;
+            lastTime = samples.times[i];
+        }
+
+        return historyData(values, ByteString.NULL_VALUE);
+    }
+
+    /**
+     * Aggregates the samples of {@code start <= time < end} per processing interval. Intervals start at the
+     * start time; a processing interval of 0 aggregates the whole range at once.
+     */
+    private HistoryReadResult readProcessed(
+        ReadProcessedDetails details,
+        int index,
+        TimestampsToReturn timestamps,
+        TimeSeries timeSeries) {
+
+        NodeId[] aggregateTypes = details.getAggregateType();
+
+        if (aggregateTypes == null || index >= aggregateTypes.length) {
+            return result(StatusCodes.Bad_AggregateListMismatch);
+        }
+
+        Aggregate aggregate = Aggregate.forNodeId(aggregateTypes[index]);
+
+        if (aggregate == null) {
+            return result(StatusCodes.Bad_AggregateNotSupported);
+        }
+
+        long start = millis(details.getStartTime());
+        long end = millis(details.getEndTime());
+
+        if (start == UNSPECIFIED || end == UNSPECIFIED || end < start) {
+            return result(StatusCodes.Bad_InvalidTimestampArgument);
+        }
+
+        double requested = details.getProcessingInterval() != null ? details.getProcessingInterval() : 0;
+        long interval = requested > 0 ? Math.max(1, Math.round(requested)) : Math.max(1, end - start);
+
+        if ((end - start) / interval >= MAX_INTERVALS) {
+            return result(StatusCodes.Bad_HistoryOperationInvalid);
+        }
+
+        Samples samples = new Samples();
+        timeSeries.read(start, end - 1, 0, samples);
+
+        List<DataValue> values = new ArrayList<>();
+        int i = 0;
+
+        for (long intervalStart = start; intervalStart < end; intervalStart += interval) {
+            long intervalEnd = Math.min(end, intervalStart + interval);
+            int from = i;
+
+            while (i < samples.size && samples.times[i] < intervalEnd) {
+                i++;
+            }
+
+            DataValue value = aggregate.compute(samples, from, i, timeSeries.getKind());
+            values.add(withTimestamps(value.getValue(), value.getStatusCode(), intervalStart, timestamps));
+        }
+
+        return historyData(values, ByteString.NULL_VALUE);
+    }
+
+    /**
+     * Logs the number of recorded samples and the memory they take.
+     */
+    public void report() {
+        long samples = 0;
+        long bytes = 0;
+
+        for (TimeSeries timeSeries : series.values()) {
+            samples += timeSeries.getSamples();
+            bytes += timeSeries.getBytes();
+        }
+
+        logger.info(
+            "History of {}: {} series, {} samples in {} KiB, {} bytes/sample",
+            name, series.size(), samples, bytes / 1024,
+            samples > 0 ? String.format("%.2f", bytes / (double) samples) : "-");
+    }
+
+    public long getMemoryBytes() {
+        return memory.get();
+    }
+
+    private static DataValue sample(Samples samples, int i, ValueKind kind, TimestampsToReturn timestamps) {
+        double value = samples.values[i];
+        Variant variant = Double.isNaN(value) && !samples.isGood(i)
+            ? Variant.NULL_VALUE
+            : new Variant(kind.fromDouble(value));
+
+        return withTimestamps(variant, new StatusCode(samples.statuses[i]), samples.times[i], timestamps);
+    }
+
+    private static DataValue withTimestamps(Variant value, StatusCode status, long time, TimestampsToReturn timestamps) {
+        // one time per sample, it is the source and the server timestamp
+        DateTime dateTime = new DateTime(new Date(time));
+        boolean source = timestamps == TimestampsToReturn.Source || timestamps == TimestampsToReturn.Both;
+        boolean server = timestamps == TimestampsToReturn.Server || timestamps == TimestampsToReturn.Both;
+
+        return new DataValue(value, status, source ? dateTime : null, server ? dateTime : null);
+    }
+
+    private static HistoryReadResult historyData(List<DataValue> values, ByteString continuationPoint) {
+        StatusCode status = values.isEmpty() && continuationPoint.isNull()
+            ? new StatusCode(StatusCodes.Good_NoData)
+            : StatusCode.GOOD;
+
+        return new HistoryReadResult(
+            status,
+            continuationPoint,
+            ExtensionObject.encode(new HistoryData(values.toArray(new DataValue[0])))
+        );
+    }
+
+    private static HistoryReadResult result(long statusCode) {
+        return new HistoryReadResult(new StatusCode(statusCode), ByteString.NULL_VALUE, null);
+    }
+
+    private static ByteString continuationPoint(long time, int sameTime) {
+        return ByteString.of(ByteBuffer.allocate(CONTINUATION_POINT_BYTES).putLong(time).putInt(sameTime).array());
+    }
+
+    private static long millis(DateTime dateTime) {
+        return dateTime == null || dateTime.getUtcTime() <= 0 ? UNSPECIFIED : dateTime.getJavaTime();
+    }
+
+    /**
+     * Appends the values of the historized signals of a bank after every tick.
+     */
+    private static final class SignalRecorder implements Runnable {
+        private final Logger logger = LoggerFactory.getLogger(getClass());
+
+        private final SignalBank bank;
+        private int[] indexes = new int[16];
+        private TimeSeries[] series = new TimeSeries[16];
+        private int size;
+
+        SignalRecorder(SignalBank bank) {
+            this.bank = bank;
+        }
+
+        synchronized void add(int index, TimeSeries timeSeries) {
+            if (size == indexes.length) {
+                indexes = Arrays.copyOf(indexes, size * 2);
+                series = Arrays.copyOf(series, size * 2);
+            }
+
+            indexes[size] = index;
+            series[size] = timeSeries;
+            size++;
+        }
+
+        @Override
+        public synchronized void run() {
+            long time = bank.getSourceTime().getJavaTime();
+
+            try {
+                for (int i = 0; i < size; i++) {
+                    series[i].append(time, exposed(series[i].getKind(), bank.getValue(indexes[i])), StatusCode.GOOD.getValue());
+                }
+            } catch (RuntimeException e) {
+                // an exception would cancel the ticks of the bank
+                logger.error("Error recording the history of {}", bank.getName(), e);
+            }
+        }
+
+        // the value as the signal's node exposes it, see SignalValueDelegate
+        private static double exposed(ValueKind kind, double value) {
+            switch (kind) {
+                case BOOLEAN:
+                    return value > 0 ? 1 : 0;
+                case FLOAT:
+                    return (float) value;
+                case DOUBLE:
+                    return value;
+                default:
+                    return (long) value;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,33 @@
+package com.siemens.opc.server.milo.history;
+
+import java.util.Arrays;
+
+/**
+ * Decoded samples of a {@link TimeSeries}, in growable primitive arrays.
+ */
+final class Samples {
+
+    long[] times = new long[64];
+    double[] values = new double[64];
+    long[] statuses = new long[64];
+    int size;
+
+    void add(long time, double value, long status) {
+        if (size == times.length) {
+            times = Arrays.copyOf(times, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+            statuses = Arrays.copyOf(statuses, size * 2);
+        }
+
+        times[size] = time;
+        values[size] = value;
+        statuses[size] = status;
+        size++;
+    }
+
+    boolean isGood(int i) {
+        // the two severity bits of a status code are 00 for good
+        return (statuses[i] & 0xC0000000L) == 0;
+    }
+
+}
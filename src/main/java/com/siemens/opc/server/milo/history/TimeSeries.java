@@ -0,0 +1,404 @@
+package com.siemens.opc.server.milo.history;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.siemens.opc.server.milo.store.ValueKind;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
+import org.eclipse.milo.opcua.stack.core.types.builtin.StatusCode;
+
+/**
+ * The recorded samples of one variable. Samples are compressed the way Gorilla does it: timestamps as the
+ * delta of their deltas and values as the XOR with the previous value, so a sample of a regularly updated,
+ * slowly changing variable takes a few bits. Status codes are only written when they change.
+ * <p>
+ * Samples go into a ring of chunks of at most 2 KiB; retention drops whole chunks from the old end. Timestamps
+ * are kept in milliseconds and never go backwards: a sample older than its predecessor is recorded at the
+ * time of the predecessor.
+ */
+final class TimeSeries {
+
+    // worst case of one sample: 4 + 64 bits of time, 2 + 12 + 64 bits of value, 1 + 32 bits of status
+    private static final int MAX_SAMPLE_BITS = 179;
+
+    private static final int INITIAL_CHUNK_WORDS = 4;
+    private static final int MAX_CHUNK_WORDS = 256;
+    private static final int CHUNK_OVERHEAD_BYTES = 72;
+
+    private final ValueKind kind;
+    private final long retentionMillis;
+    private final long maxBytes;
+    private final AtomicLong memory;
+
+    private final ArrayDeque<Chunk> chunks = new ArrayDeque<>();
+    private Chunk head;
+    private long lastTime = Long.MIN_VALUE;
+    private long samples;
+    private long bytes;
+    private boolean cleared;
+
+    /**
+     * @param memory the bytes used by all series that share {@code maxBytes}.
+     */
+    TimeSeries(ValueKind kind, long retentionMillis, long maxBytes, AtomicLong memory) {
+        this.kind = kind;
+        this.retentionMillis = retentionMillis;
+        this.maxBytes = maxBytes;
+        this.memory = memory;
+    }
+
+    ValueKind getKind() {
+        return kind;
+    }
+
+    void append(DataValue value) {
+        long time;
+        if (value.getSourceTime() != null) {
+            time = value.getSourceTime().getJavaTime();
+        } else if (value.getServerTime() != null) {
+            time = value.getServerTime().getJavaTime();
+        } else {
+            time = System.currentTimeMillis();
+        }
+
+        long status = value.getStatusCode() != null ? value.getStatusCode().getValue() : StatusCode.GOOD.getValue();
+        double v;
+        try {
+            v = kind.toDouble(value.getValue().getValue());
+        } catch (ClassCastException | NullPointerException e) {
+            v = Double.NaN;
+        }
+
+        append(time, v, status);
+    }
+
+    synchronized void append(long time, double value, long status) {
+        if (cleared) {
+            return;
+        }
+
+        if (head == null || !head.hasRoom()) {
+            if (head != null) {
+                account(head.seal());
+            }
+            head = new Chunk();
+            chunks.addLast(head);
+            account(head.bytes());
+        }
+
+        if (time < lastTime) {
+            time = lastTime;
+        }
+        lastTime = time;
+
+        int before = head.words.length;
+        head.append(time, Double.doubleToRawLongBits(value), status);
+        if (head.words.length != before) {
+            account((head.words.length - before) * 8L);
+        }
+        samples++;
+
+        // the head chunk is never dropped, so a series always keeps its latest samples
+        while (chunks.size() > 1 && chunks.peekFirst().lastTime < time - retentionMillis) {
+            drop();
+        }
+        while (chunks.size() > 1 && memory.get() > maxBytes) {
+            drop();
+        }
+    }
+
+    /**
+     * Adds the samples with {@code from <= time <= to} to {@code out}, oldest first.
+     *
+     * @param max stop after this many samples; 0 adds all of them.
+     */
+    synchronized void read(long from, long to, int max, Samples out) {
+        int added = 0;
+
+        for (Iterator<Chunk> it = chunks.iterator(); it.hasNext(); ) {
+            Chunk chunk = it.next();
+
+            if (chunk.lastTime < from) {
+                continue;
+            }
+            if (chunk.firstTime > to) {
+                break;
+            }
+
+            Decoder decoder = new Decoder(chunk);
+            for (int i = 0; i < chunk.count; i++) {
+                decoder.next();
+
+                if (decoder.time > to) {
+                    return;
+                }
+                if (decoder.time >= from) {
+                    out.add(decoder.time, Double.longBitsToDouble(decoder.value), decoder.status);
+
+                    if (++added == max) {
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops all samples and gives their bytes back to the shared budget; samples appended afterwards are ignored.
+     */
+    synchronized void clear() {
+        memory.addAndGet(-bytes);
+
+        chunks.clear();
+        head = null;
+        samples = 0;
+        bytes = 0;
+        cleared = true;
+    }
+
+    synchronized long getSamples() {
+        return samples;
+    }
+
+    synchronized long getBytes() {
+        return bytes;
+    }
+
+    private void drop() {
+        Chunk chunk = chunks.removeFirst();
+
+        samples -= chunk.count;
+        account(-chunk.bytes());
+    }
+
+    private void account(long delta) {
+        bytes += delta;
+        memory.addAndGet(delta);
+    }
+
+    private static final class Chunk {
+        long[] words = new long[INITIAL_CHUNK_WORDS];
+        int bits;
+        int count;
+        long firstTime;
+        long lastTime;
+
+        // encoder state
+        long lastDelta;
+        long lastValue;
+        int lastLeading = -1;
+        int lastTrailing;
+        long lastStatus;
+
+        boolean hasRoom() {
+            return bits + MAX_SAMPLE_BITS <= MAX_CHUNK_WORDS * 64;
+        }
+
+        long bytes() {
+            return CHUNK_OVERHEAD_BYTES + words.length * 8L;
+        }
+
+        /**
+         * Trims the words to the bits written, no more samples are appended afterwards.
+         *
+         * @return the change in bytes.
+         */
+        long seal() {
+            long before = bytes();
+            words = Arrays.copyOf(words, (bits + 63) >>> 6);
+            return bytes() - before;
+        }
+
+        void append(long time, long value, long status) {
+            if (count == 0) {
+                write(time, 64);
+                write(value, 64);
+                write(status, 32);
+
+                firstTime = time;
+            } else {
+                appendTime(time);
+                appendValue(value);
+
+                if (status == lastStatus) {
+                    write(0, 1);
+                } else {
+                    write(1, 1);
+                    write(status, 32);
+                }
+            }
+
+            lastTime = time;
+            lastValue = value;
+            lastStatus = status;
+            count++;
+        }
+
+        private void appendTime(long time) {
+            long delta = time - lastTime;
+            long deltaOfDelta = delta - lastDelta;
+
+            if (deltaOfDelta == 0) {
+                write(0, 1);
+            } else if (deltaOfDelta >= -64 && deltaOfDelta < 64) {
+                write(0b10, 2);
+                write(deltaOfDelta, 7);
+            } else if (deltaOfDelta >= -256 && deltaOfDelta < 256) {
+                write(0b110, 3);
+                write(deltaOfDelta, 9);
+            } else if (deltaOfDelta >= -2048 && deltaOfDelta < 2048) {
+                write(0b1110, 4);
+                write(deltaOfDelta, 12);
+            } else {
+                write(0b1111, 4);
+                write(deltaOfDelta, 64);
+            }
+
+            lastDelta = delta;
+        }
+
+        private void appendValue(long value) {
+            long xor = value ^ lastValue;
+
+            if (xor == 0) {
+                write(0, 1);
+                return;
+            }
+
+            int leading = Long.numberOfLeadingZeros(xor);
+            int trailing = Long.numberOfTrailingZeros(xor);
+
+            if (lastLeading >= 0 && leading >= lastLeading && trailing >= lastTrailing) {
+                // the meaningful bits fit into the window of the previous value
+                write(0b10, 2);
+                write(xor >>> lastTrailing, 64 - lastLeading - lastTrailing);
+            } else {
+                int significant = 64 - leading - trailing;
+
+                write(0b11, 2);
+                write(leading, 6);
+                write(significant - 1, 6);
+                write(xor >>> trailing, significant);
+
+                lastLeading = leading;
+                lastTrailing = trailing;
+            }
+        }
+
+        /**
+         * Appends the low {@code n} bits of {@code value}, most significant first.
+         */
+        private void write(long value, int n) {
+            int needed = (bits + n + 63) >>> 6;
+            if (needed > words.length) {
+                words = Arrays.copyOf(words, Math.min(MAX_CHUNK_WORDS, Math.max(needed, words.length * 2)));
+            }
+
+            if (n < 64) {
+                value &= (1L << n) - 1;
+            }
+
+            int index = bits >>> 6;
+            int free = 64 - (bits & 63);
+
+            if (n <= free) {
+                words[index] |= value << (free - n);
+            } else {
+                words[index] |= value >>> (n - free);
+                words[index + 1] |= value << (64 - (n - free));
+            }
+
+            bits += n;
+        }
+    }
+
+    private static final class Decoder {
+        private final Chunk chunk;
+        private int position;
+        private int index;
+
+        long time;
+        long delta;
+        long value;
+        long status;
+        int leading;
+        int trailing;
+
+        Decoder(Chunk chunk) {
+            this.chunk = chunk;
+        }
+
+        void next() {
+            if (index++ == 0) {
+                time = read(64);
+                value = read(64);
+                status = read(32);
+                return;
+            }
+
+            nextTime();
+            nextValue();
+
+            if (read(1) == 1) {
+                status = read(32);
+            }
+        }
+
+        private void nextTime() {
+            long deltaOfDelta;
+
+            if (read(1) == 0) {
+                deltaOfDelta = 0;
+            } else if (read(1) == 0) {
+                deltaOfDelta = signed(read(7), 7);
+            } else if (read(1) == 0) {
+                deltaOfDelta = signed(read(9), 9);
+            } else if (read(1) == 0) {
+                deltaOfDelta = signed(read(12), 12);
+            } else {
+                deltaOfDelta = read(64);
+            }
+
+            delta += deltaOfDelta;
+            time += delta;
+        }
+
+        private void nextValue() {
+            if (read(1) == 0) {
+                return;
+            }
+
+            if (read(1) == 1) {
+                leading = (int) read(6);
+                trailing = 64 - leading - ((int) read(6) + 1);
+            }
+
+            value ^= read(64 - leading - trailing) << trailing;
+        }
+
+        private long read(int n) {
+            long[] words = chunk.words;
+            int word = position >>> 6;
+            int available = 64 - (position & 63);
+            long bits;
+
+            if (n <= available) {
+                bits = words[word] >>> (available - n);
+            } else {
+                int rest = n - available;
+                bits = (words[word] << rest) | (words[word + 1] >>> (64 - rest));
+            }
+
+            position += n;
+
+            return n == 64 ? bits : bits & ((1L << n) - 1);
+        }
+
+        private static long signed(long bits, int n) {
+            return (bits << (64 - n)) >> (64 - n);
+        }
+    }
+
+}
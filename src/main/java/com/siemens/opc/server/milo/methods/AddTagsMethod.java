@@ -0,0 +1,74 @@
+package com.siemens.opc.server.milo.methods;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.siemens.opc.server.TagDefinition;
+import com.siemens.opc.server.TagFileReader;
+import com.siemens.opc.server.milo.Namespace;
+import org.eclipse.milo.opcua.sdk.server.annotations.UaInputArgument;
+import org.eclipse.milo.opcua.sdk.server.annotations.UaMethod;
+import org.eclipse.milo.opcua.sdk.server.annotations.UaOutputArgument;
+import org.eclipse.milo.opcua.sdk.server.util.AnnotationBasedInvocationHandler.InvocationContext;
+import org.eclipse.milo.opcua.sdk.server.util.AnnotationBasedInvocationHandler.Out;
+import org.eclipse.milo.opcua.stack.core.StatusCodes;
+import org.eclipse.milo.opcua.stack.core.types.builtin.StatusCode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Adds a batch of tag nodes to a namespace with {@link Namespace#addTags}, all linked into their folders at once.
+ */
+public class AddTagsMethod {
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final Namespace namespace;
+
+    public AddTagsMethod(Namespace namespace) {
+        this.namespace = namespace;
+    }
+
+    @UaMethod
+    public void invoke(
+        InvocationContext context,
+
+        @UaInputArgument(
+            name = "definitions",
+            description = "The tags, each a line of the tag file: folder path;name;type;access;initial value.")
+            String[] definitions,
+
+        @UaOutputArgument(
+            name = "results",
+            description = "The result of each definition: Bad_NodeAttributesInvalid if it is invalid, Bad_NodeIdExists if its node or a folder of its path is taken, Bad_UserAccessDenied or Good.")
+            Out<StatusCode[]> results) {
+
+        String[] lines = definitions != null ? definitions : new String[0];
+
+        if (logger.isDebugEnabled()) {
+            logger.debug("Invoking AddTags() method of Object '{}' for {} definitions",
+                context.getObjectNode().getBrowseName().getName(), lines.length);
+        }
+
+        StatusCode[] statuses = new StatusCode[lines.length];
+        List<TagDefinition> tags = new ArrayList<>(lines.length);
+        int[] indexes = new int[lines.length];
+
+        for (int i = 0; i < lines.length; i++) {
+            try {
+                indexes[tags.size()] = i;
+                tags.add(TagFileReader.parseLine(lines[i]));
+            } catch (RuntimeException e) {
+                statuses[i] = new StatusCode(StatusCodes.Bad_NodeAttributesInvalid);
+            }
+        }
+
+        StatusCode[] added = namespace.addTags(context.getSession(), tags);
+        for (int i = 0; i < added.length; i++) {
+            statuses[indexes[i]] = added[i];
+        }
+
+        results.set(statuses);
+    }
+
+}
@@ -0,0 +1,53 @@
+package com.siemens.opc.server.milo.methods;
+
+import java.util.Arrays;
+
+import com.siemens.opc.server.milo.Namespace;
+import org.eclipse.milo.opcua.sdk.server.annotations.UaInputArgument;
+import org.eclipse.milo.opcua.sdk.server.annotations.UaMethod;
+import org.eclipse.milo.opcua.sdk.server.annotations.UaOutputArgument;
+import org.eclipse.milo.opcua.sdk.server.util.AnnotationBasedInvocationHandler.InvocationContext;
+import org.eclipse.milo.opcua.sdk.server.util.AnnotationBasedInvocationHandler.Out;
+import org.eclipse.milo.opcua.stack.core.types.builtin.StatusCode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Deletes a batch of tag nodes from a namespace with {@link Namespace#deleteTags}, all unlinked from their folders
+ * at once.
+ */
+public class DeleteTagsMethod {
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final Namespace namespace;
+
+    public DeleteTagsMethod(Namespace namespace) {
+        this.namespace = namespace;
+    }
+
+    @UaMethod
+    public void invoke(
+        InvocationContext context,
+
+        @UaInputArgument(
+            name = "paths",
+            description = "The paths of the tags relative to the Tags folder, e.g. Line1/Tank1/Level.")
+            String[] paths,
+
+        @UaOutputArgument(
+            name = "results",
+            description = "The result of each path: Bad_NodeIdUnknown if it is not a tag, Bad_UserAccessDenied or Good.")
+            Out<StatusCode[]> results) {
+
+        String[] tagPaths = paths != null ? paths : new String[0];
+
+        if (logger.isDebugEnabled()) {
+            logger.debug("Invoking DeleteTags() method of Object '{}' for {} paths",
+                context.getObjectNode().getBrowseName().getName(), tagPaths.length);
+        }
+
+        results.set(namespace.deleteTags(context.getSession(), Arrays.asList(tagPaths)));
+    }
+
+}
@@ -0,0 +1,185 @@
+package com.siemens.opc.server.milo.methods;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import org.eclipse.milo.opcua.sdk.server.Session;
+import org.eclipse.milo.opcua.sdk.server.annotations.UaMethod;
+import org.eclipse.milo.opcua.sdk.server.api.AccessContext;
+import org.eclipse.milo.opcua.sdk.server.api.MethodInvocationHandler;
+import org.eclipse.milo.opcua.sdk.server.api.ServerNodeMap;
+import org.eclipse.milo.opcua.sdk.server.nodes.ServerNode;
+import org.eclipse.milo.opcua.sdk.server.nodes.UaObjectNode;
+import org.eclipse.milo.opcua.sdk.server.util.AnnotationBasedInvocationHandler;
+import org.eclipse.milo.opcua.sdk.server.util.AnnotationBasedInvocationHandler.InvocationContext;
+import org.eclipse.milo.opcua.sdk.server.util.AnnotationBasedInvocationHandler.Out;
+import org.eclipse.milo.opcua.stack.core.StatusCodes;
+import org.eclipse.milo.opcua.stack.core.UaException;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DiagnosticInfo;
+import org.eclipse.milo.opcua.stack.core.types.builtin.StatusCode;
+import org.eclipse.milo.opcua.stack.core.types.builtin.Variant;
+import org.eclipse.milo.opcua.stack.core.types.structured.Argument;
+import org.eclipse.milo.opcua.stack.core.types.structured.CallMethodRequest;
+import org.eclipse.milo.opcua.stack.core.types.structured.CallMethodResult;
+
+/**
+ * Invokes the {@link UaMethod} of an annotated object like an {@link AnnotationBasedInvocationHandler}, with
+ * the same arguments, but on the calling thread: the handler of Milo starts a new thread for every call. The
+ * method must set its outputs, or fail, before it returns.
+ */
+public class DirectInvocationHandler implements MethodInvocationHandler {
+
+    private final ServerNodeMap nodeMap;
+    private final Object annotatedObject;
+    private final Method method;
+    private final Argument[] inputArguments;
+    private final Argument[] outputArguments;
+
+    private DirectInvocationHandler(ServerNodeMap nodeMap, Object annotatedObject, Method method,
+                                    Argument[] inputArguments, Argument[] outputArguments) {
+        this.nodeMap = nodeMap;
+        this.annotatedObject = annotatedObject;
+        this.method = method;
+        this.inputArguments = inputArguments;
+        this.outputArguments = outputArguments;
+    }
+
+    public static DirectInvocationHandler fromAnnotatedObject(ServerNodeMap nodeMap, Object annotatedObject)
+        throws Exception {
+
+        AnnotationBasedInvocationHandler handler =
+            AnnotationBasedInvocationHandler.fromAnnotatedObject(nodeMap, annotatedObject);
+
+        for (Method method : annotatedObject.getClass().getMethods()) {
+            if (method.isAnnotationPresent(UaMethod.class)) {
+                return new DirectInvocationHandler(
+                    nodeMap, annotatedObject, method, handler.getInputArguments(), handler.getOutputArguments());
+            }
+        }
+
+        throw new IllegalArgumentException("no @UaMethod in " + annotatedObject.getClass().getName());
+    }
+
+    public Argument[] getInputArguments() {
+        return inputArguments;
+    }
+
+    public Argument[] getOutputArguments() {
+        return outputArguments;
+    }
+
+    @Override
+    public void invoke(AccessContext accessContext, CallMethodRequest request, CompletableFuture<CallMethodResult> future) {
+        Variant[] inputs = request.getInputArguments() != null ? request.getInputArguments() : new Variant[0];
+
+        if (inputs.length != inputArguments.length) {
+            future.complete(result(new StatusCode(StatusCodes.Bad_ArgumentsMissing), new StatusCode[0], new Variant[0]));
+            return;
+        }
+
+        StatusCode[] inputResults = new StatusCode[inputs.length];
+        boolean invalid = false;
+        Object[] args = new Object[1 + inputs.length + outputArguments.length];
+
+        for (int i = 0; i < inputs.length; i++) {
+            Optional<Boolean> matches = inputs[i].getDataType().map(inputArguments[i].getDataType()::equals);
+
+            if (matches.orElse(true)) {
+                inputResults[i] = StatusCode.GOOD;
+                args[1 + i] = inputs[i].getValue();
+            } else {
+                inputResults[i] = new StatusCode(StatusCodes.Bad_TypeMismatch);
+                invalid = true;
+            }
+        }
+
+        if (invalid) {
+            future.complete(result(new StatusCode(StatusCodes.Bad_InvalidArgument), inputResults, new Variant[0]));
+            return;
+        }
+
+        ServerNode objectNode = nodeMap.get(request.getObjectId());
+        if (!(objectNode instanceof UaObjectNode)) {
+            future.complete(result(new StatusCode(StatusCodes.Bad_NodeIdUnknown), inputResults, new Variant[0]));
+            return;
+        }
+
+        DirectContext context = new DirectContext(accessContext, (UaObjectNode) objectNode);
+        args[0] = context;
+
+        DirectOut[] outs = new DirectOut[outputArguments.length];
+        for (int i = 0; i < outs.length; i++) {
+            outs[i] = new DirectOut();
+            args[1 + inputs.length + i] = outs[i];
+        }
+
+        try {
+            method.invoke(annotatedObject, args);
+        } catch (InvocationTargetException e) {
+            StatusCode status = e.getTargetException() instanceof UaException
+                ? ((UaException) e.getTargetException()).getStatusCode()
+                : new StatusCode(StatusCodes.Bad_InternalError);
+
+            future.complete(result(status, inputResults, new Variant[0]));
+            return;
+        } catch (IllegalAccessException e) {
+            future.complete(result(new StatusCode(StatusCodes.Bad_InternalError), inputResults, new Variant[0]));
+            return;
+        }
+
+        if (context.failure != null) {
+            future.complete(result(context.failure.getStatusCode(), inputResults, new Variant[0]));
+            return;
+        }
+
+        Variant[] outputs = new Variant[outs.length];
+        for (int i = 0; i < outs.length; i++) {
+            outputs[i] = new Variant(outs[i].value);
+        }
+
+        future.complete(result(StatusCode.GOOD, inputResults, outputs));
+    }
+
+    private static CallMethodResult result(StatusCode status, StatusCode[] inputResults, Variant[] outputs) {
+        return new CallMethodResult(status, inputResults, new DiagnosticInfo[0], outputs);
+    }
+
+    private static final class DirectContext implements InvocationContext {
+        private final AccessContext accessContext;
+        private final UaObjectNode objectNode;
+
+        UaException failure;
+
+        DirectContext(AccessContext accessContext, UaObjectNode objectNode) {
+            this.accessContext = accessContext;
+            this.objectNode = objectNode;
+        }
+
+        @Override
+        public Optional<Session> getSession() {
+            return accessContext.getSession();
+        }
+
+        @Override
+        public UaObjectNode getObjectNode() {
+            return objectNode;
+        }
+
+        @Override
+        public void setFailure(UaException failure) {
+            this.failure = failure;
+        }
+    }
+
+    private static final class DirectOut implements Out<Object> {
+        Object value;
+
+        @Override
+        public void set(Object value) {
+            this.value = value;
+        }
+    }
+
+}
@@ -0,0 +1,45 @@
+package com.siemens.opc.server.milo.methods;
+
+import org.eclipse.milo.opcua.sdk.server.annotations.UaInputArgument;
+import org.eclipse.milo.opcua.sdk.server.annotations.UaMethod;
+import org.eclipse.milo.opcua.sdk.server.annotations.UaOutputArgument;
+import org.eclipse.milo.opcua.sdk.server.util.AnnotationBasedInvocationHandler.InvocationContext;
+import org.eclipse.milo.opcua.sdk.server.util.AnnotationBasedInvocationHandler.Out;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link SqrtMethod} for a whole batch of values in one call.
+ */
+public class SqrtArrayMethod {
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    @UaMethod
+    public void invoke(
+        InvocationContext context,
+
+        @UaInputArgument(
+            name = "x",
+            description = "The values.")
+            Double[] x,
+
+        @UaOutputArgument(
+            name = "x_sqrt",
+            description = "The positive square root of each value. If a value is NaN, null or less than zero, its result is NaN.")
+            Out<Double[]> xSqrt) {
+
+        if (logger.isDebugEnabled()) {
+            logger.debug("Invoking sqrt() method of Object '{}' for {} values",
+                context.getObjectNode().getBrowseName().getName(), x.length);
+        }
+
+        Double[] result = new Double[x.length];
+        for (int i = 0; i < x.length; i++) {
+            result[i] = x[i] != null ? Math.sqrt(x[i]) : Double.NaN;
+        }
+
+        xSqrt.set(result);
+    }
+
+}
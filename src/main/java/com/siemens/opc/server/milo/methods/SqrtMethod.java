@@ -26,8 +26,9 @@ public class SqrtMethod {
             description = "The positive square root of x. If the argument is NaN or less than zero, the result is NaN.")
             Out<Double> xSqrt) {
 
-        System.out.println("sqrt(" + x.toString() + ")");
-        logger.debug("Invoking sqrt() method of Object '{}'", context.getObjectNode().getBrowseName().getName());
+        if (logger.isDebugEnabled()) {
+            logger.debug("Invoking sqrt() method of Object '{}'", context.getObjectNode().getBrowseName().getName());
+        }
 
         xSqrt.set(Math.sqrt(x));
     }
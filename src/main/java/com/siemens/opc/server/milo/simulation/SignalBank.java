@@ -0,0 +1,196 @@
+package com.siemens.opc.server.milo.simulation;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.milo.opcua.stack.core.types.builtin.DateTime;
+
+/**
+ * The state of a group of simulated signals that share an update interval. Signal state lives in primitive
+ * arrays that a single tick updates in place; readers see the latest values without any locking. A tick
+ * publishes its values with a volatile write of the value array, which every read of a value starts with.
+ * <p>
+ * Signals are added, up to the capacity of the bank, before the bank is started, and ticks must not run
+ * concurrently, which the single scheduler thread of the {@link SimulationEngine} guarantees.
+ */
+public class SignalBank implements Runnable {
+
+    private static final double TWO_PI = 2 * Math.PI;
+    private static final double GOLDEN_RATIO_FRACTION = 0.6180339887498949;
+
+    private final String name;
+    private final long intervalMillis;
+    private final double periodNanos;
+    private final double amplitude;
+    private final double walkStep;
+
+    private final SignalType[] types;
+    private final double[] phases;
+    private final long[] seeds;
+    // the same array after every tick, volatile to publish the values the tick wrote
+    private volatile double[] values;
+    // written after the slots of a new signal
+    private volatile int size;
+
+    private final List<Runnable> tickListeners = new CopyOnWriteArrayList<>();
+
+    private final SplittableRandom seedSource = new SplittableRandom();
+    private final long startNanos = System.nanoTime();
+
+    private volatile DateTime sourceTime = DateTime.now();
+    private volatile long ticks;
+    private volatile long updates;
+    private volatile double achievedUpdateRate;
+
+    // only touched by the reporting task, which runs on the same thread as the ticks
+    private long reportedUpdates;
+    private long reportedNanos = startNanos;
+
+    public SignalBank(String name, long intervalMillis, double periodSeconds, double amplitude, int capacity) {
+        this.name = name;
+        this.intervalMillis = intervalMillis;
+        this.periodNanos = Math.max(periodSeconds, 0.001) * TimeUnit.SECONDS.toNanos(1);
+        this.amplitude = amplitude;
+        this.walkStep = amplitude / 100;
+
+        this.types = new SignalType[capacity];
+        this.phases = new double[capacity];
+        this.values = new double[capacity];
+        this.seeds = new long[capacity];
+    }
+
+    /**
+     * @return the index of the new signal, used to read its value.
+     * @throws IllegalStateException if the bank already holds as many signals as its capacity.
+     */
+    public int add(SignalType type) {
+        int index = size;
+
+        if (index == types.length) {
+            throw new IllegalStateException(name + " has no room for more than " + types.length + " signals");
+        }
+
+        types[index] = type;
+        // spread the phases evenly so that signals of the same type don't move in lockstep
+        phases[index] = (index * GOLDEN_RATIO_FRACTION) % 1.0;
+        seeds[index] = seedSource.nextLong() | 1L;
+        size = index + 1;
+
+        return index;
+    }
+
+    /**
+     * Runs the listener on the ticking thread after every tick, when the new values and their source time are
+     * visible.
+     */
+    public void addTickListener(Runnable listener) {
+        tickListeners.add(listener);
+    }
+
+    @Override
+    public void run() {
+        double cycles = (System.nanoTime() - startNanos) / periodNanos;
+        double[] values = this.values;
+        int size = this.size;
+
+        for (int i = 0; i < size; i++) {
+            double position = cycles + phases[i];
+
+            switch (types[i]) {
+                case SINE:
+                    values[i] = amplitude * Math.sin(TWO_PI * position);
+                    break;
+                case RAMP:
+                    values[i] = amplitude * (position - Math.floor(position));
+                    break;
+                case SQUARE:
+                    values[i] = position - Math.floor(position) < 0.5 ? amplitude : -amplitude;
+                    break;
+                case RANDOM_WALK:
+                    // xorshift per signal: no shared Random and no allocation
+                    long seed = seeds[i];
+                    seed ^= seed << 13;
+                    seed ^= seed >>> 7;
+                    seed ^= seed << 17;
+                    seeds[i] = seed;
+
+                    double step = ((seed >>> 11) * 0x1.0p-53 * 2 - 1) * walkStep;
+                    values[i] = Math.max(-amplitude, Math.min(amplitude, values[i] + step));
+                    break;
+                case COUNTER:
+                    values[i] += 1;
+                    break;
+            }
+        }
+
+        this.values = values;
+        sourceTime = DateTime.now();
+        ticks = ticks + 1;
+        updates = updates + size;
+
+        for (Runnable listener : tickListeners) {
+            listener.run();
+        }
+    }
+
+    void report(long nowNanos) {
+        long total = updates;
+        long elapsed = nowNanos - reportedNanos;
+
+        if (elapsed > 0) {
+            achievedUpdateRate = (total - reportedUpdates) * (double) TimeUnit.SECONDS.toNanos(1) / elapsed;
+        }
+
+        reportedUpdates = total;
+        reportedNanos = nowNanos;
+    }
+
+    /**
+     * @return the value of a signal as of the tick of the {@link #getSourceTime() source time} read before, or
+     * of a later one.
+     */
+    public double getValue(int index) {
+        return values[index];
+    }
+
+    /**
+     * @return the time of the last tick, the source timestamp of every value in this bank.
+     */
+    public DateTime getSourceTime() {
+        return sourceTime;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getIntervalMillis() {
+        return intervalMillis;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public long getTicks() {
+        return ticks;
+    }
+
+    public long getUpdates() {
+        return updates;
+    }
+
+    public double getConfiguredUpdateRate() {
+        return size * 1000.0 / intervalMillis;
+    }
+
+    /**
+     * @return signal updates per second measured over the last report interval of the engine.
+     */
+    public double getAchievedUpdateRate() {
+        return achievedUpdateRate;
+    }
+
+}
@@ -0,0 +1,29 @@
+package com.siemens.opc.server.milo.simulation;
+
+public enum SignalType {
+    SINE("sine"),
+    RAMP("ramp"),
+    SQUARE("square"),
+    RANDOM_WALK("randomWalk"),
+    COUNTER("counter");
+
+    private final String configName;
+
+    SignalType(String configName) {
+        this.configName = configName;
+    }
+
+    public String getConfigName() {
+        return configName;
+    }
+
+    public static SignalType fromConfigName(String name) {
+        for (SignalType type : values()) {
+            if (type.configName.equalsIgnoreCase(name)) {
+                return type;
+            }
+        }
+
+        throw new IllegalArgumentException("unknown signal type: " + name);
+    }
+}
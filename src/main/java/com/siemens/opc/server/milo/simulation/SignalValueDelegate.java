@@ -0,0 +1,49 @@
+package com.siemens.opc.server.milo.simulation;
+
+import org.eclipse.milo.opcua.sdk.server.api.nodes.VariableNode;
+import org.eclipse.milo.opcua.sdk.server.nodes.AttributeContext;
+import org.eclipse.milo.opcua.sdk.server.nodes.delegates.AttributeDelegate;
+import org.eclipse.milo.opcua.stack.core.Identifiers;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DateTime;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.eclipse.milo.opcua.stack.core.types.builtin.StatusCode;
+import org.eclipse.milo.opcua.stack.core.types.builtin.Variant;
+
+/**
+ * Returns the latest value of one signal of a {@link SignalBank}, converted to the data type of the node.
+ * Nothing is computed on read; the value is only wrapped.
+ */
+public class SignalValueDelegate implements AttributeDelegate {
+
+    private final SignalBank bank;
+    private final int index;
+    private final NodeId dataType;
+
+    public SignalValueDelegate(SignalBank bank, int index, NodeId dataType) {
+        this.bank = bank;
+        this.index = index;
+        this.dataType = dataType;
+    }
+
+    @Override
+    public DataValue getValue(AttributeContext context, VariableNode node) {
+        // the value is at least as new as the source time read first
+        DateTime sourceTime = bank.getSourceTime();
+        double value = bank.getValue(index);
+        Variant variant;
+
+        if (Identifiers.Boolean.equals(dataType)) {
+            variant = new Variant(value > 0);
+        } else if (Identifiers.Int32.equals(dataType)) {
+            variant = new Variant((int) value);
+        } else if (Identifiers.Int64.equals(dataType)) {
+            variant = new Variant((long) value);
+        } else {
+            variant = new Variant(value);
+        }
+
+        return new DataValue(variant, StatusCode.GOOD, sourceTime, DateTime.now());
+    }
+
+}
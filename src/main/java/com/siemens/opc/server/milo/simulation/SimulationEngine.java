@@ -0,0 +1,89 @@
+package com.siemens.opc.server.milo.simulation;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Ticks every {@link SignalBank} at its interval on one scheduler thread, and measures the update rate
+ * that each bank actually achieves.
+ */
+public class SimulationEngine implements AutoCloseable {
+
+    private static final long REPORT_INTERVAL_SECONDS = 10;
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final List<SignalBank> banks = new CopyOnWriteArrayList<>();
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "simulation");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public SimulationEngine() {
+        scheduler.scheduleAtFixedRate(
+            this::report, REPORT_INTERVAL_SECONDS, REPORT_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    public void start(SignalBank bank) {
+        banks.add(bank);
+
+        scheduler.scheduleAtFixedRate(bank, 0, bank.getIntervalMillis(), TimeUnit.MILLISECONDS);
+
+        logger.info(
+            "Simulating {} signals in {} every {}ms",
+            bank.getSize(), bank.getName(), bank.getIntervalMillis());
+    }
+
+    public List<SignalBank> getBanks() {
+        return banks;
+    }
+
+    /**
+     * @return signal updates per second of all banks, measured over the last report interval.
+     */
+    public double getAchievedUpdateRate() {
+        return banks.stream().mapToDouble(SignalBank::getAchievedUpdateRate).sum();
+    }
+
+    public double getConfiguredUpdateRate() {
+        return banks.stream().mapToDouble(SignalBank::getConfiguredUpdateRate).sum();
+    }
+
+    private void report() {
+        long now = System.nanoTime();
+
+        for (SignalBank bank : banks) {
+            bank.report(now);
+
+            double configured = bank.getConfiguredUpdateRate();
+            double achieved = bank.getAchievedUpdateRate();
+
+            if (achieved < configured * 0.95) {
+                logger.warn(
+                    "Simulation {} is falling behind: {} of {} updates/s",
+                    bank.getName(), Math.round(achieved), Math.round(configured));
+            } else {
+                logger.debug(
+                    "Simulation {}: {} of {} updates/s",
+                    bank.getName(), Math.round(achieved), Math.round(configured));
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+
+        long updates = banks.stream().mapToLong(SignalBank::getUpdates).sum();
+        logger.info("Simulation stopped after {} signal updates", updates);
+    }
+
+}
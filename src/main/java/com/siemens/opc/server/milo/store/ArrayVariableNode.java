@@ -0,0 +1,531 @@
+package com.siemens.opc.server.milo.store;
+
+import java.lang.reflect.Array;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.siemens.opc.server.milo.NodeTemplate;
+import com.siemens.opc.server.milo.ValueLoggingDelegate;
+import org.eclipse.milo.opcua.sdk.core.AccessLevel;
+import org.eclipse.milo.opcua.sdk.core.Reference;
+import org.eclipse.milo.opcua.sdk.server.api.ServerNodeMap;
+import org.eclipse.milo.opcua.sdk.server.nodes.AttributeContext;
+import org.eclipse.milo.opcua.sdk.server.nodes.AttributeObserver;
+import org.eclipse.milo.opcua.sdk.server.nodes.UaVariableNode;
+import org.eclipse.milo.opcua.sdk.server.nodes.delegates.AttributeDelegate;
+import org.eclipse.milo.opcua.sdk.server.util.AttributeUtil;
+import org.eclipse.milo.opcua.stack.core.AttributeId;
+import org.eclipse.milo.opcua.stack.core.Identifiers;
+import org.eclipse.milo.opcua.stack.core.StatusCodes;
+import org.eclipse.milo.opcua.stack.core.UaException;
+import org.eclipse.milo.opcua.stack.core.UaRuntimeException;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DateTime;
+import org.eclipse.milo.opcua.stack.core.types.builtin.LocalizedText;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.eclipse.milo.opcua.stack.core.types.builtin.QualifiedName;
+import org.eclipse.milo.opcua.stack.core.types.builtin.StatusCode;
+import org.eclipse.milo.opcua.stack.core.types.builtin.Variant;
+import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UByte;
+import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UInteger;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.NodeClass;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.TimestampsToReturn;
+
+import static org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.Unsigned.uint;
+
+/**
+ * A one or two dimensional array variable whose elements live in a primitive array, as the raw bits of their
+ * {@link ValueKind}; two dimensional arrays are stored row by row. Reads and writes of the Value with an
+ * IndexRange only touch the requested slice, only a read of the whole value builds an array of all elements.
+ * Reads and writes with an IndexRange check the access levels the attribute delegate of the node returns, but
+ * don't get or set the value through it; if the delegate is a {@link ValueLoggingDelegate}, they are logged
+ * with it like reads and writes of the whole value.
+ * <p>
+ * Observers are handed a {@link Change} with the elements that changed instead of a {@link DataValue}, so a
+ * monitored item on a slice that did not change can be skipped and the whole value is only built if some item
+ * needs it. An {@link AttributeObserver} of the Value of this node must expect a {@code Change} and read the
+ * value with {@link #getValue()} if it needs it.
+ */
+public class ArrayVariableNode extends UaVariableNode {
+
+    private final ValueKind kind;
+    private final Class<?> elementType;
+    private final int[] dimensions;
+    private final long[] elements;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private long status = StatusCode.GOOD.getValue();
+    private long sourceTime;
+
+    private volatile int observerCount;
+    private volatile AttributeDelegate attributeDelegate;
+
+    /**
+     * @param dimensions the length of a one dimensional array, or the rows and columns of a two dimensional one.
+     * @param initial    the value of every element.
+     */
+    public ArrayVariableNode(
+        ServerNodeMap nodeMap,
+        NodeId nodeId,
+        QualifiedName browseName,
+        LocalizedText displayName,
+        ValueKind kind,
+        int[] dimensions,
+        UByte accessLevel,
+        UByte userAccessLevel,
+        double initial) {
+
+        super(nodeMap, nodeId, browseName, displayName, LocalizedText.NULL_VALUE, uint(0), uint(0),
+            null, kind.getDataType(), dimensions.length, arrayDimensions(dimensions), accessLevel, userAccessLevel,
+            NodeTemplate.MINIMUM_SAMPLING_INTERVAL, false);
+
+        if (dimensions.length < 1 || dimensions.length > 2) {
+            throw new IllegalArgumentException("only one and two dimensional arrays are supported");
+        }
+
+        this.kind = kind;
+        this.elementType = kind.getJavaType();
+        this.dimensions = dimensions.clone();
+        this.elements = new long[elementCount(dimensions)];
+        this.sourceTime = DateTime.now().getUtcTime();
+
+        Arrays.fill(elements, kind.toBits(initial));
+
+        addReference(new Reference(
+            nodeId,
+            Identifiers.HasTypeDefinition,
+            NodeTemplate.TYPE_DEFINITION,
+            NodeClass.VariableType,
+            true
+        ));
+    }
+
+    /**
+     * @return the number of elements of an array with these dimensions.
+     * @throws IllegalArgumentException if a dimension is not positive or there are more elements than an int
+     *                                  can count.
+     */
+    public static int elementCount(int[] dimensions) {
+        int count = 1;
+
+        for (int dimension : dimensions) {
+            if (dimension <= 0) {
+                throw new IllegalArgumentException("array dimensions must be positive: " + Arrays.toString(dimensions));
+            }
+
+            try {
+                count = Math.multiplyExact(count, dimension);
+            } catch (ArithmeticException e) {
+                throw new IllegalArgumentException("too many array elements: " + Arrays.toString(dimensions));
+            }
+        }
+
+        return count;
+    }
+
+    private static UInteger[] arrayDimensions(int[] dimensions) {
+        UInteger[] arrayDimensions = new UInteger[dimensions.length];
+        for (int i = 0; i < dimensions.length; i++) {
+            arrayDimensions[i] = uint(dimensions[i]);
+        }
+        return arrayDimensions;
+    }
+
+    public ValueKind getKind() {
+        return kind;
+    }
+
+    public int[] getDimensions() {
+        return dimensions.clone();
+    }
+
+    @Override
+    public DataValue getValue() {
+        lock.readLock().lock();
+        try {
+            Object value;
+
+            if (dimensions.length == 1) {
+                value = slice(0, elements.length);
+            } else {
+                value = Array.newInstance(elementType, dimensions[0], dimensions[1]);
+                for (int row = 0; row < dimensions[0]; row++) {
+                    Array.set(value, row, slice(row * dimensions[1], dimensions[1]));
+                }
+            }
+
+            return dataValue(value);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @throws UaRuntimeException with Bad_TypeMismatch if the value is not an array of the dimensions of the
+     *                            node, or its elements don't fit its kind.
+     */
+    @Override
+    public void setValue(DataValue value) {
+        Object array = value.getValue() != null ? value.getValue().getValue() : null;
+        long[] bits = new long[elements.length];
+
+        try {
+            if (dimensions.length == 1) {
+                toBits(array, bits, 0, dimensions[0]);
+            } else {
+                checkLength(array, dimensions[0]);
+                for (int row = 0; row < dimensions[0]; row++) {
+                    toBits(Array.get(array, row), bits, row * dimensions[1], dimensions[1]);
+                }
+            }
+        } catch (UaException e) {
+            throw new UaRuntimeException(e.getStatusCode().getValue(), e);
+        }
+
+        lock.writeLock().lock();
+        try {
+            System.arraycopy(bits, 0, elements, 0, bits.length);
+            status = value.getStatusCode() != null ? value.getStatusCode().getValue() : StatusCode.GOOD.getValue();
+            sourceTime = value.getSourceTime() != null ? value.getSourceTime().getUtcTime() : DateTime.now().getUtcTime();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        changed(0, elements.length - 1);
+    }
+
+    /**
+     * Sets {@code values.length} elements, starting at the flat index {@code offset}, with a good status and the
+     * current time. Observers get one {@link Change} for all of them.
+     */
+    public void setDoubles(int offset, double[] values) {
+        if (offset < 0 || offset + values.length > elements.length) {
+            throw new IndexOutOfBoundsException("offset=" + offset + " length=" + values.length);
+        }
+        if (values.length == 0) {
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < values.length; i++) {
+                elements[offset + i] = kind.toBits(values[i]);
+            }
+            status = StatusCode.GOOD.getValue();
+            sourceTime = DateTime.now().getUtcTime();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        changed(offset, offset + values.length - 1);
+    }
+
+    @Override
+    public void setAttributeDelegate(AttributeDelegate attributeDelegate) {
+        super.setAttributeDelegate(attributeDelegate);
+        this.attributeDelegate = attributeDelegate;
+    }
+
+    @Override
+    public DataValue readAttribute(
+        AttributeContext context,
+        UInteger attributeId,
+        TimestampsToReturn timestamps,
+        String indexRange,
+        QualifiedName dataEncoding) {
+
+        // anything the slice path does not handle, including access errors, is left to the generic reader
+        if (indexRange == null || indexRange.isEmpty() || !AttributeId.Value.uid().equals(attributeId)
+            || !allows(context, AccessLevel.CurrentRead)) {
+
+            return super.readAttribute(context, attributeId, timestamps, indexRange, dataEncoding);
+        }
+
+        try {
+            DataValue value = readRange(parseRange(indexRange));
+
+            AttributeDelegate delegate = attributeDelegate;
+            if (delegate instanceof ValueLoggingDelegate) {
+                ((ValueLoggingDelegate) delegate).logRead(context, this, value);
+            }
+
+            return DataValue.derivedValue(value, timestamps);
+        } catch (UaException e) {
+            return new DataValue(e.getStatusCode());
+        }
+    }
+
+    @Override
+    public void writeAttribute(
+        AttributeContext context,
+        UInteger attributeId,
+        DataValue value,
+        String indexRange) throws UaException {
+
+        if (indexRange == null || indexRange.isEmpty() || !AttributeId.Value.uid().equals(attributeId)
+            || !allows(context, AccessLevel.CurrentWrite)) {
+
+            super.writeAttribute(context, attributeId, value, indexRange);
+            return;
+        }
+
+        long status = StatusCode.GOOD.getValue();
+        try {
+            writeRange(parseRange(indexRange), value);
+        } catch (UaException e) {
+            status = e.getStatusCode().getValue();
+            throw e;
+        } finally {
+            AttributeDelegate delegate = attributeDelegate;
+            if (delegate instanceof ValueLoggingDelegate) {
+                ((ValueLoggingDelegate) delegate).logWrite(context, this, value, status);
+            }
+        }
+    }
+
+    /**
+     * @return whether the access levels and the user access levels the attribute delegate returns for the
+     * context include this one; false if they can't be read, so the generic reader or writer reports why.
+     */
+    private boolean allows(AttributeContext context, AccessLevel accessLevel) {
+        try {
+            return AttributeUtil.getAccessLevels(this, context).contains(accessLevel)
+                && AttributeUtil.getUserAccessLevels(this, context).contains(accessLevel);
+        } catch (UaException e) {
+            return false;
+        }
+    }
+
+    private DataValue readRange(int[][] bounds) throws UaException {
+        if (bounds.length != dimensions.length) {
+            throw new UaException(StatusCodes.Bad_IndexRangeInvalid);
+        }
+
+        lock.readLock().lock();
+        try {
+            if (dimensions.length == 1) {
+                int low = low(bounds[0], dimensions[0]);
+
+                return dataValue(slice(low, high(bounds[0], dimensions[0]) - low + 1));
+            }
+
+            int firstRow = low(bounds[0], dimensions[0]);
+            int rows = high(bounds[0], dimensions[0]) - firstRow + 1;
+            int firstColumn = low(bounds[1], dimensions[1]);
+            int columns = high(bounds[1], dimensions[1]) - firstColumn + 1;
+
+            Object value = Array.newInstance(elementType, rows, columns);
+            for (int row = 0; row < rows; row++) {
+                Array.set(value, row, slice((firstRow + row) * dimensions[1] + firstColumn, columns));
+            }
+
+            return dataValue(value);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void writeRange(int[][] bounds, DataValue value) throws UaException {
+        Object array = value.getValue() != null ? value.getValue().getValue() : null;
+
+        if (bounds.length != dimensions.length) {
+            throw new UaException(StatusCodes.Bad_IndexRangeInvalid);
+        }
+
+        int firstRow = 0;
+        int rows = 1;
+        int columns = dimensions[dimensions.length - 1];
+        int firstColumn = low(bounds[bounds.length - 1], columns);
+        int width = bounds[bounds.length - 1][1] - firstColumn + 1;
+
+        if (dimensions.length == 2) {
+            firstRow = low(bounds[0], dimensions[0]);
+            rows = bounds[0][1] - firstRow + 1;
+        }
+
+        // a write must fit the array, unlike a read it is not cut off at the end
+        if (firstRow + rows > (dimensions.length == 2 ? dimensions[0] : 1) || firstColumn + width > columns) {
+            throw new UaException(StatusCodes.Bad_IndexRangeNoData);
+        }
+
+        // only the slice is converted, the elements are replaced under the lock
+        long[] bits = new long[rows * width];
+
+        if (dimensions.length == 1) {
+            toBits(array, bits, 0, width);
+        } else {
+            checkLength(array, rows);
+            for (int row = 0; row < rows; row++) {
+                toBits(Array.get(array, row), bits, row * width, width);
+            }
+        }
+
+        lock.writeLock().lock();
+        try {
+            for (int row = 0; row < rows; row++) {
+                System.arraycopy(bits, row * width, elements, (firstRow + row) * columns + firstColumn, width);
+            }
+            status = StatusCode.GOOD.getValue();
+            sourceTime = value.getSourceTime() != null ? value.getSourceTime().getUtcTime() : DateTime.now().getUtcTime();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        changed(firstRow * columns + firstColumn, (firstRow + rows - 1) * columns + firstColumn + width - 1);
+    }
+
+    /**
+     * Parses an IndexRange into the low and high index of each dimension, e.g. {@code "2:5,0"} into
+     * {@code {{2, 5}, {0, 0}}}.
+     *
+     * @throws UaException with Bad_IndexRangeInvalid if it is not a valid IndexRange.
+     */
+    static int[][] parseRange(String indexRange) throws UaException {
+        String[] ranges = indexRange.split(",", -1);
+        int[][] bounds = new int[ranges.length][];
+
+        for (int i = 0; i < ranges.length; i++) {
+            String range = ranges[i];
+            int colon = range.indexOf(':');
+
+            int low = index(colon < 0 ? range : range.substring(0, colon));
+            int high = colon < 0 ? low : index(range.substring(colon + 1));
+
+            if (colon >= 0 && high <= low) {
+                throw new UaException(StatusCodes.Bad_IndexRangeInvalid);
+            }
+
+            bounds[i] = new int[] {low, high};
+        }
+
+        return bounds;
+    }
+
+    private static int index(String index) throws UaException {
+        if (index.isEmpty() || !Character.isDigit(index.charAt(0))) {
+            throw new UaException(StatusCodes.Bad_IndexRangeInvalid);
+        }
+
+        try {
+            return Integer.parseInt(index);
+        } catch (NumberFormatException e) {
+            throw new UaException(StatusCodes.Bad_IndexRangeInvalid, e);
+        }
+    }
+
+    private static int low(int[] bounds, int length) throws UaException {
+        if (bounds[0] >= length) {
+            throw new UaException(StatusCodes.Bad_IndexRangeNoData);
+        }
+        return bounds[0];
+    }
+
+    private static int high(int[] bounds, int length) {
+        return Math.min(bounds[1], length - 1);
+    }
+
+    private Object slice(int offset, int length) {
+        Object slice = Array.newInstance(elementType, length);
+        for (int i = 0; i < length; i++) {
+            Array.set(slice, i, kind.fromBits(elements[offset + i]));
+        }
+        return slice;
+    }
+
+    private void toBits(Object array, long[] bits, int offset, int length) throws UaException {
+        checkLength(array, length);
+
+        try {
+            for (int i = 0; i < length; i++) {
+                bits[offset + i] = kind.toBits(Array.get(array, i));
+            }
+        } catch (IllegalArgumentException e) {
+            throw new UaException(StatusCodes.Bad_TypeMismatch, e);
+        }
+    }
+
+    private static void checkLength(Object array, int length) throws UaException {
+        if (array == null || !array.getClass().isArray() || Array.getLength(array) != length) {
+            throw new UaException(StatusCodes.Bad_TypeMismatch);
+        }
+    }
+
+    // called with the lock held
+    private DataValue dataValue(Object value) {
+        DateTime time = new DateTime(sourceTime);
+
+        return new DataValue(new Variant(value), new StatusCode(status), time, time);
+    }
+
+    private void changed(int first, int last) {
+        if (observerCount > 0) {
+            fireAttributeChanged(AttributeId.Value, new Change(first, last));
+        }
+    }
+
+    @Override
+    public synchronized void addAttributeObserver(AttributeObserver observer) {
+        super.addAttributeObserver(observer);
+        observerCount++;
+    }
+
+    @Override
+    public synchronized void removeAttributeObserver(AttributeObserver observer) {
+        super.removeAttributeObserver(observer);
+        observerCount = Math.max(0, observerCount - 1);
+    }
+
+    /**
+     * The flat indexes of the first and last element of a change; the elements in between may not all have
+     * changed.
+     */
+    public final class Change {
+        private final int first;
+        private final int last;
+
+        Change(int first, int last) {
+            this.first = first;
+            this.last = last;
+        }
+
+        public int getFirst() {
+            return first;
+        }
+
+        public int getLast() {
+            return last;
+        }
+
+        /**
+         * @return false only if the change surely missed every element of the IndexRange.
+         */
+        public boolean overlaps(String indexRange) {
+            int[][] bounds;
+            try {
+                bounds = parseRange(indexRange);
+            } catch (UaException e) {
+                return true;
+            }
+
+            if (bounds.length != dimensions.length) {
+                return true;
+            }
+
+            if (dimensions.length == 1) {
+                return bounds[0][0] <= last && bounds[0][1] >= first;
+            }
+
+            int columns = dimensions[1];
+            int firstRow = first / columns;
+            int lastRow = last / columns;
+
+            if (bounds[0][0] > lastRow || bounds[0][1] < firstRow) {
+                return false;
+            }
+
+            return firstRow != lastRow || bounds[1][0] <= last % columns && bounds[1][1] >= first % columns;
+        }
+    }
+
+}
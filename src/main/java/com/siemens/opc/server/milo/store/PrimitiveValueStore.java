@@ -0,0 +1,194 @@
+package com.siemens.opc.server.milo.store;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.eclipse.milo.opcua.stack.core.StatusCodes;
+import org.eclipse.milo.opcua.stack.core.UaRuntimeException;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DateTime;
+import org.eclipse.milo.opcua.stack.core.types.builtin.StatusCode;
+import org.eclipse.milo.opcua.stack.core.types.builtin.Variant;
+
+/**
+ * Values of scalar numeric and boolean variables in primitive arrays, indexed by a dense handle. Each value
+ * is kept as its raw bits, a status code and a source timestamp; a {@link DataValue} is only built when the
+ * value is read.
+ * <p>
+ * A per-handle sequence number makes every value, status and timestamp triple consistent for readers
+ * without locking; writers to the same handle are serialized by the sequence number as well.
+ */
+public class PrimitiveValueStore {
+
+    // set in the status slot when the value itself is null
+    private static final long NULL_VALUE = 1L << 32;
+    private static final long STATUS_MASK = 0xFFFFFFFFL;
+
+    // milliseconds between 1601-01-01, the epoch of DateTime, and the Java epoch
+    private static final long EPOCH_OFFSET_MILLIS = 11644473600000L;
+
+    private final ValueKind[] kinds;
+    private final long[] keys;
+    private final AtomicLongArray sequences;
+    private final AtomicLongArray values;
+    private final AtomicLongArray statuses;
+    private final AtomicLongArray sourceTimes;
+
+    private final AtomicInteger size = new AtomicInteger();
+
+    public PrimitiveValueStore(int capacity) {
+        kinds = new ValueKind[capacity];
+        keys = new long[capacity];
+        sequences = new AtomicLongArray(capacity);
+        values = new AtomicLongArray(capacity);
+        statuses = new AtomicLongArray(capacity);
+        sourceTimes = new AtomicLongArray(capacity);
+    }
+
+    /**
+     * @param key identifies the value across restarts, see {@link ValueSnapshot}.
+     * @return the handle of a new value of the given kind, initially {@code initial}.
+     * @throws IllegalStateException if the store is full.
+     */
+    public int allocate(long key, ValueKind kind, DataValue initial) {
+        int handle = size.getAndIncrement();
+
+        if (handle >= kinds.length) {
+            size.decrementAndGet();
+            throw new IllegalStateException("value store is full: capacity=" + kinds.length);
+        }
+
+        kinds[handle] = kind;
+        keys[handle] = key;
+        set(handle, initial);
+
+        return handle;
+    }
+
+    public ValueKind getKind(int handle) {
+        return kinds[handle];
+    }
+
+    long getKey(int handle) {
+        return keys[handle];
+    }
+
+    long getSequence(int handle) {
+        return sequences.get(handle);
+    }
+
+    /**
+     * Copies the raw bits, status and source time of a value into {@code record} without blocking writers.
+     *
+     * @return the sequence number of the copied value.
+     */
+    long read(int handle, long[] record) {
+        long sequence;
+
+        do {
+            sequence = sequences.get(handle);
+            while ((sequence & 1) != 0) {
+                sequence = sequences.get(handle);
+            }
+
+            record[0] = values.get(handle);
+            record[1] = statuses.get(handle);
+            record[2] = sourceTimes.get(handle);
+        } while (sequences.get(handle) != sequence);
+
+        return sequence;
+    }
+
+    /**
+     * Sets the raw bits, status and source time previously copied by {@link #read(int, long[])}.
+     */
+    void restore(int handle, long bits, long status, long sourceTime) {
+        write(handle, bits, status, sourceTime);
+    }
+
+    public DataValue get(int handle) {
+        long sequence;
+        long bits;
+        long status;
+        long sourceTime;
+
+        do {
+            sequence = sequences.get(handle);
+            while ((sequence & 1) != 0) {
+                sequence = sequences.get(handle);
+            }
+
+            bits = values.get(handle);
+            status = statuses.get(handle);
+            sourceTime = sourceTimes.get(handle);
+        } while (sequences.get(handle) != sequence);
+
+        Variant variant = (status & NULL_VALUE) != 0 ?
+            Variant.NULL_VALUE : new Variant(kinds[handle].fromBits(bits));
+        DateTime time = sourceTime != 0 ? new DateTime(sourceTime) : null;
+
+        return new DataValue(variant, new StatusCode(status & STATUS_MASK), time, time);
+    }
+
+    /**
+     * @throws UaRuntimeException with Bad_TypeMismatch if the value does not fit the kind of the handle.
+     */
+    public void set(int handle, DataValue value) {
+        Object object = value.getValue() != null ? value.getValue().getValue() : null;
+        long status = value.getStatusCode() != null ? value.getStatusCode().getValue() : StatusCode.GOOD.getValue();
+        long sourceTime = value.getSourceTime() != null ? value.getSourceTime().getUtcTime() : 0;
+
+        if (object == null) {
+            write(handle, 0, status | NULL_VALUE, sourceTime);
+        } else {
+            long bits;
+            try {
+                bits = kinds[handle].toBits(object);
+            } catch (IllegalArgumentException e) {
+                throw new UaRuntimeException(StatusCodes.Bad_TypeMismatch, e);
+            }
+
+            write(handle, bits, status, sourceTime);
+        }
+    }
+
+    /**
+     * Sets a good value of any kind with the current time, without creating any objects.
+     */
+    public void setDouble(int handle, double value) {
+        write(handle, kinds[handle].toBits(value), StatusCode.GOOD.getValue(), utcNow());
+    }
+
+    /**
+     * Sets a good value of any kind with the current time, without creating any objects.
+     */
+    public void setLong(int handle, long value) {
+        write(handle, kinds[handle].toBits(value), StatusCode.GOOD.getValue(), utcNow());
+    }
+
+    private static long utcNow() {
+        return (System.currentTimeMillis() + EPOCH_OFFSET_MILLIS) * 10000;
+    }
+
+    private void write(int handle, long bits, long status, long sourceTime) {
+        long sequence;
+        do {
+            sequence = sequences.get(handle);
+        } while ((sequence & 1) != 0 || !sequences.compareAndSet(handle, sequence, sequence + 1));
+
+        values.set(handle, bits);
+        statuses.set(handle, status);
+        sourceTimes.set(handle, sourceTime);
+
+        sequences.set(handle, sequence + 2);
+    }
+
+    public int size() {
+        return Math.min(size.get(), kinds.length);
+    }
+
+    public int capacity() {
+        return kinds.length;
+    }
+
+}
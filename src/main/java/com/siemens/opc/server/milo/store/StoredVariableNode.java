@@ -0,0 +1,112 @@
+package com.siemens.opc.server.milo.store;
+
+import com.siemens.opc.server.milo.NodeTemplate;
+import org.eclipse.milo.opcua.sdk.core.Reference;
+import org.eclipse.milo.opcua.sdk.core.ValueRank;
+import org.eclipse.milo.opcua.sdk.server.api.ServerNodeMap;
+import org.eclipse.milo.opcua.sdk.server.nodes.AttributeObserver;
+import org.eclipse.milo.opcua.sdk.server.nodes.UaVariableNode;
+import org.eclipse.milo.opcua.stack.core.AttributeId;
+import org.eclipse.milo.opcua.stack.core.Identifiers;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
+import org.eclipse.milo.opcua.stack.core.types.builtin.LocalizedText;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.eclipse.milo.opcua.stack.core.types.builtin.QualifiedName;
+import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UByte;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.NodeClass;
+
+import static org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.Unsigned.uint;
+
+/**
+ * A scalar variable whose value lives in a {@link PrimitiveValueStore} instead of a {@link DataValue} field.
+ * Observers are only handed a {@link DataValue} when there are any, so {@link #setDouble(double)} and
+ * {@link #setLong(long)} update unobserved nodes without creating objects.
+ */
+public class StoredVariableNode extends UaVariableNode {
+
+    private final PrimitiveValueStore store;
+    private final int handle;
+
+    private volatile int observerCount;
+
+    public StoredVariableNode(
+        ServerNodeMap nodeMap,
+        NodeId nodeId,
+        QualifiedName browseName,
+        LocalizedText displayName,
+        NodeId dataType,
+        UByte accessLevel,
+        UByte userAccessLevel,
+        PrimitiveValueStore store,
+        DataValue initialValue) {
+
+        super(nodeMap, nodeId, browseName, displayName, LocalizedText.NULL_VALUE, uint(0), uint(0),
+            null, dataType, ValueRank.Scalar.getValue(), null, accessLevel, userAccessLevel,
+            NodeTemplate.MINIMUM_SAMPLING_INTERVAL, false);
+
+        this.store = store;
+        this.handle = store.allocate(ValueSnapshot.key(nodeId), ValueKind.forDataType(dataType), initialValue);
+
+        addReference(new Reference(
+            nodeId,
+            Identifiers.HasTypeDefinition,
+            NodeTemplate.TYPE_DEFINITION,
+            NodeClass.VariableType,
+            true
+        ));
+    }
+
+    /**
+     * @return true if a {@link PrimitiveValueStore} can hold scalar values of the data type.
+     */
+    public static boolean isStorable(NodeId dataType) {
+        return ValueKind.forDataType(dataType) != null;
+    }
+
+    @Override
+    public DataValue getValue() {
+        return store.get(handle);
+    }
+
+    @Override
+    public void setValue(DataValue value) {
+        store.set(handle, value);
+
+        if (observerCount > 0) {
+            fireAttributeChanged(AttributeId.Value, value);
+        }
+    }
+
+    public void setDouble(double value) {
+        store.setDouble(handle, value);
+
+        if (observerCount > 0) {
+            fireAttributeChanged(AttributeId.Value, store.get(handle));
+        }
+    }
+
+    public void setLong(long value) {
+        store.setLong(handle, value);
+
+        if (observerCount > 0) {
+            fireAttributeChanged(AttributeId.Value, store.get(handle));
+        }
+    }
+
+    @Override
+    public synchronized void addAttributeObserver(AttributeObserver observer) {
+        super.addAttributeObserver(observer);
+        observerCount++;
+    }
+
+    @Override
+    public synchronized void removeAttributeObserver(AttributeObserver observer) {
+        super.removeAttributeObserver(observer);
+        observerCount = Math.max(0, observerCount - 1);
+    }
+
+    public int getHandle() {
+        return handle;
+    }
+
+}
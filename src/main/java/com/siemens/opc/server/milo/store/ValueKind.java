@@ -0,0 +1,165 @@
+package com.siemens.opc.server.milo.store;
+
+import org.eclipse.milo.opcua.stack.core.Identifiers;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UByte;
+import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UInteger;
+import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.ULong;
+import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UShort;
+
+import static org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.Unsigned.ubyte;
+import static org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.Unsigned.uint;
+import static org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.Unsigned.ulong;
+import static org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.Unsigned.ushort;
+
+/**
+ * The scalar data types a {@link PrimitiveValueStore} can hold, and their conversion to and from the raw
+ * 64 bits kept per value. Values are only accepted as the class a variant of the kind holds; a number of another
+ * class is not converted, so that it is never narrowed silently.
+ */
+public enum ValueKind {
+    BOOLEAN(Identifiers.Boolean, Boolean.class),
+    SBYTE(Identifiers.SByte, Byte.class),
+    BYTE(Identifiers.Byte, UByte.class),
+    INT16(Identifiers.Int16, Short.class),
+    UINT16(Identifiers.UInt16, UShort.class),
+    INT32(Identifiers.Int32, Integer.class),
+    UINT32(Identifiers.UInt32, UInteger.class),
+    INT64(Identifiers.Int64, Long.class),
+    UINT64(Identifiers.UInt64, ULong.class),
+    FLOAT(Identifiers.Float, Float.class),
+    DOUBLE(Identifiers.Double, Double.class);
+
+    private static final ValueKind[] VALUES = values();
+
+    private final NodeId dataType;
+    private final Class<?> javaType;
+
+    ValueKind(NodeId dataType, Class<?> javaType) {
+        this.dataType = dataType;
+        this.javaType = javaType;
+    }
+
+    public NodeId getDataType() {
+        return dataType;
+    }
+
+    /**
+     * @return the class of the values a variant of this kind holds.
+     */
+    public Class<?> getJavaType() {
+        return javaType;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the value is not of the class of this kind.
+     */
+    long toBits(Object value) {
+        if (!javaType.isInstance(value)) {
+            throw new IllegalArgumentException(
+                "a " + (value != null ? value.getClass().getSimpleName() : "null") + " is not a " + this + " value");
+        }
+
+        if (this == BOOLEAN) {
+            return ((Boolean) value) ? 1 : 0;
+        }
+
+        Number number = (Number) value;
+
+        return this == FLOAT || this == DOUBLE ? toBits(number.doubleValue()) : toBits(number.longValue());
+    }
+
+    long toBits(double value) {
+        switch (this) {
+            case FLOAT:
+                return Float.floatToRawIntBits((float) value);
+            case DOUBLE:
+                return Double.doubleToRawLongBits(value);
+            default:
+                return toBits((long) value);
+        }
+    }
+
+    long toBits(long value) {
+        switch (this) {
+            case BOOLEAN:
+                return value != 0 ? 1 : 0;
+            case SBYTE:
+                return (byte) value;
+            case BYTE:
+                return value & 0xFF;
+            case INT16:
+                return (short) value;
+            case UINT16:
+                return value & 0xFFFF;
+            case INT32:
+                return (int) value;
+            case UINT32:
+                return value & 0xFFFFFFFFL;
+            case FLOAT:
+                return Float.floatToRawIntBits(value);
+            case DOUBLE:
+                return Double.doubleToRawLongBits(value);
+            default:
+                return value;
+        }
+    }
+
+    Object fromBits(long bits) {
+        switch (this) {
+            case BOOLEAN:
+                return bits != 0;
+            case SBYTE:
+                return (byte) bits;
+            case BYTE:
+                return ubyte(bits);
+            case INT16:
+                return (short) bits;
+            case UINT16:
+                return ushort((int) bits);
+            case INT32:
+                return (int) bits;
+            case UINT32:
+                return uint(bits);
+            case INT64:
+                return bits;
+            case UINT64:
+                return ulong(bits);
+            case FLOAT:
+                return Float.intBitsToFloat((int) bits);
+            default:
+                return Double.longBitsToDouble(bits);
+        }
+    }
+
+    /**
+     * @throws ClassCastException if the value does not fit this kind.
+     */
+    public double toDouble(Object value) {
+        if (this == BOOLEAN) {
+            return ((Boolean) value) ? 1 : 0;
+        }
+
+        return ((Number) value).doubleValue();
+    }
+
+    /**
+     * @return the value converted to this kind, as the object a variant of the data type holds.
+     */
+    public Object fromDouble(double value) {
+        return fromBits(toBits(value));
+    }
+
+    /**
+     * @return the kind for a scalar data type, or null if the store can't hold it.
+     */
+    public static ValueKind forDataType(NodeId dataType) {
+        for (ValueKind kind : VALUES) {
+            if (kind.dataType.equals(dataType)) {
+                return kind;
+            }
+        }
+
+        return null;
+    }
+}
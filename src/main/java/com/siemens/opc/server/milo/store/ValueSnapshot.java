@@ -0,0 +1,215 @@
+package com.siemens.opc.server.milo.store;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.hash.Hashing;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps a copy of every value of a {@link PrimitiveValueStore} in a memory-mapped file, so that a restarted
+ * server can come back with the last known values.
+ * <p>
+ * The file holds one fixed-size record per handle. Each {@link #write()} copies only the values whose
+ * sequence number changed since the previous one; values are read like any other reader of the store, so
+ * writers are never blocked. Records carry a hash of the node id, so a snapshot still applies after tags were
+ * added or removed.
+ */
+public class ValueSnapshot implements AutoCloseable {
+
+    private static final long MAGIC = 0x4F5043534E415031L; // "OPCSNAP1"
+    private static final int VERSION = 1;
+
+    private static final int HEADER_BYTES = 16;
+    private static final int RECORD_BYTES = 40;
+
+    // record layout: key, kind, bits, status, source time
+    private static final int KEY = 0;
+    private static final int KIND = 8;
+    private static final int BITS = 16;
+    private static final int STATUS = 24;
+    private static final int SOURCE_TIME = 32;
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final PrimitiveValueStore store;
+    private final Path file;
+    private final long[] writtenSequences;
+    private final long[] record = new long[3];
+
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+
+    public ValueSnapshot(PrimitiveValueStore store, Path file) {
+        this.store = store;
+        this.file = file;
+        this.writtenSequences = new long[store.capacity()];
+
+        // nothing has been written yet, an even sequence never equals -1
+        Arrays.fill(writtenSequences, -1);
+    }
+
+    /**
+     * The key of a value in the store and in snapshot files.
+     */
+    public static long key(NodeId nodeId) {
+        return Hashing.murmur3_128().hashString(nodeId.toParseableString(), StandardCharsets.UTF_8).asLong();
+    }
+
+    /**
+     * Loads the values of an existing snapshot file into the store. Values without a record of the same key
+     * and kind keep their initial value.
+     *
+     * @return the number of restored values.
+     */
+    public int restore() throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+
+        long start = System.nanoTime();
+        int restored = 0;
+
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer snapshot = in.map(FileChannel.MapMode.READ_ONLY, 0, in.size());
+
+            if (in.size() < HEADER_BYTES || snapshot.getLong(0) != MAGIC || snapshot.getInt(8) != VERSION) {
+                logger.warn("Ignoring {}, it is not a value snapshot", file);
+                return 0;
+            }
+
+            int records = Math.min(snapshot.getInt(12), (int) ((in.size() - HEADER_BYTES) / RECORD_BYTES));
+            Map<Long, Integer> slots = null;
+
+            for (int handle = 0; handle < store.size(); handle++) {
+                long key = store.getKey(handle);
+                int slot = handle;
+
+                // the records are in handle order unless the tags changed since the snapshot was taken
+                if (slot >= records || snapshot.getLong(offset(slot) + KEY) != key) {
+                    if (slots == null) {
+                        slots = slots(snapshot, records);
+                    }
+                    Integer s = slots.get(key);
+                    if (s == null) {
+                        continue;
+                    }
+                    slot = s;
+                }
+
+                int offset = offset(slot);
+                if (snapshot.getLong(offset + KIND) == kind(handle)) {
+                    store.restore(
+                        handle,
+                        snapshot.getLong(offset + BITS),
+                        snapshot.getLong(offset + STATUS),
+                        snapshot.getLong(offset + SOURCE_TIME));
+                    restored++;
+                }
+            }
+        }
+
+        logger.info(
+            "Restored {} of {} values from {} in {}ms",
+            restored, store.size(), file, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+        return restored;
+    }
+
+    /**
+     * Copies the values that changed since the last call into the file.
+     *
+     * @return the number of copied values.
+     */
+    public synchronized int write() throws IOException {
+        if (buffer == null) {
+            open();
+        }
+
+        int size = store.size();
+        int written = 0;
+
+        for (int handle = 0; handle < size; handle++) {
+            if (store.getSequence(handle) == writtenSequences[handle]) {
+                continue;
+            }
+
+            long sequence = store.read(handle, record);
+            int offset = offset(handle);
+
+            buffer.putLong(offset + KEY, store.getKey(handle));
+            buffer.putLong(offset + KIND, kind(handle));
+            buffer.putLong(offset + BITS, record[0]);
+            buffer.putLong(offset + STATUS, record[1]);
+            buffer.putLong(offset + SOURCE_TIME, record[2]);
+
+            writtenSequences[handle] = sequence;
+            written++;
+        }
+
+        if (written > 0) {
+            buffer.force();
+        }
+
+        return written;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+            buffer = null;
+        }
+    }
+
+    private void open() throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+
+        // records of the previous snapshot are keyed, so overwriting them in place is safe at any point
+        long size = HEADER_BYTES + (long) RECORD_BYTES * store.capacity();
+        channel = FileChannel.open(
+            file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (channel.size() > size) {
+            channel.truncate(size);
+        }
+
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        buffer.putLong(0, MAGIC);
+        buffer.putInt(8, VERSION);
+        buffer.putInt(12, store.capacity());
+    }
+
+    private long kind(int handle) {
+        return store.getKind(handle).ordinal() + 1;
+    }
+
+    private static Map<Long, Integer> slots(MappedByteBuffer snapshot, int records) {
+        Map<Long, Integer> slots = new HashMap<>(records * 2);
+
+        for (int slot = 0; slot < records; slot++) {
+            slots.put(snapshot.getLong(offset(slot) + KEY), slot);
+        }
+
+        return slots;
+    }
+
+    private static int offset(int slot) {
+        return HEADER_BYTES + slot * RECORD_BYTES;
+    }
+
+}
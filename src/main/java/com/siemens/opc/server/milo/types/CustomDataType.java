@@ -13,8 +13,11 @@ import static org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.Unsigned.
 
 public class CustomDataType {
 
+    @StructureField(order = 0)
     private final String foo;
+    @StructureField(order = 1)
     private final UInteger bar;
+    @StructureField(order = 2)
     private final boolean baz;
 
     public CustomDataType() {
@@ -0,0 +1,37 @@
+package com.siemens.opc.server.milo.types;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * A field of a structured data type. The {@code StructureCodecProcessor} generates a codec {@code FooCodec} for
+ * a class {@code Foo} with such fields, see {@link CustomDataType}.
+ */
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.FIELD)
+public @interface StructureField {
+
+    /**
+     * The encoding of an integer field, by default the signed type of its Java type.
+     */
+    enum Encoding {
+        DEFAULT, SBYTE, BYTE, INT16, UINT16, INT32, UINT32, INT64, UINT64
+    }
+
+    /**
+     * @return the position of the field in the encoding; fields are encoded in ascending order.
+     */
+    int order();
+
+    /**
+     * @return the name of the field in the encoding, by default the field name starting with a capital letter.
+     */
+    String name() default "";
+
+    /**
+     * @return the encoding of a primitive integer field, e.g. {@code UINT32} for a {@code long}.
+     */
+    Encoding encoding() default Encoding.DEFAULT;
+}
@@ -0,0 +1,365 @@
+package com.siemens.opc.server.milo.types;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+
+/**
+ * Generates a codec for every class with {@code @StructureField} fields: {@code FooCodec} for a class
+ * {@code Foo}, in its package, a {@code GenericDataTypeCodec} that reads and writes the fields in their order
+ * like a hand-written one, without reflection.
+ * <p>
+ * The codec reads a field directly unless it is private, then through its getter, and decodes with the
+ * constructor that takes the fields in their order.
+ */
+@SupportedAnnotationTypes(StructureCodecProcessor.STRUCTURE_FIELD)
+public class StructureCodecProcessor extends AbstractProcessor {
+
+    static final String STRUCTURE_FIELD = "com.siemens.opc.server.milo.types.StructureField";
+
+    private static final String UNSIGNED = "org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.";
+    private static final String BUILTIN = "org.eclipse.milo.opcua.stack.core.types.builtin.";
+
+    // the encoder and decoder method suffix of each Java type
+    private static final Map<String, String> ENCODINGS = new HashMap<>();
+
+    static {
+        ENCODINGS.put("boolean", "Boolean");
+        ENCODINGS.put("java.lang.Boolean", "Boolean");
+        ENCODINGS.put("byte", "SByte");
+        ENCODINGS.put("java.lang.Byte", "SByte");
+        ENCODINGS.put(UNSIGNED + "UByte", "Byte");
+        ENCODINGS.put("short", "Int16");
+        ENCODINGS.put("java.lang.Short", "Int16");
+        ENCODINGS.put(UNSIGNED + "UShort", "UInt16");
+        ENCODINGS.put("int", "Int32");
+        ENCODINGS.put("java.lang.Integer", "Int32");
+        ENCODINGS.put(UNSIGNED + "UInteger", "UInt32");
+        ENCODINGS.put("long", "Int64");
+        ENCODINGS.put("java.lang.Long", "Int64");
+        ENCODINGS.put(UNSIGNED + "ULong", "UInt64");
+        ENCODINGS.put("float", "Float");
+        ENCODINGS.put("java.lang.Float", "Float");
+        ENCODINGS.put("double", "Double");
+        ENCODINGS.put("java.lang.Double", "Double");
+        ENCODINGS.put("java.lang.String", "String");
+        ENCODINGS.put("java.util.UUID", "Guid");
+        ENCODINGS.put(BUILTIN + "DateTime", "DateTime");
+        ENCODINGS.put(BUILTIN + "ByteString", "ByteString");
+        ENCODINGS.put(BUILTIN + "NodeId", "NodeId");
+        ENCODINGS.put(BUILTIN + "StatusCode", "StatusCode");
+        ENCODINGS.put(BUILTIN + "QualifiedName", "QualifiedName");
+        ENCODINGS.put(BUILTIN + "LocalizedText", "LocalizedText");
+    }
+
+    // the encoding of each StructureField.Encoding, its size in bits and the conversion of a value to it: a cast
+    // to a primitive type, and the factory of the unsigned types
+    private static final Map<String, String> OVERRIDES = new LinkedHashMap<>();
+    private static final Map<String, Integer> BITS = new HashMap<>();
+    private static final Map<String, String> CASTS = new HashMap<>();
+    private static final Map<String, String> FACTORIES = new HashMap<>();
+
+    static {
+        override("SBYTE", "SByte", 8, "byte", null);
+        override("BYTE", "Byte", 9, "long", "ubyte");
+        override("INT16", "Int16", 16, "short", null);
+        override("UINT16", "UInt16", 17, "int", "ushort");
+        override("INT32", "Int32", 32, "int", null);
+        override("UINT32", "UInt32", 33, "long", "uint");
+        override("INT64", "Int64", 64, "long", null);
+        override("UINT64", "UInt64", 64, "long", "ulong");
+
+        BITS.put("byte", 8);
+        BITS.put("short", 16);
+        BITS.put("int", 32);
+        BITS.put("long", 64);
+    }
+
+    private static void override(String name, String encoding, int bits, String cast, String factory) {
+        OVERRIDES.put(name, encoding);
+        BITS.put(name, bits);
+        CASTS.put(name, cast);
+        if (factory != null) {
+            FACTORIES.put(name, factory);
+        }
+    }
+
+    /**
+     * @return the expression cast to the type, or the expression itself if it has the type already, so the
+     * generated code has no redundant casts.
+     */
+    private static String cast(String type, String javaType, String expression) {
+        return type.equals(javaType) ? expression : "(" + type + ") " + expression;
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        TypeElement annotation = processingEnv.getElementUtils().getTypeElement(STRUCTURE_FIELD);
+        if (annotation == null) {
+            return false;
+        }
+
+        Map<TypeElement, List<EncodedField>> types = new LinkedHashMap<>();
+        for (VariableElement field : ElementFilter.fieldsIn(roundEnv.getElementsAnnotatedWith(annotation))) {
+            EncodedField structureField = structureField(field, annotation);
+            if (structureField != null) {
+                types.computeIfAbsent((TypeElement) field.getEnclosingElement(), t -> new ArrayList<>())
+                    .add(structureField);
+            }
+        }
+
+        for (Map.Entry<TypeElement, List<EncodedField>> entry : types.entrySet()) {
+            entry.getValue().sort(Comparator.comparingInt(field -> field.order));
+            generate(entry.getKey(), entry.getValue());
+        }
+
+        return true;
+    }
+
+    private EncodedField structureField(VariableElement field, TypeElement annotation) {
+        String javaType = field.asType().toString();
+        String encoding = ENCODINGS.get(javaType);
+
+        if (field.getModifiers().contains(Modifier.STATIC)) {
+            return error(field, "a @StructureField can't be static");
+        }
+        if (encoding == null) {
+            return error(field, "unsupported @StructureField type " + javaType);
+        }
+
+        int order = 0;
+        String name = "";
+        String override = "DEFAULT";
+
+        for (AnnotationMirror mirror : field.getAnnotationMirrors()) {
+            if (!mirror.getAnnotationType().asElement().equals(annotation)) {
+                continue;
+            }
+
+            for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> value
+                : mirror.getElementValues().entrySet()) {
+
+                String key = value.getKey().getSimpleName().toString();
+                if (key.equals("order")) {
+                    order = (Integer) value.getValue().getValue();
+                } else if (key.equals("name")) {
+                    name = (String) value.getValue().getValue();
+                } else if (key.equals("encoding")) {
+                    override = ((VariableElement) value.getValue().getValue()).getSimpleName().toString();
+                }
+            }
+        }
+
+        String fieldName = field.getSimpleName().toString();
+        if (name.isEmpty()) {
+            name = Character.toUpperCase(fieldName.charAt(0)) + fieldName.substring(1);
+        }
+
+        if (override.equals("DEFAULT")) {
+            override = null;
+        } else {
+            Integer javaBits = BITS.get(javaType);
+
+            // an unsigned encoding needs a wider signed field, except for the raw bits of a UInt64
+            if (javaBits == null || BITS.get(override) > javaBits) {
+                return error(field, "encoding " + override + " does not fit a " + javaType);
+            }
+            encoding = OVERRIDES.get(override);
+        }
+
+        return new EncodedField(field, fieldName, javaType, name, order, encoding, override);
+    }
+
+    private void generate(TypeElement type, List<EncodedField> fields) {
+        String typeName = type.getQualifiedName().toString();
+        String packageName = ((PackageElement) packageOf(type)).getQualifiedName().toString();
+        String codecName = type.getSimpleName() + "Codec";
+
+        List<String> getters = new ArrayList<>();
+        for (EncodedField field : fields) {
+            String getter = getter(type, field);
+            if (getter == null) {
+                error(field.element, "no getter for private @StructureField " + field.fieldName);
+                return;
+            }
+            getters.add(getter);
+        }
+
+        if (!hasConstructor(type, fields)) {
+            error(type, "no constructor with the @StructureField types in order in " + typeName);
+            return;
+        }
+
+        StringBuilder source = new StringBuilder();
+        source.append("package ").append(packageName).append(";\n\n");
+        source.append("import org.eclipse.milo.opcua.stack.core.UaSerializationException;\n");
+        source.append("import org.eclipse.milo.opcua.stack.core.serialization.UaDecoder;\n");
+        source.append("import org.eclipse.milo.opcua.stack.core.serialization.UaEncoder;\n");
+        source.append("import org.eclipse.milo.opcua.stack.core.serialization.codecs.GenericDataTypeCodec;\n");
+        source.append("import org.eclipse.milo.opcua.stack.core.serialization.codecs.SerializationContext;\n\n");
+        source.append("import static ").append(UNSIGNED).append("Unsigned.*;\n\n");
+        source.append("/**\n * Generated by ").append(getClass().getSimpleName())
+            .append(" from the @StructureField fields of {@link ").append(typeName).append("}.\n */\n");
+        source.append("public final class ").append(codecName)
+            .append(" extends GenericDataTypeCodec<").append(typeName).append("> {\n\n");
+
+        source.append("    @Override\n");
+        source.append("    public Class<").append(typeName).append("> getType() {\n");
+        source.append("        return ").append(typeName).append(".class;\n");
+        source.append("    }\n\n");
+
+        source.append("    @Override\n");
+        source.append("    public ").append(typeName)
+            .append(" decode(SerializationContext context, UaDecoder decoder) throws UaSerializationException {\n");
+        for (int i = 0; i < fields.size(); i++) {
+            EncodedField field = fields.get(i);
+            source.append("        ").append(field.javaType).append(" f").append(i).append(" = ");
+            if (field.override == null) {
+                source.append("decoder.read").append(field.encoding).append("(\"").append(field.name).append("\");\n");
+            } else {
+                source.append(cast(field.javaType, "long",
+                    "decoder.read" + field.encoding + "(\"" + field.name + "\").longValue()")).append(";\n");
+            }
+        }
+        source.append("\n        return new ").append(typeName).append("(");
+        for (int i = 0; i < fields.size(); i++) {
+            source.append(i > 0 ? ", " : "").append("f").append(i);
+        }
+        source.append(");\n");
+        source.append("    }\n\n");
+
+        source.append("    @Override\n");
+        source.append("    public void encode(SerializationContext context, ").append(typeName)
+            .append(" value, UaEncoder encoder) throws UaSerializationException {\n");
+        for (int i = 0; i < fields.size(); i++) {
+            EncodedField field = fields.get(i);
+            String read = "value." + getters.get(i);
+            if (field.override != null) {
+                read = cast(CASTS.get(field.override), field.javaType, read);
+                if (FACTORIES.containsKey(field.override)) {
+                    read = FACTORIES.get(field.override) + "(" + read + ")";
+                }
+            }
+            source.append("        encoder.write").append(field.encoding).append("(\"").append(field.name)
+                .append("\", ").append(read).append(");\n");
+        }
+        source.append("    }\n\n");
+        source.append("}\n");
+
+        try (Writer writer = processingEnv.getFiler()
+            .createSourceFile(packageName + "." + codecName, type).openWriter()) {
+
+            writer.write(source.toString());
+        } catch (IOException e) {
+            error(type, "can't write " + codecName + ": " + e);
+        }
+    }
+
+    /**
+     * @return the expression after {@code value.} that reads a field: the field or its getter.
+     */
+    private static String getter(TypeElement type, EncodedField field) {
+        if (!field.element.getModifiers().contains(Modifier.PRIVATE)) {
+            return field.fieldName;
+        }
+
+        String capitalized = Character.toUpperCase(field.fieldName.charAt(0)) + field.fieldName.substring(1);
+        for (ExecutableElement method : ElementFilter.methodsIn(type.getEnclosedElements())) {
+            String methodName = method.getSimpleName().toString();
+
+            if (method.getParameters().isEmpty()
+                && !method.getModifiers().contains(Modifier.PRIVATE)
+                && method.getReturnType().toString().equals(field.javaType)
+                && (methodName.equals("get" + capitalized)
+                || (methodName.equals("is" + capitalized) && field.javaType.equals("boolean")))) {
+
+                return methodName + "()";
+            }
+        }
+
+        return null;
+    }
+
+    private static boolean hasConstructor(TypeElement type, List<EncodedField> fields) {
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            List<? extends VariableElement> parameters = constructor.getParameters();
+
+            if (constructor.getModifiers().contains(Modifier.PRIVATE) || parameters.size() != fields.size()) {
+                continue;
+            }
+
+            boolean matches = true;
+            for (int i = 0; i < parameters.size() && matches; i++) {
+                matches = parameters.get(i).asType().toString().equals(fields.get(i).javaType);
+            }
+
+            if (matches) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static Element packageOf(Element element) {
+        while (element.asType().getKind() != TypeKind.PACKAGE) {
+            element = element.getEnclosingElement();
+        }
+
+        return element;
+    }
+
+    private EncodedField error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+        return null;
+    }
+
+    private static final class EncodedField {
+        final VariableElement element;
+        final String fieldName;
+        final String javaType;
+        final String name;
+        final int order;
+        final String encoding;
+        final String override;
+
+        EncodedField(VariableElement element, String fieldName, String javaType, String name, int order,
+                       String encoding, String override) {
+            this.element = element;
+            this.fieldName = fieldName;
+            this.javaType = javaType;
+            this.name = name;
+            this.order = order;
+            this.encoding = encoding;
+            this.override = override;
+        }
+    }
+
+}
@@ -0,0 +1,90 @@
+package com.siemens.opc.server.milo;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Properties;
+
+import com.siemens.opc.server.AccessRoleConfig;
+import org.eclipse.milo.opcua.sdk.server.OpcUaServer;
+import org.eclipse.milo.opcua.sdk.server.Session;
+import org.eclipse.milo.opcua.sdk.server.api.config.OpcUaServerConfig;
+import org.eclipse.milo.opcua.stack.core.application.DefaultCertificateManager;
+import org.eclipse.milo.opcua.stack.core.application.InsecureCertificateValidator;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class AccessPolicyTest {
+
+    private static final NodeId TAG = new NodeId(2, "Test/Tags/Tag");
+    private static final NodeId READ_ONLY_TAG = new NodeId(2, "Test/ReadOnly/Tag");
+
+    private static OpcUaServer server;
+
+    @BeforeClass
+    public static void setupServer() {
+        // never started, so it needs no key pair
+        server = new OpcUaServer(OpcUaServerConfig.builder()
+            .setCertificateManager(new DefaultCertificateManager())
+            .setCertificateValidator(new InsecureCertificateValidator())
+            .build());
+    }
+
+    @Test
+    public void onlyNamedRolesManageNodes() {
+        Properties properties = new Properties();
+        properties.setProperty("accessRoles", "admin,operator,guest");
+        properties.setProperty("accessRole.admin.users", "admin");
+        properties.setProperty("accessRole.admin.manageNodes", "true");
+        properties.setProperty("accessRole.operator.users", "operator");
+        properties.setProperty("accessRole.operator.access", "ReadOnly:read");
+        properties.setProperty("accessRole.operator.manageNodes", "true");
+        properties.setProperty("accessRole.guest.users", "*,guest");
+        properties.setProperty("accessRole.guest.manageNodes", "true");
+
+        AccessPolicy policy = policy(AccessRoleConfig.fromProperties(properties));
+
+        assertTrue(policy.grant(session("admin")).canManageNodes());
+        assertTrue(policy.grant(session("operator")).canManageNodes());
+        assertTrue(policy.grant(session("operator")).canWrite(TAG));
+        assertFalse(policy.grant(session("operator")).canWrite(READ_ONLY_TAG));
+        assertTrue(policy.grant(session("guest")).canManageNodes());
+
+        // the * user may write but never manage nodes, not even through a role that may
+        AccessPolicy.Grant anonymous = policy.grant(session("anonymous_session_ns=1;i=1"));
+        assertTrue(anonymous.canWrite(TAG));
+        assertFalse(anonymous.canManageNodes());
+    }
+
+    @Test
+    public void manageNodesIsOffByDefault() {
+        Properties properties = new Properties();
+        properties.setProperty("accessRoles", "admin");
+        properties.setProperty("accessRole.admin.users", "admin");
+
+        AccessPolicy policy = policy(AccessRoleConfig.fromProperties(properties));
+
+        assertFalse(policy.grant(session("admin")).canManageNodes());
+        // identities without a role are not restricted, but have no grant that permits managing nodes
+        assertNull(policy.grant(session("user")));
+        assertNull(policy.grant(Optional.empty()));
+    }
+
+    private static AccessPolicy policy(List<AccessRoleConfig> roles) {
+        return AccessPolicy.compile("Test", roles, Arrays.asList(TAG, READ_ONLY_TAG));
+    }
+
+    private static Optional<Session> session(String identity) {
+        Session session = new Session(server, new NodeId(1, identity), identity, Duration.ofMinutes(1), 1);
+        session.setIdentityObject(identity);
+
+        return Optional.of(session);
+    }
+
+}
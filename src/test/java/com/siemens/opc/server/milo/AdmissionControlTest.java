@@ -0,0 +1,114 @@
+package com.siemens.opc.server.milo;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.siemens.opc.server.NamespaceConfig;
+import com.siemens.opc.server.milo.diagnostics.AdmissionStats;
+import org.eclipse.milo.opcua.sdk.server.OpcUaServer;
+import org.eclipse.milo.opcua.sdk.server.Session;
+import org.eclipse.milo.opcua.sdk.server.api.config.OpcUaServerConfig;
+import org.eclipse.milo.opcua.stack.core.application.DefaultCertificateManager;
+import org.eclipse.milo.opcua.stack.core.application.InsecureCertificateValidator;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class AdmissionControlTest {
+
+    private ScheduledExecutorService scheduler;
+    private CountDownLatch schedulerBlocked;
+    private Optional<Session> session;
+
+    private final List<String> admitted = new CopyOnWriteArrayList<>();
+
+    @Before
+    public void setup() {
+        // never started, so it needs no key pair
+        OpcUaServer server = new OpcUaServer(OpcUaServerConfig.builder()
+            .setCertificateManager(new DefaultCertificateManager())
+            .setCertificateValidator(new InsecureCertificateValidator())
+            .build());
+
+        Session s = new Session(server, new NodeId(1, "session"), "session", Duration.ofMinutes(1), 1);
+        s.setIdentityObject("user");
+        session = Optional.of(s);
+
+        // queued requests are only drained once the test lets the scheduler run
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        schedulerBlocked = new CountDownLatch(1);
+        scheduler.execute(() -> {
+            try {
+                schedulerBlocked.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        schedulerBlocked.countDown();
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void requestsDoNotOvertakeQueuedOnes() throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty("sessionItemsPerSecond", "10");
+        properties.setProperty("admissionPolicy", "queue");
+        AdmissionControl admission = new AdmissionControl(new NamespaceConfig(properties), scheduler, new AdmissionStats());
+
+        // A takes more items than a second's worth, B waits for the tokens
+        admit(admission, "A", 15);
+        admit(admission, "B", 1);
+        assertEquals(Arrays.asList("A"), admitted);
+
+        // the bucket has tokens again but the drain that admits B has not run yet
+        Thread.sleep(700);
+        admit(admission, "C", 1);
+        assertEquals(Arrays.asList("A"), admitted);
+
+        schedulerBlocked.countDown();
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (admitted.size() < 3 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(Arrays.asList("A", "B", "C"), admitted);
+    }
+
+    @Test
+    public void requestsWithoutQueuedOnesAreAdmittedAtOnce() {
+        Properties properties = new Properties();
+        properties.setProperty("sessionConcurrentRequests", "1");
+        properties.setProperty("admissionPolicy", "queue");
+        AdmissionControl admission = new AdmissionControl(new NamespaceConfig(properties), scheduler, new AdmissionStats());
+
+        admit(admission, "A", 1);
+        admit(admission, "B", 1);
+
+        assertEquals(Arrays.asList("A", "B"), admitted);
+    }
+
+    // admits a request that completes at once
+    private void admit(AdmissionControl admission, String name, int items) {
+        admission.admit(session, items, release -> {
+            admitted.add(name);
+            release.run();
+        }, status -> admitted.add(name + " rejected"));
+    }
+
+}
@@ -0,0 +1,193 @@
+package com.siemens.opc.server.milo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import com.siemens.opc.server.TagDefinition;
+import org.eclipse.milo.opcua.sdk.core.AccessLevel;
+import org.eclipse.milo.opcua.sdk.server.OpcUaServer;
+import org.eclipse.milo.opcua.sdk.server.api.config.OpcUaServerConfig;
+import org.eclipse.milo.opcua.sdk.server.nodes.UaFolderNode;
+import org.eclipse.milo.opcua.sdk.server.nodes.UaVariableNode;
+import org.eclipse.milo.opcua.sdk.server.nodes.delegates.AttributeDelegate;
+import org.eclipse.milo.opcua.stack.core.Identifiers;
+import org.eclipse.milo.opcua.stack.core.StatusCodes;
+import org.eclipse.milo.opcua.stack.core.application.DefaultCertificateManager;
+import org.eclipse.milo.opcua.stack.core.application.InsecureCertificateValidator;
+import org.eclipse.milo.opcua.stack.core.types.builtin.LocalizedText;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.eclipse.milo.opcua.stack.core.types.builtin.QualifiedName;
+import org.eclipse.milo.opcua.stack.core.types.builtin.StatusCode;
+import org.eclipse.milo.opcua.stack.core.types.builtin.Variant;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.Unsigned.ushort;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TagNodeLoaderTest {
+
+    private static final String BASE_PATH = "Test/Tags";
+
+    private OpcUaServer server;
+    private TagNodeLoader loader;
+
+    @Before
+    public void setup() {
+        // never started, so it needs no key pair
+        server = new OpcUaServer(OpcUaServerConfig.builder()
+            .setCertificateManager(new DefaultCertificateManager())
+            .setCertificateValidator(new InsecureCertificateValidator())
+            .build());
+
+        UaFolderNode rootNode = new UaFolderNode(
+            server.getNodeMap(), new NodeId(2, BASE_PATH), new QualifiedName(2, "Tags"), LocalizedText.english("Tags"));
+        server.getNodeMap().addNode(rootNode);
+
+        loader = new TagNodeLoader(server, ushort(2), BASE_PATH, AttributeDelegate.DEFAULT);
+        loader.load(rootNode, Arrays.asList(tag("Line", "A"), tag("Line", "B")));
+    }
+
+    @Test
+    public void reloadKeepsAddedTags() {
+        StatusCode[] results = add(tag("Line", "Added"), tag("Extra", "Added"));
+
+        assertTrue(results[0].isGood());
+        assertTrue(results[1].isGood());
+
+        // neither the old nor the new definitions name the added tags
+        TagNodeLoader.Changes changes = loader.reload(Collections.singletonList(tag("Line", "C")));
+
+        assertEquals(2, changes.getRemoved().size());
+        assertTrue(exists("Line/Added"));
+        assertTrue(exists("Extra/Added"));
+        assertTrue(exists("Line/C"));
+        assertFalse(exists("Line/A"));
+        assertFalse(exists("Line/B"));
+    }
+
+    @Test
+    public void reloadSkipsDefinitionsInTheWayOfAddedTags() {
+        add(tag("Line", "Added"));
+
+        TagNodeLoader.Changes changes = loader.reload(Arrays.asList(
+            tag("Line", "A"),
+            tag("Line", "Added"),
+            tag("Line/Added", "Child")));
+
+        assertTrue(changes.getAdded().isEmpty());
+        assertEquals(1, changes.getRemoved().size());
+        assertTrue(exists("Line/Added"));
+        assertFalse(exists("Line/Added/Child"));
+
+        // a removed tag is no longer kept, its definition can take its place
+        StatusCode[] results = remove("Line/Added");
+        assertTrue(results[0].isGood());
+
+        changes = loader.reload(Arrays.asList(tag("Line", "A"), tag("Line", "Added")));
+        assertEquals(1, changes.getAdded().size());
+
+        changes = loader.reload(Collections.singletonList(tag("Line", "A")));
+        assertEquals(1, changes.getRemoved().size());
+        assertFalse(exists("Line/Added"));
+    }
+
+    @Test
+    public void loadedTagsAreNotKept() {
+        StatusCode[] results = remove("Line/A", "Line/A", "Line/Missing");
+
+        assertTrue(results[0].isGood());
+        assertEquals(StatusCodes.Bad_NodeIdUnknown, results[1].getValue());
+        assertEquals(StatusCodes.Bad_NodeIdUnknown, results[2].getValue());
+
+        loader.reload(Collections.emptyList());
+
+        assertFalse(exists("Line/B"));
+        assertFalse(server.getNodeMap().containsKey(new NodeId(2, BASE_PATH + "/Line")));
+    }
+
+    @Test
+    public void loadSkipsCollidingDefinitions() {
+        UaFolderNode rootNode = new UaFolderNode(
+            server.getNodeMap(), new NodeId(2, "Other"), new QualifiedName(2, "Other"), LocalizedText.english("Other"));
+        server.getNodeMap().addNode(rootNode);
+
+        TagNodeLoader other = new TagNodeLoader(server, ushort(2), "Other", AttributeDelegate.DEFAULT);
+        List<UaVariableNode> nodes = other.load(rootNode, Arrays.asList(
+            tag("Line", "A"),
+            tag("Line", "A"),
+            tag("", "Line"),
+            tag("Line/A", "Child"),
+            tag("", "Pump"),
+            tag("Pump/Motor", "Speed"),
+            tag("Line", "B")));
+
+        assertEquals(3, nodes.size());
+        assertEquals(other.getNodeId("Line/A"), nodes.get(0).getNodeId());
+        assertEquals(other.getNodeId("Pump"), nodes.get(1).getNodeId());
+        assertEquals(other.getNodeId("Line/B"), nodes.get(2).getNodeId());
+        assertEquals(3, other.getTemplates().size());
+        assertTrue(server.getNodeMap().get(other.getNodeId("Line")) instanceof UaFolderNode);
+        assertFalse(server.getNodeMap().containsKey(other.getNodeId("Pump/Motor")));
+    }
+
+    @Test
+    public void arraysOverTheMaximumAreRejected() {
+        UaFolderNode rootNode = new UaFolderNode(
+            server.getNodeMap(), new NodeId(2, "Arrays"), new QualifiedName(2, "Arrays"), LocalizedText.english("Arrays"));
+        server.getNodeMap().addNode(rootNode);
+
+        TagNodeLoader arrays = new TagNodeLoader(server, ushort(2), "Arrays", AttributeDelegate.DEFAULT, null, 1000);
+        List<UaVariableNode> nodes = arrays.load(rootNode, Arrays.asList(
+            array("Large", 1001),
+            array("Overflow", 65536, 65536),
+            array("Small", 10, 100)));
+
+        assertEquals(1, nodes.size());
+        assertEquals(arrays.getNodeId("Small"), nodes.get(0).getNodeId());
+
+        StatusCode[] results = new StatusCode[2];
+        arrays.add(Arrays.asList(array("AddedLarge", 2, 501), array("AddedSmall", 1000)), nodeId -> true, results);
+
+        assertEquals(StatusCodes.Bad_NodeAttributesInvalid, results[0].getValue());
+        assertTrue(results[1].isGood());
+    }
+
+    private StatusCode[] add(TagDefinition... tags) {
+        StatusCode[] results = new StatusCode[tags.length];
+        loader.add(Arrays.asList(tags), nodeId -> true, results);
+
+        return results;
+    }
+
+    private StatusCode[] remove(String... paths) {
+        List<NodeId> nodeIds = new ArrayList<>();
+        for (String path : paths) {
+            nodeIds.add(loader.getNodeId(path));
+        }
+
+        StatusCode[] results = new StatusCode[paths.length];
+        loader.remove(nodeIds, nodeId -> true, results);
+
+        return results;
+    }
+
+    private boolean exists(String path) {
+        return server.getNodeMap().containsKey(loader.getNodeId(path));
+    }
+
+    private static TagDefinition array(String name, int... dimensions) {
+        return new TagDefinition(
+            "", name, Identifiers.Double, new Variant(0.0), AccessLevel.getMask(AccessLevel.READ_WRITE), dimensions);
+    }
+
+    private static TagDefinition tag(String folderPath, String name) {
+        return new TagDefinition(
+            folderPath, name, Identifiers.Double, new Variant(0.0), AccessLevel.getMask(AccessLevel.READ_WRITE));
+    }
+
+}
@@ -0,0 +1,257 @@
+package com.siemens.opc.server.milo.history;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import org.eclipse.milo.opcua.sdk.core.AccessLevel;
+import org.eclipse.milo.opcua.sdk.server.nodes.UaVariableNode;
+import org.eclipse.milo.opcua.stack.core.Identifiers;
+import org.eclipse.milo.opcua.stack.core.StatusCodes;
+import org.eclipse.milo.opcua.stack.core.types.builtin.ByteString;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DateTime;
+import org.eclipse.milo.opcua.stack.core.types.builtin.LocalizedText;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.eclipse.milo.opcua.stack.core.types.builtin.QualifiedName;
+import org.eclipse.milo.opcua.stack.core.types.builtin.StatusCode;
+import org.eclipse.milo.opcua.stack.core.types.builtin.Variant;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.TimestampsToReturn;
+import org.eclipse.milo.opcua.stack.core.types.structured.HistoryData;
+import org.eclipse.milo.opcua.stack.core.types.structured.HistoryReadResult;
+import org.eclipse.milo.opcua.stack.core.types.structured.HistoryReadValueId;
+import org.eclipse.milo.opcua.stack.core.types.structured.ReadRawModifiedDetails;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.Unsigned.ubyte;
+import static org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.Unsigned.uint;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HistoryStoreTest {
+
+    private static final NodeId NODE_ID = new NodeId(2, "Tag");
+    private static final long T0 = 1_500_000_000_000L;
+
+    private HistoryStore store;
+    private UaVariableNode node;
+
+    // the recorded times, three samples share each time
+    private final List<Long> times = new ArrayList<>();
+
+    @Before
+    public void setup() {
+        store = new HistoryStore("test", Long.MAX_VALUE, Long.MAX_VALUE);
+
+        node = node(Identifiers.Double, value(T0, -1));
+
+        store.historize(node);
+        times.add(T0);
+
+        for (int i = 0; i < 30; i++) {
+            long time = T0 + 1000 + (i / 3) * 1000;
+
+            node.setValue(value(time, i));
+            times.add(time);
+        }
+    }
+
+    @Test
+    public void historizeMakesTheNodeHistoryReadable() {
+        assertTrue(node.getHistorizing());
+        assertEquals(AccessLevel.getMask(AccessLevel.HistoryRead),
+            node.getAccessLevel().intValue() & AccessLevel.getMask(AccessLevel.HistoryRead));
+    }
+
+    @Test
+    public void readRawReturnsTheRecordedValues() {
+        List<DataValue> values = readAll(T0, T0 + 100_000, 0);
+
+        assertEquals(times.size(), values.size());
+        assertEquals(-1, (double) values.get(0).getValue().getValue(), 0);
+
+        for (int i = 1; i < values.size(); i++) {
+            assertEquals(times.get(i).longValue(), values.get(i).getSourceTime().getJavaTime());
+            assertEquals(i - 1, (double) values.get(i).getValue().getValue(), 0);
+        }
+    }
+
+    @Test
+    public void readRawEndIsExclusive() {
+        List<DataValue> values = readAll(T0 + 1000, T0 + 3000, 0);
+
+        // the samples at T0 + 1000 and T0 + 2000
+        assertEquals(6, values.size());
+    }
+
+    @Test
+    public void continuationPointsResumeWithinSamplesOfTheSameTime() {
+        // pages of two and four end within the three samples of a time
+        for (int limit = 1; limit <= 4; limit++) {
+            List<DataValue> values = readAll(T0, T0 + 100_000, limit);
+
+            assertEquals("page size " + limit, times.size(), values.size());
+
+            for (int i = 1; i < values.size(); i++) {
+                assertEquals("page size " + limit, i - 1, (double) values.get(i).getValue().getValue(), 0);
+            }
+        }
+    }
+
+    @Test
+    public void reverseReadsAreNewestFirst() {
+        // end before start: end < time <= start
+        List<DataValue> values = readAll(T0 + 10_000, T0 + 8000, 0);
+
+        assertEquals(6, values.size());
+        assertEquals(29, (double) values.get(0).getValue().getValue(), 0);
+        assertEquals(24, (double) values.get(5).getValue().getValue(), 0);
+
+        for (int limit = 1; limit <= 4; limit++) {
+            List<DataValue> paged = readAll(T0 + 100_000, T0 - 1, limit);
+            List<Double> expected = new ArrayList<>();
+
+            for (int i = 29; i >= -1; i--) {
+                expected.add((double) i);
+            }
+
+            assertEquals("page size " + limit, expected, doubles(paged));
+        }
+    }
+
+    @Test
+    public void readWithoutStartReturnsTheLatestValues() {
+        List<DataValue> values = readAll(null, T0 + 100_000, 4);
+
+        List<Double> expected = new ArrayList<>();
+        for (int i = 29; i >= -1; i--) {
+            expected.add((double) i);
+        }
+
+        assertEquals(expected, doubles(values));
+
+        HistoryReadResult first = read(null, T0 + 100_000, 4, ByteString.NULL_VALUE);
+        assertEquals(29.0, doubles(first).get(0), 0);
+        assertEquals(4, doubles(first).size());
+    }
+
+    @Test
+    public void invalidContinuationPointsAreRejected() {
+        HistoryReadResult result = read(T0, T0 + 100_000, 2, ByteString.of(new byte[]{1, 2, 3}));
+
+        assertEquals(StatusCodes.Bad_ContinuationPointInvalid, result.getStatusCode().getValue());
+    }
+
+    @Test
+    public void emptyRangesHaveNoData() {
+        HistoryReadResult result = read(T0 + 500, T0 + 900, 0, ByteString.NULL_VALUE);
+
+        assertEquals(StatusCodes.Good_NoData, result.getStatusCode().getValue());
+    }
+
+    @Test
+    public void removeGivesTheMemoryBack() {
+        assertTrue(store.getMemoryBytes() > 0);
+
+        store.remove(NODE_ID);
+
+        assertEquals(0, store.getMemoryBytes());
+        assertEquals(StatusCodes.Bad_HistoryOperationUnsupported,
+            read(T0, T0 + 100_000, 0, ByteString.NULL_VALUE).getStatusCode().getValue());
+
+        // the removed node no longer records
+        node.setValue(value(T0 + 50_000, 100));
+        assertEquals(0, store.getMemoryBytes());
+    }
+
+    @Test
+    public void replacingNodesContinueTheHistoryOfTheSameKind() {
+        store.historize(node(Identifiers.Double, value(T0 + 20_000, 30)));
+
+        List<DataValue> values = readAll(T0, T0 + 100_000, 0);
+        assertEquals(times.size() + 1, values.size());
+        assertEquals(30, (double) values.get(values.size() - 1).getValue().getValue(), 0);
+
+        long bytes = store.getMemoryBytes();
+        store.historize(node(Identifiers.Int32, new DataValue(new Variant(7), StatusCode.GOOD, time(T0 + 30_000))));
+
+        values = readAll(T0, T0 + 100_000, 0);
+        assertEquals(1, values.size());
+        assertEquals(7, values.get(0).getValue().getValue());
+        assertTrue(store.getMemoryBytes() < bytes);
+    }
+
+    private List<DataValue> readAll(Long start, long end, int limit) {
+        List<DataValue> values = new ArrayList<>();
+        ByteString continuationPoint = ByteString.NULL_VALUE;
+
+        do {
+            HistoryReadResult result = read(start, end, limit, continuationPoint);
+            assertTrue(result.getStatusCode().toString(), result.getStatusCode().isGood());
+
+            List<DataValue> page = page(result);
+            if (limit > 0) {
+                assertTrue(page.size() <= limit);
+            }
+
+            values.addAll(page);
+            continuationPoint = result.getContinuationPoint();
+        } while (continuationPoint != null && continuationPoint.isNotNull());
+
+        return values;
+    }
+
+    private static UaVariableNode node(NodeId dataType, DataValue value) {
+        return new UaVariableNode(
+            null, NODE_ID, new QualifiedName(2, "Tag"), LocalizedText.english("Tag"),
+            LocalizedText.english(""), uint(0), uint(0),
+            value, dataType, -1, null,
+            ubyte(AccessLevel.getMask(AccessLevel.READ_WRITE)), ubyte(AccessLevel.getMask(AccessLevel.READ_WRITE)),
+            0.0, false);
+    }
+
+    private HistoryReadResult read(Long start, long end, int limit, ByteString continuationPoint) {
+        ReadRawModifiedDetails details = new ReadRawModifiedDetails(
+            false, start != null ? time(start) : null, time(end), uint(limit), false);
+
+        return store.read(
+            details,
+            TimestampsToReturn.Both,
+            Collections.singletonList(new HistoryReadValueId(NODE_ID, null, QualifiedName.NULL_VALUE, continuationPoint))
+        ).get(0);
+    }
+
+    private static List<DataValue> page(HistoryReadResult result) {
+        HistoryData data = result.getHistoryData().decode();
+
+        List<DataValue> values = new ArrayList<>();
+        Collections.addAll(values, data.getDataValues());
+
+        return values;
+    }
+
+    private static List<Double> doubles(HistoryReadResult result) {
+        return doubles(page(result));
+    }
+
+    private static List<Double> doubles(List<DataValue> values) {
+        List<Double> doubles = new ArrayList<>(values.size());
+
+        for (DataValue value : values) {
+            doubles.add((Double) value.getValue().getValue());
+        }
+
+        return doubles;
+    }
+
+    private static DataValue value(long time, double value) {
+        return new DataValue(new Variant(value), StatusCode.GOOD, time(time));
+    }
+
+    private static DateTime time(long time) {
+        return new DateTime(new Date(time));
+    }
+
+}
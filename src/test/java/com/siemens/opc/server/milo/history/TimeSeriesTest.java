@@ -0,0 +1,153 @@
+package com.siemens.opc.server.milo.history;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.siemens.opc.server.milo.store.ValueKind;
+import org.eclipse.milo.opcua.stack.core.StatusCodes;
+import org.eclipse.milo.opcua.stack.core.types.builtin.StatusCode;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TimeSeriesTest {
+
+    private static final long GOOD = StatusCode.GOOD.getValue();
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+
+    @Test
+    public void samplesRoundTrip() {
+        TimeSeries series = new TimeSeries(ValueKind.DOUBLE, Long.MAX_VALUE, Long.MAX_VALUE, new AtomicLong());
+        Random random = new Random(42);
+
+        int count = 10_000;
+        long[] times = new long[count];
+        double[] values = new double[count];
+        long[] statuses = new long[count];
+        long time = 1_500_000_000_000L;
+
+        for (int i = 0; i < count; i++) {
+            // regular, jittered, repeated and far apart times hit every delta-of-delta encoding
+            switch (i % 5) {
+                case 0:
+                    time += 100;
+                    break;
+                case 1:
+                    time += random.nextInt(5000);
+                    break;
+                case 2:
+                    break;
+                case 3:
+                    time += random.nextInt(Integer.MAX_VALUE);
+                    break;
+                default:
+                    time += 1;
+            }
+
+            times[i] = time;
+            values[i] = i % 7 == 0 ? values[Math.max(0, i - 1)] : random.nextGaussian() * Math.pow(10, i % 12);
+            statuses[i] = i % 100 == 99 ? StatusCodes.Uncertain_LastUsableValue : GOOD;
+
+            series.append(times[i], values[i], statuses[i]);
+        }
+
+        Samples samples = new Samples();
+        series.read(Long.MIN_VALUE, Long.MAX_VALUE, 0, samples);
+
+        assertEquals(count, samples.size);
+        assertEquals(count, series.getSamples());
+
+        for (int i = 0; i < count; i++) {
+            assertEquals("time of " + i, times[i], samples.times[i]);
+            assertEquals("value of " + i,
+                Double.doubleToRawLongBits(values[i]), Double.doubleToRawLongBits(samples.values[i]));
+            assertEquals("status of " + i, statuses[i], samples.statuses[i]);
+        }
+    }
+
+    @Test
+    public void readIsInclusiveAndStopsAtMax() {
+        TimeSeries series = series(Long.MAX_VALUE, Long.MAX_VALUE);
+
+        for (int i = 0; i < 1000; i++) {
+            series.append(i * 10L, i, GOOD);
+        }
+
+        Samples samples = new Samples();
+        series.read(100, 200, 0, samples);
+
+        assertEquals(11, samples.size);
+        assertEquals(100, samples.times[0]);
+        assertEquals(200, samples.times[10]);
+
+        samples = new Samples();
+        series.read(100, 200, 3, samples);
+
+        assertEquals(3, samples.size);
+        assertEquals(120, samples.times[2]);
+    }
+
+    @Test
+    public void olderSamplesAreRecordedAtThePreviousTime() {
+        TimeSeries series = series(Long.MAX_VALUE, Long.MAX_VALUE);
+
+        series.append(1000, 1, GOOD);
+        series.append(500, 2, GOOD);
+
+        Samples samples = new Samples();
+        series.read(0, Long.MAX_VALUE, 0, samples);
+
+        assertEquals(2, samples.size);
+        assertEquals(1000, samples.times[1]);
+        assertEquals(2, samples.values[1], 0);
+    }
+
+    @Test
+    public void retentionDropsOldChunksButKeepsTheLatest() {
+        TimeSeries series = series(DAY, Long.MAX_VALUE);
+
+        for (int i = 0; i < 100_000; i++) {
+            series.append(i * 1000L, Math.random(), GOOD);
+        }
+
+        Samples samples = new Samples();
+        series.read(Long.MIN_VALUE, Long.MAX_VALUE, 0, samples);
+
+        long newest = 99_999 * 1000L;
+        assertEquals(newest, samples.times[samples.size - 1]);
+        assertTrue(samples.size < 100_000);
+        // whole chunks are dropped, so one chunk may reach further back than the retention
+        assertTrue(samples.times[0] >= newest - DAY - 1000L * samples.size / 10);
+        assertEquals(samples.size, series.getSamples());
+
+        series.append(newest + 10 * DAY, 0, GOOD);
+        samples = new Samples();
+        series.read(Long.MIN_VALUE, Long.MAX_VALUE, 0, samples);
+
+        assertTrue(samples.times[0] > newest - DAY);
+    }
+
+    @Test
+    public void seriesShareTheMemoryBudget() {
+        AtomicLong memory = new AtomicLong();
+        long maxBytes = 64 * 1024;
+        TimeSeries a = new TimeSeries(ValueKind.DOUBLE, Long.MAX_VALUE, maxBytes, memory);
+        TimeSeries b = new TimeSeries(ValueKind.DOUBLE, Long.MAX_VALUE, maxBytes, memory);
+        Random random = new Random(1);
+
+        for (int i = 0; i < 100_000; i++) {
+            a.append(i, random.nextDouble(), GOOD);
+            b.append(i, random.nextDouble(), GOOD);
+        }
+
+        assertEquals(a.getBytes() + b.getBytes(), memory.get());
+        // the head chunks of at most 2 KiB each may go over the budget
+        assertTrue(memory.get() <= maxBytes + 2 * 2200);
+    }
+
+    private static TimeSeries series(long retentionMillis, long maxBytes) {
+        return new TimeSeries(ValueKind.DOUBLE, retentionMillis, maxBytes, new AtomicLong());
+    }
+
+}
@@ -0,0 +1,38 @@
+package com.siemens.opc.server.milo.simulation;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class SignalBankTest {
+
+    @Test
+    public void addStopsAtTheCapacity() {
+        SignalBank bank = new SignalBank("Test", 100, 10, 100, 2);
+
+        assertEquals(0, bank.add(SignalType.COUNTER));
+        assertEquals(1, bank.add(SignalType.SINE));
+
+        try {
+            bank.add(SignalType.RAMP);
+            fail("a full bank accepted a signal");
+        } catch (IllegalStateException expected) {
+            assertEquals(2, bank.getSize());
+        }
+    }
+
+    @Test
+    public void ticksUpdateEverySignal() {
+        SignalBank bank = new SignalBank("Test", 100, 10, 100, 2);
+        int counter = bank.add(SignalType.COUNTER);
+
+        bank.run();
+        bank.run();
+
+        assertEquals(2, bank.getValue(counter), 0);
+        assertEquals(2, bank.getTicks());
+        assertEquals(2, bank.getUpdates());
+    }
+
+}